@@ -46,7 +46,13 @@ public enum Alliance
             @Override
             public boolean isPawnPromotionSquare(int position)
             {
-                return BoardUtils.INSTANCE.EIGHTH_ROW.get(position);
+                return BoardUtils.INSTANCE.FIRST_ROW.get(position);
+            }
+
+            @Override
+            public Alliance getOpposite()
+            {
+                return BLACK;
             }
 
             @Override
@@ -86,7 +92,13 @@ public enum Alliance
             @Override
             public boolean isPawnPromotionSquare(int position)
             {
-                return BoardUtils.INSTANCE.FIRST_ROW.get(position);
+                return BoardUtils.INSTANCE.EIGHTH_ROW.get(position);
+            }
+
+            @Override
+            public Alliance getOpposite()
+            {
+                return WHITE;
             }
 
             @Override
@@ -105,6 +117,21 @@ public enum Alliance
     public abstract boolean isBlack();
     // given a tile id i want to know if the tile is a pawn promotion tile
     public abstract boolean isPawnPromotionSquare(int position);
+    public abstract Alliance getOpposite();
+
+    /*
+    * The square as this side sees it, counted from its own back rank. White looks up the board
+    * (direction -1) and keeps the coordinate, black looks down it and gets the rank mirrored: a8 <-> a1,
+    * e7 <-> e2. The file never changes.
+    * */
+    public int relativeCoordinate(final int coordinate)
+    {
+        if(getDirection() == WHITE.getDirection())
+        {
+            return coordinate;
+        }
+        return coordinate ^ (BoardUtils.NUM_TILES - BoardUtils.NUM_TILES_PER_ROW);
+    }
 
     public abstract Player choosePlayer(
         WhitePlayer whitePlayer,
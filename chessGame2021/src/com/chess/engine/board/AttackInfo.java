@@ -0,0 +1,190 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Piece;
+
+import java.util.Collection;
+
+/*
+* Who attacks what on one position, as bitboards. Worked out once per board and shared by every
+* evaluation term that needs it (king safety, mobility ...).
+*
+* Notes:
+*   + Player.getLegalMoves() builds a Move object for every legal move. An evaluation term only needs
+*     to know which squares a piece hits, so here we go straight to bitboards (see Bitboards): no
+*     Move objects, no legality checks.
+*   + "Attacked" means the piece could capture on that square if an enemy stood there. So a pawn
+*     attacks diagonally, not forward, and a square holding one of our own pieces still counts as
+*     attacked (it is defended).
+*   + For every piece we keep its square, type and attack set, in the order of the players pieces.
+*     On top of that the attacks are merged per side and per piece type.
+*   + Board.getAttackInfo() builds this the first time somebody asks and keeps it.
+* */
+public final class AttackInfo
+{
+    // Members:
+    private static final Piece.PieceType[] PIECE_TYPES = Piece.PieceType.values();
+    private static final int NUM_PIECE_TYPES = PIECE_TYPES.length;
+
+    private final long occupied;
+    // [alliance]
+    private final long[] sideOccupied;
+    // [alliance][PieceType.ordinal()]
+    private final long[][] pieces;
+    private final long[][] attacksByType;
+    // [alliance]
+    private final long[] attacks;
+    private final int[] kingSquares;
+    // [alliance][n] for the n-th piece of that side
+    private final int[][] pieceSquares;
+    private final Piece.PieceType[][] pieceTypes;
+    private final long[][] pieceAttacks;
+
+    // Constructor:
+    private AttackInfo(final Collection<Piece> whitePieces,
+                       final Collection<Piece> blackPieces)
+    {
+        this.sideOccupied = new long[2];
+        this.pieces = new long[2][NUM_PIECE_TYPES];
+        this.attacksByType = new long[2][NUM_PIECE_TYPES];
+        this.attacks = new long[2];
+        this.kingSquares = new int[] {-1, -1};
+        this.pieceSquares = new int[][] {new int[whitePieces.size()], new int[blackPieces.size()]};
+        this.pieceTypes = new Piece.PieceType[][] {
+            new Piece.PieceType[whitePieces.size()], new Piece.PieceType[blackPieces.size()]
+        };
+        this.pieceAttacks = new long[][] {new long[whitePieces.size()], new long[blackPieces.size()]};
+
+        long occupied = 0L;
+        for(final Piece piece : whitePieces)
+        {
+            occupied |= Bitboards.squareMask(piece.getPiecePosition());
+        }
+        for(final Piece piece : blackPieces)
+        {
+            occupied |= Bitboards.squareMask(piece.getPiecePosition());
+        }
+        this.occupied = occupied;
+
+        addPieces(whitePieces, Alliance.WHITE);
+        addPieces(blackPieces, Alliance.BLACK);
+    }
+
+    // Methods:
+    public static AttackInfo calculate(final Board board)
+    {
+        return new AttackInfo(board.getWhitePieces(), board.getBlackPieces());
+    }
+
+    // the squares the piece on the coordinate attacks, given the occupied squares
+    public static long attacksFrom(final Piece.PieceType pieceType,
+                                   final Alliance alliance,
+                                   final int coordinate,
+                                   final long occupied)
+    {
+        switch(pieceType)
+        {
+            case PAWN:
+                return Bitboards.pawnAttacks(alliance, coordinate);
+            case KNIGHT:
+                return Bitboards.knightAttacks(coordinate);
+            case BISHOP:
+                return Bitboards.bishopAttacks(coordinate, occupied);
+            case ROOK:
+                return Bitboards.rookAttacks(coordinate, occupied);
+            case QUEEN:
+                return Bitboards.queenAttacks(coordinate, occupied);
+            default:
+                return Bitboards.kingAttacks(coordinate);
+        }
+    }
+
+    public long getOccupied()
+    {
+        return this.occupied;
+    }
+
+    // every square holding one of the sides pieces
+    public long getPieces(final Alliance alliance)
+    {
+        return this.sideOccupied[side(alliance)];
+    }
+
+    public long getPieces(final Alliance alliance,
+                          final Piece.PieceType pieceType)
+    {
+        return this.pieces[side(alliance)][pieceType.ordinal()];
+    }
+
+    // every square the side attacks (or defends)
+    public long getAttacks(final Alliance alliance)
+    {
+        return this.attacks[side(alliance)];
+    }
+
+    public long getAttacks(final Alliance alliance,
+                           final Piece.PieceType pieceType)
+    {
+        return this.attacksByType[side(alliance)][pieceType.ordinal()];
+    }
+
+    // -1 when the side has no king, only ever the case on hand built test boards
+    public int getKingSquare(final Alliance alliance)
+    {
+        return this.kingSquares[side(alliance)];
+    }
+
+    public int getPieceCount(final Alliance alliance)
+    {
+        return this.pieceSquares[side(alliance)].length;
+    }
+
+    public int getPieceSquare(final Alliance alliance,
+                              final int index)
+    {
+        return this.pieceSquares[side(alliance)][index];
+    }
+
+    public Piece.PieceType getPieceType(final Alliance alliance,
+                                        final int index)
+    {
+        return this.pieceTypes[side(alliance)][index];
+    }
+
+    public long getPieceAttacks(final Alliance alliance,
+                                final int index)
+    {
+        return this.pieceAttacks[side(alliance)][index];
+    }
+
+    private void addPieces(final Collection<Piece> sidePieces,
+                           final Alliance alliance)
+    {
+        final int side = side(alliance);
+        int index = 0;
+        for(final Piece piece : sidePieces)
+        {
+            final int coordinate = piece.getPiecePosition();
+            final Piece.PieceType pieceType = piece.getPieceType();
+            final long pieceAttacks = attacksFrom(pieceType, alliance, coordinate, this.occupied);
+            this.pieceSquares[side][index] = coordinate;
+            this.pieceTypes[side][index] = pieceType;
+            this.pieceAttacks[side][index] = pieceAttacks;
+            this.sideOccupied[side] |= Bitboards.squareMask(coordinate);
+            this.pieces[side][pieceType.ordinal()] |= Bitboards.squareMask(coordinate);
+            this.attacksByType[side][pieceType.ordinal()] |= pieceAttacks;
+            this.attacks[side] |= pieceAttacks;
+            if(pieceType == Piece.PieceType.KING)
+            {
+                this.kingSquares[side] = coordinate;
+            }
+            index++;
+        }
+    }
+
+    private static int side(final Alliance alliance)
+    {
+        return alliance.isWhite() ? 0 : 1;
+    }
+
+}
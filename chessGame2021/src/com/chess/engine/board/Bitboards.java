@@ -0,0 +1,221 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Piece;
+
+/*
+* Bitboards: a whole set of squares packed into one long, bit i set <--> coordinate i is in the set.
+*
+* Notes:
+*   + We use the same coordinates as the rest of the board, so bit 0 is a8 and bit 63 is h1.
+*   + "Are there any pawns on the d file?" becomes (pawns & FILE_MASKS[3]) != 0, one AND instead of a
+*     loop over the pawns. Long.bitCount(set) tells how many squares are in a set.
+*   + The masks here are worked out once when the class loads:
+*       ++ FILE_MASKS[file]                  --> every square on that file
+*       ++ ADJACENT_FILE_MASKS[file]         --> every square on the files left and right of it
+*       ++ PASSED_PAWN_SPANS[alliance][square] --> the squares in front of a pawn on its own and the
+*                                              two neighbouring files. No enemy pawn in there means
+*                                              nothing can stop or capture it on the way: a passed pawn.
+*       ++ KNIGHT_ATTACKS / KING_ATTACKS / PAWN_ATTACKS --> the squares a piece on a square attacks. They
+*                                              jump, so what stands in between does not matter.
+*   + Bishops, rooks and queens slide until they hit something, their attacks depend on which squares
+*     are occupied. Those are walked ray by ray (slidingAttacks), still without making a single Move.
+* */
+public final class Bitboards
+{
+    // Members:
+    public static final long[] FILE_MASKS = initializeFileMasks();
+    public static final long[] ADJACENT_FILE_MASKS = initializeAdjacentFileMasks();
+    // [0] for white, [1] for black
+    private static final long[][] PASSED_PAWN_SPANS = {
+        initializePassedPawnSpans(true),
+        initializePassedPawnSpans(false)
+    };
+    private static final long[][] PAWN_ATTACKS = {
+        initializeLeaperAttacks(new int[][] {{-1, -1}, {-1, 1}}),
+        initializeLeaperAttacks(new int[][] {{1, -1}, {1, 1}})
+    };
+    private static final long[] KNIGHT_ATTACKS = initializeLeaperAttacks(new int[][] {
+        {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}
+    });
+    private static final long[] KING_ATTACKS = initializeLeaperAttacks(new int[][] {
+        {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}
+    });
+    // {row step, file step}
+    private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+
+    // Constructor:
+    private Bitboards()
+    {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    // Methods:
+    public static long squareMask(final int coordinate)
+    {
+        return 1L << coordinate;
+    }
+
+    public static int fileOf(final int coordinate)
+    {
+        return coordinate % BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    public static int rowOf(final int coordinate)
+    {
+        return coordinate / BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    public static long passedPawnSpan(final Alliance alliance,
+                                      final int coordinate)
+    {
+        return PASSED_PAWN_SPANS[alliance.isWhite() ? 0 : 1][coordinate];
+    }
+
+    public static long pawnAttacks(final Alliance alliance,
+                                   final int coordinate)
+    {
+        return PAWN_ATTACKS[alliance.isWhite() ? 0 : 1][coordinate];
+    }
+
+    public static long knightAttacks(final int coordinate)
+    {
+        return KNIGHT_ATTACKS[coordinate];
+    }
+
+    public static long kingAttacks(final int coordinate)
+    {
+        return KING_ATTACKS[coordinate];
+    }
+
+    public static long bishopAttacks(final int coordinate,
+                                     final long occupied)
+    {
+        return slidingAttacks(coordinate, occupied, BISHOP_DIRECTIONS);
+    }
+
+    public static long rookAttacks(final int coordinate,
+                                   final long occupied)
+    {
+        return slidingAttacks(coordinate, occupied, ROOK_DIRECTIONS);
+    }
+
+    public static long queenAttacks(final int coordinate,
+                                    final long occupied)
+    {
+        return bishopAttacks(coordinate, occupied) | rookAttacks(coordinate, occupied);
+    }
+
+    // every square holding a piece of the given type among the pieces
+    public static long pieceBitboard(final Iterable<Piece> pieces,
+                                     final Piece.PieceType pieceType)
+    {
+        long bitboard = 0L;
+        for(final Piece piece : pieces)
+        {
+            if(piece.getPieceType() == pieceType)
+            {
+                bitboard |= squareMask(piece.getPiecePosition());
+            }
+        }
+        return bitboard;
+    }
+
+    // the first occupied square on a ray is attacked too (it may be an enemy piece), the ones behind it are not
+    private static long slidingAttacks(final int coordinate,
+                                       final long occupied,
+                                       final int[][] directions)
+    {
+        long attacks = 0L;
+        for(final int[] direction : directions)
+        {
+            int row = rowOf(coordinate) + direction[0];
+            int file = fileOf(coordinate) + direction[1];
+            while(isOnBoard(row, file))
+            {
+                final long square = squareMask(row * BoardUtils.NUM_TILES_PER_ROW + file);
+                attacks |= square;
+                if((occupied & square) != 0)
+                {
+                    break;
+                }
+                row += direction[0];
+                file += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static boolean isOnBoard(final int row,
+                                     final int file)
+    {
+        return row >= 0 && row < BoardUtils.NUM_TILES_PER_ROW && file >= 0 && file < BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    private static long[] initializeLeaperAttacks(final int[][] offsets)
+    {
+        final long[] attacks = new long[BoardUtils.NUM_TILES];
+        for(int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++)
+        {
+            for(final int[] offset : offsets)
+            {
+                final int row = rowOf(coordinate) + offset[0];
+                final int file = fileOf(coordinate) + offset[1];
+                if(isOnBoard(row, file))
+                {
+                    attacks[coordinate] |= squareMask(row * BoardUtils.NUM_TILES_PER_ROW + file);
+                }
+            }
+        }
+        return attacks;
+    }
+
+    private static long[] initializeFileMasks()
+    {
+        final long[] masks = new long[BoardUtils.NUM_TILES_PER_ROW];
+        for(int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++)
+        {
+            masks[fileOf(coordinate)] |= squareMask(coordinate);
+        }
+        return masks;
+    }
+
+    private static long[] initializeAdjacentFileMasks()
+    {
+        final long[] masks = new long[BoardUtils.NUM_TILES_PER_ROW];
+        for(int file = 0; file < BoardUtils.NUM_TILES_PER_ROW; file++)
+        {
+            if(file > 0)
+            {
+                masks[file] |= FILE_MASKS[file - 1];
+            }
+            if(file < BoardUtils.NUM_TILES_PER_ROW - 1)
+            {
+                masks[file] |= FILE_MASKS[file + 1];
+            }
+        }
+        return masks;
+    }
+
+    // white pawns run towards row 0, black pawns towards row 7
+    private static long[] initializePassedPawnSpans(final boolean isWhite)
+    {
+        final long[] spans = new long[BoardUtils.NUM_TILES];
+        for(int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++)
+        {
+            final long files = FILE_MASKS[fileOf(coordinate)] | ADJACENT_FILE_MASKS[fileOf(coordinate)];
+            long inFront = 0L;
+            for(int square = 0; square < BoardUtils.NUM_TILES; square++)
+            {
+                if(isWhite ? rowOf(square) < rowOf(coordinate) : rowOf(square) > rowOf(coordinate))
+                {
+                    inFront |= squareMask(square);
+                }
+            }
+            spans[coordinate] = files & inFront;
+        }
+        return spans;
+    }
+
+}
@@ -70,6 +70,14 @@ public class Board
     private final Player currentPlayer;
     private final Pawn enPassantPawn;
     private final Move transitionMove;
+    private final long zobristHash;
+    private final long mirroredZobristHash;
+    private final EvaluationState evaluationState;
+    // plies since the last pawn move or capture (the fifty move rule) and the move number, as in FEN
+    private final int halfMoveClock;
+    private final int fullMoveNumber;
+    // worked out the first time an evaluator asks for it, see getAttackInfo()
+    private AttackInfo attackInfo;
 
 
     private static final Board STANDARD_BOARD = createStandardBoardImpl();
@@ -87,9 +95,16 @@ public class Board
         final Collection<Move> blackStandardLegalMoves = calculateLegalMoves(this.blackPieces);
 
         this.whitePlayer = new WhitePlayer(this, whiteStandardLegalMoves, blackStandardLegalMoves);
-        this.blackPlayer = new BlackPlayer(this, whiteStandardLegalMoves, blackStandardLegalMoves);
+        this.blackPlayer = new BlackPlayer(this, blackStandardLegalMoves, whiteStandardLegalMoves);
         this.currentPlayer = builder.nextMoveMaker.choosePlayer(this.whitePlayer, this.blackPlayer);
         this.transitionMove = builder.transitionMove != null ? builder.transitionMove : MoveFactory.getNullMove();
+        this.zobristHash = ZobristHashing.INSTANCE.hashBoard(this);
+        this.mirroredZobristHash = ZobristHashing.INSTANCE.hashMirroredBoard(this);
+        // a move hands over the totals it updated, a board built piece by piece adds them up itself
+        this.evaluationState = builder.evaluationState != null ? builder.evaluationState :
+            EvaluationState.calculate(this.boardConfig.values());
+        this.halfMoveClock = builder.halfMoveClock;
+        this.fullMoveNumber = builder.fullMoveNumber;
     }
 
     /*
@@ -185,6 +200,58 @@ public class Board
         return this.transitionMove;
     }
 
+    // a 64 bit key for this position, see ZobristHashing
+    public long getZobristHash()
+    {
+        return this.zobristHash;
+    }
+
+    // the key of the colour reversed mirror of this position (see BoardMirror), without building it
+    public long getMirroredZobristHash()
+    {
+        return this.mirroredZobristHash;
+    }
+
+    // material, piece square and game phase totals, kept up to date move by move
+    public EvaluationState getEvaluationState()
+    {
+        return this.evaluationState;
+    }
+
+    // plies since the last pawn move or capture, a draw can be claimed at 100 (see DrawRules)
+    public int getHalfMoveClock()
+    {
+        return this.halfMoveClock;
+    }
+
+    // starts at 1 and goes up after every black move
+    public int getFullMoveNumber()
+    {
+        return this.fullMoveNumber;
+    }
+
+    // the position before the last move, null for a board that was set up rather than moved to
+    public Board getPreviousBoard()
+    {
+        return this.transitionMove.getBoard();
+    }
+
+    /*
+    * Attack bitboards for both sides. Most boards a search creates are never evaluated, so they are only
+    * worked out on demand. Two threads asking at once may both build one, AttackInfo is immutable so
+    * either copy is fine.
+    * */
+    public AttackInfo getAttackInfo()
+    {
+        AttackInfo info = this.attackInfo;
+        if(info == null)
+        {
+            info = AttackInfo.calculate(this);
+            this.attackInfo = info;
+        }
+        return info;
+    }
+
 
     // this calculates the legal moves for a given alliance
     private Collection<Move> calculateLegalMoves(Collection<Piece> pieces)
@@ -304,11 +371,15 @@ public class Board
         Alliance nextMoveMaker;
         Pawn enPassantPawn;
         Move transitionMove;
+        EvaluationState evaluationState;
+        int halfMoveClock;
+        int fullMoveNumber;
 
         // builder constructor
         public Builder()
         {
             this.boardConfig = new HashMap<>(32, 1.0f);
+            this.fullMoveNumber = 1;
         }
 
         // methods
@@ -324,6 +395,31 @@ public class Board
             return this;
         }
 
+        public Builder setEvaluationState(final EvaluationState evaluationState)
+        {
+            this.evaluationState = evaluationState;
+            return this;
+        }
+
+        public Builder setHalfMoveClock(final int halfMoveClock)
+        {
+            this.halfMoveClock = halfMoveClock;
+            return this;
+        }
+
+        public Builder setFullMoveNumber(final int fullMoveNumber)
+        {
+            this.fullMoveNumber = fullMoveNumber;
+            return this;
+        }
+
+        // the move that leads to the board being built, it remembers the board it was made on
+        public Builder setMoveTransition(final Move transitionMove)
+        {
+            this.transitionMove = transitionMove;
+            return this;
+        }
+
         // this method actually performs the creation of an immutable new board instance
         public Board build()
         {
@@ -332,7 +428,7 @@ public class Board
 
         public void setEnPassantPawn(Pawn movedPawn)
         {
-            this.enPassantPawn = enPassantPawn;
+            this.enPassantPawn = movedPawn;
         }
     }
 }
@@ -0,0 +1,76 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Bishop;
+import com.chess.engine.pieces.King;
+import com.chess.engine.pieces.Knight;
+import com.chess.engine.pieces.Pawn;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.pieces.Queen;
+import com.chess.engine.pieces.Rook;
+
+/*
+* The colour reversed mirror of a position: every white piece becomes a black one on the same file with
+* the rank flipped (e2 --> e7), and the other way around. The side to move, the castling rights and
+* the en passant pawn swap sides with them.
+*
+* Notes:
+*   + A position and its mirror are the same game seen from the other chair. Whatever is good for
+*     white in one is exactly as good for black in the other, so a colour blind evaluator has to give
+*     the mirror the negated score (see TestEvaluatorSymmetry).
+*   + The squares are flipped with Alliance.relativeCoordinate, the colours with Alliance.getOpposite.
+*   + ZobristHashing.canonicalHash gives a position and its mirror the same key without building the
+*     mirror, caches use that to keep a single entry for both. mirror() is for when the board itself
+*     is needed, tests mostly.
+* */
+public final class BoardMirror
+{
+    // Constructor:
+    private BoardMirror()
+    {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    // Methods:
+    public static Board mirror(final Board board)
+    {
+        final Board.Builder builder = new Board.Builder();
+        for(final Piece piece : board.getAllPieces())
+        {
+            builder.setPiece(mirror(piece));
+        }
+        final Pawn enPassantPawn = board.getEnPassantPawn();
+        if(enPassantPawn != null)
+        {
+            builder.setEnPassantPawn((Pawn) mirror(enPassantPawn));
+        }
+        builder.setMoveMaker(board.currentPlayer().getAlliance().getOpposite());
+        return builder.build();
+    }
+
+    // the same piece, other colour, rank flipped, first move and castling state kept
+    public static Piece mirror(final Piece piece)
+    {
+        final Alliance alliance = piece.getPieceAllegiance().getOpposite();
+        final int coordinate = Alliance.BLACK.relativeCoordinate(piece.getPiecePosition());
+        final boolean isFirstMove = piece.isFirstMove();
+        switch(piece.getPieceType())
+        {
+            case PAWN:
+                return new Pawn(alliance, coordinate, isFirstMove);
+            case KNIGHT:
+                return new Knight(alliance, coordinate, isFirstMove);
+            case BISHOP:
+                return new Bishop(alliance, coordinate, isFirstMove);
+            case ROOK:
+                return new Rook(alliance, coordinate, isFirstMove);
+            case QUEEN:
+                return new Queen(alliance, coordinate, isFirstMove);
+            default:
+                final King king = (King) piece;
+                return new King(alliance, coordinate, isFirstMove, king.isCastled(),
+                                king.isKingSideCastleCapable(), king.isQueenSideCastleCapable());
+        }
+    }
+
+}
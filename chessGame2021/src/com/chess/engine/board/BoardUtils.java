@@ -52,7 +52,6 @@ public enum BoardUtils
     //constructor
     private BoardUtils()
     {
-        throw new RuntimeException("You cannot instantiate me!");
     }
 
 
@@ -158,9 +157,10 @@ public enum BoardUtils
             piece.getPieceAllegiance() != king.getPieceAllegiance();
     }
 
+    // checkmate, or a draw by stalemate, repetition, the fifty move rule or material (see DrawRules)
     public static boolean isEndGame(final Board board) {
         return board.currentPlayer().isInCheckMate() ||
-            board.currentPlayer().isInStaleMate();
+            DrawRules.isDraw(board);
     }
 
     public static boolean isThreatenedBoardImmediate(final Board board) {
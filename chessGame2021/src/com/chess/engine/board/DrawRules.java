@@ -0,0 +1,113 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Piece;
+
+/*
+* The rules that end a game in a draw, apart from stalemate.
+*
+* Notes:
+*   + Fifty moves: 100 plies in a row without a pawn move or a capture (Board.getHalfMoveClock).
+*   + Repetition: the same position for the third time, same side to move, same castling rights and
+*     en passant square. The Zobrist hash covers all of that. Every board remembers the board before
+*     it (getPreviousBoard), so the game is walked backwards. Only positions since the last pawn move
+*     or capture can come round again, the walk stops after halfMoveClock plies.
+*   + Insufficient material: nobody can mate whatever the moves, bare kings, a single minor piece or
+*     nothing but bishops all on squares of one colour. EndgameRegistry's draws go further (KNNK,
+*     KBKB), mate is possible there but can not be forced. The search stops at those too, a game is
+*     only over at these.
+*   + The search does not use repetitionCount, it keeps its own stack of hashes (see MTDf).
+* */
+public final class DrawRules
+{
+    // Members:
+    public static final int FIFTY_MOVE_PLIES = 100;
+    public static final int REPETITIONS = 3;
+
+    // Constructor:
+    private DrawRules()
+    {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    // Methods:
+    // the game is over and nobody won
+    public static boolean isDraw(final Board board)
+    {
+        return board.currentPlayer().isInStaleMate() ||
+               isInsufficientMaterial(board) ||
+               isFiftyMoveDraw(board) ||
+               isThreefoldRepetition(board);
+    }
+
+    // a checkmate on the hundredth ply still counts
+    public static boolean isFiftyMoveDraw(final Board board)
+    {
+        return board.getHalfMoveClock() >= FIFTY_MOVE_PLIES && !board.currentPlayer().isInCheckMate();
+    }
+
+    public static boolean isThreefoldRepetition(final Board board)
+    {
+        return repetitionCount(board) >= REPETITIONS;
+    }
+
+    // how often the position has been on the board this game, this time included
+    public static int repetitionCount(final Board board)
+    {
+        final long hash = board.getZobristHash();
+        int count = 1;
+        Board earlier = board;
+        for(int plies = 1; plies <= board.getHalfMoveClock(); plies++)
+        {
+            earlier = earlier.getPreviousBoard();
+            if(earlier == null)
+            {
+                break;
+            }
+            // the same side has to be on the move, every second ply
+            if(plies % 2 == 0 && earlier.getZobristHash() == hash)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static boolean isInsufficientMaterial(final Board board)
+    {
+        final long signature = board.getEvaluationState().getMaterialSignature();
+        int knights = 0;
+        int bishops = 0;
+        for(final Alliance alliance : Alliance.values())
+        {
+            if(MaterialSignature.count(signature, Piece.PieceType.PAWN, alliance) > 0 ||
+               MaterialSignature.count(signature, Piece.PieceType.ROOK, alliance) > 0 ||
+               MaterialSignature.count(signature, Piece.PieceType.QUEEN, alliance) > 0)
+            {
+                return false;
+            }
+            knights += MaterialSignature.count(signature, Piece.PieceType.KNIGHT, alliance);
+            bishops += MaterialSignature.count(signature, Piece.PieceType.BISHOP, alliance);
+        }
+        if(knights + bishops <= 1)
+        {
+            return true;
+        }
+        if(knights > 0)
+        {
+            return false;
+        }
+        // bishops all on one colour never touch a square of the other colour, no mate can be built
+        int squareColours = 0;
+        for(final Piece piece : board.getAllPieces())
+        {
+            if(piece.getPieceType() == Piece.PieceType.BISHOP)
+            {
+                final int coordinate = piece.getPiecePosition();
+                squareColours |= 1 << ((Bitboards.rowOf(coordinate) + Bitboards.fileOf(coordinate)) & 1);
+            }
+        }
+        return squareColours != 3;
+    }
+
+}
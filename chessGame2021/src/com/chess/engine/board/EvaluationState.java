@@ -0,0 +1,249 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Piece;
+
+/*
+* The running totals an evaluator needs, carried along on every Board so a leaf evaluation does not
+* have to walk over every piece again.
+*
+* Notes:
+*   + A move only ever touches a handful of squares: the moved piece leaves one square and lands on
+*     another, maybe a piece gets captured, maybe a rook jumps over the king when castling. So instead
+*     of adding everything up from scratch we take the totals of the board the move was made on and
+*     adjust them for those few squares --> O(1) per move.
+*   + Tracked here:
+*       ++ material            --> sum of the piece values per side (kings included, like the evaluator)
+*       ++ piece square scores --> sums of the PieceSquareTables bonuses, white minus black, one for
+*                                  the middle game tables and one for the end game tables
+*       ++ phase               --> how much non pawn material is left, 24 at the start, 0 with only
+*                                  kings and pawns. Knight and bishop count 1, rook 2, queen 4.
+*       ++ material signature  --> how many of each piece per side, see MaterialSignature
+*       ++ pawn key            --> the Zobrist hash of the pawns alone (both colours), the key of the
+*                                  pawn hash table in PawnStructureAnalyzer
+*   + Boards built piece by piece (FEN, tests, the standard board) work their totals out from scratch.
+* */
+public final class EvaluationState
+{
+    // Members:
+    public static final int TOTAL_PHASE = 24;
+    // indexed by PieceType.ordinal()
+    private static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0};
+
+    private final int whiteMaterial;
+    private final int blackMaterial;
+    private final int middleGameScore;
+    private final int endGameScore;
+    private final int phase;
+    private final long materialSignature;
+    private final long pawnKey;
+
+    // Constructor:
+    private EvaluationState(final int whiteMaterial,
+                            final int blackMaterial,
+                            final int middleGameScore,
+                            final int endGameScore,
+                            final int phase,
+                            final long materialSignature,
+                            final long pawnKey)
+    {
+        this.whiteMaterial = whiteMaterial;
+        this.blackMaterial = blackMaterial;
+        this.middleGameScore = middleGameScore;
+        this.endGameScore = endGameScore;
+        this.phase = phase;
+        this.materialSignature = materialSignature;
+        this.pawnKey = pawnKey;
+    }
+
+    // Methods:
+    public static EvaluationState calculate(final Iterable<Piece> pieces)
+    {
+        int whiteMaterial = 0;
+        int blackMaterial = 0;
+        int middleGameScore = 0;
+        int endGameScore = 0;
+        int phase = 0;
+        long materialSignature = 0L;
+        long pawnKey = 0L;
+        for(final Piece piece : pieces)
+        {
+            if(piece.getPieceAllegiance().isWhite())
+            {
+                whiteMaterial += piece.getPieceValue();
+            }
+            else
+            {
+                blackMaterial += piece.getPieceValue();
+            }
+            middleGameScore += middleGameScore(piece.getPieceType(), piece.getPieceAllegiance(), piece.getPiecePosition());
+            endGameScore += endGameScore(piece.getPieceType(), piece.getPieceAllegiance(), piece.getPiecePosition());
+            phase += PHASE_WEIGHTS[piece.getPieceType().ordinal()];
+            materialSignature += MaterialSignature.unit(piece.getPieceType(), piece.getPieceAllegiance());
+            pawnKey ^= pawnKey(piece.getPieceType(), piece.getPieceAllegiance(), piece.getPiecePosition());
+        }
+        return new EvaluationState(whiteMaterial, blackMaterial, middleGameScore, endGameScore, phase,
+            materialSignature, pawnKey);
+    }
+
+    /*
+    * The totals of the board after the move, worked out from the totals of the board before it.
+    * */
+    public EvaluationState afterMove(final Move move)
+    {
+        final Piece movedPiece = move.getMovedPiece();
+        final Alliance mover = movedPiece.getPieceAllegiance();
+        final Piece.PieceType landingType = move instanceof Move.PawnPromotion ?
+            ((Move.PawnPromotion) move).promotedPawn.getPromotionPiece().getPieceType() : movedPiece.getPieceType();
+
+        int moverMaterial = this.materialOf(mover) - movedPiece.getPieceValue() + landingType.getPieceValue();
+        int opponentMaterial = this.materialOf(mover.getOpposite());
+        int middleGame = this.middleGameScore
+            - middleGameScore(movedPiece.getPieceType(), mover, movedPiece.getPiecePosition())
+            + middleGameScore(landingType, mover, move.getDestinationCoordinate());
+        int endGame = this.endGameScore
+            - endGameScore(movedPiece.getPieceType(), mover, movedPiece.getPiecePosition())
+            + endGameScore(landingType, mover, move.getDestinationCoordinate());
+        int newPhase = this.phase
+            - PHASE_WEIGHTS[movedPiece.getPieceType().ordinal()]
+            + PHASE_WEIGHTS[landingType.ordinal()];
+        long signature = this.materialSignature
+            - MaterialSignature.unit(movedPiece.getPieceType(), mover)
+            + MaterialSignature.unit(landingType, mover);
+        long newPawnKey = this.pawnKey
+            ^ pawnKey(movedPiece.getPieceType(), mover, movedPiece.getPiecePosition())
+            ^ pawnKey(landingType, mover, move.getDestinationCoordinate());
+
+        if(move.isAttack())
+        {
+            // en passant captures a pawn that is not on the destination square, use where it really is
+            final Piece attackedPiece = move.getAttackedPiece();
+            opponentMaterial -= attackedPiece.getPieceValue();
+            middleGame -= middleGameScore(attackedPiece.getPieceType(), attackedPiece.getPieceAllegiance(),
+                attackedPiece.getPiecePosition());
+            endGame -= endGameScore(attackedPiece.getPieceType(), attackedPiece.getPieceAllegiance(),
+                attackedPiece.getPiecePosition());
+            newPhase -= PHASE_WEIGHTS[attackedPiece.getPieceType().ordinal()];
+            signature -= MaterialSignature.unit(attackedPiece.getPieceType(), attackedPiece.getPieceAllegiance());
+            newPawnKey ^= pawnKey(attackedPiece.getPieceType(), attackedPiece.getPieceAllegiance(),
+                attackedPiece.getPiecePosition());
+        }
+
+        if(move.isCastlingMove())
+        {
+            final Move.CastleMove castleMove = (Move.CastleMove) move;
+            middleGame = middleGame
+                - middleGameScore(Piece.PieceType.ROOK, mover, castleMove.castleRookStart)
+                + middleGameScore(Piece.PieceType.ROOK, mover, castleMove.castleRookDestination);
+            endGame = endGame
+                - endGameScore(Piece.PieceType.ROOK, mover, castleMove.castleRookStart)
+                + endGameScore(Piece.PieceType.ROOK, mover, castleMove.castleRookDestination);
+        }
+
+        return mover.isWhite() ?
+            new EvaluationState(moverMaterial, opponentMaterial, middleGame, endGame, newPhase, signature, newPawnKey) :
+            new EvaluationState(opponentMaterial, moverMaterial, middleGame, endGame, newPhase, signature, newPawnKey);
+    }
+
+    public int getMaterial(final Alliance alliance)
+    {
+        return materialOf(alliance);
+    }
+
+    // positive means whites pieces stand on better squares (by the middle game tables)
+    public int getMiddleGameScore()
+    {
+        return this.middleGameScore;
+    }
+
+    public int getEndGameScore()
+    {
+        return this.endGameScore;
+    }
+
+    public int getPhase()
+    {
+        return this.phase;
+    }
+
+    public long getMaterialSignature()
+    {
+        return this.materialSignature;
+    }
+
+    public long getPawnKey()
+    {
+        return this.pawnKey;
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+        if(this == other)
+        {
+            return true;
+        }
+        if(!(other instanceof EvaluationState))
+        {
+            return false;
+        }
+        final EvaluationState otherState = (EvaluationState) other;
+        return this.whiteMaterial == otherState.whiteMaterial && this.blackMaterial == otherState.blackMaterial &&
+               this.middleGameScore == otherState.middleGameScore && this.endGameScore == otherState.endGameScore &&
+               this.phase == otherState.phase && this.materialSignature == otherState.materialSignature &&
+               this.pawnKey == otherState.pawnKey;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = this.whiteMaterial;
+        result = 31 * result + this.blackMaterial;
+        result = 31 * result + this.middleGameScore;
+        result = 31 * result + this.endGameScore;
+        result = 31 * result + this.phase;
+        result = 31 * result + Long.hashCode(this.materialSignature);
+        result = 31 * result + Long.hashCode(this.pawnKey);
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "material " + this.whiteMaterial + "/" + this.blackMaterial + " middle game " + this.middleGameScore +
+            " end game " + this.endGameScore + " phase " + this.phase +
+            " signature " + MaterialSignature.toString(this.materialSignature);
+    }
+
+    private int materialOf(final Alliance alliance)
+    {
+        return alliance.isWhite() ? this.whiteMaterial : this.blackMaterial;
+    }
+
+    // white relative, a black piece on a good square counts against white
+    private static int middleGameScore(final Piece.PieceType pieceType,
+                                       final Alliance alliance,
+                                       final int coordinate)
+    {
+        final int value = PieceSquareTables.middleGameValue(pieceType, alliance, coordinate);
+        return alliance.isWhite() ? value : -value;
+    }
+
+    // only pawns count, every other piece leaves the key alone
+    private static long pawnKey(final Piece.PieceType pieceType,
+                                final Alliance alliance,
+                                final int coordinate)
+    {
+        return pieceType == Piece.PieceType.PAWN ?
+            ZobristHashing.INSTANCE.pieceKey(pieceType, alliance.isWhite(), coordinate) : 0L;
+    }
+
+    private static int endGameScore(final Piece.PieceType pieceType,
+                                    final Alliance alliance,
+                                    final int coordinate)
+    {
+        final int value = PieceSquareTables.endGameValue(pieceType, alliance, coordinate);
+        return alliance.isWhite() ? value : -value;
+    }
+
+}
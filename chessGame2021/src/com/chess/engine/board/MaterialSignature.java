@@ -0,0 +1,128 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Piece;
+
+/*
+* Which pieces are on the board, without where they stand: "KRK" is king and rook against a lone king,
+* "KBPPKB" king, bishop and two pawns against king and bishop.
+*
+* Notes:
+*   + Packed in one long, 4 bits per (colour, piece type) count: white pawn, knight, bishop, rook, queen
+*     in the lowest 20 bits, then the same for black. Kings are always there and are not counted.
+*     4 bits hold up to 15, more than promotions can ever produce.
+*   + EvaluationState carries the signature along, a move adds and removes a count or two, so the
+*     signature of any board is there for free and can be used as a table key (see EndgameRegistry).
+*   + of("KRK") and toString(signature) go between the packed form and the readable one, white first.
+* */
+public final class MaterialSignature
+{
+    // Members:
+    private static final int BITS_PER_COUNT = 4;
+    private static final int COUNT_MASK = (1 << BITS_PER_COUNT) - 1;
+    private static final int NUM_COUNTED_TYPES = Piece.PieceType.KING.ordinal();
+    private static final int BLACK_SHIFT = BITS_PER_COUNT * NUM_COUNTED_TYPES;
+    private static final long SIDE_MASK = (1L << BLACK_SHIFT) - 1;
+    private static final String PIECE_LETTERS = "PNBRQ";
+
+    // Constructor:
+    private MaterialSignature()
+    {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    // Methods:
+    public static long of(final Iterable<Piece> pieces)
+    {
+        long signature = 0L;
+        for(final Piece piece : pieces)
+        {
+            signature += unit(piece.getPieceType(), piece.getPieceAllegiance());
+        }
+        return signature;
+    }
+
+    // "KQKR", the white pieces from the first K, the black ones from the second
+    public static long of(final String pieces)
+    {
+        if(pieces.isEmpty() || pieces.charAt(0) != 'K' || pieces.indexOf('K', 1) < 0)
+        {
+            throw new IllegalArgumentException("Not a material signature: " + pieces);
+        }
+        final int blackKing = pieces.indexOf('K', 1);
+        long signature = 0L;
+        for(int i = 1; i < pieces.length(); i++)
+        {
+            if(i == blackKing)
+            {
+                continue;
+            }
+            final int type = PIECE_LETTERS.indexOf(pieces.charAt(i));
+            if(type < 0)
+            {
+                throw new IllegalArgumentException("Not a material signature: " + pieces);
+            }
+            signature += unit(Piece.PieceType.values()[type], i < blackKing ? Alliance.WHITE : Alliance.BLACK);
+        }
+        return signature;
+    }
+
+    // what one piece adds to the signature, 0 for a king
+    public static long unit(final Piece.PieceType pieceType,
+                            final Alliance alliance)
+    {
+        if(pieceType.isKing())
+        {
+            return 0L;
+        }
+        return 1L << (shift(alliance) + BITS_PER_COUNT * pieceType.ordinal());
+    }
+
+    public static int count(final long signature,
+                            final Piece.PieceType pieceType,
+                            final Alliance alliance)
+    {
+        if(pieceType.isKing())
+        {
+            return 1;
+        }
+        return (int) (signature >>> (shift(alliance) + BITS_PER_COUNT * pieceType.ordinal())) & COUNT_MASK;
+    }
+
+    // the signature of the colour reversed position, "KRK" <--> "KKR"
+    public static long mirror(final long signature)
+    {
+        return (signature & SIDE_MASK) << BLACK_SHIFT | signature >>> BLACK_SHIFT;
+    }
+
+    // true when this side has nothing but its king
+    public static boolean isBareKing(final long signature,
+                                     final Alliance alliance)
+    {
+        return (signature >>> shift(alliance) & SIDE_MASK) == 0L;
+    }
+
+    // strongest pieces first, like the endgame names in the books: KRPKB
+    public static String toString(final long signature)
+    {
+        final StringBuilder builder = new StringBuilder();
+        for(final Alliance alliance : Alliance.values())
+        {
+            builder.append('K');
+            for(int type = NUM_COUNTED_TYPES - 1; type >= 0; type--)
+            {
+                for(int i = count(signature, Piece.PieceType.values()[type], alliance); i > 0; i--)
+                {
+                    builder.append(PIECE_LETTERS.charAt(type));
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    private static int shift(final Alliance alliance)
+    {
+        return alliance.isWhite() ? 0 : BLACK_SHIFT;
+    }
+
+}
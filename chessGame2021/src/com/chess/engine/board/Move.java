@@ -155,9 +155,7 @@ public abstract class Move
          * we need to employ the builder class which calls the createStandardBoard().
          *
          * */
-        System.out.println("move.execute line 135");
         final Builder builder = new Builder();
-        System.out.println("move.execute line 137");
         /*
          *
          * We next want to loop through all the active pieces of our player and as long as the piece
@@ -174,7 +172,6 @@ public abstract class Move
                 builder.setPiece(piece);
             }
         }
-        System.out.println("move.execute line 154");
 
         /*
          *   This will loop through all the active pieces of our current players opponent --> placing
@@ -187,22 +184,36 @@ public abstract class Move
         {
             builder.setPiece(piece);
         }
-        System.out.println("move.execute line 165");
 
         // move the moved piece!
         builder.setPiece(this.movedPiece.movePiece(this));
-        System.out.println("move.execute line 169");
 
         // this sets the next moveMaker ---> so if white now black
         builder.setMoveMaker(this.board.currentPlayer()
             .getOpponent()
             .getAlliance());
-        System.out.println("move.execute line 173");
+
+        // only the squares this move touched change the evaluation totals
+        builder.setEvaluationState(this.board.getEvaluationState().afterMove(this));
+        carryMoveCounters(builder);
+        builder.setMoveTransition(this);
 
         // the build() is a method of the builder class that returns a new instance of the board class
         return builder.build();
     }
 
+    /*
+     *   The fifty move count starts again after a pawn move or a capture, otherwise it goes up by one.
+     *   The move number goes up once black has moved.
+     * */
+    protected void carryMoveCounters(final Builder builder)
+    {
+        final boolean irreversible = isAttack() || this.movedPiece.getPieceType() == Piece.PieceType.PAWN;
+        builder.setHalfMoveClock(irreversible ? 0 : this.board.getHalfMoveClock() + 1);
+        builder.setFullMoveNumber(this.board.getFullMoveNumber() +
+            (this.board.currentPlayer().getAlliance().isBlack() ? 1 : 0));
+    }
+
     public Piece getMovedPiece()
     {
         return this.movedPiece;
@@ -427,6 +438,9 @@ public abstract class Move
             builder.setMoveMaker(this.board.currentPlayer()
                 .getOpponent()
                 .getAlliance());
+            builder.setEvaluationState(this.board.getEvaluationState().afterMove(this));
+            carryMoveCounters(builder);
+            builder.setMoveTransition(this);
             return builder.build();
         }
     }
@@ -459,6 +473,12 @@ public abstract class Move
 
         // Methods:
 
+        // what the pawn turns into, the same piece execute() puts on the board
+        public Piece.PieceType getPromotedPieceType()
+        {
+            return this.promotedPawn.getPromotionPiece().getPieceType();
+        }
+
         @Override
         public Board execute()
         {
@@ -480,6 +500,9 @@ public abstract class Move
 
             builder.setPiece(this.promotedPawn.getPromotionPiece().movePiece(this));
             builder.setMoveMaker(pawnMovedBoard.currentPlayer().getAlliance());
+            builder.setEvaluationState(this.board.getEvaluationState().afterMove(this));
+            carryMoveCounters(builder);
+            builder.setMoveTransition(this);
 
             return builder.build();
         }
@@ -555,6 +578,9 @@ public abstract class Move
             builder.setMoveMaker(this.board.currentPlayer()
                 .getOpponent()
                 .getAlliance());
+            builder.setEvaluationState(this.board.getEvaluationState().afterMove(this));
+            carryMoveCounters(builder);
+            builder.setMoveTransition(this);
             return builder.build();
         }
 
@@ -565,7 +591,7 @@ public abstract class Move
         }
     }
 
-    static abstract class CastleMove extends Move
+    public static abstract class CastleMove extends Move
     {
         // Members
         protected final Rook castleRook;
@@ -596,6 +622,16 @@ public abstract class Move
             return this.castleRook;
         }
 
+        public int getCastleRookStart()
+        {
+            return this.castleRookStart;
+        }
+
+        public int getCastleRookDestination()
+        {
+            return this.castleRookDestination;
+        }
+
         @Override
         public boolean isCastlingMove()
         {
@@ -635,6 +671,9 @@ public abstract class Move
             builder.setMoveMaker(this.board.currentPlayer()
                 .getOpponent()
                 .getAlliance());
+            builder.setEvaluationState(this.board.getEvaluationState().afterMove(this));
+            carryMoveCounters(builder);
+            builder.setMoveTransition(this);
 
             // this will return a new board
             return builder.build();
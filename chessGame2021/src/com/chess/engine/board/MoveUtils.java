@@ -6,6 +6,9 @@ public enum MoveUtils {
 
     INSTANCE;
 
+    // 0 would be a move from a8 to a8 which can never happen, so it doubles as 'no move'
+    public static final int NO_MOVE = 0;
+
     public static int exchangeScore(final Move move) {
         if(move == MoveFactory.getNullMove()) {
             return 1;
@@ -16,4 +19,23 @@ public enum MoveUtils {
 
     }
 
+    /*
+    * Packs a move into 12 bits (6 bits for where the piece starts and 6 bits for where it lands) so
+    * search tables can remember moves without holding on to Move objects and the boards they point to.
+    * */
+    public static int encodeMove(final Move move) {
+        if(move == null || move.getCurrentCoordinate() < 0) {
+            return NO_MOVE;
+        }
+        return (move.getCurrentCoordinate() << 6) | move.getDestinationCoordinate();
+    }
+
+    public static Move decodeMove(final Board board,
+                                  final int encodedMove) {
+        if(encodedMove == NO_MOVE) {
+            return MoveFactory.getNullMove();
+        }
+        return MoveFactory.createMove(board, encodedMove >>> 6, encodedMove & 63);
+    }
+
 }
@@ -0,0 +1,153 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Piece;
+
+/*
+* Piece square tables: a small bonus (or penalty) for every piece type on every square, e.g. knights
+* like the centre and hate the rim, pawns get more valuable the closer they are to promotion.
+*
+* Notes:
+*   + The middle game values are the ones from Tomasz Michniewski's 'Simplified Evaluation Function',
+*     see: https://www.chessprogramming.org/Simplified_Evaluation_Function
+*   + There is a second set for the end game, where the king should walk to the centre and passed
+*     pawns matter more than anything. An evaluator blends the two sets by the game phase.
+*   + Each table is written from whites point of view in our own coordinate order, so index 0 is a8
+*     and index 63 is h1 (see BoardUtils). A black piece looks its square up in the table flipped
+*     upside down (coordinate ^ 56 swaps rank 8 with rank 1, rank 7 with rank 2 ...).
+* */
+public final class PieceSquareTables
+{
+    // Members:
+    private static final int[] PAWN_TABLE = {
+         0,   0,   0,   0,   0,   0,   0,   0,
+        50,  50,  50,  50,  50,  50,  50,  50,
+        10,  10,  20,  30,  30,  20,  10,  10,
+         5,   5,  10,  25,  25,  10,   5,   5,
+         0,   0,   0,  20,  20,   0,   0,   0,
+         5,  -5, -10,   0,   0, -10,  -5,   5,
+         5,  10,  10, -20, -20,  10,  10,   5,
+         0,   0,   0,   0,   0,   0,   0,   0
+    };
+
+    private static final int[] KNIGHT_TABLE = {
+        -50, -40, -30, -30, -30, -30, -40, -50,
+        -40, -20,   0,   0,   0,   0, -20, -40,
+        -30,   0,  10,  15,  15,  10,   0, -30,
+        -30,   5,  15,  20,  20,  15,   5, -30,
+        -30,   0,  15,  20,  20,  15,   0, -30,
+        -30,   5,  10,  15,  15,  10,   5, -30,
+        -40, -20,   0,   5,   5,   0, -20, -40,
+        -50, -40, -30, -30, -30, -30, -40, -50
+    };
+
+    private static final int[] BISHOP_TABLE = {
+        -20, -10, -10, -10, -10, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,  10,  10,   5,   0, -10,
+        -10,   5,   5,  10,  10,   5,   5, -10,
+        -10,   0,  10,  10,  10,  10,   0, -10,
+        -10,  10,  10,  10,  10,  10,  10, -10,
+        -10,   5,   0,   0,   0,   0,   5, -10,
+        -20, -10, -10, -10, -10, -10, -10, -20
+    };
+
+    private static final int[] ROOK_TABLE = {
+         0,   0,   0,   0,   0,   0,   0,   0,
+         5,  10,  10,  10,  10,  10,  10,   5,
+        -5,   0,   0,   0,   0,   0,   0,  -5,
+        -5,   0,   0,   0,   0,   0,   0,  -5,
+        -5,   0,   0,   0,   0,   0,   0,  -5,
+        -5,   0,   0,   0,   0,   0,   0,  -5,
+        -5,   0,   0,   0,   0,   0,   0,  -5,
+         0,   0,   0,   5,   5,   0,   0,   0
+    };
+
+    private static final int[] QUEEN_TABLE = {
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+         -5,   0,   5,   5,   5,   5,   0,  -5,
+          0,   0,   5,   5,   5,   5,   0,  -5,
+        -10,   5,   5,   5,   5,   5,   0, -10,
+        -10,   0,   5,   0,   0,   0,   0, -10,
+        -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+
+    // the king hides behind its pawns while there is still plenty of material on the board
+    private static final int[] KING_MIDDLE_GAME_TABLE = {
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -20, -30, -30, -40, -40, -30, -30, -20,
+        -10, -20, -20, -20, -20, -20, -20, -10,
+         20,  20,   0,   0,   0,   0,  20,  20,
+         20,  30,  10,   0,   0,  10,  30,  20
+    };
+
+    // with few pieces left the pawns race to promote, the further up the board the better
+    private static final int[] PAWN_END_GAME_TABLE = {
+         0,   0,   0,   0,   0,   0,   0,   0,
+        80,  80,  80,  80,  80,  80,  80,  80,
+        50,  50,  50,  50,  50,  50,  50,  50,
+        30,  30,  30,  30,  30,  30,  30,  30,
+        20,  20,  20,  20,  20,  20,  20,  20,
+        10,  10,  10,  10,  10,  10,  10,  10,
+         0,   0,   0,   0,   0,   0,   0,   0,
+         0,   0,   0,   0,   0,   0,   0,   0
+    };
+
+    // rooks belong anywhere there is an open file in the end game, no square is special
+    private static final int[] ROOK_END_GAME_TABLE = new int[BoardUtils.NUM_TILES];
+
+    // and the king stops hiding and heads for the centre
+    private static final int[] KING_END_GAME_TABLE = {
+        -50, -40, -30, -20, -20, -30, -40, -50,
+        -30, -20, -10,   0,   0, -10, -20, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -30,   0,   0,   0,   0, -30, -30,
+        -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    // indexed by PieceType.ordinal()
+    private static final int[][] MIDDLE_GAME_TABLES = {
+        PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_MIDDLE_GAME_TABLE
+    };
+
+    private static final int[][] END_GAME_TABLES = {
+        PAWN_END_GAME_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_END_GAME_TABLE, QUEEN_TABLE, KING_END_GAME_TABLE
+    };
+
+    // Constructor:
+    private PieceSquareTables()
+    {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    // Methods:
+    public static int middleGameValue(final Piece.PieceType pieceType,
+                                      final Alliance alliance,
+                                      final int coordinate)
+    {
+        return MIDDLE_GAME_TABLES[pieceType.ordinal()][tableIndex(alliance, coordinate)];
+    }
+
+    public static int endGameValue(final Piece.PieceType pieceType,
+                                   final Alliance alliance,
+                                   final int coordinate)
+    {
+        return END_GAME_TABLES[pieceType.ordinal()][tableIndex(alliance, coordinate)];
+    }
+
+    // whites tables are written the right way up, black reads them mirrored top to bottom
+    public static int tableIndex(final Alliance alliance,
+                                 final int coordinate)
+    {
+        return alliance.isWhite() ? coordinate : coordinate ^ 56;
+    }
+
+}
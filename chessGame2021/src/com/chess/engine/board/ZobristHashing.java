@@ -0,0 +1,173 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Pawn;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.Player;
+
+/*
+* Zobrist hashing gives every board a 64 bit key so that search algorithms can recognise a position
+* they have already seen (transpositions) without comparing the whole board.
+*
+*   + Every (piece kind, square) pair gets a random 64 bit number. So do the four castling rights,
+*     the eight en passant files and the side to move.
+*   + The hash of a board is the XOR of the random numbers of everything that is on it.
+*   + Two different boards can share a hash (a collision) but with 64 bits this is extremely rare.
+*   + canonicalHash is the side to move relative key: a position and its colour reversed mirror (see
+*     BoardMirror) share it.
+*
+* The random numbers are Polyglot's own Random64 table (see PolyglotRandom64), laid out the way a
+* Polyglot opening book lays them out: piece kinds first, then castling, en passant and finally the side
+* to move. bookKey is the key an opening book stores a position under (see OpeningBook), it is the key
+* any other Polyglot tool works out for the same position.
+* */
+public enum ZobristHashing
+{
+    INSTANCE;
+
+    private static final int NUM_PIECE_KINDS = 12;
+    private static final int CASTLE_OFFSET = NUM_PIECE_KINDS * BoardUtils.NUM_TILES;
+    private static final int EN_PASSANT_OFFSET = CASTLE_OFFSET + 4;
+    private static final int TURN_OFFSET = EN_PASSANT_OFFSET + BoardUtils.NUM_TILES_PER_ROW;
+
+    private final long[] randomKeys = PolyglotRandom64.KEYS;
+
+    // Methods:
+    public long hashBoard(final Board board)
+    {
+        return hashBoard(board, false);
+    }
+
+    /*
+    * The hash of BoardMirror.mirror(board), worked out without building the mirror: every piece is
+    * looked up with the other colour on the rank flipped square and the castling rights and side to
+    * move swap over. The en passant file stays what it is. Every Board works this out once when it is
+    * built (getMirroredZobristHash), use that instead of calling this again.
+    * */
+    public long hashMirroredBoard(final Board board)
+    {
+        return hashBoard(board, true);
+    }
+
+    /*
+    * A key for the position as the side to move sees it: with white to move the ordinary hash, with
+    * black to move the hash of the mirror (where white is to move). A position and its colour reversed
+    * mirror get the same canonical hash, so a cache that stores its values from the side to moves point
+    * of view can keep a single entry for the two of them. Both hashes are kept on the board, so this
+    * is O(1).
+    * */
+    public long canonicalHash(final Board board)
+    {
+        return isCanonical(board) ? board.getZobristHash() : board.getMirroredZobristHash();
+    }
+
+    /*
+    * The hash, except that the en passant file only counts when a pawn of the side to move stands
+    * next to the pawn that just jumped. That is Polyglot's rule, after 1.e4 the key is the same
+    * whether the board remembers the jump or not.
+    * */
+    public long bookKey(final Board board)
+    {
+        final Pawn enPassantPawn = board.getEnPassantPawn();
+        if(enPassantPawn == null || canTakeEnPassant(board, enPassantPawn))
+        {
+            return board.getZobristHash();
+        }
+        return board.getZobristHash() ^
+            this.randomKeys[EN_PASSANT_OFFSET + enPassantPawn.getPiecePosition() % BoardUtils.NUM_TILES_PER_ROW];
+    }
+
+    // true when canonicalHash is the boards own hash, false when it is the hash of the mirror
+    public boolean isCanonical(final Board board)
+    {
+        return board.currentPlayer().getAlliance().isWhite();
+    }
+
+    private long hashBoard(final Board board,
+                           final boolean mirrored)
+    {
+        long hash = 0L;
+        for(final Piece piece : board.getWhitePieces())
+        {
+            hash ^= mirrored ? mirroredPieceKey(piece) : pieceKey(piece);
+        }
+        for(final Piece piece : board.getBlackPieces())
+        {
+            hash ^= mirrored ? mirroredPieceKey(piece) : pieceKey(piece);
+        }
+        final Player white = mirrored ? board.blackPlayer() : board.whitePlayer();
+        final Player black = mirrored ? board.whitePlayer() : board.blackPlayer();
+        if(white.isKingSideCastleCapable())
+        {
+            hash ^= this.randomKeys[CASTLE_OFFSET];
+        }
+        if(white.isQueenSideCastleCapable())
+        {
+            hash ^= this.randomKeys[CASTLE_OFFSET + 1];
+        }
+        if(black.isKingSideCastleCapable())
+        {
+            hash ^= this.randomKeys[CASTLE_OFFSET + 2];
+        }
+        if(black.isQueenSideCastleCapable())
+        {
+            hash ^= this.randomKeys[CASTLE_OFFSET + 3];
+        }
+        final Pawn enPassantPawn = board.getEnPassantPawn();
+        if(enPassantPawn != null)
+        {
+            hash ^= this.randomKeys[EN_PASSANT_OFFSET + enPassantPawn.getPiecePosition() % BoardUtils.NUM_TILES_PER_ROW];
+        }
+        if(board.currentPlayer().getAlliance().isWhite() != mirrored)
+        {
+            hash ^= this.randomKeys[TURN_OFFSET];
+        }
+        return hash;
+    }
+
+    private static boolean canTakeEnPassant(final Board board,
+                                            final Pawn enPassantPawn)
+    {
+        final int position = enPassantPawn.getPiecePosition();
+        final int file = position % BoardUtils.NUM_TILES_PER_ROW;
+        return (file > 0 && isCapturingPawn(board, position - 1, enPassantPawn)) ||
+               (file < BoardUtils.NUM_TILES_PER_ROW - 1 && isCapturingPawn(board, position + 1, enPassantPawn));
+    }
+
+    private static boolean isCapturingPawn(final Board board,
+                                           final int coordinate,
+                                           final Pawn enPassantPawn)
+    {
+        final Piece piece = board.getPiece(coordinate);
+        return piece != null &&
+               piece.getPieceType() == Piece.PieceType.PAWN &&
+               piece.getPieceAllegiance() != enPassantPawn.getPieceAllegiance();
+    }
+
+    public long pieceKey(final Piece piece)
+    {
+        return pieceKey(piece.getPieceType(), piece.getPieceAllegiance().isWhite(), piece.getPiecePosition());
+    }
+
+    // the key of the piece as it stands in the mirrored position, see BoardMirror
+    public long mirroredPieceKey(final Piece piece)
+    {
+        final Alliance alliance = piece.getPieceAllegiance().getOpposite();
+        return pieceKey(piece.getPieceType(), alliance.isWhite(), Alliance.BLACK.relativeCoordinate(piece.getPiecePosition()));
+    }
+
+    /*
+    * Polyglot numbers the piece kinds black pawn, white pawn, black knight, white knight ... and
+    * counts the rows from whites side of the board, our coordinates start at a8 so the row is flipped.
+    * */
+    public long pieceKey(final Piece.PieceType pieceType,
+                         final boolean isWhite,
+                         final int coordinate)
+    {
+        final int pieceKind = 2 * pieceType.ordinal() + (isWhite ? 1 : 0);
+        final int row = (BoardUtils.NUM_TILES - 1 - coordinate) / BoardUtils.NUM_TILES_PER_ROW;
+        final int file = coordinate % BoardUtils.NUM_TILES_PER_ROW;
+        return this.randomKeys[BoardUtils.NUM_TILES * pieceKind + BoardUtils.NUM_TILES_PER_ROW * row + file];
+    }
+
+}
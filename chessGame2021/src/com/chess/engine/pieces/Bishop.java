@@ -111,15 +111,15 @@ public class Bishop extends Piece
     private static boolean isFirstColumnExclusion(final int currentCandidate,
                                                   final int candidateDestinationCoordinate)
     {
-        return(BoardUtils.INSTANCE.FIRST_COLUMN.get(candidateDestinationCoordinate) &&
-            (currentCandidate == -9) || (currentCandidate == 7));
+        return (BoardUtils.INSTANCE.FIRST_COLUMN.get(candidateDestinationCoordinate) &&
+            ((currentCandidate == -9) || (currentCandidate == 7)));
     }
 
     private static boolean isEighthColumnExclusion(final int currentCandidate,
                                                    final int candidateDestinationCoordinate)
     {
         return (BoardUtils.INSTANCE.EIGHTH_COLUMN.get(candidateDestinationCoordinate) &&
-               (currentCandidate == -7) || (currentCandidate == 9));
+               ((currentCandidate == -7) || (currentCandidate == 9)));
     }
 
 
@@ -165,6 +165,6 @@ public class King extends Piece
         final int candidateOffset)
     {
         return BoardUtils.INSTANCE.EIGHTH_COLUMN.get(currentPosition) && (candidateOffset == -7 ||
-            candidateOffset == -1 || candidateOffset == 9);
+            candidateOffset == 1 || candidateOffset == 9);
     }
 }
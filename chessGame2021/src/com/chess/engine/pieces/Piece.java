@@ -227,7 +227,7 @@ public abstract class Piece
 
         public int getPieceValue()
         {
-            return this.getPieceValue();
+            return this.pieceValue;
         }
 
         @Override
@@ -47,8 +47,8 @@ public class Queen extends Piece
         for (final int currentCandidateOffset : CANDIDATE_MOVE_COORDINATES) {
             int candidateDestinationCoordinate = this.piecePosition;
             while (true) {
-                if (isFirstColumnExclusion(currentCandidateOffset, candidateDestinationCoordinate) ||
-                    isEightColumnExclusion(currentCandidateOffset, candidateDestinationCoordinate)) {
+                if (isFirstColumnExclusion(candidateDestinationCoordinate, currentCandidateOffset) ||
+                    isEightColumnExclusion(candidateDestinationCoordinate, currentCandidateOffset)) {
                     break;
                 }
                 candidateDestinationCoordinate += currentCandidateOffset;
@@ -91,15 +91,15 @@ public class Queen extends Piece
         final int currentPosition,
         final int candidateOffset)
     {
-        return BoardUtils.INSTANCE.FIRST_COLUMN.get(currentPosition) && (candidateOffset == -1)
-            || (candidateOffset == -9 || candidateOffset == 7);
+        return BoardUtils.INSTANCE.FIRST_COLUMN.get(currentPosition) && (candidateOffset == -1
+            || candidateOffset == -9 || candidateOffset == 7);
     }
 
     private static boolean isEightColumnExclusion(
         final int currentPosition,
         final int candidateOffset)
     {
-        return BoardUtils.INSTANCE.EIGHTH_COLUMN.get(currentPosition) && (candidateOffset == -7) || (candidateOffset == 1
+        return BoardUtils.INSTANCE.EIGHTH_COLUMN.get(currentPosition) && (candidateOffset == -7 || candidateOffset == 1
             || candidateOffset == 9);
     }
 
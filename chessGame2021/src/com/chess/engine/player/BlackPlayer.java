@@ -40,6 +40,12 @@ public class BlackPlayer extends Player
         return this.board.getBlackPieces();
     }
 
+    @Override
+    public String toString()
+    {
+        return "Black";
+    }
+
     @Override
     public Alliance getAlliance()
     {
@@ -49,7 +55,7 @@ public class BlackPlayer extends Player
     @Override
     public Player getOpponent()
     {
-        return this.board.blackPlayer();
+        return this.board.whitePlayer();
     }
 
     @Override
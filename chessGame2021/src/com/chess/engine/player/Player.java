@@ -148,7 +148,7 @@ public abstract class Player
 
     public boolean isInCheck()
     {
-        return false;
+        return this.isInCheck;
     }
 
     public boolean isInCheckMate()
@@ -187,12 +187,12 @@ public abstract class Player
 
     public boolean isInStaleMate()
     {
-        return false;
+        return !this.isInCheck && !hasEscapeMoves();
     }
 
     public boolean isCastled()
     {
-        return false;
+        return this.playerKing.isCastled();
     }
 
     /*
@@ -214,28 +214,20 @@ public abstract class Player
      * */
     public MoveTransition makeMove(final Move move)
     {
-        System.out.println("move.currentCoordinate " + move.getCurrentCoordinate() + " move.destinationcoordinate " + move.getDestinationCoordinate());
-        System.out.println("makeMove() line 206");
         if (!isMoveLegal(move))
         {
-            System.out.println("makeMove line 209");
             return new MoveTransition(this.board,
                 this.board,
                 move,
                 MoveStatus.ILLEGAL_MOVE);
         }
-        System.out.println("makeMove() line 214");
         final Board transitionBoard = move.execute(); // method stops here
-        System.out.println("makeMove() line 216");
         final Collection<Move> kingAttacks = Player.calculateAttackOnTile(transitionBoard.currentPlayer()
             .getOpponent().getPlayerKing().getPiecePosition(), transitionBoard.currentPlayer().getLegalMoves());
-        System.out.println("makeMove() line 219");
         if(!kingAttacks.isEmpty())
         {
-            System.out.println("makeMove() line 222");
             return new MoveTransition(this.board, this.board, move, MoveStatus.LEAVES_PLAYER_IN_CHECK);
         }
-        System.out.println("makeMove() func end line 225");
         return new MoveTransition(this.board, transitionBoard, move, MoveStatus.DONE);
     }
 
@@ -43,6 +43,12 @@ public class WhitePlayer extends Player
         return this.board.getWhitePieces();
     }
 
+    @Override
+    public String toString()
+    {
+        return "White";
+    }
+
     @Override
     public Alliance getAlliance()
     {
@@ -52,7 +58,7 @@ public class WhitePlayer extends Player
     @Override
     public Player getOpponent()
     {
-        return this.board.whitePlayer();
+        return this.board.blackPlayer();
     }
 
     @Override
@@ -0,0 +1,366 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Bitboards;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.EvaluationState;
+import com.chess.engine.pieces.Piece;
+
+import java.util.List;
+
+/*
+* StandardBoardEvaluator for many independent positions at once (dataset scoring, tuning), over a
+* PositionBatch instead of one Board at a time.
+*
+* Notes:
+*   + Same terms, same numbers: scores[i] == StandardBoardEvaluator.get().evaluate(board i, depth),
+*     TestBatchEvaluator holds it to that. The weights are the ones of the analyzers, not copies.
+*   + Term by term over the whole batch, each term one loop over flat columns:
+*       ++ cheap terms  --> material difference plus the flag bonuses, arithmetic only
+*       ++ occupancy and pawn attacks --> ORs and shifts per position
+*       ++ pawn structure --> doubled / isolated per file and passed pawns from a front fill of the
+*          enemy pawns, shifts and bit counts instead of walking over the pawns one by one
+*     Those loops have no branches worth the name and no calls, the kind of loop HotSpot's C2 turns
+*     into SIMD code by itself (superword).
+*   + The piece terms (mobility, king attackers, rooks) need the sliding attack set of every piece,
+*     a loop whose length depends on the board. They stay a plain loop per position, but every attack
+*     set is worked out once and shared by mobility, king safety and the connected rooks.
+*   + No pawn hash or king safety cache: in a batch of unrelated positions they would only miss.
+*   + No jdk.incubator.vector path. The module is still an incubator, has to be added with
+*     --add-modules when compiling and running, and the expensive part here (sliding attacks) does
+*     not map onto lanes anyway. The column loops are left to the auto-vectorizer.
+* */
+public final class BatchEvaluator
+{
+    // Members:
+    private static final int PAWN = Piece.PieceType.PAWN.ordinal();
+    private static final int KNIGHT = Piece.PieceType.KNIGHT.ordinal();
+    private static final int BISHOP = Piece.PieceType.BISHOP.ordinal();
+    private static final int ROOK = Piece.PieceType.ROOK.ordinal();
+    private static final int QUEEN = Piece.PieceType.QUEEN.ordinal();
+    private static final int KING = Piece.PieceType.KING.ordinal();
+    private static final int ROW = BoardUtils.NUM_TILES_PER_ROW;
+    private static final long NOT_FILE_A = ~Bitboards.FILE_MASKS[0];
+    private static final long NOT_FILE_H = ~Bitboards.FILE_MASKS[ROW - 1];
+    private static final long[] ROW_MASKS = initializeRowMasks();
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    private static final BatchEvaluator INSTANCE = new BatchEvaluator();
+
+    // Constructor:
+    private BatchEvaluator()
+    {
+    }
+
+    // Methods:
+    public static BatchEvaluator get()
+    {
+        return INSTANCE;
+    }
+
+    // every board scored, batch by batch
+    public int[] evaluate(final List<Board> boards,
+                          final int depth)
+    {
+        final int[] scores = new int[boards.size()];
+        final int[] batchScores = new int[DEFAULT_BATCH_SIZE];
+        final PositionBatch batch = new PositionBatch(DEFAULT_BATCH_SIZE);
+        for(int from = 0; from < boards.size(); from += DEFAULT_BATCH_SIZE)
+        {
+            batch.clear();
+            for(int i = from; i < Math.min(boards.size(), from + DEFAULT_BATCH_SIZE); i++)
+            {
+                batch.add(boards.get(i));
+            }
+            evaluate(batch, depth, batchScores);
+            System.arraycopy(batchScores, 0, scores, from, batch.size());
+        }
+        return scores;
+    }
+
+    // white relative scores of the first batch.size() positions into scores
+    public void evaluate(final PositionBatch batch,
+                         final int depth,
+                         final int[] scores)
+    {
+        final int size = batch.size();
+        if(scores.length < size)
+        {
+            throw new IllegalArgumentException("Room for " + scores.length + " scores, " + size + " positions");
+        }
+        final long[] occupied = new long[size];
+        final long[] whitePieces = new long[size];
+        final long[] blackPieces = new long[size];
+        final long[] whitePawnAttacks = new long[size];
+        final long[] blackPawnAttacks = new long[size];
+        cheapTerms(batch, depth, scores);
+        occupancy(batch, whitePieces, blackPieces, occupied);
+        pawnAttacks(batch, whitePawnAttacks, blackPawnAttacks);
+        pawnStructure(batch, scores);
+        pieceTerms(batch, occupied, whitePieces, blackPieces, whitePawnAttacks, blackPawnAttacks, scores);
+    }
+
+    // material, check, checkmate and castling
+    private static void cheapTerms(final PositionBatch batch,
+                                   final int depth,
+                                   final int[] scores)
+    {
+        final int mateBonus = StandardBoardEvaluator.CHECK_MATE_BONUS *
+                              (depth == 0 ? 1 : StandardBoardEvaluator.DEPTH_BONUS * depth);
+        final int[] whiteMaterial = batch.whiteMaterial;
+        final int[] blackMaterial = batch.blackMaterial;
+        final byte[] flags = batch.flags;
+        for(int i = 0; i < batch.size(); i++)
+        {
+            final int flag = flags[i];
+            scores[i] = whiteMaterial[i] - blackMaterial[i] +
+                        StandardBoardEvaluator.CHECK_BONUS * ((flag & PositionBatch.WHITE_CHECKS) - ((flag & PositionBatch.BLACK_CHECKS) >> 1)) +
+                        mateBonus * (((flag & PositionBatch.WHITE_MATES) >> 2) - ((flag & PositionBatch.BLACK_MATES) >> 3)) +
+                        StandardBoardEvaluator.CASTLE_BONUS * (((flag & PositionBatch.WHITE_CASTLED) >> 4) - ((flag & PositionBatch.BLACK_CASTLED) >> 5));
+        }
+    }
+
+    private static void occupancy(final PositionBatch batch,
+                                  final long[] whitePieces,
+                                  final long[] blackPieces,
+                                  final long[] occupied)
+    {
+        for(int type = 0; type < PositionBatch.NUM_TYPES; type++)
+        {
+            final long[] white = batch.pieces[type];
+            final long[] black = batch.pieces[PositionBatch.NUM_TYPES + type];
+            for(int i = 0; i < batch.size(); i++)
+            {
+                whitePieces[i] |= white[i];
+                blackPieces[i] |= black[i];
+            }
+        }
+        for(int i = 0; i < batch.size(); i++)
+        {
+            occupied[i] = whitePieces[i] | blackPieces[i];
+        }
+    }
+
+    // white pawns take towards row 0 (square - 9 and - 7), black pawns towards row 7
+    private static void pawnAttacks(final PositionBatch batch,
+                                    final long[] whitePawnAttacks,
+                                    final long[] blackPawnAttacks)
+    {
+        final long[] whitePawns = batch.pieces[PAWN];
+        final long[] blackPawns = batch.pieces[PositionBatch.NUM_TYPES + PAWN];
+        for(int i = 0; i < batch.size(); i++)
+        {
+            whitePawnAttacks[i] = (whitePawns[i] & NOT_FILE_A) >>> 9 | (whitePawns[i] & NOT_FILE_H) >>> 7;
+            blackPawnAttacks[i] = (blackPawns[i] & NOT_FILE_A) << 7 | (blackPawns[i] & NOT_FILE_H) << 9;
+        }
+    }
+
+    // doubled, isolated and passed pawns, see PawnStructureAnalyzer
+    private static void pawnStructure(final PositionBatch batch,
+                                      final int[] scores)
+    {
+        final int size = batch.size();
+        final long[] whitePawns = batch.pieces[PAWN];
+        final long[] blackPawns = batch.pieces[PositionBatch.NUM_TYPES + PAWN];
+        for(int file = 0; file < ROW; file++)
+        {
+            final long fileMask = Bitboards.FILE_MASKS[file];
+            final long adjacent = Bitboards.ADJACENT_FILE_MASKS[file];
+            for(int i = 0; i < size; i++)
+            {
+                final int white = Long.bitCount(whitePawns[i] & fileMask);
+                final int black = Long.bitCount(blackPawns[i] & fileMask);
+                final int doubled = (white > 1 ? white : 0) - (black > 1 ? black : 0);
+                final int isolated = ((whitePawns[i] & adjacent) == 0 ? white : 0) -
+                                     ((blackPawns[i] & adjacent) == 0 ? black : 0);
+                scores[i] += doubled * PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY +
+                             isolated * PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY;
+            }
+        }
+        // a pawn is passed when no enemy pawn is ahead of it on its own or a neighbouring file
+        final long[] whitePassed = new long[size];
+        final long[] blackPassed = new long[size];
+        for(int i = 0; i < size; i++)
+        {
+            whitePassed[i] = whitePawns[i] & ~southFill(spread(blackPawns[i]) << ROW);
+            blackPassed[i] = blackPawns[i] & ~northFill(spread(whitePawns[i]) >>> ROW);
+        }
+        for(int row = 1; row < ROW - 1; row++)
+        {
+            final long rowMask = ROW_MASKS[row];
+            final int whiteBonus = PawnStructureAnalyzer.PASSED_PAWN_BONUS[ROW - 1 - row];
+            final int blackBonus = PawnStructureAnalyzer.PASSED_PAWN_BONUS[row];
+            for(int i = 0; i < size; i++)
+            {
+                scores[i] += whiteBonus * Long.bitCount(whitePassed[i] & rowMask) -
+                             blackBonus * Long.bitCount(blackPassed[i] & rowMask);
+            }
+        }
+    }
+
+    /*
+    * Mobility, king safety and rook placement: every knight, bishop, rook and queen has its attack
+    * set worked out once, it counts for the mobility of its own side and the attack units against the
+    * enemy king.
+    * */
+    private static void pieceTerms(final PositionBatch batch,
+                                   final long[] occupied,
+                                   final long[] whitePieces,
+                                   final long[] blackPieces,
+                                   final long[] whitePawnAttacks,
+                                   final long[] blackPawnAttacks,
+                                   final int[] scores)
+    {
+        for(int i = 0; i < batch.size(); i++)
+        {
+            scores[i] += sideScore(batch, i, Alliance.WHITE, occupied[i], whitePieces[i], blackPawnAttacks[i]) -
+                         sideScore(batch, i, Alliance.BLACK, occupied[i], blackPieces[i], whitePawnAttacks[i]);
+        }
+    }
+
+    // mobility and rooks of the side plus the safety of its own king
+    private static int sideScore(final PositionBatch batch,
+                                 final int position,
+                                 final Alliance alliance,
+                                 final long occupied,
+                                 final long ownPieces,
+                                 final long enemyPawnAttacks)
+    {
+        final Alliance enemy = alliance.getOpposite();
+        final int own = PositionBatch.column(alliance, Piece.PieceType.PAWN);
+        final int other = PositionBatch.column(enemy, Piece.PieceType.PAWN);
+        final long available = ~ownPieces & ~enemyPawnAttacks;
+        int score = 0;
+        for(int type = KNIGHT; type <= QUEEN; type++)
+        {
+            final int weight = MobilityAnalyzer.MOBILITY_WEIGHTS[type];
+            long remaining = batch.pieces[own + type][position];
+            while(remaining != 0L)
+            {
+                final int coordinate = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                score += weight * Long.bitCount(attacks(type, coordinate, occupied) & available);
+            }
+        }
+        score += rookStructure(alliance, occupied, batch.pieces[own + ROOK][position],
+            batch.pieces[own + PAWN][position], batch.pieces[other + PAWN][position]);
+        final long king = batch.pieces[own + KING][position];
+        if(king == 0L)
+        {
+            return score;
+        }
+        final int kingSquare = Long.numberOfTrailingZeros(king);
+        final long kingZone = Bitboards.kingAttacks(kingSquare) | king;
+        int attackers = 0;
+        int units = 0;
+        for(int type = KNIGHT; type <= QUEEN; type++)
+        {
+            final int weight = KingSafetyAnalyzer.ATTACK_WEIGHTS[type];
+            long remaining = batch.pieces[other + type][position];
+            while(remaining != 0L)
+            {
+                final int coordinate = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                final long hitSquares = attacks(type, coordinate, occupied) & kingZone;
+                if(hitSquares != 0L)
+                {
+                    attackers++;
+                    units += weight * Long.bitCount(hitSquares);
+                }
+            }
+        }
+        final boolean enemyHasMajors = (batch.pieces[other + ROOK][position] | batch.pieces[other + QUEEN][position]) != 0L;
+        final int shelter = KingSafetyAnalyzer.pawnShelter(kingSquare, alliance, batch.pieces[own + PAWN][position],
+            batch.pieces[other + PAWN][position], enemyHasMajors);
+        return score + shelter * batch.phases[position] / EvaluationState.TOTAL_PHASE -
+               KingSafetyAnalyzer.safetyPenalty(attackers > 1 ? units : 0);
+    }
+
+    // open and semi-open files, the seventh rank and connected rooks, see RookStructureAnalyzer
+    private static int rookStructure(final Alliance alliance,
+                                     final long occupied,
+                                     final long rooks,
+                                     final long ownPawns,
+                                     final long enemyPawns)
+    {
+        final int seventhRow = alliance.isWhite() ? 1 : ROW - 2;
+        int score = 0;
+        long remaining = rooks;
+        while(remaining != 0L)
+        {
+            final int coordinate = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            final long file = Bitboards.FILE_MASKS[Bitboards.fileOf(coordinate)];
+            if((ownPawns & file) == 0L)
+            {
+                score += (enemyPawns & file) == 0L ? RookStructureAnalyzer.OPEN_FILE_BONUS :
+                                                     RookStructureAnalyzer.SEMI_OPEN_FILE_BONUS;
+            }
+            if(Bitboards.rowOf(coordinate) == seventhRow)
+            {
+                score += RookStructureAnalyzer.SEVENTH_RANK_BONUS;
+            }
+            if((Bitboards.rookAttacks(coordinate, occupied) & remaining) != 0L)
+            {
+                score += RookStructureAnalyzer.CONNECTED_ROOKS_BONUS;
+            }
+        }
+        return score;
+    }
+
+    private static long attacks(final int type,
+                                final int coordinate,
+                                final long occupied)
+    {
+        if(type == KNIGHT)
+        {
+            return Bitboards.knightAttacks(coordinate);
+        }
+        if(type == BISHOP)
+        {
+            return Bitboards.bishopAttacks(coordinate, occupied);
+        }
+        if(type == ROOK)
+        {
+            return Bitboards.rookAttacks(coordinate, occupied);
+        }
+        return Bitboards.queenAttacks(coordinate, occupied);
+    }
+
+    // the pawns plus the squares beside them
+    private static long spread(final long pawns)
+    {
+        return pawns | (pawns & NOT_FILE_A) >>> 1 | (pawns & NOT_FILE_H) << 1;
+    }
+
+    // every square on the same file towards row 7 (higher squares)
+    private static long southFill(final long squares)
+    {
+        long fill = squares;
+        fill |= fill << ROW;
+        fill |= fill << 2 * ROW;
+        fill |= fill << 4 * ROW;
+        return fill;
+    }
+
+    // every square on the same file towards row 0 (lower squares)
+    private static long northFill(final long squares)
+    {
+        long fill = squares;
+        fill |= fill >>> ROW;
+        fill |= fill >>> 2 * ROW;
+        fill |= fill >>> 4 * ROW;
+        return fill;
+    }
+
+    private static long[] initializeRowMasks()
+    {
+        final long[] masks = new long[ROW];
+        for(int coordinate = 0; coordinate < BoardUtils.NUM_TILES; coordinate++)
+        {
+            masks[Bitboards.rowOf(coordinate)] |= Bitboards.squareMask(coordinate);
+        }
+        return masks;
+    }
+
+}
@@ -5,4 +5,34 @@ import com.chess.engine.board.Board;
 public interface BoardEvaluator
 {
     int evaluate(Board board, int depth);
+
+    /*
+    * The same score, but the search tells us its window [alpha, beta] (from whites point of view, like
+    * the score). An evaluator may then stop early once the score is sure to land outside the window,
+    * and return a bound instead: anything <= alpha means "at most this", anything >= beta "at least
+    * this". Evaluators that are cheap throughout just score the position.
+    * */
+    default int evaluate(final Board board,
+                         final int depth,
+                         final int alpha,
+                         final int beta)
+    {
+        return evaluate(board, depth);
+    }
+
+    // true when the window version above may answer with a bound instead of the exact score
+    default boolean returnsBounds()
+    {
+        return false;
+    }
+
+    /*
+    * The score broken down by term and side. Evaluators without separate terms report the score as
+    * a single term.
+    * */
+    default EvaluationTrace trace(final Board board,
+                                  final int depth)
+    {
+        return new EvaluationTrace().add("score", evaluate(board, depth), 0);
+    }
 }
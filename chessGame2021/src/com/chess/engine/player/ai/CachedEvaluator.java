@@ -0,0 +1,220 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.ZobristHashing;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+* An evaluation cache in front of any BoardEvaluator.
+*
+* Notes:
+*   + Iterative deepening and the repeated zero window searches of MTD(f) evaluate the same leaves over
+*     and over, and an evaluation is far more work than a table lookup.
+*   + Direct mapped: the low bits of the Zobrist hash pick the slot, a new position simply overwrites
+*     whatever was there.
+*   + One long per slot: the lower 32 bits hold the score and what kind of score it is, the upper 32
+*     bits (key fragment ^ lower half). The key fragment is the upper half of the hash, the part that
+*     did not pick the slot.
+*       ++ a lookup only hits when (upper ^ lower) gives back the fragment of the board asked about
+*       ++ Java may write a plain long as two 32 bit halves. When two threads write the same slot at
+*          once the halves can come from different positions, but then upper ^ lower no longer gives
+*          a matching fragment and the slot reads as a miss. So no locks and no volatile.
+*       ++ an empty slot is 0, read as a miss too
+*   + Positions where the side to move is in check are passed straight through, the evaluators score a
+*     mate by depth and the hash knows nothing about depth.
+*   + Through the window API an evaluator may answer with a bound (see StandardBoardEvaluator's lazy
+*     evaluation and BoardEvaluator.returnsBounds), so an entry is one of:
+*       ++ EXACT       --> answers any lookup
+*       ++ LOWER_BOUND --> the score is at least this, answers a window it fails high on
+*       ++ UPPER_BOUND --> the score is at most this, answers a window it fails low on
+*     The zero window searches of MTD(f) almost never see a score inside their window, without bound
+*     entries a lazy evaluator would hardly ever get anything cached.
+*   + Keyed by ZobristHashing.canonicalHash and stored from the side to moves point of view: a position
+*     and its colour reversed mirror (BoardMirror) share one entry. With black to move the score is
+*     negated on the way in and out, the window turns into [-beta, -alpha] and a lower bound becomes an
+*     upper bound. This needs an evaluator that scores the mirror as the negated position, which
+*     TestEvaluatorSymmetry checks for the evaluators we have.
+* */
+public final class CachedEvaluator implements BoardEvaluator
+{
+    // Members:
+    public static final int DEFAULT_SIZE = 1 << 16;
+    private static final int EXACT = 0;
+    private static final int LOWER_BOUND = 1;
+    private static final int UPPER_BOUND = 2;
+    private static final int FLAG_BITS = 2;
+    private static final int FLAG_MASK = (1 << FLAG_BITS) - 1;
+    // scores have to fit in the 30 bits left next to the flag
+    private static final int MAX_SCORE = (1 << (31 - FLAG_BITS)) - 1;
+
+    private final BoardEvaluator evaluator;
+    private final long[] entries;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    // Constructor:
+    public CachedEvaluator(final BoardEvaluator evaluator)
+    {
+        this(evaluator, DEFAULT_SIZE);
+    }
+
+    public CachedEvaluator(final BoardEvaluator evaluator,
+                           final int size)
+    {
+        if(Integer.bitCount(size) != 1)
+        {
+            throw new IllegalArgumentException("Cache size must be a power of two");
+        }
+        this.evaluator = evaluator;
+        this.entries = new long[size];
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    // Methods:
+    @Override
+    public int evaluate(final Board board,
+                        final int depth)
+    {
+        if(board.currentPlayer().isInCheck())
+        {
+            return this.evaluator.evaluate(board, depth);
+        }
+        final long key = ZobristHashing.INSTANCE.canonicalHash(board);
+        final int sign = ZobristHashing.INSTANCE.isCanonical(board) ? 1 : -1;
+        final long entry = this.entries[index(key)];
+        if(matches(entry, key) && flag(entry) == EXACT)
+        {
+            this.hits.increment();
+            return sign * score(entry);
+        }
+        this.misses.increment();
+        final int score = this.evaluator.evaluate(board, depth);
+        store(key, sign * score, EXACT);
+        return score;
+    }
+
+    @Override
+    public int evaluate(final Board board,
+                        final int depth,
+                        final int alpha,
+                        final int beta)
+    {
+        if(board.currentPlayer().isInCheck())
+        {
+            return this.evaluator.evaluate(board, depth, alpha, beta);
+        }
+        final long key = ZobristHashing.INSTANCE.canonicalHash(board);
+        final int sign = ZobristHashing.INSTANCE.isCanonical(board) ? 1 : -1;
+        // the window from the side to moves point of view, the way the entries are kept
+        final int relativeAlpha = sign == 1 ? alpha : -beta;
+        final int relativeBeta = sign == 1 ? beta : -alpha;
+        final long entry = this.entries[index(key)];
+        if(matches(entry, key))
+        {
+            final int flag = flag(entry);
+            final int cachedScore = score(entry);
+            if(flag == EXACT ||
+               flag == LOWER_BOUND && cachedScore >= relativeBeta ||
+               flag == UPPER_BOUND && cachedScore <= relativeAlpha)
+            {
+                this.hits.increment();
+                return sign * cachedScore;
+            }
+        }
+        this.misses.increment();
+        final int score = this.evaluator.evaluate(board, depth, alpha, beta);
+        final int relativeScore = sign * score;
+        if(!this.evaluator.returnsBounds() || relativeScore > relativeAlpha && relativeScore < relativeBeta)
+        {
+            store(key, relativeScore, EXACT);
+        }
+        else
+        {
+            store(key, relativeScore, relativeScore <= relativeAlpha ? UPPER_BOUND : LOWER_BOUND);
+        }
+        return score;
+    }
+
+    @Override
+    public boolean returnsBounds()
+    {
+        return this.evaluator.returnsBounds();
+    }
+
+    @Override
+    public EvaluationTrace trace(final Board board,
+                                 final int depth)
+    {
+        return this.evaluator.trace(board, depth);
+    }
+
+    public BoardEvaluator getEvaluator()
+    {
+        return this.evaluator;
+    }
+
+    public int getSize()
+    {
+        return this.entries.length;
+    }
+
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    public double getHitRate()
+    {
+        final long lookups = getHits() + getMisses();
+        return lookups == 0 ? 0.0 : getHits() / (double) lookups;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(this.entries, 0L);
+        this.hits.reset();
+        this.misses.reset();
+    }
+
+    private int index(final long key)
+    {
+        return (int) key & (this.entries.length - 1);
+    }
+
+    private void store(final long key,
+                       final int score,
+                       final int flag)
+    {
+        if(Math.abs(score) <= MAX_SCORE)
+        {
+            final int fragment = (int) (key >>> 32);
+            final int data = (score << FLAG_BITS) | flag;
+            this.entries[index(key)] = ((long) (fragment ^ data) << 32) | (data & 0xFFFFFFFFL);
+        }
+    }
+
+    private static boolean matches(final long entry,
+                                   final long key)
+    {
+        return entry != 0L && ((int) (entry >>> 32) ^ (int) entry) == (int) (key >>> 32);
+    }
+
+    private static int score(final long entry)
+    {
+        return (int) entry >> FLAG_BITS;
+    }
+
+    private static int flag(final long entry)
+    {
+        return (int) entry & FLAG_MASK;
+    }
+
+}
@@ -0,0 +1,257 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.board.MoveUtils;
+import com.chess.pgn.FenUtilities;
+import com.google.common.collect.ImmutableList;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* The coordinator half of a distributed search: the root moves are split across SearchWorker
+* processes (on this machine or on other boxes) and the answers are gathered back.
+*
+* Notes:
+*   + Every root move is one unit of work: "search the position after this move to depth - 1". The
+*     units share nothing, so it does not matter which worker picks up which unit.
+*   + Positions travel as FEN strings (FenUtilities) so the workers only need the normal Board code.
+*   + Each worker gets its own thread and socket and keeps pulling units until the queue is empty.
+*   + Fault handling: if a worker can not be reached, times out or sends garbage, its unit goes back
+*     on the queue for the others and the worker is dropped for the rest of the search. Anything left
+*     over once every worker is gone is searched right here by a local MTDf engine.
+*   + The local engine searches the position rebuilt from the same FEN a worker would get. The Board
+*     itself carries more than the FEN says, and a score must not depend on which workers are alive.
+* */
+public class DistributedSearch implements MoveStrategy
+{
+    // Members:
+    private static final int DEFAULT_TIMEOUT_MILLIS = 60_000;
+
+    private final List<InetSocketAddress> workerAddresses;
+    private final int searchDepth;
+    private final int timeoutMillis;
+    private final MTDf localEngine;
+
+    private final AtomicLong boardsEvaluated;
+    private final AtomicInteger deadWorkers;
+    private int unitsSearchedLocally;
+    private int bestScore;
+
+    // Constructor:
+    public DistributedSearch(final int searchDepth,
+                             final List<InetSocketAddress> workerAddresses)
+    {
+        this(searchDepth, workerAddresses, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public DistributedSearch(final int searchDepth,
+                             final List<InetSocketAddress> workerAddresses,
+                             final int timeoutMillis)
+    {
+        if(searchDepth < 1)
+        {
+            throw new IllegalArgumentException("Search depth must be at least 1");
+        }
+        this.workerAddresses = ImmutableList.copyOf(workerAddresses);
+        this.searchDepth = searchDepth;
+        this.timeoutMillis = timeoutMillis;
+        this.localEngine = new MTDf(searchDepth - 1);
+        this.boardsEvaluated = new AtomicLong();
+        this.deadWorkers = new AtomicInteger();
+    }
+
+    // Methods:
+    @Override
+    public String toString()
+    {
+        return "DistributedSearch";
+    }
+
+    // the nodes the workers (and the local fallback) reported for the last search
+    @Override
+    public long getNumBoardsEvaluated()
+    {
+        return this.boardsEvaluated.get();
+    }
+
+    public int getDeadWorkers()
+    {
+        return this.deadWorkers.get();
+    }
+
+    public int getUnitsSearchedLocally()
+    {
+        return this.unitsSearchedLocally;
+    }
+
+    // score of the chosen move from the point of view of the player to move at the root
+    public int getBestScore()
+    {
+        return this.bestScore;
+    }
+
+    @Override
+    public Move execute(final Board board)
+    {
+        final long startTime = System.currentTimeMillis();
+        this.boardsEvaluated.set(0);
+        this.deadWorkers.set(0);
+        this.unitsSearchedLocally = 0;
+
+        final List<WorkUnit> units = createWorkUnits(board);
+        System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth + ", " +
+            units.size() + " root moves over " + this.workerAddresses.size() + " workers");
+
+        final ConcurrentLinkedDeque<WorkUnit> queue = new ConcurrentLinkedDeque<>(units);
+        final List<Thread> workerThreads = new ArrayList<>();
+        for(final InetSocketAddress address : this.workerAddresses)
+        {
+            final Thread thread = new Thread(() -> drainQueue(address, queue), "distributed-search-" + address);
+            thread.setDaemon(true);
+            thread.start();
+            workerThreads.add(thread);
+        }
+        for(final Thread thread : workerThreads)
+        {
+            try
+            {
+                thread.join();
+            }
+            catch(final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // whatever the workers could not finish (all of them died, or there were none) we do ourselves
+        WorkUnit leftOver;
+        while((leftOver = queue.poll()) != null)
+        {
+            searchLocally(leftOver);
+            this.unitsSearchedLocally++;
+        }
+
+        Move bestMove = MoveUtils.decodeMove(board, MoveUtils.NO_MOVE);
+        this.bestScore = -MTDf.INFINITY;
+        for(final WorkUnit unit : units)
+        {
+            // the worker scores the position for the opponent, negamax flips it back
+            if(-unit.score > this.bestScore)
+            {
+                this.bestScore = -unit.score;
+                bestMove = unit.move;
+            }
+        }
+
+        final long executionTime = System.currentTimeMillis() - startTime;
+        System.out.println(toString() + " picked " + bestMove + " score = " + this.bestScore + " nodes = " +
+            this.boardsEvaluated.get() + " dead workers = " + this.deadWorkers.get() + " time = " +
+            executionTime + " ms");
+        return bestMove;
+    }
+
+    private static List<WorkUnit> createWorkUnits(final Board board)
+    {
+        final List<WorkUnit> units = new ArrayList<>();
+        for(final Move move : board.currentPlayer().getLegalMoves())
+        {
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if(transition.getMoveStatus().isDone())
+            {
+                units.add(new WorkUnit(move, transition.getToBoard()));
+            }
+        }
+        return units;
+    }
+
+    private void drainQueue(final InetSocketAddress address,
+                            final ConcurrentLinkedDeque<WorkUnit> queue)
+    {
+        try(final Socket socket = new Socket())
+        {
+            socket.connect(address, this.timeoutMillis);
+            socket.setSoTimeout(this.timeoutMillis);
+            final BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            final PrintWriter out = new PrintWriter(
+                new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            WorkUnit unit;
+            while((unit = queue.poll()) != null)
+            {
+                try
+                {
+                    out.println(SearchWorker.SEARCH + " " + (this.searchDepth - 1) + " " +
+                        FenUtilities.createFENFromGame(unit.board));
+                    readResult(in.readLine(), unit);
+                }
+                catch(final IOException | RuntimeException e)
+                {
+                    // give the unit back before giving up on this worker
+                    queue.addFirst(unit);
+                    throw e;
+                }
+            }
+        }
+        catch(final IOException | RuntimeException e)
+        {
+            this.deadWorkers.incrementAndGet();
+            System.out.println("worker " + address + " dropped: " + e);
+        }
+    }
+
+    private void readResult(final String response,
+                            final WorkUnit unit) throws IOException
+    {
+        if(response == null)
+        {
+            throw new IOException("connection closed");
+        }
+        final String[] parts = response.split(" ");
+        if(parts.length != 3 || !parts[0].equals(SearchWorker.RESULT))
+        {
+            throw new IOException("unexpected response: " + response);
+        }
+        unit.score = Integer.parseInt(parts[1]);
+        this.boardsEvaluated.addAndGet(Long.parseLong(parts[2]));
+    }
+
+    private void searchLocally(final WorkUnit unit)
+    {
+        final Board board = FenUtilities.createGameFromFEN(FenUtilities.createFENFromGame(unit.board));
+        this.localEngine.resetCounters();
+        this.localEngine.getTranspositionTable().newSearch();
+        unit.score = this.localEngine.iterativeDeepening(board, this.searchDepth - 1);
+        this.boardsEvaluated.addAndGet(this.localEngine.getNumNodesSearched());
+    }
+
+    private static final class WorkUnit
+    {
+        private final Move move;
+        private final Board board;
+        // written by exactly one thread, read after that thread has been joined
+        private volatile int score;
+
+        WorkUnit(final Move move,
+                 final Board board)
+        {
+            this.move = move;
+            this.board = board;
+        }
+    }
+
+}
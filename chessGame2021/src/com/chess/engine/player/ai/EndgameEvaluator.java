@@ -0,0 +1,89 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+* Puts the specialised endgame evaluators of EndgameRegistry in front of any BoardEvaluator.
+*
+* Notes:
+*   + One table probe on the material signature per call. When the material on the board is one of
+*     the registered endgames its scorer answers, otherwise the wrapped evaluator does.
+*   + An endgame score is always exact, so through the window API it simply scores the position.
+*   + Colour symmetric like the registry, so it can sit behind a CachedEvaluator.
+* */
+public final class EndgameEvaluator implements BoardEvaluator
+{
+    // Members:
+    private final BoardEvaluator evaluator;
+    private final LongAdder endgameHits;
+
+    // Constructor:
+    public EndgameEvaluator(final BoardEvaluator evaluator)
+    {
+        this.evaluator = evaluator;
+        this.endgameHits = new LongAdder();
+    }
+
+    // Methods:
+    @Override
+    public int evaluate(final Board board,
+                        final int depth)
+    {
+        final EndgameRegistry.Endgame endgame = EndgameRegistry.get().probe(board);
+        if(endgame == null)
+        {
+            return this.evaluator.evaluate(board, depth);
+        }
+        this.endgameHits.increment();
+        return endgame.evaluate(board, depth, this.evaluator);
+    }
+
+    @Override
+    public int evaluate(final Board board,
+                        final int depth,
+                        final int alpha,
+                        final int beta)
+    {
+        final EndgameRegistry.Endgame endgame = EndgameRegistry.get().probe(board);
+        if(endgame == null)
+        {
+            return this.evaluator.evaluate(board, depth, alpha, beta);
+        }
+        this.endgameHits.increment();
+        return endgame.evaluate(board, depth, this.evaluator);
+    }
+
+    @Override
+    public boolean returnsBounds()
+    {
+        return this.evaluator.returnsBounds();
+    }
+
+    // a registered endgame is a single term named after it, "KRK" or "KBNK"
+    @Override
+    public EvaluationTrace trace(final Board board,
+                                 final int depth)
+    {
+        final EndgameRegistry.Endgame endgame = EndgameRegistry.get().probe(board);
+        if(endgame == null)
+        {
+            return this.evaluator.trace(board, depth);
+        }
+        final int score = endgame.evaluate(board, depth, this.evaluator);
+        return new EvaluationTrace().add(endgame.getName(), Math.max(score, 0), Math.max(-score, 0));
+    }
+
+    public BoardEvaluator getEvaluator()
+    {
+        return this.evaluator;
+    }
+
+    // calls answered by an endgame scorer
+    public long getEndgameHits()
+    {
+        return this.endgameHits.sum();
+    }
+
+}
@@ -0,0 +1,377 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.MaterialSignature;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.Player;
+
+import java.util.Arrays;
+
+/*
+* Evaluators for endgames the general evaluation plays badly, looked up by material signature.
+*
+* Notes:
+*   + With a handful of pieces left material and mobility say next to nothing about how to make
+*     progress: in KRK every rook move looks the same, so the search shuffles around for thousands of
+*     nodes and may never find the mate. What wins these endings is known:
+*       ++ KQK, KRK --> drive the lone king to the edge and bring our own king close to it
+*       ++ KBNK     --> the same, but into a corner of the bishops colour, only those can be mated in
+*       ++ KPK      --> rule of the square: a pawn the enemy king can not catch queens, a rook pawn with
+*                       the enemy king in front of it does not
+*       ++ opposite coloured bishops --> the general score halved, extra pawns often do not win
+*       ++ KK, KNK, KBK, KNNK, KBKB --> nobody can force a mate, a draw
+*   + The signature comes for free with every board (EvaluationState), the lookup is one open
+*     addressed table probe, no allocation.
+*   + Every endgame is registered for both colours: the scorers work from the strong sides point of
+*     view and Endgame.evaluate turns that into the usual white relative score.
+*   + Draws are exact, the search does not have to look any further (see isDrawn, MTDf and MiniMax).
+*     The winning scorers are only heuristics, they steer the search towards the mate, so those
+*     positions are still searched and EndgameEvaluator uses them at the leaves.
+* */
+public final class EndgameRegistry
+{
+    // Members:
+    public static final int DRAW = 0;
+    // a sure win, still well below any checkmate score
+    public static final int KNOWN_WIN = 5000;
+    private static final int CHECK_MATE_BONUS = 10000;
+    private static final int DEPTH_BONUS = 100;
+    private static final int PUSH_TO_EDGE = 20;
+    private static final int PUSH_CLOSE = 10;
+    private static final int PAWN_ADVANCE = 15;
+    private static final int MAX_PAWNS = 8;
+    private static final int TABLE_BITS = 9;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final long EMPTY = -1L;
+
+    private static final EndgameRegistry INSTANCE = new EndgameRegistry();
+
+    private final long[] signatures;
+    private final Endgame[] endgames;
+    private int size;
+
+    // scores a position from the strong sides point of view, the fallback is the general evaluator
+    @FunctionalInterface
+    public interface Scorer
+    {
+        int score(Board board,
+                  Alliance strongSide,
+                  int depth,
+                  BoardEvaluator fallback);
+    }
+
+    public static final class Endgame
+    {
+        private final String name;
+        private final Alliance strongSide;
+        private final Scorer scorer;
+        private final boolean draw;
+
+        private Endgame(final String name,
+                        final Alliance strongSide,
+                        final Scorer scorer,
+                        final boolean draw)
+        {
+            this.name = name;
+            this.strongSide = strongSide;
+            this.scorer = scorer;
+            this.draw = draw;
+        }
+
+        public String getName()
+        {
+            return this.name;
+        }
+
+        public Alliance getStrongSide()
+        {
+            return this.strongSide;
+        }
+
+        // true when every position with this material is a draw
+        public boolean isDraw()
+        {
+            return this.draw;
+        }
+
+        // white relative like any BoardEvaluator, a mate on the board beats what the scorer thinks
+        public int evaluate(final Board board,
+                            final int depth,
+                            final BoardEvaluator fallback)
+        {
+            if(board.currentPlayer().isInCheckMate())
+            {
+                final int mateScore = CHECK_MATE_BONUS * (depth == 0 ? 1 : DEPTH_BONUS * depth);
+                return board.currentPlayer().getAlliance().isWhite() ? -mateScore : mateScore;
+            }
+            if(this.draw || board.currentPlayer().isInStaleMate())
+            {
+                return DRAW;
+            }
+            final int score = this.scorer.score(board, this.strongSide, depth, fallback);
+            return this.strongSide.isWhite() ? score : -score;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.name;
+        }
+    }
+
+    // Constructor:
+    private EndgameRegistry()
+    {
+        this.signatures = new long[TABLE_SIZE];
+        this.endgames = new Endgame[TABLE_SIZE];
+        Arrays.fill(this.signatures, EMPTY);
+        registerBothSides("KQK", EndgameRegistry::driveToEdge, false);
+        registerBothSides("KRK", EndgameRegistry::driveToEdge, false);
+        registerBothSides("KBNK", EndgameRegistry::driveToBishopCorner, false);
+        registerBothSides("KPK", EndgameRegistry::kingAndPawn, false);
+        register("KK", Alliance.WHITE, EndgameRegistry::draw, true);
+        registerBothSides("KNK", EndgameRegistry::draw, true);
+        registerBothSides("KBK", EndgameRegistry::draw, true);
+        registerBothSides("KNNK", EndgameRegistry::draw, true);
+        register("KBKB", Alliance.WHITE, EndgameRegistry::draw, true);
+        for(int whitePawns = 0; whitePawns <= MAX_PAWNS; whitePawns++)
+        {
+            for(int blackPawns = whitePawns == 0 ? 1 : 0; blackPawns <= MAX_PAWNS; blackPawns++)
+            {
+                register("KB" + pawns(whitePawns) + "KB" + pawns(blackPawns), Alliance.WHITE,
+                         EndgameRegistry::bishopsOfOppositeColour, false);
+            }
+        }
+    }
+
+    // Methods:
+    public static EndgameRegistry get()
+    {
+        return INSTANCE;
+    }
+
+    // the endgame the material on the board is registered under, null when there is none
+    public Endgame probe(final Board board)
+    {
+        return probe(board.getEvaluationState().getMaterialSignature());
+    }
+
+    public Endgame probe(final long signature)
+    {
+        for(int index = index(signature); this.signatures[index] != EMPTY; index = (index + 1) & (TABLE_SIZE - 1))
+        {
+            if(this.signatures[index] == signature)
+            {
+                return this.endgames[index];
+            }
+        }
+        return null;
+    }
+
+    // nothing left on the board can force a mate, the search may stop here
+    public boolean isDrawn(final Board board)
+    {
+        final Endgame endgame = probe(board);
+        return endgame != null && endgame.isDraw();
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    private void registerBothSides(final String name,
+                                   final Scorer scorer,
+                                   final boolean draw)
+    {
+        register(name, Alliance.WHITE, scorer, draw);
+        final int blackKing = name.indexOf('K', 1);
+        register(name.substring(blackKing) + name.substring(0, blackKing), Alliance.BLACK, scorer, draw);
+    }
+
+    private void register(final String name,
+                          final Alliance strongSide,
+                          final Scorer scorer,
+                          final boolean draw)
+    {
+        final long signature = MaterialSignature.of(name);
+        if(probe(signature) != null || this.size >= TABLE_SIZE / 2)
+        {
+            throw new IllegalStateException("Can not register " + name);
+        }
+        int index = index(signature);
+        while(this.signatures[index] != EMPTY)
+        {
+            index = (index + 1) & (TABLE_SIZE - 1);
+        }
+        this.signatures[index] = signature;
+        this.endgames[index] = new Endgame(name, strongSide, scorer, draw);
+        this.size++;
+    }
+
+    private static int index(final long signature)
+    {
+        return (int) ((signature * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - TABLE_BITS));
+    }
+
+    private static String pawns(final int count)
+    {
+        final StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < count; i++)
+        {
+            builder.append('P');
+        }
+        return builder.toString();
+    }
+
+    private static int draw(final Board board,
+                            final Alliance strongSide,
+                            final int depth,
+                            final BoardEvaluator fallback)
+    {
+        return DRAW;
+    }
+
+    // KQK and KRK: the lone king to the edge, our king next to it
+    private static int driveToEdge(final Board board,
+                                   final Alliance strongSide,
+                                   final int depth,
+                                   final BoardEvaluator fallback)
+    {
+        final int strongKing = king(board, strongSide);
+        final int weakKing = king(board, strongSide.getOpposite());
+        return KNOWN_WIN + material(board, strongSide) +
+               PUSH_TO_EDGE * centreDistance(weakKing) +
+               PUSH_CLOSE * (BoardUtils.NUM_TILES_PER_ROW - 1 - distance(strongKing, weakKing));
+    }
+
+    // KBNK: mate only works in a corner the bishop can reach, a8/h1 for a light one, a1/h8 for a dark one
+    private static int driveToBishopCorner(final Board board,
+                                           final Alliance strongSide,
+                                           final int depth,
+                                           final BoardEvaluator fallback)
+    {
+        final int strongKing = king(board, strongSide);
+        final int weakKing = king(board, strongSide.getOpposite());
+        final int bishop = firstPiece(board, strongSide, Piece.PieceType.BISHOP);
+        final int lastRow = BoardUtils.NUM_TILES - BoardUtils.NUM_TILES_PER_ROW;
+        final int lastFile = BoardUtils.NUM_TILES_PER_ROW - 1;
+        final int cornerDistance = isLightSquare(bishop) ?
+            Math.min(manhattanDistance(weakKing, 0), manhattanDistance(weakKing, lastRow + lastFile)) :
+            Math.min(manhattanDistance(weakKing, lastRow), manhattanDistance(weakKing, lastFile));
+        return KNOWN_WIN + material(board, strongSide) +
+               PUSH_TO_EDGE * (2 * lastFile - cornerDistance) +
+               PUSH_CLOSE * (BoardUtils.NUM_TILES_PER_ROW - 1 - distance(strongKing, weakKing));
+    }
+
+    /*
+    * KPK, everything seen from the strong side (Alliance.relativeCoordinate), so the pawn always runs up
+    * to row 0:
+    *   + the pawn is out of the square of the enemy king --> it queens
+    *   + a rook pawn with the enemy king next to the queening square --> a draw, the king never leaves
+    *   + otherwise the further the pawn and the closer our king to the queening square the better
+    * */
+    private static int kingAndPawn(final Board board,
+                                   final Alliance strongSide,
+                                   final int depth,
+                                   final BoardEvaluator fallback)
+    {
+        final int pawn = strongSide.relativeCoordinate(firstPiece(board, strongSide, Piece.PieceType.PAWN));
+        final int strongKing = strongSide.relativeCoordinate(king(board, strongSide));
+        final int weakKing = strongSide.relativeCoordinate(king(board, strongSide.getOpposite()));
+        final int file = pawn % BoardUtils.NUM_TILES_PER_ROW;
+        final int queeningSquare = file;
+        final int startRow = BoardUtils.NUM_TILES_PER_ROW - 2;
+        final int row = pawn / BoardUtils.NUM_TILES_PER_ROW;
+        // the double step from the starting row saves a move
+        final int pawnMoves = row == startRow ? row - 1 : row;
+        final boolean weakToMove = board.currentPlayer().getAlliance() != strongSide;
+        final int weakKingMoves = distance(weakKing, queeningSquare) - (weakToMove ? 1 : 0);
+        final boolean pawnBlockedByOwnKing = strongKing % BoardUtils.NUM_TILES_PER_ROW == file && strongKing < pawn;
+        if(weakKingMoves > pawnMoves && !pawnBlockedByOwnKing)
+        {
+            return KNOWN_WIN + PAWN_ADVANCE * (startRow - row);
+        }
+        final boolean rookPawn = file == 0 || file == BoardUtils.NUM_TILES_PER_ROW - 1;
+        if(rookPawn && distance(weakKing, queeningSquare) <= 1)
+        {
+            return DRAW;
+        }
+        return Piece.PieceType.PAWN.getPieceValue() +
+               PAWN_ADVANCE * (startRow - row) +
+               PUSH_CLOSE * (distance(weakKing, queeningSquare) - distance(strongKing, queeningSquare));
+    }
+
+    // bishops on opposite colours, often drawn however many pawns are up, the general score halved
+    private static int bishopsOfOppositeColour(final Board board,
+                                               final Alliance strongSide,
+                                               final int depth,
+                                               final BoardEvaluator fallback)
+    {
+        final int score = fallback.evaluate(board, depth);
+        final boolean oppositeColours = isLightSquare(firstPiece(board, Alliance.WHITE, Piece.PieceType.BISHOP)) !=
+                                        isLightSquare(firstPiece(board, Alliance.BLACK, Piece.PieceType.BISHOP));
+        final int whiteScore = oppositeColours ? score / 2 : score;
+        return strongSide.isWhite() ? whiteScore : -whiteScore;
+    }
+
+    private static int material(final Board board,
+                                final Alliance strongSide)
+    {
+        return board.getEvaluationState().getMaterial(strongSide) -
+               board.getEvaluationState().getMaterial(strongSide.getOpposite());
+    }
+
+    private static int king(final Board board,
+                            final Alliance alliance)
+    {
+        final Player player = alliance.isWhite() ? board.whitePlayer() : board.blackPlayer();
+        return player.getPlayerKing().getPiecePosition();
+    }
+
+    private static int firstPiece(final Board board,
+                                  final Alliance alliance,
+                                  final Piece.PieceType pieceType)
+    {
+        for(final Piece piece : alliance.isWhite() ? board.getWhitePieces() : board.getBlackPieces())
+        {
+            if(piece.getPieceType() == pieceType)
+            {
+                return piece.getPiecePosition();
+            }
+        }
+        throw new IllegalStateException("No " + pieceType + " for " + alliance);
+    }
+
+    // a8 is a light square
+    private static boolean isLightSquare(final int coordinate)
+    {
+        return (coordinate / BoardUtils.NUM_TILES_PER_ROW + coordinate % BoardUtils.NUM_TILES_PER_ROW) % 2 == 0;
+    }
+
+    // king moves from one square to the other
+    private static int distance(final int from,
+                                final int to)
+    {
+        return Math.max(Math.abs(from / BoardUtils.NUM_TILES_PER_ROW - to / BoardUtils.NUM_TILES_PER_ROW),
+                        Math.abs(from % BoardUtils.NUM_TILES_PER_ROW - to % BoardUtils.NUM_TILES_PER_ROW));
+    }
+
+    private static int manhattanDistance(final int from,
+                                         final int to)
+    {
+        return Math.abs(from / BoardUtils.NUM_TILES_PER_ROW - to / BoardUtils.NUM_TILES_PER_ROW) +
+               Math.abs(from % BoardUtils.NUM_TILES_PER_ROW - to % BoardUtils.NUM_TILES_PER_ROW);
+    }
+
+    // 0 on the four centre squares up to 6 in the corners
+    private static int centreDistance(final int coordinate)
+    {
+        final int row = coordinate / BoardUtils.NUM_TILES_PER_ROW;
+        final int file = coordinate % BoardUtils.NUM_TILES_PER_ROW;
+        return Math.max(3 - row, row - 4) + Math.max(3 - file, file - 4);
+    }
+
+}
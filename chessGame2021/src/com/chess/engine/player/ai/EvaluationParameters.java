@@ -0,0 +1,281 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.PieceSquareTables;
+import com.chess.engine.pieces.Piece;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/*
+* The evaluation weights a tuner may change, as one flat vector of ints, plus the text file they are
+* written to.
+*
+* Notes:
+*   + Layout of the vector:
+*       ++ the piece values of pawn, knight, bishop, rook and queen (kings are priceless)
+*       ++ StandardBoardEvaluator's CHECK_BONUS and CASTLE_BONUS, then its lazy margin. The margin is
+*          a search setting more than a weight, but it lives in the evaluator and SpsaTuner tunes it
+*          with the rest.
+*       ++ the middle game piece square tables, 64 entries per piece type, then the end game ones.
+*          Same order as in PieceSquareTables: white's view, index 0 is a8.
+*   + defaults() is what the engine uses today. StandardBoardEvaluator.withParameters() plays with
+*     the scalars, it has no piece square tables. PieceSquareTableEvaluator.withParameters() plays
+*     with the piece values and the tables.
+*   + getDefault() reads the file named by -Dchess.evaluation.parameters, defaults() when that is
+*     not set.
+*   + The file has one line per value group: "CHECK_BONUS 50". A table takes 8 lines under the same
+*     name, one per rank from rank 8 down, so it can be pasted straight into PieceSquareTables.
+*     Lines starting with # are comments. Groups missing from a file keep their default.
+* */
+public final class EvaluationParameters
+{
+    // Members:
+    private static final Piece.PieceType[] PIECE_TYPES = Piece.PieceType.values();
+    private static final int NUM_VALUED_PIECES = Piece.PieceType.KING.ordinal();
+    private static final int TABLE_SIZE = BoardUtils.NUM_TILES;
+
+    public static final int CHECK_BONUS = NUM_VALUED_PIECES;
+    public static final int CASTLE_BONUS = CHECK_BONUS + 1;
+    public static final int LAZY_MARGIN = CASTLE_BONUS + 1;
+    public static final int MIDDLE_GAME_TABLES = LAZY_MARGIN + 1;
+    public static final int END_GAME_TABLES = MIDDLE_GAME_TABLES + PIECE_TYPES.length * TABLE_SIZE;
+    public static final int SIZE = END_GAME_TABLES + PIECE_TYPES.length * TABLE_SIZE;
+
+    private final int[] values;
+
+    private static final class DefaultHolder
+    {
+        private static final EvaluationParameters INSTANCE = readDefault();
+    }
+
+    // Constructor:
+    public EvaluationParameters(final int[] values)
+    {
+        if(values.length != SIZE)
+        {
+            throw new IllegalArgumentException("Expected " + SIZE + " parameters, got " + values.length);
+        }
+        this.values = values.clone();
+    }
+
+    // Methods:
+    public static EvaluationParameters defaults()
+    {
+        final int[] values = new int[SIZE];
+        for(int type = 0; type < NUM_VALUED_PIECES; type++)
+        {
+            values[type] = PIECE_TYPES[type].getPieceValue();
+        }
+        values[CHECK_BONUS] = StandardBoardEvaluator.CHECK_BONUS;
+        values[CASTLE_BONUS] = StandardBoardEvaluator.CASTLE_BONUS;
+        values[LAZY_MARGIN] = StandardBoardEvaluator.DEFAULT_LAZY_MARGIN;
+        for(final Piece.PieceType pieceType : PIECE_TYPES)
+        {
+            for(int square = 0; square < TABLE_SIZE; square++)
+            {
+                values[middleGameIndex(pieceType, square)] =
+                    PieceSquareTables.middleGameValue(pieceType, Alliance.WHITE, square);
+                values[endGameIndex(pieceType, square)] =
+                    PieceSquareTables.endGameValue(pieceType, Alliance.WHITE, square);
+            }
+        }
+        return new EvaluationParameters(values);
+    }
+
+    // the file in -Dchess.evaluation.parameters, defaults() when there is none
+    public static EvaluationParameters getDefault()
+    {
+        return DefaultHolder.INSTANCE;
+    }
+
+    public static EvaluationParameters read(final Path path) throws IOException
+    {
+        final int[] values = defaults().values;
+        final int[] filled = new int[SIZE];
+        try(final BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+        {
+            String line;
+            while((line = reader.readLine()) != null)
+            {
+                final String trimmed = line.trim();
+                if(trimmed.isEmpty() || trimmed.startsWith("#"))
+                {
+                    continue;
+                }
+                final String[] tokens = trimmed.split("\\s+");
+                final int start = groupStart(tokens[0]);
+                if(start < 0)
+                {
+                    throw new IOException("Unknown parameter " + tokens[0]);
+                }
+                final int length = groupLength(start);
+                for(int i = 1; i < tokens.length; i++)
+                {
+                    if(filled[start] >= length)
+                    {
+                        throw new IOException("Too many values for " + tokens[0]);
+                    }
+                    try
+                    {
+                        values[start + filled[start]++] = Integer.parseInt(tokens[i]);
+                    }
+                    catch(final NumberFormatException e)
+                    {
+                        throw new IOException("Not a number for " + tokens[0] + ": " + tokens[i]);
+                    }
+                }
+            }
+        }
+        for(int start = 0; start < SIZE; start += groupLength(start))
+        {
+            if(filled[start] != 0 && filled[start] != groupLength(start))
+            {
+                throw new IOException("Incomplete values for " + groupName(start));
+            }
+        }
+        return new EvaluationParameters(values);
+    }
+
+    public void write(final Path path,
+                      final String comment) throws IOException
+    {
+        try(final BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8))
+        {
+            for(final String commentLine : comment.split("\n"))
+            {
+                writer.write("# " + commentLine);
+                writer.newLine();
+            }
+            for(int start = 0; start < SIZE; start += groupLength(start))
+            {
+                final int length = groupLength(start);
+                final int perLine = length == 1 ? 1 : BoardUtils.NUM_TILES_PER_ROW;
+                for(int line = 0; line < length; line += perLine)
+                {
+                    final StringBuilder builder = new StringBuilder(groupName(start));
+                    for(int i = line; i < line + perLine; i++)
+                    {
+                        builder.append(' ').append(this.values[start + i]);
+                    }
+                    writer.write(builder.toString());
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    public int get(final int index)
+    {
+        return this.values[index];
+    }
+
+    public int[] toArray()
+    {
+        return this.values.clone();
+    }
+
+    public static int pieceValueIndex(final Piece.PieceType pieceType)
+    {
+        if(pieceType.isKing())
+        {
+            throw new IllegalArgumentException("The king has no tunable value");
+        }
+        return pieceType.ordinal();
+    }
+
+    // the square is a table index, white's view (see PieceSquareTables.tableIndex)
+    public static int middleGameIndex(final Piece.PieceType pieceType,
+                                      final int square)
+    {
+        return MIDDLE_GAME_TABLES + pieceType.ordinal() * TABLE_SIZE + square;
+    }
+
+    public static int endGameIndex(final Piece.PieceType pieceType,
+                                   final int square)
+    {
+        return END_GAME_TABLES + pieceType.ordinal() * TABLE_SIZE + square;
+    }
+
+    // the name of the value group an index belongs to, e.g. KNIGHT_VALUE or ROOK_END_GAME
+    public static String groupName(final int index)
+    {
+        if(index < NUM_VALUED_PIECES)
+        {
+            return PIECE_TYPES[index].name() + "_VALUE";
+        }
+        if(index == CHECK_BONUS)
+        {
+            return "CHECK_BONUS";
+        }
+        if(index == CASTLE_BONUS)
+        {
+            return "CASTLE_BONUS";
+        }
+        if(index == LAZY_MARGIN)
+        {
+            return "LAZY_MARGIN";
+        }
+        if(index < END_GAME_TABLES)
+        {
+            return PIECE_TYPES[(index - MIDDLE_GAME_TABLES) / TABLE_SIZE].name() + "_MIDDLE_GAME";
+        }
+        return PIECE_TYPES[(index - END_GAME_TABLES) / TABLE_SIZE].name() + "_END_GAME";
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+        return this == other ||
+               other instanceof EvaluationParameters && Arrays.equals(this.values, ((EvaluationParameters) other).values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(this.values);
+    }
+
+    private static int groupLength(final int start)
+    {
+        return start < MIDDLE_GAME_TABLES ? 1 : TABLE_SIZE;
+    }
+
+    private static int groupStart(final String name)
+    {
+        for(int start = 0; start < SIZE; start += groupLength(start))
+        {
+            if(groupName(start).equals(name))
+            {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    private static EvaluationParameters readDefault()
+    {
+        final String file = System.getProperty("chess.evaluation.parameters");
+        if(file == null)
+        {
+            return defaults();
+        }
+        try
+        {
+            return read(Paths.get(file));
+        }
+        catch(final IOException e)
+        {
+            System.err.println("Could not read the evaluation parameters in " + file + ": " + e.getMessage());
+            return defaults();
+        }
+    }
+
+}
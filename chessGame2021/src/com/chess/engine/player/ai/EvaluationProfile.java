@@ -0,0 +1,102 @@
+package com.chess.engine.player.ai;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+* Where the evaluation time goes: nanoseconds and calls per evaluation term, added up over every
+* board an evaluator scored.
+*
+* Notes:
+*   + Timing every term costs two System.nanoTime() calls per term per board, far more than some of
+*     the terms themselves. So it is off unless the JVM is started with -Dchess.evaluation.profile=true.
+*   + ENABLED is a static final read once when the class loads. The JIT treats it as a constant, so
+*     with profiling off the 'if(EvaluationProfile.ENABLED)' branches in the evaluators are compiled
+*     away and the plain evaluation runs exactly as it did before.
+*   + Counters are LongAdders, several search threads can share one evaluator.
+* */
+public final class EvaluationProfile
+{
+    // Members:
+    public static final boolean ENABLED = Boolean.getBoolean("chess.evaluation.profile");
+
+    private final String[] terms;
+    private final LongAdder[] nanos;
+    private final LongAdder[] calls;
+
+    // Constructor:
+    public EvaluationProfile(final String... terms)
+    {
+        this.terms = terms.clone();
+        this.nanos = new LongAdder[terms.length];
+        this.calls = new LongAdder[terms.length];
+        for(int i = 0; i < terms.length; i++)
+        {
+            this.nanos[i] = new LongAdder();
+            this.calls[i] = new LongAdder();
+        }
+    }
+
+    // Methods:
+    public void record(final int term,
+                       final long elapsedNanos)
+    {
+        this.nanos[term].add(elapsedNanos);
+        this.calls[term].increment();
+    }
+
+    public int getNumTerms()
+    {
+        return this.terms.length;
+    }
+
+    public String getTerm(final int term)
+    {
+        return this.terms[term];
+    }
+
+    public long getNanos(final int term)
+    {
+        return this.nanos[term].sum();
+    }
+
+    public long getCalls(final int term)
+    {
+        return this.calls[term].sum();
+    }
+
+    public long getTotalNanos()
+    {
+        long total = 0;
+        for(final LongAdder termNanos : this.nanos)
+        {
+            total += termNanos.sum();
+        }
+        return total;
+    }
+
+    public void reset()
+    {
+        for(int i = 0; i < this.terms.length; i++)
+        {
+            this.nanos[i].reset();
+            this.calls[i].reset();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        final long total = Math.max(1, getTotalNanos());
+        final StringBuilder builder = new StringBuilder(String.format("%-16s %12s %14s %8s %6s%n",
+            "term", "calls", "nanos", "ns/call", "share"));
+        for(int i = 0; i < this.terms.length; i++)
+        {
+            final long termNanos = getNanos(i);
+            final long termCalls = getCalls(i);
+            builder.append(String.format("%-16s %12d %14d %8d %5.1f%%%n", this.terms[i], termCalls, termNanos,
+                termCalls == 0 ? 0 : termNanos / termCalls, 100.0 * termNanos / total));
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.chess.engine.player.ai;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*
+* What an evaluator made of one board, term by term and side by side.
+*
+* Notes:
+*   + Every term has a white and a black score, both from that side's own point of view (a positive
+*     black mobility score is good for black). The evaluation is the sum of whites minus the sum of
+*     blacks, getTotal() has to give back exactly what evaluate() returned.
+*   + Terms keep the order they were added in, toString() prints them as a table.
+* */
+public final class EvaluationTrace
+{
+    // Members:
+    private final Map<String, int[]> terms;
+
+    // Constructor:
+    public EvaluationTrace()
+    {
+        this.terms = new LinkedHashMap<>();
+    }
+
+    // Methods:
+    public EvaluationTrace add(final String term,
+                               final int whiteScore,
+                               final int blackScore)
+    {
+        final int[] scores = this.terms.computeIfAbsent(term, name -> new int[2]);
+        scores[0] += whiteScore;
+        scores[1] += blackScore;
+        return this;
+    }
+
+    public Set<String> getTerms()
+    {
+        return Collections.unmodifiableSet(this.terms.keySet());
+    }
+
+    public int getWhiteScore(final String term)
+    {
+        final int[] scores = this.terms.get(term);
+        return scores == null ? 0 : scores[0];
+    }
+
+    public int getBlackScore(final String term)
+    {
+        final int[] scores = this.terms.get(term);
+        return scores == null ? 0 : scores[1];
+    }
+
+    // white minus black over every term
+    public int getTotal()
+    {
+        int total = 0;
+        for(final int[] scores : this.terms.values())
+        {
+            total += scores[0] - scores[1];
+        }
+        return total;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder(String.format("%-16s %8s %8s %8s%n", "term", "white", "black", "total"));
+        for(final Map.Entry<String, int[]> entry : this.terms.entrySet())
+        {
+            final int[] scores = entry.getValue();
+            builder.append(String.format("%-16s %8d %8d %8d%n", entry.getKey(), scores[0], scores[1], scores[0] - scores[1]));
+        }
+        builder.append(String.format("%-16s %8s %8s %8d%n", "total", "", "", getTotal()));
+        return builder.toString();
+    }
+
+}
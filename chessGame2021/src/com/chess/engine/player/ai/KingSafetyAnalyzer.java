@@ -0,0 +1,241 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.AttackInfo;
+import com.chess.engine.board.Bitboards;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.EvaluationState;
+import com.chess.engine.board.ZobristHashing;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.Player;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+* How exposed is a players king?
+*
+* Notes:
+*   + Attack units: the king zone is the king square plus the ring of squares around it. Every enemy
+*     knight, bishop, rook and queen that hits the zone adds units for every zone square it hits,
+*     heavier pieces add more. The units are looked up in SAFETY_TABLE which grows slowly at first and
+*     then steeply --> one attacker is not much of a worry, three or four working together are.
+*     A lone attacker does not count at all, it can not mate by itself.
+*   + Pawn shelter, for a king still sitting on its first two rows:
+*       ++ shield --> own pawns on the three files around the king, right in front of it or one further
+*       ++ storm  --> enemy pawns marching up those files towards the king
+*       ++ files  --> a file next to the king with none of our pawns on it is a highway for enemy rooks
+*                     and queens (only counted while the enemy has any)
+*     The shelter matters less and less as the pieces come off, so it is scaled by the game phase.
+*   + Everything comes from the shared AttackInfo of the board, not from Player.getLegalMoves(), and
+*     the result for both kings is cached by the boards canonical Zobrist hash (same lockless trick as
+*     the pawn hash table in PawnStructureAnalyzer). The side to moves king goes in the upper half of
+*     the entry, so a position and its colour reversed mirror share it (see ZobristHashing.canonicalHash).
+* */
+public final class KingSafetyAnalyzer
+{
+    // Members:
+    // attack units per king zone square hit, indexed by PieceType.ordinal()
+    static final int[] ATTACK_WEIGHTS = {0, 2, 2, 3, 5, 0};
+    private static final int[] SAFETY_TABLE = {
+          0,   0,   1,   2,   3,   5,   7,   9,  12,  15,
+         18,  22,  26,  30,  35,  39,  44,  50,  56,  62,
+         68,  75,  82,  85,  89,  97, 105, 113, 122, 131,
+        140, 150, 169, 180, 191, 202, 213, 225, 237, 248,
+        260, 272, 283, 295, 307, 319, 330, 342, 354, 366,
+        377, 389, 401, 412, 424, 436, 448, 459, 471, 483,
+        494, 500, 500, 500, 500, 500, 500, 500, 500, 500
+    };
+    // own pawn one or two rows in front of the king
+    private static final int[] PAWN_SHIELD_BONUS = {0, 10, 5};
+    // enemy pawn one, two or three rows in front of the king
+    private static final int[] PAWN_STORM_PENALTY = {0, -5, -20, -10};
+    public static final int OPEN_FILE_PENALTY = -25;
+    public static final int SEMI_OPEN_FILE_PENALTY = -15;
+    private static final int TABLE_SIZE = 1 << 14;
+
+    private static final KingSafetyAnalyzer INSTANCE = new KingSafetyAnalyzer();
+
+    private final long[] keys;
+    private final long[] entries;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    // Constructor:
+    private KingSafetyAnalyzer()
+    {
+        this.keys = new long[TABLE_SIZE];
+        this.entries = new long[TABLE_SIZE];
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    // Methods:
+    public static KingSafetyAnalyzer get()
+    {
+        return INSTANCE;
+    }
+
+    // the part the evaluator uses, negative means the king is in danger
+    public int kingSafetyScore(final Board board,
+                               final Player player)
+    {
+        final long hash = ZobristHashing.INSTANCE.canonicalHash(board);
+        final Alliance sideToMove = board.currentPlayer().getAlliance();
+        final int index = (int) (hash & (TABLE_SIZE - 1));
+        long entry = this.entries[index];
+        if((this.keys[index] ^ entry) == hash)
+        {
+            this.hits.increment();
+        }
+        else
+        {
+            this.misses.increment();
+            entry = ((long) calculate(board, sideToMove) << 32) | (calculate(board, sideToMove.getOpposite()) & 0xFFFFFFFFL);
+            this.entries[index] = entry;
+            this.keys[index] = hash ^ entry;
+        }
+        return player.getAlliance() == sideToMove ? (int) (entry >> 32) : (int) entry;
+    }
+
+    public int attackUnits(final Board board,
+                           final Player player)
+    {
+        return attackUnits(board.getAttackInfo(), player.getAlliance());
+    }
+
+    // shield + storm + open files, before scaling by the game phase
+    public int pawnShelter(final Board board,
+                           final Player player)
+    {
+        return pawnShelter(board.getAttackInfo(), player.getAlliance());
+    }
+
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    public void clear()
+    {
+        for(int i = 0; i < TABLE_SIZE; i++)
+        {
+            this.keys[i] = 0L;
+            this.entries[i] = 0L;
+        }
+        this.hits.reset();
+        this.misses.reset();
+    }
+
+    private static int calculate(final Board board,
+                                 final Alliance alliance)
+    {
+        final AttackInfo attackInfo = board.getAttackInfo();
+        if(attackInfo.getKingSquare(alliance) < 0)
+        {
+            return 0;
+        }
+        final int phase = Math.min(board.getEvaluationState().getPhase(), EvaluationState.TOTAL_PHASE);
+        final int units = attackUnits(attackInfo, alliance);
+        return pawnShelter(attackInfo, alliance) * phase / EvaluationState.TOTAL_PHASE - safetyPenalty(units);
+    }
+
+    // what the attack units cost, before the sign: 0 for none, 500 at most
+    static int safetyPenalty(final int units)
+    {
+        return SAFETY_TABLE[Math.min(units, SAFETY_TABLE.length - 1)];
+    }
+
+    private static int attackUnits(final AttackInfo attackInfo,
+                                   final Alliance alliance)
+    {
+        final int kingSquare = attackInfo.getKingSquare(alliance);
+        if(kingSquare < 0)
+        {
+            return 0;
+        }
+        final long kingZone = Bitboards.kingAttacks(kingSquare) | Bitboards.squareMask(kingSquare);
+        final Alliance enemy = alliance.getOpposite();
+        int attackers = 0;
+        int units = 0;
+        for(int i = 0; i < attackInfo.getPieceCount(enemy); i++)
+        {
+            final int weight = ATTACK_WEIGHTS[attackInfo.getPieceType(enemy, i).ordinal()];
+            final long hitSquares = attackInfo.getPieceAttacks(enemy, i) & kingZone;
+            if(weight > 0 && hitSquares != 0)
+            {
+                attackers++;
+                units += weight * Long.bitCount(hitSquares);
+            }
+        }
+        return attackers > 1 ? units : 0;
+    }
+
+    private static int pawnShelter(final AttackInfo attackInfo,
+                                   final Alliance alliance)
+    {
+        final Alliance enemy = alliance.getOpposite();
+        return pawnShelter(attackInfo.getKingSquare(alliance), alliance,
+                           attackInfo.getPieces(alliance, Piece.PieceType.PAWN),
+                           attackInfo.getPieces(enemy, Piece.PieceType.PAWN),
+                           (attackInfo.getPieces(enemy, Piece.PieceType.ROOK) |
+                            attackInfo.getPieces(enemy, Piece.PieceType.QUEEN)) != 0);
+    }
+
+    // the same from bare bitboards, BatchEvaluator has no AttackInfo
+    static int pawnShelter(final int kingSquare,
+                           final Alliance alliance,
+                           final long ownPawns,
+                           final long enemyPawns,
+                           final boolean enemyHasMajors)
+    {
+        if(kingSquare < 0 || relativeRow(alliance, kingSquare) > 1)
+        {
+            return 0;
+        }
+        final int kingFile = Bitboards.fileOf(kingSquare);
+        final int kingRow = Bitboards.rowOf(kingSquare);
+        final int forward = alliance.isWhite() ? -1 : 1;
+
+        int score = 0;
+        for(int file = Math.max(0, kingFile - 1); file <= Math.min(BoardUtils.NUM_TILES_PER_ROW - 1, kingFile + 1); file++)
+        {
+            for(int distance = 1; distance < PAWN_STORM_PENALTY.length; distance++)
+            {
+                final int row = kingRow + forward * distance;
+                if(row < 0 || row >= BoardUtils.NUM_TILES_PER_ROW)
+                {
+                    break;
+                }
+                final long square = Bitboards.squareMask(row * BoardUtils.NUM_TILES_PER_ROW + file);
+                if(distance < PAWN_SHIELD_BONUS.length && (ownPawns & square) != 0)
+                {
+                    score += PAWN_SHIELD_BONUS[distance];
+                }
+                if((enemyPawns & square) != 0)
+                {
+                    score += PAWN_STORM_PENALTY[distance];
+                }
+            }
+            if(enemyHasMajors && (ownPawns & Bitboards.FILE_MASKS[file]) == 0)
+            {
+                score += (enemyPawns & Bitboards.FILE_MASKS[file]) == 0 ? OPEN_FILE_PENALTY : SEMI_OPEN_FILE_PENALTY;
+            }
+        }
+        return score;
+    }
+
+    // 0 = the players back row
+    private static int relativeRow(final Alliance alliance,
+                                   final int coordinate)
+    {
+        final int row = Bitboards.rowOf(coordinate);
+        return alliance.isWhite() ? BoardUtils.NUM_TILES_PER_ROW - 1 - row : row;
+    }
+
+}
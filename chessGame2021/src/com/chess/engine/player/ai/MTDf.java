@@ -0,0 +1,477 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.DrawRules;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.board.MoveUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+* MTD(f) --> Memory-enhanced Test Driver, see: https://people.csail.mit.edu/plaat/mtdf.html
+*
+* Notes:
+*   + A normal alpha beta search is called with a wide window (-infinity, +infinity) and works out the
+*     exact score of the position.
+*   + A 'zero window' search is called with beta == alpha + 1. It can not work out the exact score, it
+*     only answers the question "is the score at least beta?" but it answers it a lot faster because
+*     almost every branch gets cut off.
+*   + MTD(f) starts from a guess (the score from the previous, shallower, iteration) and keeps asking
+*     zero window questions, moving the guess up or down, until the lower and upper bounds meet.
+*   + Every zero window search re-visits the same tree, so without a transposition table remembering
+*     the bounds that were already proven MTD(f) would be hopelessly slow.
+*
+* The search is written in the 'negamax' form: scores are always from the point of view of the player
+* whose turn it is, so max(a, b) == -min(-a, -b) and we only need one function instead of min and max.
+*
+* One MTDf object is meant to play a whole game. The transposition table and the history table are
+* kept from one move to the next (most of the tree we searched last move is still relevant two plies
+* later), they are only aged at the start of each search.
+*
+* setNodeLimit() stops a search after so many nodes instead of at a depth: the iteration that runs
+* over is abandoned and the move of the deepest one is played (the first iteration always finishes,
+* there has to be a move). An abandoned iteration stores nothing in the transposition table.
+*
+* A position that repeats one earlier in the game or in the line being searched, or that has gone
+* fifty moves without a pawn move or a capture, is a draw and scored 0 straight away (see
+* RepetitionHistory and DrawRules).
+* */
+public class MTDf implements MoveStrategy
+{
+    // Members:
+    public static final int INFINITY = Integer.MAX_VALUE / 4;
+    private static final int DEFAULT_TABLE_SIZE_MB = 32;
+
+    private final BoardEvaluator boardEvaluator;
+    private final TranspositionTable transpositionTable;
+    private final int searchDepth;
+    // how often a quiet move from one square to another caused a cutoff, weighted by depth
+    private final int[][] historyTable;
+    // the positions of the game and of the current line, for the repetition draw
+    private final RepetitionHistory repetitions;
+    private long boardsEvaluated;
+    private long nodesSearched;
+    private Move rootBestMove;
+    private Tablebase tablebase;
+    private long nodeLimit;
+    private long stopAfter = Long.MAX_VALUE;
+    private boolean stopped;
+    private int lastScore;
+
+    // Constructor:
+    public MTDf(final int searchDepth)
+    {
+        this(searchDepth, new TranspositionTable(DEFAULT_TABLE_SIZE_MB));
+    }
+
+    public MTDf(final int searchDepth,
+                final BoardEvaluator boardEvaluator)
+    {
+        this(searchDepth, new TranspositionTable(DEFAULT_TABLE_SIZE_MB), boardEvaluator);
+    }
+
+    public MTDf(final int searchDepth,
+                final TranspositionTable transpositionTable)
+    {
+        this(searchDepth, transpositionTable, StandardBoardEvaluator.get());
+    }
+
+    public MTDf(final int searchDepth,
+                final TranspositionTable transpositionTable,
+                final BoardEvaluator boardEvaluator)
+    {
+        this.boardEvaluator = boardEvaluator;
+        this.transpositionTable = transpositionTable;
+        this.searchDepth = searchDepth;
+        this.historyTable = new int[BoardUtils.NUM_TILES][BoardUtils.NUM_TILES];
+        this.repetitions = new RepetitionHistory();
+    }
+
+    // Methods:
+    @Override
+    public String toString()
+    {
+        return "MTD(f)";
+    }
+
+    @Override
+    public long getNumBoardsEvaluated()
+    {
+        return this.boardsEvaluated;
+    }
+
+    // every call to alphaBetaWithMemory, interior nodes and leaves alike
+    public long getNumNodesSearched()
+    {
+        return this.nodesSearched;
+    }
+
+    public TranspositionTable getTranspositionTable()
+    {
+        return this.transpositionTable;
+    }
+
+    // positions with few enough pieces are looked up instead of searched, null turns that off
+    public void setTablebase(final Tablebase tablebase)
+    {
+        this.tablebase = tablebase;
+    }
+
+    // the most nodes one search may visit, 0 for no limit: then it always goes to the full depth
+    public void setNodeLimit(final long nodeLimit)
+    {
+        if(nodeLimit < 0)
+        {
+            throw new IllegalArgumentException("The node limit can not be negative");
+        }
+        this.nodeLimit = nodeLimit;
+    }
+
+    public void resetCounters()
+    {
+        this.boardsEvaluated = 0;
+        this.nodesSearched = 0;
+    }
+
+    @Override
+    public Move execute(final Board board)
+    {
+        final long startTime = System.currentTimeMillis();
+
+        System.out.println(board.currentPlayer() + " THINKING with depth = " + this.searchDepth);
+
+        final Move bestMove = findBestMove(board);
+
+        final long executionTime = System.currentTimeMillis() - startTime;
+        System.out.println(toString() + " picked " + bestMove + " score = " + this.lastScore + " nodes = " +
+            this.nodesSearched + " time = " + executionTime + " ms");
+        return bestMove;
+    }
+
+    // execute() without the printing, for games the engine plays against itself
+    public Move findBestMove(final Board board)
+    {
+        resetCounters();
+        this.rootBestMove = null;
+        this.transpositionTable.newSearch();
+        ageHistory();
+        this.lastScore = iterativeDeepening(board, this.searchDepth);
+        return this.rootBestMove != null ? this.rootBestMove : firstLegalMove(board);
+    }
+
+    /*
+    * Iterative deepening --> each iteration hands its score to the next one as the first guess.
+    * Returns the score of the deepest finished iteration from the point of view of the player to move.
+    * */
+    public int iterativeDeepening(final Board board,
+                                  final int depth)
+    {
+        int guess = 0;
+        for(int currentDepth = Math.min(1, depth); currentDepth <= depth; currentDepth++)
+        {
+            this.stopAfter = this.nodeLimit > 0 && currentDepth > 1 ? this.nodeLimit : Long.MAX_VALUE;
+            final int score = mtdf(board, guess, currentDepth);
+            if(this.stopped)
+            {
+                break;
+            }
+            guess = score;
+        }
+        this.stopAfter = Long.MAX_VALUE;
+        return guess;
+    }
+
+    /*
+    * The MTD(f) driver: narrow [lowerBound, upperBound] with zero window searches until they meet.
+    * The returned score is from the point of view of the player to move on the board.
+    * */
+    public int mtdf(final Board board,
+                    final int firstGuess,
+                    final int depth)
+    {
+        int guess = firstGuess;
+        int lowerBound = -INFINITY;
+        int upperBound = INFINITY;
+        this.stopped = false;
+        this.repetitions.loadGame(board);
+        while(lowerBound < upperBound && !this.stopped)
+        {
+            final int beta = guess == lowerBound ? guess + 1 : guess;
+            guess = alphaBetaWithMemory(board, beta - 1, beta, depth, 0);
+            if(guess < beta)
+            {
+                upperBound = guess;
+            }
+            else
+            {
+                lowerBound = guess;
+            }
+        }
+        return guess;
+    }
+
+    /*
+    * The plain full window search over the same tree and the same transposition table, this is what
+    * MTD(f) is measured against.
+    * */
+    public int fullWindowSearch(final Board board,
+                                final int depth)
+    {
+        this.repetitions.loadGame(board);
+        return alphaBetaWithMemory(board, -INFINITY, INFINITY, depth, 0);
+    }
+
+    // every node is on the repetition stack while it is being searched
+    private int alphaBetaWithMemory(final Board board,
+                                    final int alpha,
+                                    final int beta,
+                                    final int depth,
+                                    final int ply)
+    {
+        this.repetitions.push(board.getZobristHash());
+        try
+        {
+            return searchNode(board, alpha, beta, depth, ply);
+        }
+        finally
+        {
+            this.repetitions.pop();
+        }
+    }
+
+    private int searchNode(final Board board,
+                           final int alpha,
+                           final int beta,
+                           final int depth,
+                           final int ply)
+    {
+        this.nodesSearched++;
+        if(this.nodesSearched > this.stopAfter)
+        {
+            this.stopped = true;
+            return 0;
+        }
+        // going round in circles or fifty moves without progress, either way the game is drawn
+        if(ply > 0 && (this.repetitions.isRepetition(board.getHalfMoveClock()) || DrawRules.isFiftyMoveDraw(board)))
+        {
+            return EndgameRegistry.DRAW;
+        }
+        // a known draw (see EndgameRegistry) needs no search, whatever the moves
+        if(ply > 0 && EndgameRegistry.get().isDrawn(board))
+        {
+            return EndgameRegistry.DRAW;
+        }
+        // the tablebase knows the exact result and the distance to mate, not just a guess
+        if(ply > 0 && this.tablebase != null)
+        {
+            final int score = this.tablebase.probe(board);
+            if(score != Tablebase.NOT_FOUND)
+            {
+                return score;
+            }
+        }
+        final long key = board.getZobristHash();
+        int windowAlpha = alpha;
+        int windowBeta = beta;
+        int tableMove = MoveUtils.NO_MOVE;
+
+        final int entry = this.transpositionTable.probe(key);
+        if(entry >= 0)
+        {
+            tableMove = this.transpositionTable.getBestMove(entry);
+            // a bound searched at least as deep as we are about to search is at least as good as ours
+            if(ply > 0 && this.transpositionTable.getDepth(entry) >= depth)
+            {
+                final int lowerBound = this.transpositionTable.getLowerBound(entry);
+                final int upperBound = this.transpositionTable.getUpperBound(entry);
+                if(lowerBound >= windowBeta)
+                {
+                    return lowerBound;
+                }
+                if(upperBound <= windowAlpha)
+                {
+                    return upperBound;
+                }
+                windowAlpha = Math.max(windowAlpha, lowerBound);
+                windowBeta = Math.min(windowBeta, upperBound);
+            }
+        }
+
+        if(depth == 0)
+        {
+            // the evaluator may answer with a bound when the leaf is far outside the window
+            final int score = evaluate(board, depth, windowAlpha, windowBeta);
+            storeResult(key, depth, score, windowAlpha, windowBeta, MoveUtils.NO_MOVE);
+            return score;
+        }
+
+        int bestValue = -INFINITY;
+        Move bestMove = null;
+        int currentAlpha = windowAlpha;
+        for(final Move move : orderMoves(board, tableMove))
+        {
+            final MoveTransition moveTransition = board.currentPlayer().makeMove(move);
+            if(moveTransition.getMoveStatus().isDone())
+            {
+                final int value = -alphaBetaWithMemory(moveTransition.getToBoard(),
+                    -windowBeta, -currentAlpha, depth - 1, ply + 1);
+                if(this.stopped)
+                {
+                    // out of nodes, the score is meaningless and must not reach the table
+                    return 0;
+                }
+                if(value > bestValue)
+                {
+                    bestValue = value;
+                    bestMove = move;
+                }
+                if(bestValue >= windowBeta)
+                {
+                    if(!move.isAttack())
+                    {
+                        this.historyTable[move.getCurrentCoordinate()][move.getDestinationCoordinate()] += depth * depth;
+                    }
+                    break;
+                }
+                currentAlpha = Math.max(currentAlpha, bestValue);
+            }
+        }
+
+        // no legal moves --> checkmate or stalemate, the evaluator knows how to score those
+        if(bestMove == null)
+        {
+            final int score = evaluate(board, depth);
+            storeResult(key, depth, score, -INFINITY, INFINITY, MoveUtils.NO_MOVE);
+            return score;
+        }
+
+        if(ply == 0 && bestValue > windowAlpha)
+        {
+            this.rootBestMove = bestMove;
+        }
+        storeResult(key, depth, bestValue, windowAlpha, windowBeta, MoveUtils.encodeMove(bestMove));
+        return bestValue;
+    }
+
+    /*
+    * A fail low only proves an upper bound and a fail high only proves a lower bound. When the table
+    * already holds the other bound for the same depth we keep it, that is the 'memory' MTD(f) relies on.
+    * */
+    private void storeResult(final long key,
+                             final int depth,
+                             final int value,
+                             final int alpha,
+                             final int beta,
+                             final int bestMove)
+    {
+        int lowerBound = -INFINITY;
+        int upperBound = INFINITY;
+        final int entry = this.transpositionTable.probe(key);
+        if(entry >= 0 && this.transpositionTable.getDepth(entry) == depth)
+        {
+            lowerBound = this.transpositionTable.getLowerBound(entry);
+            upperBound = this.transpositionTable.getUpperBound(entry);
+        }
+        if(value <= alpha)
+        {
+            upperBound = value;
+        }
+        else if(value >= beta)
+        {
+            lowerBound = value;
+        }
+        else
+        {
+            lowerBound = value;
+            upperBound = value;
+        }
+        if(lowerBound > upperBound)
+        {
+            // the old bound disagrees with what we just proved, trust the new result
+            lowerBound = value <= alpha ? -INFINITY : value;
+            upperBound = value >= beta ? INFINITY : value;
+        }
+        this.transpositionTable.store(key, depth, lowerBound, upperBound, bestMove);
+    }
+
+    // the evaluator scores from whites point of view, negamax wants the side to move's point of view
+    private int evaluate(final Board board,
+                         final int depth)
+    {
+        this.boardsEvaluated++;
+        final int score = this.boardEvaluator.evaluate(board, depth);
+        return board.currentPlayer().getAlliance().isWhite() ? score : -score;
+    }
+
+    // the window turned around to whites point of view for the evaluator, and the score back again
+    private int evaluate(final Board board,
+                         final int depth,
+                         final int alpha,
+                         final int beta)
+    {
+        this.boardsEvaluated++;
+        if(board.currentPlayer().getAlliance().isWhite())
+        {
+            return this.boardEvaluator.evaluate(board, depth, alpha, beta);
+        }
+        return -this.boardEvaluator.evaluate(board, depth, -beta, -alpha);
+    }
+
+    /*
+    * Halve every history score: old cutoffs still count for something but the moves that work in the
+    * current position quickly take over.
+    * */
+    private void ageHistory()
+    {
+        for(final int[] fromSquare : this.historyTable)
+        {
+            for(int to = 0; to < fromSquare.length; to++)
+            {
+                fromSquare[to] >>= 1;
+            }
+        }
+    }
+
+    /*
+    * Move ordering makes or breaks alpha beta: the move the table remembers goes first, then captures
+    * (most valuable victim, least valuable attacker), then quiet moves by their history score.
+    * */
+    private List<Move> orderMoves(final Board board,
+                                  final int tableMove)
+    {
+        final List<Move> orderedMoves = new ArrayList<>(board.currentPlayer().getLegalMoves());
+        orderedMoves.sort(Comparator.comparingInt((Move move) -> orderingScore(move, tableMove)).reversed());
+        return orderedMoves;
+    }
+
+    private int orderingScore(final Move move,
+                              final int tableMove)
+    {
+        if(tableMove != MoveUtils.NO_MOVE && MoveUtils.encodeMove(move) == tableMove)
+        {
+            return Integer.MAX_VALUE;
+        }
+        if(move.isAttack())
+        {
+            return 10 * move.getAttackedPiece().getPieceValue() - move.getMovedPiece().getPieceValue();
+        }
+        return -INFINITY + this.historyTable[move.getCurrentCoordinate()][move.getDestinationCoordinate()];
+    }
+
+    private static Move firstLegalMove(final Board board)
+    {
+        for(final Move move : board.currentPlayer().getLegalMoves())
+        {
+            if(board.currentPlayer().makeMove(move).getMoveStatus().isDone())
+            {
+                return move;
+            }
+        }
+        return MoveUtils.decodeMove(board, MoveUtils.NO_MOVE);
+    }
+
+}
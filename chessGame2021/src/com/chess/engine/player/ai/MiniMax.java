@@ -14,7 +14,7 @@ public class MiniMax implements MoveStrategy
     // Constructor:
     public MiniMax(final int searchDepth)
     {
-        this.boardEvaluator = new StandardBoardEvaluator();
+        this.boardEvaluator = new EndgameEvaluator(StandardBoardEvaluator.get());
         this.searchDepth = searchDepth;
     }
 
@@ -74,7 +74,7 @@ public class MiniMax implements MoveStrategy
         }
 
         final long executionTime = System.currentTimeMillis() - startTime;
-        return null;
+        return bestMove;
     }
 
     /*
@@ -108,10 +108,12 @@ public class MiniMax implements MoveStrategy
         return lowestSeenValue;
     }
 
+    // checkmate, stalemate or material nobody can mate with (see EndgameRegistry)
     private static boolean isEndGameScenario(final Board board)
     {
         return board.currentPlayer().isInCheckMate() ||
-               board.currentPlayer().isInStaleMate();
+               board.currentPlayer().isInStaleMate() ||
+               EndgameRegistry.get().isDrawn(board);
     }
 
     public int max(final Board board,
@@ -0,0 +1,64 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.AttackInfo;
+import com.chess.engine.board.Board;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.Player;
+
+/*
+* Mobility from attack counts instead of legal move lists.
+*
+* Notes:
+*   + The old mobility term was player.getLegalMoves().size(): every evaluated board needed both move
+*     lists fully generated and checked for legality. Here every piece just counts the squares in its
+*     attack set (AttackInfo) it could actually go to:
+*       ++ not a square one of our own pieces stands on
+*       ++ not a square an enemy pawn attacks, a piece that can only go where a pawn takes it has
+*          nowhere useful to go
+*     Those counts are pseudo legal (pins are ignored) but that is fine for a positional term.
+*   + A square is worth more to some pieces than to others: a knight with 8 squares is a monster, a
+*     queen with 8 squares is badly placed. So the counts are weighted by piece type.
+*   + Pawns and kings are left out, their mobility means little and the other terms already look at
+*     them.
+*   + No Move objects are made at all.
+* */
+public final class MobilityAnalyzer
+{
+    // Members:
+    // per reachable square, indexed by PieceType.ordinal()
+    static final int[] MOBILITY_WEIGHTS = {0, 4, 3, 2, 1, 0};
+    private static final MobilityAnalyzer INSTANCE = new MobilityAnalyzer();
+
+    // Constructor:
+    private MobilityAnalyzer()
+    {
+    }
+
+    // Methods:
+    public static MobilityAnalyzer get()
+    {
+        return INSTANCE;
+    }
+
+    public int mobilityScore(final Board board,
+                             final Player player)
+    {
+        final AttackInfo attackInfo = board.getAttackInfo();
+        final Alliance alliance = player.getAlliance();
+        final Alliance enemy = alliance.getOpposite();
+        final long available = ~attackInfo.getPieces(alliance) & ~attackInfo.getAttacks(enemy, Piece.PieceType.PAWN);
+
+        int score = 0;
+        for(int i = 0; i < attackInfo.getPieceCount(alliance); i++)
+        {
+            final int weight = MOBILITY_WEIGHTS[attackInfo.getPieceType(alliance, i).ordinal()];
+            if(weight > 0)
+            {
+                score += weight * Long.bitCount(attackInfo.getPieceAttacks(alliance, i) & available);
+            }
+        }
+        return score;
+    }
+
+}
@@ -0,0 +1,448 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.board.MoveUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* Monte Carlo Tree Search with UCT selection, see: https://www.chessprogramming.org/Monte-Carlo_Tree_Search
+*
+* Notes:
+*   + Instead of looking at every move to a fixed depth, MCTS grows a tree one position at a time,
+*     spending more and more of its time on the moves that have worked out well so far.
+*   + Every playout has four steps:
+*       ++ selection   --> walk down the tree picking the child with the best UCT score
+*       ++ expansion   --> add the children of the position we ended up at
+*       ++ simulation  --> play a few random moves (or none at all) and let the evaluator guess the result
+*       ++ backup      --> add the result to every node on the way back up to the root
+*   + UCT = average result + C * sqrt(ln(parent visits) / visits). The first part favours moves that
+*     did well, the second part makes sure rarely visited moves still get a look (exploration).
+*   + The search is 'anytime', it can be stopped after any number of playouts and still has an answer:
+*     the root move that was visited the most.
+*
+* Parallel playouts use 'virtual loss': a thread walking through a node pretends it already lost
+* there, so the other threads are steered towards different parts of the tree until the real result
+* comes in.
+* */
+public class MonteCarloTreeSearch implements MoveStrategy
+{
+    // Members:
+    private static final double EXPLORATION_CONSTANT = 1.4;
+    private static final int VIRTUAL_LOSS = 1;
+    // centipawns --> win probability, a 400 centipawn advantage scores about 0.73
+    private static final double SCORE_SCALE = 400.0;
+    private static final int DEFAULT_PLAYOUT_DEPTH = 0;
+    private static final int DEFAULT_MAX_NODES = 200_000;
+
+    private final BoardEvaluator boardEvaluator;
+    private final int numPlayouts;
+    private final int numThreads;
+    private final int playoutDepth;
+    private final int maxNodes;
+    private final AtomicInteger treeSize;
+    private final AtomicLong playoutsDone;
+
+    private ExecutorService executorService;
+    private Node root;
+    private int reusedNodes;
+
+    // Constructor:
+    public MonteCarloTreeSearch(final int numPlayouts)
+    {
+        this(numPlayouts, Runtime.getRuntime().availableProcessors(), DEFAULT_PLAYOUT_DEPTH, DEFAULT_MAX_NODES);
+    }
+
+    /*
+    * playoutDepth == 0 means no random moves at all, the leaf is handed straight to the evaluator
+    * (an evaluation 'cutoff'). Anything higher plays that many random moves first.
+    * */
+    public MonteCarloTreeSearch(final int numPlayouts,
+                                final int numThreads,
+                                final int playoutDepth,
+                                final int maxNodes)
+    {
+        if(numPlayouts < 1 || numThreads < 1 || playoutDepth < 0 || maxNodes < 1)
+        {
+            throw new IllegalArgumentException("Invalid MCTS configuration");
+        }
+        this.boardEvaluator = StandardBoardEvaluator.get();
+        this.numPlayouts = numPlayouts;
+        this.numThreads = numThreads;
+        this.playoutDepth = playoutDepth;
+        this.maxNodes = maxNodes;
+        this.treeSize = new AtomicInteger();
+        this.playoutsDone = new AtomicLong();
+    }
+
+    // Methods:
+    @Override
+    public String toString()
+    {
+        return "MCTS";
+    }
+
+    // one evaluated playout per board
+    @Override
+    public long getNumBoardsEvaluated()
+    {
+        return this.playoutsDone.get();
+    }
+
+    public int getTreeSize()
+    {
+        return this.treeSize.get();
+    }
+
+    // how many nodes of the previous search were still useful when the last search started
+    public int getReusedNodes()
+    {
+        return this.reusedNodes;
+    }
+
+    public int getRootVisits()
+    {
+        return this.root == null ? 0 : this.root.visits;
+    }
+
+    // stops the worker threads, the strategy can still be used afterwards (it starts new ones)
+    public void shutdown()
+    {
+        if(this.executorService != null)
+        {
+            this.executorService.shutdownNow();
+            this.executorService = null;
+        }
+    }
+
+    @Override
+    public Move execute(final Board board)
+    {
+        final long startTime = System.currentTimeMillis();
+        this.playoutsDone.set(0);
+        reuseOrCreateRoot(board);
+
+        System.out.println(board.currentPlayer() + " THINKING with " + this.numPlayouts + " playouts on " +
+            this.numThreads + " threads (reusing " + this.reusedNodes + " nodes)");
+
+        runPlayouts();
+
+        final Node bestChild = this.root.mostVisitedChild();
+        final Move bestMove = bestChild != null ? bestChild.move : MoveUtils.decodeMove(board, MoveUtils.NO_MOVE);
+        final long executionTime = System.currentTimeMillis() - startTime;
+        System.out.println(toString() + " picked " + bestMove + " visits = " +
+            (bestChild != null ? bestChild.visits : 0) + " tree size = " + this.treeSize.get() +
+            " time = " + executionTime + " ms");
+        return bestMove;
+    }
+
+    /*
+    * Tree reuse: the position we are asked about is usually two plies below the old root (our move
+    * and the opponents reply). If we find it, its subtree becomes the new root and everything else is
+    * dropped for the garbage collector.
+    * */
+    private void reuseOrCreateRoot(final Board board)
+    {
+        final Node reused = this.root == null ? null : this.root.findDescendant(board.getZobristHash(), 2);
+        if(reused != null)
+        {
+            reused.parent = null;
+            this.root = reused;
+            this.reusedNodes = reused.countNodes();
+        }
+        else
+        {
+            this.root = new Node(board, null, null);
+            this.reusedNodes = 0;
+        }
+        this.treeSize.set(Math.max(1, this.reusedNodes));
+    }
+
+    private void runPlayouts()
+    {
+        if(this.numThreads == 1)
+        {
+            playoutLoop();
+            return;
+        }
+        if(this.executorService == null)
+        {
+            this.executorService = Executors.newFixedThreadPool(this.numThreads, runnable -> {
+                final Thread thread = new Thread(runnable, "mcts-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        final List<Future<?>> workers = new ArrayList<>();
+        for(int i = 0; i < this.numThreads; i++)
+        {
+            workers.add(this.executorService.submit(this::playoutLoop));
+        }
+        try
+        {
+            for(final Future<?> worker : workers)
+            {
+                worker.get();
+            }
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch(final ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void playoutLoop()
+    {
+        while(this.playoutsDone.getAndIncrement() < this.numPlayouts && !Thread.currentThread().isInterrupted())
+        {
+            playout();
+        }
+        // the last increment of every thread overshoots by one
+        this.playoutsDone.updateAndGet(done -> Math.min(done, this.numPlayouts));
+    }
+
+    private void playout()
+    {
+        // selection, every node on the path gets a virtual loss until the real result is known
+        Node node = this.root;
+        node.addVirtualLoss();
+        while(node.isExpanded() && !node.isTerminal())
+        {
+            node = node.selectChild();
+            node.addVirtualLoss();
+        }
+
+        // expansion, as long as the node budget allows it
+        if(!node.isTerminal() && this.treeSize.get() < this.maxNodes)
+        {
+            final int added = node.expand();
+            if(added > 0)
+            {
+                this.treeSize.addAndGet(added);
+                node = node.selectChild();
+                node.addVirtualLoss();
+            }
+        }
+
+        // simulation, the result is the chance of winning for the side to move on the nodes board
+        double result = simulate(node);
+
+        // backup, each node stores results from the point of view of the player that moved into it
+        while(node != null)
+        {
+            result = 1.0 - result;
+            node.update(result);
+            node = node.parent;
+        }
+    }
+
+    private double simulate(final Node node)
+    {
+        if(node.isTerminal())
+        {
+            return node.board.currentPlayer().isInCheck() ? 0.0 : 0.5;
+        }
+        Board board = node.board;
+        int pliesPlayed = 0;
+        while(pliesPlayed < this.playoutDepth)
+        {
+            final Board next = randomChild(board);
+            if(next == null)
+            {
+                // mate or stalemate somewhere in the playout, seen from the side to move at the start
+                final double result = board.currentPlayer().isInCheck() ? 0.0 : 0.5;
+                return pliesPlayed % 2 == 0 ? result : 1.0 - result;
+            }
+            board = next;
+            pliesPlayed++;
+        }
+        final int whiteScore = this.boardEvaluator.evaluate(board, 0);
+        final int score = board.currentPlayer().getAlliance().isWhite() ? whiteScore : -whiteScore;
+        final double result = 1.0 / (1.0 + Math.exp(-score / SCORE_SCALE));
+        return pliesPlayed % 2 == 0 ? result : 1.0 - result;
+    }
+
+    private static Board randomChild(final Board board)
+    {
+        final List<Move> moves = new ArrayList<>(board.currentPlayer().getLegalMoves());
+        while(!moves.isEmpty())
+        {
+            final Move move = moves.remove(ThreadLocalRandom.current().nextInt(moves.size()));
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if(transition.getMoveStatus().isDone())
+            {
+                return transition.getToBoard();
+            }
+        }
+        return null;
+    }
+
+    /*
+    * One position in the search tree. The counters are only ever touched while holding the nodes lock,
+    * the children list is published once (volatile) and never changes afterwards.
+    * */
+    private static final class Node
+    {
+        private final Board board;
+        private final Move move;
+        private Node parent;
+        private volatile List<Node> children;
+        private volatile boolean terminal;
+
+        private int visits;
+        private int virtualLosses;
+        private double totalResult;
+
+        Node(final Board board,
+             final Move move,
+             final Node parent)
+        {
+            this.board = board;
+            this.move = move;
+            this.parent = parent;
+        }
+
+        boolean isExpanded()
+        {
+            return this.children != null;
+        }
+
+        boolean isTerminal()
+        {
+            return this.terminal;
+        }
+
+        // returns how many nodes were added, 0 when another thread got here first
+        synchronized int expand()
+        {
+            if(this.children != null)
+            {
+                return 0;
+            }
+            final List<Node> newChildren = new ArrayList<>();
+            for(final Move legalMove : this.board.currentPlayer().getLegalMoves())
+            {
+                final MoveTransition transition = this.board.currentPlayer().makeMove(legalMove);
+                if(transition.getMoveStatus().isDone())
+                {
+                    newChildren.add(new Node(transition.getToBoard(), legalMove, this));
+                }
+            }
+            this.terminal = newChildren.isEmpty();
+            this.children = newChildren;
+            return newChildren.size();
+        }
+
+        Node selectChild()
+        {
+            final double logVisits = Math.log(Math.max(1, visitsIncludingVirtualLoss()));
+            Node bestChild = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for(final Node child : this.children)
+            {
+                final double score = child.uctScore(logVisits);
+                if(score > bestScore)
+                {
+                    bestScore = score;
+                    bestChild = child;
+                }
+            }
+            return bestChild;
+        }
+
+        synchronized double uctScore(final double parentLogVisits)
+        {
+            final int effectiveVisits = this.visits + this.virtualLosses;
+            if(effectiveVisits == 0)
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+            // a virtual loss counts as a visit that scored nothing
+            return this.totalResult / effectiveVisits +
+                EXPLORATION_CONSTANT * Math.sqrt(parentLogVisits / effectiveVisits);
+        }
+
+        synchronized int visitsIncludingVirtualLoss()
+        {
+            return this.visits + this.virtualLosses;
+        }
+
+        synchronized void addVirtualLoss()
+        {
+            this.virtualLosses += VIRTUAL_LOSS;
+        }
+
+        synchronized void update(final double result)
+        {
+            this.virtualLosses = Math.max(0, this.virtualLosses - VIRTUAL_LOSS);
+            this.visits++;
+            this.totalResult += result;
+        }
+
+        Node mostVisitedChild()
+        {
+            Node bestChild = null;
+            if(this.children != null)
+            {
+                for(final Node child : this.children)
+                {
+                    if(bestChild == null || child.visits > bestChild.visits)
+                    {
+                        bestChild = child;
+                    }
+                }
+            }
+            return bestChild;
+        }
+
+        Node findDescendant(final long zobristHash,
+                            final int maxPlies)
+        {
+            if(this.board.getZobristHash() == zobristHash)
+            {
+                return this;
+            }
+            if(maxPlies == 0 || this.children == null)
+            {
+                return null;
+            }
+            for(final Node child : this.children)
+            {
+                final Node found = child.findDescendant(zobristHash, maxPlies - 1);
+                if(found != null)
+                {
+                    return found;
+                }
+            }
+            return null;
+        }
+
+        int countNodes()
+        {
+            int count = 1;
+            if(this.children != null)
+            {
+                for(final Node child : this.children)
+                {
+                    count += child.countNodes();
+                }
+            }
+            return count;
+        }
+    }
+
+}
@@ -0,0 +1,305 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.pieces.Piece;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+* A BoardEvaluator backed by a small quantized neural network (NNUE: efficiently updatable neural network).
+*
+* Notes:
+*   + Input features, HalfKP style: "there is a <piece kind> on <square>, and my king stands in <bucket>".
+*     Kings themselves are not features. Both sides get their own set, seen from their own side of the
+*     board (black flips the squares with ^ 56 like the piece square tables do).
+*   + The first layer is just a sum of weight columns, one per active feature, into an int16
+*     accumulator per side. That sum is what makes NNUE fast:
+*       ++ a move switches off a few features and switches on a few others, so the accumulator of the
+*          new position is the old one minus a few columns plus a few columns --> incremental update
+*       ++ except when a king moves: every feature of that side depends on the king square, so that
+*          side's accumulator is rebuilt from scratch (a refresh). The other side still updates.
+*   + Boards do not change and every Board knows the move that made it (and that move knows the board
+*     it was made on), so we can walk back to the parent: the accumulator of a board is the parent's
+*     accumulator plus the move. Accumulators are kept in a small table keyed by Zobrist hash, so the
+*     parent is usually already there when the search evaluates its children. Chains are cut after
+*     MAX_UPDATE_CHAIN plies, then we refresh.
+*   + After that: clipped ReLU (0..127) of [side to move, other side], a small int8 layer, another
+*     clipped ReLU and an int8 output neuron. Plain loops over primitive arrays, the JIT vectorises them.
+*   + Checkmate is scored like PieceSquareTableEvaluator does it, the network never sees those positions.
+* */
+public final class NnueEvaluator implements BoardEvaluator
+{
+    // Members:
+    private static final int CHECK_MATE_BONUS = 10000;
+    private static final int DEPTH_BONUS = 100;
+    private static final int CLIP_MAX = 127;
+    // layer 1 weights are scaled by 64
+    private static final int L1_SHIFT = 6;
+    private static final int MAX_UPDATE_CHAIN = 16;
+    private static final int DEFAULT_CACHE_SIZE = 1 << 12;
+
+    private final NnueNetwork network;
+    private final Accumulator[] cache;
+    private final LongAdder refreshes;
+    private final LongAdder incrementalUpdates;
+
+    // Constructor:
+    public NnueEvaluator(final NnueNetwork network)
+    {
+        this(network, DEFAULT_CACHE_SIZE);
+    }
+
+    public NnueEvaluator(final NnueNetwork network,
+                         final int cacheSize)
+    {
+        if(Integer.bitCount(cacheSize) != 1)
+        {
+            throw new IllegalArgumentException("Cache size must be a power of two");
+        }
+        this.network = network;
+        this.cache = new Accumulator[cacheSize];
+        this.refreshes = new LongAdder();
+        this.incrementalUpdates = new LongAdder();
+    }
+
+    // Methods:
+    /*
+    * When the evaluate function returns a value:
+    *   + negative number means black has the advantage.
+    *   + positive number means white has the advantage.
+    * */
+    @Override
+    public int evaluate(final Board board,
+                        final int depth)
+    {
+        if(board.currentPlayer().isInCheck() && board.currentPlayer().isInCheckMate())
+        {
+            final int mateScore = CHECK_MATE_BONUS * (depth == 0 ? 1 : DEPTH_BONUS * depth);
+            return board.currentPlayer().getAlliance().isWhite() ? -mateScore : mateScore;
+        }
+        return score(board, accumulatorFor(board, MAX_UPDATE_CHAIN));
+    }
+
+    // the network score with both accumulators built from nothing, for checking the incremental updates
+    public int evaluateFromScratch(final Board board)
+    {
+        final Accumulator accumulator = new Accumulator(board.getZobristHash(),
+            refresh(board, Alliance.WHITE), refresh(board, Alliance.BLACK));
+        return score(board, accumulator);
+    }
+
+    // how many times a side's accumulator had to be rebuilt from scratch
+    public long getRefreshes()
+    {
+        return this.refreshes.sum();
+    }
+
+    public long getIncrementalUpdates()
+    {
+        return this.incrementalUpdates.sum();
+    }
+
+    private int score(final Board board,
+                      final Accumulator accumulator)
+    {
+        final boolean whiteToMove = board.currentPlayer().getAlliance().isWhite();
+        final int score = whiteToMove ? propagate(accumulator.white, accumulator.black) :
+                                        propagate(accumulator.black, accumulator.white);
+        return whiteToMove ? score : -score;
+    }
+
+    // everything after the accumulators, from the point of view of the side to move
+    private int propagate(final short[] us,
+                          final short[] them)
+    {
+        final int hiddenSize = this.network.getHiddenSize();
+        final byte[] l1Weights = this.network.getL1Weights();
+        final int[] l1Biases = this.network.getL1Biases();
+        final byte[] outputWeights = this.network.getOutputWeights();
+        int output = this.network.getOutputBias();
+        for(int neuron = 0; neuron < this.network.getL1Size(); neuron++)
+        {
+            final int base = neuron * 2 * hiddenSize;
+            int sum = l1Biases[neuron];
+            for(int i = 0; i < hiddenSize; i++)
+            {
+                sum += clip(us[i]) * l1Weights[base + i];
+            }
+            for(int i = 0; i < hiddenSize; i++)
+            {
+                sum += clip(them[i]) * l1Weights[base + hiddenSize + i];
+            }
+            output += clip(sum >> L1_SHIFT) * outputWeights[neuron];
+        }
+        return output / this.network.getOutputDivisor();
+    }
+
+    private Accumulator accumulatorFor(final Board board,
+                                       final int chainLeft)
+    {
+        final long key = board.getZobristHash();
+        final int index = (int) (key & (this.cache.length - 1));
+        final Accumulator cached = this.cache[index];
+        if(cached != null && cached.key == key)
+        {
+            return cached;
+        }
+
+        final Move move = board.getTransitionMove();
+        final Board parent = move.getBoard();
+        final Accumulator accumulator;
+        if(chainLeft > 0 && parent != null && move.getMovedPiece() != null)
+        {
+            final Accumulator parentAccumulator = accumulatorFor(parent, chainLeft - 1);
+            accumulator = new Accumulator(key,
+                update(parentAccumulator.white, move, board, Alliance.WHITE),
+                update(parentAccumulator.black, move, board, Alliance.BLACK));
+        }
+        else
+        {
+            this.refreshes.add(2);
+            accumulator = new Accumulator(key, refresh(board, Alliance.WHITE), refresh(board, Alliance.BLACK));
+        }
+        this.cache[index] = accumulator;
+        return accumulator;
+    }
+
+    private short[] update(final short[] parentValues,
+                           final Move move,
+                           final Board board,
+                           final Alliance perspective)
+    {
+        final Piece movedPiece = move.getMovedPiece();
+        final Alliance mover = movedPiece.getPieceAllegiance();
+        if(movedPiece.getPieceType().isKing() && mover == perspective)
+        {
+            this.refreshes.increment();
+            return refresh(board, perspective);
+        }
+        this.incrementalUpdates.increment();
+        final short[] values = parentValues.clone();
+        final int bucket = kingBucket(board, perspective);
+        final Piece.PieceType landingType = move instanceof Move.PawnPromotion ?
+            ((Move.PawnPromotion) move).getPromotedPieceType() : movedPiece.getPieceType();
+
+        subtractFeature(values, bucket, perspective, movedPiece.getPieceType(), mover, movedPiece.getPiecePosition());
+        addFeature(values, bucket, perspective, landingType, mover, move.getDestinationCoordinate());
+        if(move.isAttack())
+        {
+            final Piece attackedPiece = move.getAttackedPiece();
+            subtractFeature(values, bucket, perspective, attackedPiece.getPieceType(),
+                attackedPiece.getPieceAllegiance(), attackedPiece.getPiecePosition());
+        }
+        if(move.isCastlingMove())
+        {
+            final Move.CastleMove castleMove = (Move.CastleMove) move;
+            subtractFeature(values, bucket, perspective, Piece.PieceType.ROOK, mover, castleMove.getCastleRookStart());
+            addFeature(values, bucket, perspective, Piece.PieceType.ROOK, mover, castleMove.getCastleRookDestination());
+        }
+        return values;
+    }
+
+    private short[] refresh(final Board board,
+                            final Alliance perspective)
+    {
+        final short[] values = this.network.getFeatureBiases().clone();
+        final int bucket = kingBucket(board, perspective);
+        for(final Piece piece : board.getWhitePieces())
+        {
+            addFeature(values, bucket, perspective, piece.getPieceType(), Alliance.WHITE, piece.getPiecePosition());
+        }
+        for(final Piece piece : board.getBlackPieces())
+        {
+            addFeature(values, bucket, perspective, piece.getPieceType(), Alliance.BLACK, piece.getPiecePosition());
+        }
+        return values;
+    }
+
+    private void addFeature(final short[] values,
+                            final int bucket,
+                            final Alliance perspective,
+                            final Piece.PieceType pieceType,
+                            final Alliance pieceAlliance,
+                            final int coordinate)
+    {
+        if(pieceType.isKing())
+        {
+            return;
+        }
+        final short[] weights = this.network.getFeatureWeights();
+        final int base = featureIndex(bucket, perspective, pieceType, pieceAlliance, coordinate) * values.length;
+        for(int i = 0; i < values.length; i++)
+        {
+            values[i] += weights[base + i];
+        }
+    }
+
+    private void subtractFeature(final short[] values,
+                                 final int bucket,
+                                 final Alliance perspective,
+                                 final Piece.PieceType pieceType,
+                                 final Alliance pieceAlliance,
+                                 final int coordinate)
+    {
+        if(pieceType.isKing())
+        {
+            return;
+        }
+        final short[] weights = this.network.getFeatureWeights();
+        final int base = featureIndex(bucket, perspective, pieceType, pieceAlliance, coordinate) * values.length;
+        for(int i = 0; i < values.length; i++)
+        {
+            values[i] -= weights[base + i];
+        }
+    }
+
+    private int kingBucket(final Board board,
+                           final Alliance perspective)
+    {
+        final int kingSquare = (perspective.isWhite() ? board.whitePlayer() : board.blackPlayer())
+            .getPlayerKing().getPiecePosition();
+        return this.network.getKingBucket(orient(perspective, kingSquare));
+    }
+
+    // kind: own pawn, their pawn, own knight, their knight ... own queen, their queen
+    private static int featureIndex(final int bucket,
+                                    final Alliance perspective,
+                                    final Piece.PieceType pieceType,
+                                    final Alliance pieceAlliance,
+                                    final int coordinate)
+    {
+        final int kind = pieceType.ordinal() * 2 + (pieceAlliance == perspective ? 0 : 1);
+        return bucket * NnueNetwork.FEATURES_PER_BUCKET + kind * 64 + orient(perspective, coordinate);
+    }
+
+    private static int orient(final Alliance perspective,
+                              final int coordinate)
+    {
+        return perspective.isWhite() ? coordinate : coordinate ^ 56;
+    }
+
+    private static int clip(final int value)
+    {
+        return Math.max(0, Math.min(CLIP_MAX, value));
+    }
+
+    // immutable once built, so it can be shared between threads through the cache array
+    private static final class Accumulator
+    {
+        private final long key;
+        private final short[] white;
+        private final short[] black;
+
+        Accumulator(final long key,
+                    final short[] white,
+                    final short[] black)
+        {
+            this.key = key;
+            this.white = white;
+            this.black = black;
+        }
+    }
+
+}
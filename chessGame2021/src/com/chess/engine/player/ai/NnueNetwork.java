@@ -0,0 +1,277 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.BoardUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/*
+* The weights of a small quantized NNUE style network, see NnueEvaluator for how they are used.
+*
+* Notes:
+*   + Layout of the network:
+*       ++ feature transformer: one int16 column of HIDDEN weights per input feature plus int16 biases.
+*          An input feature is (king bucket, piece kind, square) seen from one side, HalfKP style.
+*       ++ layer 1: int8 weights from the 2 * HIDDEN clipped accumulator values to L1 neurons, int32 biases
+*       ++ output : int8 weights from the L1 clipped neurons to the score, an int32 bias and a divisor
+*   + HalfKP proper has one bucket per king square (64). The file carries its own king square -> bucket
+*     map, so a network can use fewer buckets and stay small, like the tiny one the tests ship with.
+*   + File format, big endian (DataOutputStream):
+*       int magic 'NNUE', int version, int buckets, int hidden, int l1, int output divisor,
+*       64 bytes king bucket map, short[hidden] ft biases, short[buckets * 640 * hidden] ft weights,
+*       byte[l1 * 2 * hidden] l1 weights, int[l1] l1 biases, byte[l1] output weights, int output bias
+* */
+public final class NnueNetwork
+{
+    // Members:
+    public static final int MAGIC = 0x4E4E5545; // "NNUE"
+    public static final int VERSION = 1;
+    // 5 piece types (no kings) x 2 colours x 64 squares
+    public static final int FEATURES_PER_BUCKET = 5 * 2 * BoardUtils.NUM_TILES;
+
+    private final int numBuckets;
+    private final int hiddenSize;
+    private final int l1Size;
+    private final int outputDivisor;
+    private final byte[] kingBuckets;
+    private final short[] featureBiases;
+    private final short[] featureWeights;
+    private final byte[] l1Weights;
+    private final int[] l1Biases;
+    private final byte[] outputWeights;
+    private final int outputBias;
+
+    // Constructor:
+    public NnueNetwork(final byte[] kingBuckets,
+                       final int hiddenSize,
+                       final int l1Size,
+                       final int outputDivisor,
+                       final short[] featureBiases,
+                       final short[] featureWeights,
+                       final byte[] l1Weights,
+                       final int[] l1Biases,
+                       final byte[] outputWeights,
+                       final int outputBias)
+    {
+        if(kingBuckets.length != BoardUtils.NUM_TILES)
+        {
+            throw new IllegalArgumentException("Need a king bucket for every square");
+        }
+        int numBuckets = 0;
+        for(final byte bucket : kingBuckets)
+        {
+            numBuckets = Math.max(numBuckets, bucket + 1);
+        }
+        if(hiddenSize <= 0 || l1Size <= 0 || outputDivisor <= 0 ||
+           featureBiases.length != hiddenSize ||
+           featureWeights.length != numBuckets * FEATURES_PER_BUCKET * hiddenSize ||
+           l1Weights.length != l1Size * 2 * hiddenSize ||
+           l1Biases.length != l1Size ||
+           outputWeights.length != l1Size)
+        {
+            throw new IllegalArgumentException("Layer sizes do not fit together");
+        }
+        this.numBuckets = numBuckets;
+        this.hiddenSize = hiddenSize;
+        this.l1Size = l1Size;
+        this.outputDivisor = outputDivisor;
+        this.kingBuckets = kingBuckets.clone();
+        this.featureBiases = featureBiases;
+        this.featureWeights = featureWeights;
+        this.l1Weights = l1Weights;
+        this.l1Biases = l1Biases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    // Methods:
+    public static NnueNetwork load(final Path path) throws IOException
+    {
+        try(final InputStream in = Files.newInputStream(path))
+        {
+            return load(in);
+        }
+    }
+
+    public static NnueNetwork load(final InputStream inputStream) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if(in.readInt() != MAGIC)
+        {
+            throw new IOException("Not an NNUE network");
+        }
+        final int version = in.readInt();
+        if(version != VERSION)
+        {
+            throw new IOException("Unsupported network version " + version);
+        }
+        final int numBuckets = in.readInt();
+        final int hiddenSize = in.readInt();
+        final int l1Size = in.readInt();
+        final int outputDivisor = in.readInt();
+        if(numBuckets <= 0 || numBuckets > BoardUtils.NUM_TILES || hiddenSize <= 0 || l1Size <= 0)
+        {
+            throw new IOException("Corrupt network header");
+        }
+        final byte[] kingBuckets = new byte[BoardUtils.NUM_TILES];
+        in.readFully(kingBuckets);
+        final short[] featureBiases = readShorts(in, hiddenSize);
+        final short[] featureWeights = readShorts(in, numBuckets * FEATURES_PER_BUCKET * hiddenSize);
+        final byte[] l1Weights = new byte[l1Size * 2 * hiddenSize];
+        in.readFully(l1Weights);
+        final int[] l1Biases = new int[l1Size];
+        for(int i = 0; i < l1Size; i++)
+        {
+            l1Biases[i] = in.readInt();
+        }
+        final byte[] outputWeights = new byte[l1Size];
+        in.readFully(outputWeights);
+        final int outputBias = in.readInt();
+        try
+        {
+            return new NnueNetwork(kingBuckets, hiddenSize, l1Size, outputDivisor, featureBiases, featureWeights,
+                l1Weights, l1Biases, outputWeights, outputBias);
+        }
+        catch(final IllegalArgumentException e)
+        {
+            throw new IOException("Corrupt network: " + e.getMessage());
+        }
+    }
+
+    public void write(final OutputStream outputStream) throws IOException
+    {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(this.numBuckets);
+        out.writeInt(this.hiddenSize);
+        out.writeInt(this.l1Size);
+        out.writeInt(this.outputDivisor);
+        out.write(this.kingBuckets);
+        writeShorts(out, this.featureBiases);
+        writeShorts(out, this.featureWeights);
+        out.write(this.l1Weights);
+        for(final int bias : this.l1Biases)
+        {
+            out.writeInt(bias);
+        }
+        out.write(this.outputWeights);
+        out.writeInt(this.outputBias);
+        out.flush();
+    }
+
+    public int getHiddenSize()
+    {
+        return this.hiddenSize;
+    }
+
+    public int getL1Size()
+    {
+        return this.l1Size;
+    }
+
+    public int getNumBuckets()
+    {
+        return this.numBuckets;
+    }
+
+    int getKingBucket(final int orientedKingSquare)
+    {
+        return this.kingBuckets[orientedKingSquare];
+    }
+
+    int getOutputDivisor()
+    {
+        return this.outputDivisor;
+    }
+
+    short[] getFeatureBiases()
+    {
+        return this.featureBiases;
+    }
+
+    short[] getFeatureWeights()
+    {
+        return this.featureWeights;
+    }
+
+    byte[] getL1Weights()
+    {
+        return this.l1Weights;
+    }
+
+    int[] getL1Biases()
+    {
+        return this.l1Biases;
+    }
+
+    byte[] getOutputWeights()
+    {
+        return this.outputWeights;
+    }
+
+    int getOutputBias()
+    {
+        return this.outputBias;
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+        if(this == other)
+        {
+            return true;
+        }
+        if(!(other instanceof NnueNetwork))
+        {
+            return false;
+        }
+        final NnueNetwork otherNetwork = (NnueNetwork) other;
+        return this.hiddenSize == otherNetwork.hiddenSize && this.l1Size == otherNetwork.l1Size &&
+               this.outputDivisor == otherNetwork.outputDivisor && this.outputBias == otherNetwork.outputBias &&
+               Arrays.equals(this.kingBuckets, otherNetwork.kingBuckets) &&
+               Arrays.equals(this.featureBiases, otherNetwork.featureBiases) &&
+               Arrays.equals(this.featureWeights, otherNetwork.featureWeights) &&
+               Arrays.equals(this.l1Weights, otherNetwork.l1Weights) &&
+               Arrays.equals(this.l1Biases, otherNetwork.l1Biases) &&
+               Arrays.equals(this.outputWeights, otherNetwork.outputWeights);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = Arrays.hashCode(this.featureWeights);
+        result = 31 * result + Arrays.hashCode(this.l1Weights);
+        result = 31 * result + this.outputBias;
+        return result;
+    }
+
+    private static short[] readShorts(final DataInputStream in,
+                                      final int count) throws IOException
+    {
+        final short[] values = new short[count];
+        for(int i = 0; i < count; i++)
+        {
+            values[i] = in.readShort();
+        }
+        return values;
+    }
+
+    private static void writeShorts(final DataOutputStream out,
+                                    final short[] values) throws IOException
+    {
+        for(final short value : values)
+        {
+            out.writeShort(value);
+        }
+    }
+
+}
@@ -0,0 +1,327 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.ZobristHashing;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/*
+* An opening book in the Polyglot file format: for a position, the moves that were played from it and
+* how much each one is worth playing.
+*
+* Notes:
+*   + The file is a run of 16 byte entries, big endian: long key, short move, short weight, int learn.
+*     They are sorted by key (as an unsigned number), so all the moves of one position lie together.
+*   + The file is memory mapped (FileChannel.map) and never copied onto the heap. A lookup is a binary
+*     search over the entries, some 20 reads for a million of them.
+*   + The key is ZobristHashing.bookKey, built from Polyglot's own Random64 numbers. So a .bin book
+*     made by other Polyglot tools works as it is, and the books we write with write() work in them.
+*   + Move, bits from low to high: to file, to row, from file, from row (3 bits each, row 0 is rank 1),
+*     then 3 bits promotion piece, 0 for none, 1 knight .. 4 queen. Castling is written as the king
+*     taking its own rook: e1h1, not e1g1.
+*   + pickMove chooses between the moves of a position in proportion to their weights. An entry the
+*     board has no legal move for (a key collision, an under promotion the engine never plays) is
+*     skipped.
+*   + getDefault() opens the file named by -Dchess.book, null when that is not set.
+* */
+public final class OpeningBook
+{
+    // Members:
+    public static final int ENTRY_SIZE = 16;
+    private static final int MOVE_OFFSET = Long.BYTES;
+    private static final int WEIGHT_OFFSET = MOVE_OFFSET + Short.BYTES;
+    private static final int LEARN_OFFSET = WEIGHT_OFFSET + Short.BYTES;
+    private static final int SQUARE_BITS = 6;
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+    private static final int PROMOTION_SHIFT = 2 * SQUARE_BITS;
+    private static final int PROMOTION_MASK = 7;
+    // Polyglot's promotion numbers, by piece type ordinal: none for a pawn or a king
+    private static final int[] PROMOTION_CODES = {0, 1, 2, 3, 4, 0};
+
+    // the file order: by key as an unsigned number, then heaviest first
+    public static final Comparator<Entry> ENTRY_ORDER = (first, second) -> {
+        final int byKey = Long.compareUnsigned(first.getKey(), second.getKey());
+        return byKey != 0 ? byKey : Integer.compare(second.getWeight(), first.getWeight());
+    };
+
+    private final MappedByteBuffer entries;
+    private final int size;
+
+    // one move of one position, as it is stored in the file
+    public static final class Entry
+    {
+        private final long key;
+        private final int move;
+        private final int weight;
+        private final int learn;
+
+        public Entry(final long key,
+                     final int move,
+                     final int weight,
+                     final int learn)
+        {
+            this.key = key;
+            this.move = move;
+            this.weight = weight;
+            this.learn = learn;
+        }
+
+        public long getKey()
+        {
+            return this.key;
+        }
+
+        // the move in Polyglot's 16 bit encoding, see encodeMove
+        public int getMove()
+        {
+            return this.move;
+        }
+
+        public int getWeight()
+        {
+            return this.weight;
+        }
+
+        public int getLearn()
+        {
+            return this.learn;
+        }
+
+        @Override
+        public String toString()
+        {
+            return Long.toHexString(this.key) + " " + moveText(this.move) + " " + this.weight;
+        }
+    }
+
+    private static final class DefaultHolder
+    {
+        private static final OpeningBook INSTANCE = openDefault();
+    }
+
+    // Constructor:
+    private OpeningBook(final MappedByteBuffer entries)
+    {
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_SIZE;
+    }
+
+    // Methods:
+    public static OpeningBook open(final Path file) throws IOException
+    {
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            if(channel.size() % ENTRY_SIZE != 0 || channel.size() > Integer.MAX_VALUE)
+            {
+                throw new IOException("Not an opening book: " + file);
+            }
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // the book in -Dchess.book, null when there is none
+    public static OpeningBook getDefault()
+    {
+        return DefaultHolder.INSTANCE;
+    }
+
+    // the number of entries, moves of all positions together
+    public int size()
+    {
+        return this.size;
+    }
+
+    public List<Entry> lookup(final Board board)
+    {
+        return lookup(ZobristHashing.INSTANCE.bookKey(board));
+    }
+
+    // every entry stored under the key, in file order
+    public List<Entry> lookup(final long key)
+    {
+        final List<Entry> found = new ArrayList<>();
+        for(int index = firstIndex(key); index < this.size && keyAt(index) == key; index++)
+        {
+            final int offset = index * ENTRY_SIZE;
+            found.add(new Entry(key,
+                                this.entries.getShort(offset + MOVE_OFFSET) & 0xFFFF,
+                                this.entries.getShort(offset + WEIGHT_OFFSET) & 0xFFFF,
+                                this.entries.getInt(offset + LEARN_OFFSET)));
+        }
+        return found;
+    }
+
+    /*
+    * A book move for the position, picked at random with the weights as odds. null when the book has
+    * nothing playable for it.
+    * */
+    public Move pickMove(final Board board,
+                         final Random random)
+    {
+        final List<Move> moves = new ArrayList<>();
+        final List<Integer> weights = new ArrayList<>();
+        long totalWeight = 0;
+        for(final Entry entry : lookup(board))
+        {
+            final Move move = decodeMove(board, entry.getMove());
+            if(move != null && entry.getWeight() > 0)
+            {
+                moves.add(move);
+                weights.add(entry.getWeight());
+                totalWeight += entry.getWeight();
+            }
+        }
+        if(moves.isEmpty())
+        {
+            return null;
+        }
+        long pick = (long) (random.nextDouble() * totalWeight);
+        for(int i = 0; i < moves.size(); i++)
+        {
+            pick -= weights.get(i);
+            if(pick < 0)
+            {
+                return moves.get(i);
+            }
+        }
+        return moves.get(moves.size() - 1);
+    }
+
+    public static int encodeMove(final Move move)
+    {
+        final int destination = move.isCastlingMove() ?
+            ((Move.CastleMove) move).getCastleRookStart() : move.getDestinationCoordinate();
+        final int promotion = move instanceof Move.PawnPromotion ?
+            PROMOTION_CODES[((Move.PawnPromotion) move).getPromotedPieceType().ordinal()] : 0;
+        return promotion << PROMOTION_SHIFT | bookSquare(move.getCurrentCoordinate()) << SQUARE_BITS |
+               bookSquare(destination);
+    }
+
+    // the legal move of the board the book move stands for, null when there is none
+    public static Move decodeMove(final Board board,
+                                  final int bookMove)
+    {
+        final int from = coordinate((bookMove >>> SQUARE_BITS) & SQUARE_MASK);
+        for(final Move move : board.currentPlayer().getLegalMoves())
+        {
+            if(move.getCurrentCoordinate() == from && encodeMove(move) == bookMove &&
+               board.currentPlayer().makeMove(move).getMoveStatus().isDone())
+            {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    /*
+    * Writes a book file: the entries sorted by key and, for each key, the heaviest move first (the
+    * order Polyglot tools keep).
+    * */
+    public static void write(final Path file,
+                             final Collection<Entry> entries) throws IOException
+    {
+        final List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(ENTRY_ORDER);
+        try(final OutputStream outputStream = Files.newOutputStream(file))
+        {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+            for(final Entry entry : sorted)
+            {
+                writeEntry(out, entry);
+            }
+            out.flush();
+        }
+    }
+
+    public static void writeEntry(final DataOutputStream out,
+                                  final Entry entry) throws IOException
+    {
+        out.writeLong(entry.getKey());
+        out.writeShort(entry.getMove());
+        out.writeShort(entry.getWeight());
+        out.writeInt(entry.getLearn());
+    }
+
+    // "e2e4", "e7e8q", "e1h1"
+    public static String moveText(final int bookMove)
+    {
+        final int promotion = (bookMove >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+        return BoardUtils.getPositionAtCoordinate(coordinate((bookMove >>> SQUARE_BITS) & SQUARE_MASK)) +
+               BoardUtils.getPositionAtCoordinate(coordinate(bookMove & SQUARE_MASK)) +
+               (promotion == 0 ? "" : "nbrq".substring(promotion - 1, promotion));
+    }
+
+    // the first entry with a key that is not below the key, size when there is none
+    private int firstIndex(final long key)
+    {
+        int low = 0;
+        int high = this.size;
+        while(low < high)
+        {
+            final int middle = (low + high) >>> 1;
+            if(Long.compareUnsigned(keyAt(middle), key) < 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(final int index)
+    {
+        return this.entries.getLong(index * ENTRY_SIZE);
+    }
+
+    // our coordinates start at a8, Polyglot's squares at a1
+    private static int bookSquare(final int coordinate)
+    {
+        final int row = BoardUtils.NUM_TILES_PER_ROW - 1 - coordinate / BoardUtils.NUM_TILES_PER_ROW;
+        return row * BoardUtils.NUM_TILES_PER_ROW + coordinate % BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    private static int coordinate(final int bookSquare)
+    {
+        final int row = bookSquare / BoardUtils.NUM_TILES_PER_ROW;
+        return (BoardUtils.NUM_TILES_PER_ROW - 1 - row) * BoardUtils.NUM_TILES_PER_ROW +
+               bookSquare % BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    private static OpeningBook openDefault()
+    {
+        final String file = System.getProperty("chess.book");
+        if(file == null)
+        {
+            return null;
+        }
+        try
+        {
+            return open(Paths.get(file));
+        }
+        catch(final IOException e)
+        {
+            System.err.println("Could not open the opening book " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,596 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.ZobristHashing;
+import com.chess.pgn.PGNGame;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.ParsePGNException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+* Builds an opening book (see OpeningBook) out of PGN files of our own games, no outside tools needed.
+*
+* Notes:
+*   + Every game is replayed up to maxPlies. Each position on the way and the move played from it count
+*     once, and score for the side that made the move: 2 for a win, 1 for a draw, 0 for a loss (the
+*     Polyglot convention). Games without a result are skipped, as is the rest of a game once a move
+*     can not be replayed (an under promotion).
+*   + Map: games are handed out in batches of BATCH_GAMES to a pool of threads, each batch is counted
+*     into a small table of its own. Reduce: the batch table is added into the shared table.
+*   + Bounded memory: the PGN is streamed one game at a time, at most two batches per thread are in
+*     flight, and when the shared table passes maxEntries (position, move) pairs it is sorted and
+*     spilled to a run file on disk, then emptied. write() spills what is left and merges the runs,
+*     like the merge step of an external sort, so only one position's moves are held at a time.
+*   + A move goes into the book when it was played at least minCount times and scored something, its
+*     weight is its score. When a position's scores do not fit in 16 bits they are scaled down
+*     together, the odds between its moves stay the same.
+*   + Run it with:  java com.chess.engine.player.ai.OpeningBookBuilder <output.bin> <games.pgn>... [-plies N] [-min N]
+* */
+public final class OpeningBookBuilder implements Closeable
+{
+    // Members:
+    public static final int DEFAULT_MAX_PLIES = 20;
+    public static final int DEFAULT_MIN_COUNT = 2;
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+    private static final int BATCH_GAMES = 256;
+    private static final int BATCHES_PER_THREAD = 2;
+    private static final int WIN_POINTS = 2;
+    private static final int MAX_WEIGHT = 0xFFFF;
+    // long key, short move, int count, int points
+    private static final int RUN_RECORD_SIZE = Long.BYTES + Short.BYTES + 2 * Integer.BYTES;
+
+    private final int maxPlies;
+    private final int minCount;
+    private final int maxEntries;
+    private final int maxBatchesInFlight;
+    private final ExecutorService executorService;
+    private final Deque<Future<?>> batchesInFlight;
+    private final MoveCounts counts;
+    private final List<Path> runs;
+    private List<PGNGame> batch;
+    private long games;
+    private int spills;
+
+    // Constructor:
+    public OpeningBookBuilder(final int maxPlies,
+                              final int minCount,
+                              final int maxEntries,
+                              final int numThreads)
+    {
+        this.maxPlies = maxPlies;
+        this.minCount = minCount;
+        this.maxEntries = maxEntries;
+        this.maxBatchesInFlight = BATCHES_PER_THREAD * numThreads;
+        this.executorService = Executors.newFixedThreadPool(numThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "opening-book-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchesInFlight = new ArrayDeque<>();
+        this.counts = new MoveCounts();
+        this.runs = new ArrayList<>();
+        this.batch = new ArrayList<>();
+    }
+
+    // Methods:
+    public static void main(final String[] args) throws IOException
+    {
+        int maxPlies = DEFAULT_MAX_PLIES;
+        int minCount = DEFAULT_MIN_COUNT;
+        final List<Path> pgnFiles = new ArrayList<>();
+        for(int i = 1; i < args.length; i++)
+        {
+            if(args[i].equals("-plies") && i + 1 < args.length)
+            {
+                maxPlies = Integer.parseInt(args[++i]);
+            }
+            else if(args[i].equals("-min") && i + 1 < args.length)
+            {
+                minCount = Integer.parseInt(args[++i]);
+            }
+            else
+            {
+                pgnFiles.add(Paths.get(args[i]));
+            }
+        }
+        if(pgnFiles.isEmpty())
+        {
+            System.err.println("Usage: OpeningBookBuilder <output.bin> <games.pgn>... [-plies N] [-min N]");
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        try(final OpeningBookBuilder builder = new OpeningBookBuilder(maxPlies, minCount, DEFAULT_MAX_ENTRIES,
+            Runtime.getRuntime().availableProcessors()))
+        {
+            for(final Path pgnFile : pgnFiles)
+            {
+                builder.addGames(pgnFile);
+            }
+            final int entries = builder.write(Paths.get(args[0]));
+            System.out.println(entries + " book entries from " + builder.getGameCount() + " games in " +
+                (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    public void addGames(final Path pgnFile) throws IOException
+    {
+        try(final Reader reader = Files.newBufferedReader(pgnFile, StandardCharsets.ISO_8859_1))
+        {
+            addGames(reader);
+        }
+    }
+
+    // streams the games, the reader is never held in memory as a whole
+    public void addGames(final Reader reader) throws IOException
+    {
+        PGNUtilities.forEachGame(reader, this::addGame);
+    }
+
+    public void addGame(final PGNGame game)
+    {
+        this.games++;
+        this.batch.add(game);
+        if(this.batch.size() == BATCH_GAMES)
+        {
+            submitBatch();
+        }
+    }
+
+    public long getGameCount()
+    {
+        return this.games;
+    }
+
+    // how often the counts outgrew maxEntries and went to disk
+    public int getSpillCount()
+    {
+        synchronized(this.counts)
+        {
+            return this.spills;
+        }
+    }
+
+    /*
+    * Waits for the games added so far, merges their counts and writes the book. Returns the number of
+    * entries written. The counts are gone afterwards, the next write starts from nothing.
+    * */
+    public int write(final Path bookFile) throws IOException
+    {
+        submitBatch();
+        while(!this.batchesInFlight.isEmpty())
+        {
+            await(this.batchesInFlight.removeFirst());
+        }
+        synchronized(this.counts)
+        {
+            spill();
+        }
+        try(final OutputStream outputStream = Files.newOutputStream(bookFile))
+        {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+            final int entries = mergeRuns(out);
+            out.flush();
+            return entries;
+        }
+        finally
+        {
+            deleteRuns();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        this.executorService.shutdownNow();
+        try
+        {
+            deleteRuns();
+        }
+        catch(final IOException e)
+        {
+            // temporary files, nothing to lose
+        }
+    }
+
+    private void submitBatch()
+    {
+        if(this.batch.isEmpty())
+        {
+            return;
+        }
+        // the oldest batch has to finish before another one is read in
+        if(this.batchesInFlight.size() >= this.maxBatchesInFlight)
+        {
+            await(this.batchesInFlight.removeFirst());
+        }
+        final List<PGNGame> games = this.batch;
+        this.batch = new ArrayList<>();
+        this.batchesInFlight.addLast(this.executorService.submit(() -> {
+            final MoveCounts batchCounts = new MoveCounts();
+            for(final PGNGame game : games)
+            {
+                countGame(game, batchCounts);
+            }
+            addCounts(batchCounts);
+            return null;
+        }));
+    }
+
+    private void countGame(final PGNGame game,
+                           final MoveCounts batchCounts)
+    {
+        final double whiteScore = game.getWhiteScore();
+        if(whiteScore < 0)
+        {
+            return;
+        }
+        final int whitePoints = (int) Math.round(whiteScore * WIN_POINTS);
+        Board board = Board.createStandardBoard();
+        final List<String> moves = game.getMoves();
+        for(int ply = 0; ply < Math.min(this.maxPlies, moves.size()); ply++)
+        {
+            final Move move;
+            try
+            {
+                move = PGNUtilities.createMove(board, moves.get(ply));
+            }
+            catch(final ParsePGNException e)
+            {
+                return;
+            }
+            final int points = board.currentPlayer().getAlliance().isWhite() ? whitePoints : WIN_POINTS - whitePoints;
+            batchCounts.add(ZobristHashing.INSTANCE.bookKey(board), OpeningBook.encodeMove(move), 1, points);
+            board = board.currentPlayer().makeMove(move).getToBoard();
+        }
+    }
+
+    // the reduce step, one batch at a time
+    private void addCounts(final MoveCounts batchCounts) throws IOException
+    {
+        synchronized(this.counts)
+        {
+            for(int slot = 0; slot < batchCounts.capacity(); slot++)
+            {
+                if(batchCounts.counts[slot] != 0)
+                {
+                    this.counts.add(batchCounts.keys[slot], batchCounts.moves[slot], batchCounts.counts[slot],
+                        batchCounts.points[slot]);
+                }
+            }
+            if(this.counts.size() > this.maxEntries)
+            {
+                spill();
+                this.spills++;
+            }
+        }
+    }
+
+    // writes the shared counts to a run file sorted by key and move, and empties them
+    private void spill() throws IOException
+    {
+        if(this.counts.size() == 0)
+        {
+            return;
+        }
+        final Path run = Files.createTempFile("opening-book", ".run");
+        this.runs.add(run);
+        try(final OutputStream outputStream = Files.newOutputStream(run))
+        {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+            for(final int slot : this.counts.sortedSlots())
+            {
+                out.writeLong(this.counts.keys[slot]);
+                out.writeShort(this.counts.moves[slot]);
+                out.writeInt(this.counts.counts[slot]);
+                out.writeInt(this.counts.points[slot]);
+            }
+            out.flush();
+        }
+        this.counts.clear();
+    }
+
+    /*
+    * Merges the sorted runs into book entries. The same (key, move) can be in several runs, its counts
+    * are added up before the filter. A key's moves are collected, then written heaviest first.
+    * */
+    private int mergeRuns(final DataOutputStream out) throws IOException
+    {
+        final PriorityQueue<RunReader> readers = new PriorityQueue<>();
+        try
+        {
+            for(final Path run : this.runs)
+            {
+                final RunReader reader = new RunReader(Files.newInputStream(run));
+                if(reader.next())
+                {
+                    readers.add(reader);
+                }
+                else
+                {
+                    reader.close();
+                }
+            }
+            final List<int[]> positionCounts = new ArrayList<>();
+            long positionKey = 0;
+            int written = 0;
+            while(!readers.isEmpty())
+            {
+                final RunReader first = readers.poll();
+                final long key = first.key;
+                final int move = first.move;
+                int count = first.count;
+                int points = first.points;
+                advance(first, readers);
+                while(!readers.isEmpty() && readers.peek().key == key && readers.peek().move == move)
+                {
+                    final RunReader same = readers.poll();
+                    count += same.count;
+                    points += same.points;
+                    advance(same, readers);
+                }
+                if(key != positionKey)
+                {
+                    written += writePosition(out, positionKey, positionCounts);
+                    positionKey = key;
+                }
+                if(count >= this.minCount && points > 0)
+                {
+                    positionCounts.add(new int[] {move, points});
+                }
+            }
+            written += writePosition(out, positionKey, positionCounts);
+            return written;
+        }
+        finally
+        {
+            for(final RunReader reader : readers)
+            {
+                reader.close();
+            }
+        }
+    }
+
+    private static void advance(final RunReader reader,
+                                final PriorityQueue<RunReader> readers) throws IOException
+    {
+        if(reader.next())
+        {
+            readers.add(reader);
+        }
+        else
+        {
+            reader.close();
+        }
+    }
+
+    // the moves kept for one position, in move order, as book entries heaviest first
+    private static int writePosition(final DataOutputStream out,
+                                     final long key,
+                                     final List<int[]> movePoints) throws IOException
+    {
+        if(movePoints.isEmpty())
+        {
+            return 0;
+        }
+        int maxPoints = 0;
+        for(final int[] movePoint : movePoints)
+        {
+            maxPoints = Math.max(maxPoints, movePoint[1]);
+        }
+        final List<OpeningBook.Entry> entries = new ArrayList<>();
+        for(final int[] movePoint : movePoints)
+        {
+            final long weight = maxPoints <= MAX_WEIGHT ? movePoint[1] :
+                Math.max(1, (long) movePoint[1] * MAX_WEIGHT / maxPoints);
+            entries.add(new OpeningBook.Entry(key, movePoint[0], (int) weight, 0));
+        }
+        entries.sort(OpeningBook.ENTRY_ORDER);
+        for(final OpeningBook.Entry entry : entries)
+        {
+            OpeningBook.writeEntry(out, entry);
+        }
+        movePoints.clear();
+        return entries.size();
+    }
+
+    private void deleteRuns() throws IOException
+    {
+        for(final Path run : this.runs)
+        {
+            Files.deleteIfExists(run);
+        }
+        this.runs.clear();
+    }
+
+    private static void await(final Future<?> future)
+    {
+        try
+        {
+            future.get();
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch(final ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /*
+    * Counts and points per (position key, move), open addressing over flat arrays. A count of 0 marks
+    * a free slot.
+    * */
+    private static final class MoveCounts
+    {
+        private static final int INITIAL_CAPACITY = 1 << 12;
+
+        private long[] keys;
+        private int[] moves;
+        private int[] counts;
+        private int[] points;
+        private int size;
+
+        MoveCounts()
+        {
+            allocate(INITIAL_CAPACITY);
+        }
+
+        int size()
+        {
+            return this.size;
+        }
+
+        int capacity()
+        {
+            return this.keys.length;
+        }
+
+        void add(final long key,
+                 final int move,
+                 final int count,
+                 final int movePoints)
+        {
+            if(2 * (this.size + 1) > capacity())
+            {
+                grow();
+            }
+            final int mask = capacity() - 1;
+            int slot = (int) ((key ^ key >>> 32) * 31 + move) & mask;
+            while(this.counts[slot] != 0 && (this.keys[slot] != key || this.moves[slot] != move))
+            {
+                slot = (slot + 1) & mask;
+            }
+            if(this.counts[slot] == 0)
+            {
+                this.keys[slot] = key;
+                this.moves[slot] = move;
+                this.size++;
+            }
+            this.counts[slot] += count;
+            this.points[slot] += movePoints;
+        }
+
+        // the used slots in book order: key as an unsigned number, then move
+        int[] sortedSlots()
+        {
+            final Integer[] slots = new Integer[this.size];
+            int used = 0;
+            for(int slot = 0; slot < capacity(); slot++)
+            {
+                if(this.counts[slot] != 0)
+                {
+                    slots[used++] = slot;
+                }
+            }
+            Arrays.sort(slots, (first, second) -> {
+                final int byKey = Long.compareUnsigned(this.keys[first], this.keys[second]);
+                return byKey != 0 ? byKey : Integer.compare(this.moves[first], this.moves[second]);
+            });
+            return Arrays.stream(slots).mapToInt(Integer::intValue).toArray();
+        }
+
+        void clear()
+        {
+            allocate(INITIAL_CAPACITY);
+        }
+
+        private void grow()
+        {
+            final long[] oldKeys = this.keys;
+            final int[] oldMoves = this.moves;
+            final int[] oldCounts = this.counts;
+            final int[] oldPoints = this.points;
+            allocate(2 * oldKeys.length);
+            for(int slot = 0; slot < oldKeys.length; slot++)
+            {
+                if(oldCounts[slot] != 0)
+                {
+                    add(oldKeys[slot], oldMoves[slot], oldCounts[slot], oldPoints[slot]);
+                }
+            }
+        }
+
+        private void allocate(final int capacity)
+        {
+            this.keys = new long[capacity];
+            this.moves = new int[capacity];
+            this.counts = new int[capacity];
+            this.points = new int[capacity];
+            this.size = 0;
+        }
+    }
+
+    // one spilled run, read a record at a time, ordered by its current record
+    private static final class RunReader implements Comparable<RunReader>, Closeable
+    {
+        private final DataInputStream in;
+        private long key;
+        private int move;
+        private int count;
+        private int points;
+
+        RunReader(final InputStream in)
+        {
+            this.in = new DataInputStream(new BufferedInputStream(in, 256 * RUN_RECORD_SIZE));
+        }
+
+        // false at the end of the run
+        boolean next() throws IOException
+        {
+            try
+            {
+                this.key = this.in.readLong();
+            }
+            catch(final EOFException e)
+            {
+                return false;
+            }
+            this.move = this.in.readShort() & 0xFFFF;
+            this.count = this.in.readInt();
+            this.points = this.in.readInt();
+            return true;
+        }
+
+        @Override
+        public int compareTo(final RunReader other)
+        {
+            final int byKey = Long.compareUnsigned(this.key, other.key);
+            return byKey != 0 ? byKey : Integer.compare(this.move, other.move);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            this.in.close();
+        }
+    }
+
+}
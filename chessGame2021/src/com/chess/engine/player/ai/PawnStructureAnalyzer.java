@@ -0,0 +1,217 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Bitboards;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.Player;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+* Scores the pawn skeleton: doubled pawns, isolated pawns and passed pawns.
+*
+* Notes:
+*   + Everything works on pawn bitboards (see Bitboards) instead of looking at the pawns one by one:
+*       ++ doubled  --> more than one pawn in (pawns & FILE_MASKS[file]), each of them counts
+*       ++ isolated --> (pawns & ADJACENT_FILE_MASKS[file]) is empty, every pawn on the file counts
+*       ++ passed   --> no enemy pawn in the pawn's passed pawn span, worth more the further it got
+*   + The pawns hardly ever move during a search (most moves are piece moves), so the same pawn
+*     skeleton gets scored over and over. A pawn hash table sits in front of the analysis:
+*       ++ the key is the Zobrist hash of the pawns only (both colours). Every board carries it in its
+*          EvaluationState, kept up to date move by move, so a hit costs no more than one array read.
+*       ++ direct mapped, the key picks the slot and a new skeleton simply overwrites the old one
+*       ++ an entry is packed into one long, the slot stores (key ^ data) next to the data. Two threads
+*          writing the same slot at once can leave a torn entry behind, but then key ^ data no longer
+*          gives back the key and the entry reads as a miss. No locks needed.
+*   + The table is shared by every search that uses the analyzer, getHits / getMisses tell how well
+*     it is doing.
+* */
+public final class PawnStructureAnalyzer
+{
+    // Members:
+    public static final int ISOLATED_PAWN_PENALTY = -10;
+    public static final int DOUBLED_PAWN_PENALTY = -10;
+    // indexed by how far the pawn got, 1 = still on its starting row, 6 = one step from promoting
+    static final int[] PASSED_PAWN_BONUS = {0, 5, 10, 20, 35, 60, 100, 0};
+    private static final int TABLE_SIZE = 1 << 14;
+
+    // packed per side: isolated count (4 bits), doubled count (4 bits), passed bonus (12 bits)
+    private static final int SIDE_BITS = 20;
+    private static final int COUNT_MASK = 0xF;
+    private static final int BONUS_MASK = 0xFFF;
+
+    private static final PawnStructureAnalyzer INSTANCE = new PawnStructureAnalyzer();
+
+    private final long[] keys;
+    private final long[] entries;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    // Constructor:
+    private PawnStructureAnalyzer()
+    {
+        this.keys = new long[TABLE_SIZE];
+        this.entries = new long[TABLE_SIZE];
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    // Methods:
+    public static PawnStructureAnalyzer get()
+    {
+        return INSTANCE;
+    }
+
+    // only depends on the players own pawns
+    public int isolatedPawnPenalty(final Player player)
+    {
+        return isolatedPawnCount(pawns(player)) * ISOLATED_PAWN_PENALTY;
+    }
+
+    public int doubledPawnPenalty(final Player player)
+    {
+        return doubledPawnCount(pawns(player)) * DOUBLED_PAWN_PENALTY;
+    }
+
+    public int passedPawnBonus(final Board board,
+                               final Player player)
+    {
+        return passedBonus(side(lookup(board), player.getAlliance()));
+    }
+
+    // everything together, the part the evaluator uses
+    public int pawnStructureScore(final Board board,
+                                  final Player player)
+    {
+        final int side = side(lookup(board), player.getAlliance());
+        return isolatedCount(side) * ISOLATED_PAWN_PENALTY +
+               doubledCount(side) * DOUBLED_PAWN_PENALTY +
+               passedBonus(side);
+    }
+
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    public void clear()
+    {
+        for(int i = 0; i < TABLE_SIZE; i++)
+        {
+            this.keys[i] = 0L;
+            this.entries[i] = 0L;
+        }
+        this.hits.reset();
+        this.misses.reset();
+    }
+
+    private long lookup(final Board board)
+    {
+        final long pawnHash = board.getEvaluationState().getPawnKey();
+        final int index = (int) (pawnHash & (TABLE_SIZE - 1));
+        final long entry = this.entries[index];
+        if((this.keys[index] ^ entry) == pawnHash)
+        {
+            this.hits.increment();
+            return entry;
+        }
+        this.misses.increment();
+        final long whitePawns = Bitboards.pieceBitboard(board.getWhitePieces(), Piece.PieceType.PAWN);
+        final long blackPawns = Bitboards.pieceBitboard(board.getBlackPieces(), Piece.PieceType.PAWN);
+        final long analysed = ((long) analyse(blackPawns, whitePawns, Alliance.BLACK) << SIDE_BITS) |
+                              analyse(whitePawns, blackPawns, Alliance.WHITE);
+        this.entries[index] = analysed;
+        this.keys[index] = pawnHash ^ analysed;
+        return analysed;
+    }
+
+    private static int analyse(final long pawns,
+                               final long enemyPawns,
+                               final Alliance alliance)
+    {
+        int passed = 0;
+        long remaining = pawns;
+        while(remaining != 0)
+        {
+            final int coordinate = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if((enemyPawns & Bitboards.passedPawnSpan(alliance, coordinate)) == 0)
+            {
+                passed += PASSED_PAWN_BONUS[relativeRow(alliance, coordinate)];
+            }
+        }
+        return (Math.min(passed, BONUS_MASK) << 8) |
+               (Math.min(doubledPawnCount(pawns), COUNT_MASK) << 4) |
+               Math.min(isolatedPawnCount(pawns), COUNT_MASK);
+    }
+
+    private static int isolatedPawnCount(final long pawns)
+    {
+        int count = 0;
+        for(int file = 0; file < BoardUtils.NUM_TILES_PER_ROW; file++)
+        {
+            final long onFile = pawns & Bitboards.FILE_MASKS[file];
+            if(onFile != 0 && (pawns & Bitboards.ADJACENT_FILE_MASKS[file]) == 0)
+            {
+                count += Long.bitCount(onFile);
+            }
+        }
+        return count;
+    }
+
+    private static int doubledPawnCount(final long pawns)
+    {
+        int count = 0;
+        for(int file = 0; file < BoardUtils.NUM_TILES_PER_ROW; file++)
+        {
+            final int onFile = Long.bitCount(pawns & Bitboards.FILE_MASKS[file]);
+            if(onFile > 1)
+            {
+                count += onFile;
+            }
+        }
+        return count;
+    }
+
+    // 0 = the players back row, 7 = the row the pawn promotes on
+    private static int relativeRow(final Alliance alliance,
+                                   final int coordinate)
+    {
+        final int row = Bitboards.rowOf(coordinate);
+        return alliance.isWhite() ? BoardUtils.NUM_TILES_PER_ROW - 1 - row : row;
+    }
+
+    private static long pawns(final Player player)
+    {
+        return Bitboards.pieceBitboard(player.getActivePieces(), Piece.PieceType.PAWN);
+    }
+
+    private static int side(final long entry,
+                            final Alliance alliance)
+    {
+        return (int) (alliance.isWhite() ? entry : entry >>> SIDE_BITS) & ((1 << SIDE_BITS) - 1);
+    }
+
+    private static int isolatedCount(final int side)
+    {
+        return side & COUNT_MASK;
+    }
+
+    private static int doubledCount(final int side)
+    {
+        return (side >>> 4) & COUNT_MASK;
+    }
+
+    private static int passedBonus(final int side)
+    {
+        return (side >>> 8) & BONUS_MASK;
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.EvaluationState;
+import com.chess.engine.board.PieceSquareTables;
+import com.chess.engine.pieces.Piece;
+
+/*
+* A cheap evaluator: material plus where the pieces stand, nothing else.
+*
+* Notes:
+*   + StandardBoardEvaluator scores mobility from attack counts (see MobilityAnalyzer) and pawn
+*     structure and king safety from bitboards, so every leaf builds the attack sets of both sides.
+*     This one only reads the running totals the Board already carries (see EvaluationState), so a
+*     leaf costs a few additions.
+*   + Every piece type has a middle game and an end game table (PieceSquareTables). The two scores are
+*     blended by the game phase:
+*       ++ phase 24 (all pieces on the board) --> pure middle game score
+*       ++ phase 0  (only kings and pawns)    --> pure end game score
+*       ++ anything in between                 --> (mg * phase + eg * (24 - phase)) / 24
+*     That way the king does not suddenly run for the centre the moment the last queen comes off.
+*   + Phase is capped at 24, promotions can push it past that.
+*   + Checkmate is only looked for when the side to move is in check, so in the common case the
+*     evaluator adds no move generation of its own to what the Board already did when it was built.
+*     Like StandardBoardEvaluator, quicker mates score higher.
+*   + withParameters() takes the piece values and both sets of tables from EvaluationParameters, e.g.
+*     a file TexelTuner wrote with --pst. The board's running totals are built from the fixed tables,
+*     so such an evaluator adds the pieces up itself: one table lookup per piece instead of none.
+* */
+public final class PieceSquareTableEvaluator implements BoardEvaluator
+{
+    // Members:
+    private static final int CHECK_MATE_BONUS = 10000;
+    private static final int DEPTH_BONUS = 100;
+    private static final int TABLE_SIZE = BoardUtils.NUM_TILES;
+    private static final Piece.PieceType[] PIECE_TYPES = Piece.PieceType.values();
+    private static final PieceSquareTableEvaluator INSTANCE = new PieceSquareTableEvaluator(null, null, null);
+
+    // null --> the running totals the board keeps
+    private final int[] pieceValues;
+    // piece type * 64 + table index (see PieceSquareTables.tableIndex)
+    private final int[] middleGameTables;
+    private final int[] endGameTables;
+
+    // Constructor:
+    private PieceSquareTableEvaluator(final int[] pieceValues,
+                                      final int[] middleGameTables,
+                                      final int[] endGameTables)
+    {
+        this.pieceValues = pieceValues;
+        this.middleGameTables = middleGameTables;
+        this.endGameTables = endGameTables;
+    }
+
+    // Methods:
+    public static PieceSquareTableEvaluator get()
+    {
+        return INSTANCE;
+    }
+
+    // a new evaluator with the piece values and the piece square tables of the parameters
+    public static PieceSquareTableEvaluator withParameters(final EvaluationParameters parameters)
+    {
+        final int[] pieceValues = new int[PIECE_TYPES.length];
+        final int[] middleGameTables = new int[PIECE_TYPES.length * TABLE_SIZE];
+        final int[] endGameTables = new int[PIECE_TYPES.length * TABLE_SIZE];
+        boolean standardValues = true;
+        for(final Piece.PieceType pieceType : PIECE_TYPES)
+        {
+            if(!pieceType.isKing())
+            {
+                pieceValues[pieceType.ordinal()] = parameters.get(EvaluationParameters.pieceValueIndex(pieceType));
+                standardValues &= pieceValues[pieceType.ordinal()] == pieceType.getPieceValue();
+            }
+            for(int square = 0; square < TABLE_SIZE; square++)
+            {
+                final int index = pieceType.ordinal() * TABLE_SIZE + square;
+                middleGameTables[index] = parameters.get(EvaluationParameters.middleGameIndex(pieceType, square));
+                endGameTables[index] = parameters.get(EvaluationParameters.endGameIndex(pieceType, square));
+                standardValues &=
+                    middleGameTables[index] == PieceSquareTables.middleGameValue(pieceType, Alliance.WHITE, square) &&
+                    endGameTables[index] == PieceSquareTables.endGameValue(pieceType, Alliance.WHITE, square);
+            }
+        }
+        return standardValues ? INSTANCE : new PieceSquareTableEvaluator(pieceValues, middleGameTables, endGameTables);
+    }
+
+    /*
+    * When the evaluate function returns a value:
+    *   + negative number means black has the advantage.
+    *   + positive number means white has the advantage.
+    * */
+    @Override
+    public int evaluate(final Board board,
+                        final int depth)
+    {
+        if(board.currentPlayer().isInCheck() && board.currentPlayer().isInCheckMate())
+        {
+            final int mateScore = CHECK_MATE_BONUS * depthBonus(depth);
+            return board.currentPlayer().getAlliance().isWhite() ? -mateScore : mateScore;
+        }
+        final EvaluationState state = board.getEvaluationState();
+        if(this.pieceValues == null)
+        {
+            return material(state) + taperedScore(state);
+        }
+        int material = 0;
+        int middleGameScore = 0;
+        int endGameScore = 0;
+        for(final Piece piece : board.getAllPieces())
+        {
+            final int sign = piece.getPieceAllegiance().isWhite() ? 1 : -1;
+            final int index = piece.getPieceType().ordinal() * TABLE_SIZE +
+                              PieceSquareTables.tableIndex(piece.getPieceAllegiance(), piece.getPiecePosition());
+            material += sign * this.pieceValues[piece.getPieceType().ordinal()];
+            middleGameScore += sign * this.middleGameTables[index];
+            endGameScore += sign * this.endGameTables[index];
+        }
+        return material + taperedScore(middleGameScore, endGameScore, state.getPhase());
+    }
+
+    public static int material(final EvaluationState state)
+    {
+        return state.getMaterial(Alliance.WHITE) - state.getMaterial(Alliance.BLACK);
+    }
+
+    public static int taperedScore(final EvaluationState state)
+    {
+        return taperedScore(state.getMiddleGameScore(), state.getEndGameScore(), state.getPhase());
+    }
+
+    private static int taperedScore(final int middleGameScore,
+                                    final int endGameScore,
+                                    final int phase)
+    {
+        final int cappedPhase = Math.min(phase, EvaluationState.TOTAL_PHASE);
+        return (middleGameScore * cappedPhase +
+                endGameScore * (EvaluationState.TOTAL_PHASE - cappedPhase)) / EvaluationState.TOTAL_PHASE;
+    }
+
+    private static int depthBonus(final int depth)
+    {
+        return depth == 0 ? 1 : DEPTH_BONUS * depth;
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Bitboards;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.EvaluationState;
+import com.chess.engine.pieces.Piece;
+
+/*
+* Many positions in a structure of arrays layout, the input of BatchEvaluator.
+*
+* Notes:
+*   + One column per field, one entry per position: position i is pieces[b][i] for the 12 piece
+*     bitboards (white pawn .. white king, then black), whiteMaterial[i], blackMaterial[i], phases[i]
+*     and flags[i]. A loop over one column walks through memory in order, no Board or Piece objects.
+*   + The bitboards are the piece square information: bit n set = a piece of that kind on square n.
+*     Material and phase are copied from the boards EvaluationState, the flags hold what only the
+*     players know (check, checkmate, castled).
+*   + Fixed capacity, clear() makes it ready for the next lot. Not thread safe, one batch per thread.
+* */
+public final class PositionBatch
+{
+    // Members:
+    static final int NUM_TYPES = Piece.PieceType.values().length;
+    static final int NUM_BITBOARDS = 2 * NUM_TYPES;
+    // flags, what the side has done to the other one
+    static final int WHITE_CHECKS = 1;
+    static final int BLACK_CHECKS = 1 << 1;
+    static final int WHITE_MATES = 1 << 2;
+    static final int BLACK_MATES = 1 << 3;
+    static final int WHITE_CASTLED = 1 << 4;
+    static final int BLACK_CASTLED = 1 << 5;
+
+    final long[][] pieces;
+    final int[] whiteMaterial;
+    final int[] blackMaterial;
+    final byte[] phases;
+    final byte[] flags;
+    private final int capacity;
+    private int size;
+
+    // Constructor:
+    public PositionBatch(final int capacity)
+    {
+        if(capacity <= 0)
+        {
+            throw new IllegalArgumentException("A batch needs room for at least one position");
+        }
+        this.capacity = capacity;
+        this.pieces = new long[NUM_BITBOARDS][capacity];
+        this.whiteMaterial = new int[capacity];
+        this.blackMaterial = new int[capacity];
+        this.phases = new byte[capacity];
+        this.flags = new byte[capacity];
+    }
+
+    // Methods:
+    // the column of one kind of piece
+    static int column(final Alliance alliance,
+                      final Piece.PieceType pieceType)
+    {
+        return (alliance.isWhite() ? 0 : NUM_TYPES) + pieceType.ordinal();
+    }
+
+    // copies the position in, returns its index
+    public int add(final Board board)
+    {
+        if(isFull())
+        {
+            throw new IllegalStateException("The batch is full");
+        }
+        final int index = this.size;
+        for(int column = 0; column < NUM_BITBOARDS; column++)
+        {
+            this.pieces[column][index] = 0L;
+        }
+        for(final Piece piece : board.getAllPieces())
+        {
+            this.pieces[column(piece.getPieceAllegiance(), piece.getPieceType())][index] |=
+                Bitboards.squareMask(piece.getPiecePosition());
+        }
+        final EvaluationState state = board.getEvaluationState();
+        this.whiteMaterial[index] = state.getMaterial(Alliance.WHITE);
+        this.blackMaterial[index] = state.getMaterial(Alliance.BLACK);
+        this.phases[index] = (byte) Math.min(state.getPhase(), EvaluationState.TOTAL_PHASE);
+        int flags = 0;
+        flags |= board.blackPlayer().isInCheck() ? WHITE_CHECKS : 0;
+        flags |= board.whitePlayer().isInCheck() ? BLACK_CHECKS : 0;
+        flags |= board.blackPlayer().isInCheckMate() ? WHITE_MATES : 0;
+        flags |= board.whitePlayer().isInCheckMate() ? BLACK_MATES : 0;
+        flags |= board.whitePlayer().isCastled() ? WHITE_CASTLED : 0;
+        flags |= board.blackPlayer().isCastled() ? BLACK_CASTLED : 0;
+        this.flags[index] = (byte) flags;
+        this.size++;
+        return index;
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public int capacity()
+    {
+        return this.capacity;
+    }
+
+    public boolean isFull()
+    {
+        return this.size == this.capacity;
+    }
+
+    public void clear()
+    {
+        this.size = 0;
+    }
+
+}
@@ -0,0 +1,568 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.board.MoveUtils;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/*
+* Depth-first proof-number search (df-pn), see: https://www.chessprogramming.org/Proof-Number_Search
+*
+* Notes:
+*   + A fixed depth MiniMax has to look at every move, a mate solver only cares about one question:
+*     "can the side to move force checkmate within N moves?"
+*   + Every position gets two numbers:
+*       ++ proof number (pn)    --> how many more positions we would have to prove to show the mate works
+*       ++ disproof number (dn) --> how many more positions we would have to disprove to show it fails
+*   + OR node (attacker to move)  --> one good move is enough: pn = min(children pn), dn = sum(children dn)
+*   + AND node (defender to move) --> every reply must lose:   pn = sum(children pn), dn = min(children dn)
+*   + The search always walks towards the 'most proving' position, the one that is cheapest to settle.
+*     That is why it finds long forced mates that would drown a full width search.
+*   + The depth first flavour (df-pn) only keeps the current path on the stack, everything else lives in
+*     a fixed size node table. When the table is full the entry that took the least work to compute is
+*     evicted --> it is the cheapest one to recompute if we ever need it again.
+* */
+public class ProofNumberSearch implements MoveStrategy
+{
+    // Members:
+    public static final int INFINITY = Integer.MAX_VALUE / 2;
+    private static final int MAX_PLIES = 128;
+    private static final int DEFAULT_TABLE_ENTRIES = 1 << 20;
+    private static final long DEFAULT_NODE_BUDGET = 2_000_000L;
+
+    // mixed into the zobrist hash so the same position with a different number of plies left is a new node
+    private static final long[] PLIES_LEFT_KEYS = initializePliesLeftKeys();
+
+    private final int maxMateInMoves;
+    private final long nodeBudget;
+    private final NodeTable nodeTable;
+
+    private long nodesExpanded;
+    private long nodeLimit;
+    private boolean budgetExhausted;
+    private List<Move> matingLine;
+    private long proofSize;
+    private int mateInMoves;
+
+    // Constructor:
+    public ProofNumberSearch(final int maxMateInMoves)
+    {
+        this(maxMateInMoves, DEFAULT_TABLE_ENTRIES, DEFAULT_NODE_BUDGET);
+    }
+
+    public ProofNumberSearch(final int maxMateInMoves,
+                             final int tableEntries,
+                             final long nodeBudget)
+    {
+        if(maxMateInMoves < 1 || 2 * maxMateInMoves - 1 >= MAX_PLIES)
+        {
+            throw new IllegalArgumentException("Unsupported mate depth " + maxMateInMoves);
+        }
+        this.maxMateInMoves = maxMateInMoves;
+        this.nodeBudget = nodeBudget;
+        this.nodeLimit = nodeBudget;
+        this.nodeTable = new NodeTable(tableEntries);
+        this.matingLine = Collections.emptyList();
+    }
+
+    // Methods:
+    @Override
+    public String toString()
+    {
+        return "ProofNumberSearch";
+    }
+
+    @Override
+    public long getNumBoardsEvaluated()
+    {
+        return this.nodesExpanded;
+    }
+
+    // the moves of the forced mate, attacker and defender alternating, empty when no mate was proven and
+    // cut short when the budget ran out while the line was walked
+    public List<Move> getMatingLine()
+    {
+        return this.matingLine;
+    }
+
+    // number of positions in the proof tree, every defence has to be refuted so this grows quickly
+    public long getProofSize()
+    {
+        return this.proofSize;
+    }
+
+    // the shortest mate that was proven, 0 when there is none
+    public int getMateInMoves()
+    {
+        return this.mateInMoves;
+    }
+
+    public boolean isBudgetExhausted()
+    {
+        return this.budgetExhausted;
+    }
+
+    /*
+    * Looks for mate in 1, then mate in 2 ... up to maxMateInMoves, so the first proof we find is also the
+    * shortest one. Returns the null move when the position is not a forced mate (or the budget ran out).
+    * */
+    @Override
+    public Move execute(final Board board)
+    {
+        final long startTime = System.currentTimeMillis();
+        this.nodesExpanded = 0;
+        this.nodeLimit = this.nodeBudget;
+        this.budgetExhausted = false;
+        this.matingLine = Collections.emptyList();
+        this.proofSize = 0;
+        this.mateInMoves = 0;
+
+        for(int mateIn = 1; mateIn <= this.maxMateInMoves && !this.budgetExhausted; mateIn++)
+        {
+            final int pliesLeft = 2 * mateIn - 1;
+            if(prove(board, pliesLeft))
+            {
+                this.mateInMoves = mateIn;
+                // walking the proof re-proves evicted nodes, that work gets a budget of its own
+                this.nodeLimit = this.nodesExpanded + this.nodeBudget;
+                final List<Move> line = new ArrayList<>();
+                try
+                {
+                    extractMatingLine(board, pliesLeft, line);
+                    this.proofSize = proofTreeSize(board, pliesLeft, true);
+                }
+                catch(final BudgetExhaustedException e)
+                {
+                    // the mate stands, we just could not afford to walk all of it
+                    this.budgetExhausted = true;
+                }
+                this.matingLine = ImmutableList.copyOf(line);
+                break;
+            }
+        }
+
+        final long executionTime = System.currentTimeMillis() - startTime;
+        System.out.println(toString() + (this.mateInMoves > 0 ? " mate in " + this.mateInMoves + " " + this.matingLine :
+            " no mate found") + " proof size = " + this.proofSize + " nodes = " + this.nodesExpanded +
+            " time = " + executionTime + " ms");
+
+        return this.matingLine.isEmpty() ? MoveUtils.decodeMove(board, MoveUtils.NO_MOVE) : this.matingLine.get(0);
+    }
+
+    /*
+    * true when the side to move on the board can force mate within pliesLeft plies.
+    * */
+    public boolean prove(final Board board,
+                         final int pliesLeft)
+    {
+        try
+        {
+            multipleIterativeDeepening(board, pliesLeft, true, INFINITY - 1, INFINITY - 1);
+        }
+        catch(final BudgetExhaustedException e)
+        {
+            this.budgetExhausted = true;
+            return false;
+        }
+        return this.nodeTable.proofNumber(key(board, pliesLeft)) == 0;
+    }
+
+    /*
+    * MID from Nagai's df-pn: keep searching below this node until its proof or disproof number reaches
+    * the threshold handed down by the parent.
+    * */
+    private void multipleIterativeDeepening(final Board board,
+                                            final int pliesLeft,
+                                            final boolean isOrNode,
+                                            final int proofThreshold,
+                                            final int disproofThreshold)
+    {
+        final long key = key(board, pliesLeft);
+        if(++this.nodesExpanded > this.nodeLimit)
+        {
+            throw new BudgetExhaustedException();
+        }
+        final long workBefore = this.nodesExpanded;
+
+        if(pliesLeft == 0)
+        {
+            // out of plies, only a defender that is already mated counts (and that needs no move list)
+            final boolean isMate = !isOrNode && board.currentPlayer().isInCheck() && !hasLegalMove(board);
+            storeResult(key, isMate, workBefore);
+            return;
+        }
+        final List<Board> children = legalChildren(board);
+        if(children.isEmpty())
+        {
+            storeResult(key, !isOrNode && board.currentPlayer().isInCheck(), workBefore);
+            return;
+        }
+
+        /*
+        * The childrens numbers are copied out of the table once and then kept up to date by hand, so a
+        * child that gets evicted while we search its siblings does not fall back to (1, 1) and send us
+        * round in circles.
+        * */
+        final int[] childProofNumbers = new int[children.size()];
+        final int[] childDisproofNumbers = new int[children.size()];
+        for(int i = 0; i < children.size(); i++)
+        {
+            final long childKey = key(children.get(i), pliesLeft - 1);
+            childProofNumbers[i] = this.nodeTable.proofNumber(childKey);
+            childDisproofNumbers[i] = this.nodeTable.disproofNumber(childKey);
+        }
+
+        while(true)
+        {
+            int proofNumber = isOrNode ? INFINITY : 0;
+            int disproofNumber = isOrNode ? 0 : INFINITY;
+            int bestChild = -1;
+            int bestValue = INFINITY;
+            int secondBestValue = INFINITY;
+            for(int i = 0; i < children.size(); i++)
+            {
+                // an OR node is steered by the childrens proof numbers, an AND node by the disproof numbers
+                final int steeringValue = isOrNode ? childProofNumbers[i] : childDisproofNumbers[i];
+                if(isOrNode)
+                {
+                    proofNumber = Math.min(proofNumber, childProofNumbers[i]);
+                    disproofNumber = cappedSum(disproofNumber, childDisproofNumbers[i]);
+                }
+                else
+                {
+                    proofNumber = cappedSum(proofNumber, childProofNumbers[i]);
+                    disproofNumber = Math.min(disproofNumber, childDisproofNumbers[i]);
+                }
+                if(steeringValue < bestValue)
+                {
+                    secondBestValue = bestValue;
+                    bestValue = steeringValue;
+                    bestChild = i;
+                }
+                else if(steeringValue < secondBestValue)
+                {
+                    secondBestValue = steeringValue;
+                }
+            }
+
+            if(proofNumber >= proofThreshold || disproofNumber >= disproofThreshold)
+            {
+                this.nodeTable.store(key, proofNumber, disproofNumber, this.nodesExpanded - workBefore + 1);
+                return;
+            }
+
+            final int childProofThreshold;
+            final int childDisproofThreshold;
+            if(isOrNode)
+            {
+                childProofThreshold = Math.min(proofThreshold, cappedSum(secondBestValue, 1));
+                childDisproofThreshold = cappedSum(disproofThreshold - disproofNumber, childDisproofNumbers[bestChild]);
+            }
+            else
+            {
+                childProofThreshold = cappedSum(proofThreshold - proofNumber, childProofNumbers[bestChild]);
+                childDisproofThreshold = Math.min(disproofThreshold, cappedSum(secondBestValue, 1));
+            }
+            final Board child = children.get(bestChild);
+            multipleIterativeDeepening(child, pliesLeft - 1, !isOrNode, childProofThreshold, childDisproofThreshold);
+            // the child stores its result last thing before returning, so it is still in the table here
+            final long childKey = key(child, pliesLeft - 1);
+            childProofNumbers[bestChild] = this.nodeTable.proofNumber(childKey);
+            childDisproofNumbers[bestChild] = this.nodeTable.disproofNumber(childKey);
+        }
+    }
+
+    /*
+    * Leaves of the mate search:
+    *   + no legal moves for the defender while in check --> mate, proven
+    *   + no legal moves otherwise (stalemate, or the attacker got mated) --> disproven
+    *   + out of plies --> disproven, the mate (if there is one) is too long
+    * */
+    private void storeResult(final long key,
+                             final boolean isMate,
+                             final long workBefore)
+    {
+        final long work = this.nodesExpanded - workBefore + 1;
+        if(isMate)
+        {
+            this.nodeTable.store(key, 0, INFINITY, work);
+        }
+        else
+        {
+            this.nodeTable.store(key, INFINITY, 0, work);
+        }
+    }
+
+    /*
+    * Walks the proven tree from the root: the attacker plays a proven move, the defender plays the
+    * reply that needed the most work to refute (usually the most stubborn defence). The moves are added to
+    * line as they are found, so a budget that runs out half way still leaves the start of the line.
+    * */
+    private void extractMatingLine(final Board root,
+                                   final int pliesLeft,
+                                   final List<Move> line)
+    {
+        Board board = root;
+        boolean isOrNode = true;
+        for(int plies = pliesLeft; plies > 0; plies--)
+        {
+            final Move chosenMove = isOrNode ? provenMove(board, plies) : stubbornestReply(board, plies);
+            if(chosenMove == null)
+            {
+                break;
+            }
+            line.add(chosenMove);
+            board = board.currentPlayer().makeMove(chosenMove).getToBoard();
+            isOrNode = !isOrNode;
+        }
+    }
+
+    /*
+    * Counts the positions in the proof tree: one proven move at every OR node, every reply at every
+    * AND node.
+    * */
+    private long proofTreeSize(final Board board,
+                               final int pliesLeft,
+                               final boolean isOrNode)
+    {
+        long size = 1;
+        if(pliesLeft == 0)
+        {
+            return size;
+        }
+        if(isOrNode)
+        {
+            final Move move = provenMove(board, pliesLeft);
+            return move == null ? size :
+                   size + proofTreeSize(board.currentPlayer().makeMove(move).getToBoard(), pliesLeft - 1, false);
+        }
+        for(final Board child : legalChildren(board))
+        {
+            ensureSolved(child, pliesLeft - 1, true);
+            if(this.nodeTable.proofNumber(key(child, pliesLeft - 1)) == 0)
+            {
+                size += proofTreeSize(child, pliesLeft - 1, true);
+            }
+        }
+        return size;
+    }
+
+    /*
+    * The attacker's move into a proven position, null when there is none. A move the table already
+    * holds as proven is taken straight away, the others are only solved again when every proven entry
+    * was evicted: solving a move the proof never needed can cost far more than the proof itself.
+    * */
+    private Move provenMove(final Board board,
+                            final int pliesLeft)
+    {
+        final List<Move> unsettledMoves = new ArrayList<>();
+        for(final Move move : board.currentPlayer().getLegalMoves())
+        {
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if(!transition.getMoveStatus().isDone())
+            {
+                continue;
+            }
+            final long childKey = key(transition.getToBoard(), pliesLeft - 1);
+            if(this.nodeTable.proofNumber(childKey) == 0)
+            {
+                return move;
+            }
+            if(this.nodeTable.disproofNumber(childKey) != 0)
+            {
+                unsettledMoves.add(move);
+            }
+        }
+        for(final Move move : unsettledMoves)
+        {
+            final Board child = board.currentPlayer().makeMove(move).getToBoard();
+            ensureSolved(child, pliesLeft - 1, false);
+            if(this.nodeTable.proofNumber(key(child, pliesLeft - 1)) == 0)
+            {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    // the defender's reply that took the most work to refute, every reply of a proven AND node is lost
+    private Move stubbornestReply(final Board board,
+                                  final int pliesLeft)
+    {
+        Move chosenMove = null;
+        long chosenWork = -1;
+        for(final Move move : board.currentPlayer().getLegalMoves())
+        {
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if(!transition.getMoveStatus().isDone())
+            {
+                continue;
+            }
+            final Board child = transition.getToBoard();
+            ensureSolved(child, pliesLeft - 1, true);
+            final long work = this.nodeTable.work(key(child, pliesLeft - 1));
+            if(work > chosenWork)
+            {
+                chosenWork = work;
+                chosenMove = move;
+            }
+        }
+        return chosenMove;
+    }
+
+    // a proven entry may have been evicted from the table, in that case prove it again
+    private void ensureSolved(final Board board,
+                              final int pliesLeft,
+                              final boolean isOrNode)
+    {
+        final long key = key(board, pliesLeft);
+        if(this.nodeTable.proofNumber(key) != 0 && this.nodeTable.disproofNumber(key) != 0)
+        {
+            multipleIterativeDeepening(board, pliesLeft, isOrNode, INFINITY - 1, INFINITY - 1);
+        }
+    }
+
+    private static List<Board> legalChildren(final Board board)
+    {
+        final List<Board> children = new ArrayList<>();
+        for(final Move move : board.currentPlayer().getLegalMoves())
+        {
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if(transition.getMoveStatus().isDone())
+            {
+                children.add(transition.getToBoard());
+            }
+        }
+        return children;
+    }
+
+    private static boolean hasLegalMove(final Board board)
+    {
+        for(final Move move : board.currentPlayer().getLegalMoves())
+        {
+            if(board.currentPlayer().makeMove(move).getMoveStatus().isDone())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long key(final Board board,
+                            final int pliesLeft)
+    {
+        return board.getZobristHash() ^ PLIES_LEFT_KEYS[pliesLeft];
+    }
+
+    private static int cappedSum(final int a,
+                                 final int b)
+    {
+        return (int) Math.min((long) a + b, INFINITY);
+    }
+
+    private static long[] initializePliesLeftKeys()
+    {
+        final SplittableRandom random = new SplittableRandom(0x5DEECE66DL);
+        final long[] keys = new long[MAX_PLIES];
+        for(int i = 0; i < keys.length; i++)
+        {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+
+    private static final class BudgetExhaustedException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        BudgetExhaustedException()
+        {
+            super("proof number search node budget exhausted", null, false, false);
+        }
+    }
+
+    /*
+    * Two way set associative table of (proof number, disproof number, work) triples. A position that is
+    * not in the table counts as a fresh leaf, pn = dn = 1.
+    * */
+    private static final class NodeTable
+    {
+        private final long[] keys;
+        private final int[] proofNumbers;
+        private final int[] disproofNumbers;
+        private final long[] work;
+        private final int mask;
+
+        NodeTable(final int numEntries)
+        {
+            final int size = Integer.highestOneBit(Math.max(2, numEntries));
+            this.keys = new long[size];
+            this.proofNumbers = new int[size];
+            this.disproofNumbers = new int[size];
+            this.work = new long[size];
+            this.mask = size - 2;
+        }
+
+        int proofNumber(final long key)
+        {
+            final int index = find(key);
+            return index >= 0 ? this.proofNumbers[index] : 1;
+        }
+
+        int disproofNumber(final long key)
+        {
+            final int index = find(key);
+            return index >= 0 ? this.disproofNumbers[index] : 1;
+        }
+
+        long work(final long key)
+        {
+            final int index = find(key);
+            return index >= 0 ? this.work[index] : 0;
+        }
+
+        void store(final long key,
+                   final int proofNumber,
+                   final int disproofNumber,
+                   final long work)
+        {
+            int index = find(key);
+            if(index < 0)
+            {
+                // evict whichever of the two slots holds the cheaper result
+                final int first = bucket(key);
+                index = this.work[first] <= this.work[first + 1] ? first : first + 1;
+            }
+            this.keys[index] = key;
+            this.proofNumbers[index] = proofNumber;
+            this.disproofNumbers[index] = disproofNumber;
+            this.work[index] = Math.max(work, 1);
+        }
+
+        private int find(final long key)
+        {
+            final int first = bucket(key);
+            if(this.keys[first] == key && this.work[first] != 0)
+            {
+                return first;
+            }
+            if(this.keys[first + 1] == key && this.work[first + 1] != 0)
+            {
+                return first + 1;
+            }
+            return -1;
+        }
+
+        private int bucket(final long key)
+        {
+            return (int) key & this.mask;
+        }
+    }
+
+}
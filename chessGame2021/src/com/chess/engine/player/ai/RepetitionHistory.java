@@ -0,0 +1,104 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+
+import java.util.Arrays;
+
+/*
+* The positions on the way to the node the search is at, for spotting repetitions.
+*
+* Notes:
+*   + A stack of Zobrist hashes: the game up to the root at the bottom (only the part since the last
+*     pawn move or capture, nothing before can repeat), then one hash per ply of the current line. The
+*     search pushes on the way into a node and pops on the way out.
+*   + A repetition is an earlier entry with the same hash, every second one (same side to move), no
+*     further back than the half move clock of the node.
+*   + Most nodes are no repetition and never walk the stack: a small table counts the entries by the
+*     low bits of their hash. When the node's own entry is the only one in its slot there is nothing to
+*     find. push, pop and that check are O(1), the walk is only paid for a likely hit.
+*   + The search scores the first repetition as a draw, not the third: if a line is worth repeating
+*     once it is worth repeating again.
+* */
+final class RepetitionHistory
+{
+    // Members:
+    private static final int INITIAL_SIZE = 256;
+    private static final int FILTER_BITS = 12;
+    private static final int FILTER_MASK = (1 << FILTER_BITS) - 1;
+
+    private long[] hashes;
+    private int size;
+    private final int[] counts;
+
+    // Constructor:
+    RepetitionHistory()
+    {
+        this.hashes = new long[INITIAL_SIZE];
+        this.counts = new int[1 << FILTER_BITS];
+    }
+
+    // Methods:
+    // the game up to the board, the board itself is left for the search to push
+    void loadGame(final Board board)
+    {
+        clear();
+        final long[] earlier = new long[board.getHalfMoveClock()];
+        int count = 0;
+        for(Board previous = board.getPreviousBoard(); previous != null && count < earlier.length;
+            previous = previous.getPreviousBoard())
+        {
+            earlier[count++] = previous.getZobristHash();
+        }
+        for(int i = count - 1; i >= 0; i--)
+        {
+            push(earlier[i]);
+        }
+    }
+
+    void clear()
+    {
+        this.size = 0;
+        Arrays.fill(this.counts, 0);
+    }
+
+    void push(final long hash)
+    {
+        if(this.size == this.hashes.length)
+        {
+            this.hashes = Arrays.copyOf(this.hashes, 2 * this.hashes.length);
+        }
+        this.hashes[this.size++] = hash;
+        this.counts[(int) hash & FILTER_MASK]++;
+    }
+
+    void pop()
+    {
+        this.counts[(int) this.hashes[--this.size] & FILTER_MASK]--;
+    }
+
+    int size()
+    {
+        return this.size;
+    }
+
+    // true when the entry on top was on the stack before, within the last halfMoveClock plies
+    boolean isRepetition(final int halfMoveClock)
+    {
+        final int top = this.size - 1;
+        final long hash = this.hashes[top];
+        if(this.counts[(int) hash & FILTER_MASK] < 2)
+        {
+            return false;
+        }
+        final int oldest = Math.max(0, top - halfMoveClock);
+        for(int i = top - 2; i >= oldest; i -= 2)
+        {
+            if(this.hashes[i] == hash)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
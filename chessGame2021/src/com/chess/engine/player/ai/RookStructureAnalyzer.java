@@ -0,0 +1,83 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.AttackInfo;
+import com.chess.engine.board.Bitboards;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.Player;
+
+/*
+* Rooks want open lines.
+*
+* Notes:
+*   + Per rook, all answered with the file masks from Bitboards and the boards AttackInfo:
+*       ++ open file      --> no pawns at all on the rooks file
+*       ++ semi-open file --> none of our own pawns on it, only enemy ones (something to attack)
+*       ++ seventh rank   --> the row the enemy pawns start on, a rook there eats pawns and pins the king
+*   + Connected rooks: the two rooks see each other along a row or file with nothing in between, so
+*     they defend each other. Counted once per pair.
+*   + A handful of ANDs per rook, no walking over tiles with Board.getPiece.
+* */
+public final class RookStructureAnalyzer
+{
+    // Members:
+    public static final int OPEN_FILE_BONUS = 25;
+    public static final int SEMI_OPEN_FILE_BONUS = 10;
+    public static final int SEVENTH_RANK_BONUS = 20;
+    public static final int CONNECTED_ROOKS_BONUS = 15;
+    private static final RookStructureAnalyzer INSTANCE = new RookStructureAnalyzer();
+
+    // Constructor:
+    private RookStructureAnalyzer()
+    {
+    }
+
+    // Methods:
+    public static RookStructureAnalyzer get()
+    {
+        return INSTANCE;
+    }
+
+    public int rookStructureScore(final Board board,
+                                  final Player player)
+    {
+        final AttackInfo attackInfo = board.getAttackInfo();
+        final Alliance alliance = player.getAlliance();
+        final Alliance enemy = alliance.getOpposite();
+        final long ownPawns = attackInfo.getPieces(alliance, Piece.PieceType.PAWN);
+        final long enemyPawns = attackInfo.getPieces(enemy, Piece.PieceType.PAWN);
+        final long rooks = attackInfo.getPieces(alliance, Piece.PieceType.ROOK);
+
+        int score = 0;
+        long remaining = rooks;
+        while(remaining != 0)
+        {
+            final int coordinate = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            final long file = Bitboards.FILE_MASKS[Bitboards.fileOf(coordinate)];
+            if((ownPawns & file) == 0)
+            {
+                score += (enemyPawns & file) == 0 ? OPEN_FILE_BONUS : SEMI_OPEN_FILE_BONUS;
+            }
+            if(Bitboards.rowOf(coordinate) == seventhRow(alliance))
+            {
+                score += SEVENTH_RANK_BONUS;
+            }
+            // only look at the rooks still to come so every pair is counted once
+            if((Bitboards.rookAttacks(coordinate, attackInfo.getOccupied()) & remaining) != 0)
+            {
+                score += CONNECTED_ROOKS_BONUS;
+            }
+        }
+        return score;
+    }
+
+    // row 1 (rank 7) for white, row 6 (rank 2) for black
+    private static int seventhRow(final Alliance alliance)
+    {
+        return alliance.isWhite() ? 1 : BoardUtils.NUM_TILES_PER_ROW - 2;
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.pgn.FenUtilities;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+* The headless half of DistributedSearch. A worker listens on a TCP port and searches whatever positions
+* a coordinator sends it.
+*
+* Notes:
+*   + The protocol is one line of text per message so it can be poked at with telnet:
+*       ++ "SEARCH <depth> <fen>"  --> "RESULT <score> <nodes>"  (score from the side to move's view)
+*       ++ "PING"                  --> "PONG"
+*       ++ anything else           --> "ERROR <reason>"
+*   + Every connection gets its own MTDf engine that lives as long as the connection does, so a
+*     coordinator sending related positions benefits from the transposition table.
+*   + Run it with:  java com.chess.engine.player.ai.SearchWorker <port> [bind address]
+*     Port 0 picks a free one. Without a bind address the worker listens on every interface, so
+*     coordinators on other machines can reach it. Give one (e.g. the cluster network's interface, or
+*     127.0.0.1 for a worker on the same machine) to listen on that interface only.
+* */
+public final class SearchWorker implements Closeable
+{
+    // Members:
+    public static final int DEFAULT_PORT = 7381;
+    static final String SEARCH = "SEARCH";
+    static final String RESULT = "RESULT";
+    static final String PING = "PING";
+    static final String PONG = "PONG";
+    static final String ERROR = "ERROR";
+    private static final int TABLE_SIZE_MB = 16;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connectionHandlers;
+
+    // Constructor:
+    private SearchWorker(final ServerSocket serverSocket)
+    {
+        this.serverSocket = serverSocket;
+        this.connectionHandlers = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "search-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.connectionHandlers.execute(this::acceptLoop);
+    }
+
+    // Methods:
+    // listens on every interface
+    public static SearchWorker start(final int port) throws IOException
+    {
+        return start(port, null);
+    }
+
+    // listens on the given interface only, every interface when bindAddress is null
+    public static SearchWorker start(final int port,
+                                     final InetAddress bindAddress) throws IOException
+    {
+        return new SearchWorker(new ServerSocket(port, 50, bindAddress));
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final InetAddress bindAddress = args.length > 1 ? InetAddress.getByName(args[1]) : null;
+        final SearchWorker worker = start(port, bindAddress);
+        // the coordinator (or a test) reads this line to find out which port we ended up on
+        System.out.println("SearchWorker listening on " + worker.getPort());
+        System.out.flush();
+        while(!worker.serverSocket.isClosed())
+        {
+            Thread.sleep(1000);
+        }
+    }
+
+    public int getPort()
+    {
+        return this.serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.serverSocket.close();
+        this.connectionHandlers.shutdownNow();
+    }
+
+    private void acceptLoop()
+    {
+        while(!this.serverSocket.isClosed())
+        {
+            try
+            {
+                final Socket socket = this.serverSocket.accept();
+                this.connectionHandlers.execute(() -> serve(socket));
+            }
+            catch(final SocketException e)
+            {
+                // the server socket was closed, we are shutting down
+                return;
+            }
+            catch(final IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void serve(final Socket socket)
+    {
+        final MTDf engine = new MTDf(1, new TranspositionTable(TABLE_SIZE_MB));
+        try(final Socket connection = socket;
+            final BufferedReader in = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            final PrintWriter out = new PrintWriter(
+                new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8), true))
+        {
+            String line;
+            while((line = in.readLine()) != null)
+            {
+                out.println(handle(engine, line.trim()));
+            }
+        }
+        catch(final IOException e)
+        {
+            // the coordinator went away, nothing to clean up beyond the socket
+        }
+    }
+
+    private static String handle(final MTDf engine,
+                                 final String request)
+    {
+        if(request.equals(PING))
+        {
+            return PONG;
+        }
+        final String[] parts = request.split(" ", 3);
+        if(parts.length != 3 || !parts[0].equals(SEARCH))
+        {
+            return ERROR + " unknown request";
+        }
+        try
+        {
+            final int depth = Integer.parseInt(parts[1]);
+            final Board board = FenUtilities.createGameFromFEN(parts[2]);
+            engine.resetCounters();
+            engine.getTranspositionTable().newSearch();
+            final int score = engine.iterativeDeepening(board, depth);
+            return RESULT + " " + score + " " + engine.getNumNodesSearched();
+        }
+        catch(final RuntimeException e)
+        {
+            return ERROR + " " + e;
+        }
+    }
+
+}
@@ -0,0 +1,319 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.DrawRules;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.pieces.Piece;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+* Tunes the engine by playing it against itself, SPSA (simultaneous perturbation stochastic
+* approximation), see: https://www.jhuapl.edu/SPSA/
+*
+* Notes:
+*   + Every iteration moves all tuned parameters at once. Each one is pushed up or down at random by
+*     its step and theta + step plays theta - step. The match result says which of the two did better,
+*     and every parameter takes a small step towards the winning side. One match is a very noisy
+*     answer, the noise averages out over many iterations.
+*   + The games are short: every move searches a fixed number of nodes (MTDf.setNodeLimit), not a
+*     depth or a time. A setting that makes the search faster gets no extra search for it and the
+*     results do not depend on how busy the machine is.
+*   + A match is pairs of games, each pair from its own random opening with the colours swapped. All
+*     games of an iteration are played at the same time, one per core. A game ends in checkmate, a
+*     draw by the rules (DrawRules) or a drawn ending (EndgameRegistry), or is called a draw after
+*     MAX_PLIES.
+*   + The gains shrink over the run with Spall's sequences: the perturbation c_k = c / (k + 1)^0.101
+*     and the step a_k = a / (k + 1 + A)^0.602, A a tenth of the iterations. a is scaled by c^2 for
+*     every parameter, so each one moves in its own units (a knight in tens, a bonus in ones).
+*   + What is tuned: the piece values (the pawn stays 100, it is the unit), the check and castle
+*     bonuses and the lazy margin, see TUNED. Everything else in EvaluationParameters is left as it
+*     was. The result is an EvaluationParameters file, the engine plays with it when
+*     -Dchess.evaluation.parameters names it.
+*   + Headless, no Table and no Swing:
+*       java com.chess.engine.player.ai.SpsaTuner <output file> [iterations] [pairs per iteration] [nodes per move]
+* */
+public final class SpsaTuner implements Closeable
+{
+    // Members:
+    private static final int DEFAULT_ITERATIONS = 200;
+    private static final int DEFAULT_NODES_PER_MOVE = 2000;
+    private static final int OPENING_PLIES = 6;
+    private static final int MAX_PLIES = 160;
+    private static final int MAX_DEPTH = 32;
+    private static final int TABLE_SIZE_MB = 4;
+    private static final int CACHE_SIZE = 1 << 14;
+    private static final double ALPHA = 0.602;
+    private static final double GAMMA = 0.101;
+    private static final double LEARNING_RATE = 1.0;
+    private static final double WHITE_WINS = 1.0;
+    private static final double DRAW = 0.5;
+    private static final double BLACK_WINS = 0.0;
+    private static final Tuned[] TUNED = {
+        new Tuned(EvaluationParameters.pieceValueIndex(Piece.PieceType.KNIGHT), 20, 100),
+        new Tuned(EvaluationParameters.pieceValueIndex(Piece.PieceType.BISHOP), 20, 100),
+        new Tuned(EvaluationParameters.pieceValueIndex(Piece.PieceType.ROOK), 30, 200),
+        new Tuned(EvaluationParameters.pieceValueIndex(Piece.PieceType.QUEEN), 50, 400),
+        new Tuned(EvaluationParameters.CHECK_BONUS, 10, 0),
+        new Tuned(EvaluationParameters.CASTLE_BONUS, 10, 0),
+        new Tuned(EvaluationParameters.LAZY_MARGIN, 40, 50)
+    };
+
+    private final int pairsPerIteration;
+    private final long nodesPerMove;
+    private final Random random;
+    private final ExecutorService executorService;
+
+    // one tuned value: where it is in EvaluationParameters, its first perturbation and its lowest value
+    private static final class Tuned
+    {
+        private final int index;
+        private final double step;
+        private final int minimum;
+
+        private Tuned(final int index,
+                      final double step,
+                      final int minimum)
+        {
+            this.index = index;
+            this.step = step;
+            this.minimum = minimum;
+        }
+    }
+
+    // Constructor:
+    public SpsaTuner(final int numThreads,
+                     final int pairsPerIteration,
+                     final long nodesPerMove,
+                     final long seed)
+    {
+        if(pairsPerIteration <= 0 || nodesPerMove <= 0)
+        {
+            throw new IllegalArgumentException("Every iteration needs games and every move needs nodes");
+        }
+        this.pairsPerIteration = pairsPerIteration;
+        this.nodesPerMove = nodesPerMove;
+        this.random = new Random(seed);
+        this.executorService = Executors.newFixedThreadPool(numThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "spsa-tuner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Methods:
+    public static void main(final String[] args) throws IOException
+    {
+        if(args.length < 1)
+        {
+            System.out.println("usage: SpsaTuner <output file> [iterations] [pairs per iteration] [nodes per move]");
+            return;
+        }
+        final int numThreads = Runtime.getRuntime().availableProcessors();
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+        final int pairs = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(1, numThreads / 2);
+        final long nodes = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_NODES_PER_MOVE;
+        final long start = System.currentTimeMillis();
+        try(final SpsaTuner tuner = new SpsaTuner(numThreads, pairs, nodes, System.nanoTime()))
+        {
+            final EvaluationParameters tuned = tuner.tune(EvaluationParameters.getDefault(), iterations);
+            System.out.println(iterations + " iterations in " + (System.currentTimeMillis() - start) + " ms");
+            tuned.write(Paths.get(args[0]), "SPSA tuned, " + iterations + " iterations of " + pairs +
+                " game pairs, " + nodes + " nodes per move");
+        }
+    }
+
+    /*
+    * Runs the iterations from the start parameters and returns where they ended up, rounded. Prints
+    * one line per iteration with the match result and the values so far.
+    * */
+    public EvaluationParameters tune(final EvaluationParameters start,
+                                     final int iterations)
+    {
+        final double[] theta = new double[TUNED.length];
+        for(int i = 0; i < TUNED.length; i++)
+        {
+            theta[i] = start.get(TUNED[i].index);
+        }
+        final double stability = iterations / 10.0;
+        for(int k = 0; k < iterations; k++)
+        {
+            final double perturbation = 1.0 / Math.pow(k + 1, GAMMA);
+            final double gain = LEARNING_RATE * Math.pow((stability + 1) / (k + 1 + stability), ALPHA);
+            final int[] delta = new int[TUNED.length];
+            final double[] plus = new double[TUNED.length];
+            final double[] minus = new double[TUNED.length];
+            for(int i = 0; i < TUNED.length; i++)
+            {
+                delta[i] = this.random.nextBoolean() ? 1 : -1;
+                plus[i] = theta[i] + perturbation * TUNED[i].step * delta[i];
+                minus[i] = theta[i] - perturbation * TUNED[i].step * delta[i];
+            }
+            final double result = match(toParameters(start, plus), toParameters(start, minus));
+            /*
+            * The SPSA gradient estimate for parameter i is result / (2 c_k delta_i), times a_k = 2 gain c_k^2
+            * that is one step of gain c_k in the direction of the winning side.
+            * */
+            for(int i = 0; i < TUNED.length; i++)
+            {
+                theta[i] = Math.max(TUNED[i].minimum, theta[i] + gain * perturbation * TUNED[i].step * result * delta[i]);
+            }
+            System.out.println("iteration " + (k + 1) + " result " + String.format("%+.3f", result) + " " +
+                describe(toParameters(start, theta)));
+        }
+        return toParameters(start, theta);
+    }
+
+    /*
+    * The first parameters against the second, pairsPerIteration pairs of games at once. Returns the
+    * first one's points minus the second one's per game, -1 .. +1.
+    * */
+    public double match(final EvaluationParameters first,
+                        final EvaluationParameters second)
+    {
+        final List<Callable<Double>> games = new ArrayList<>();
+        for(int pair = 0; pair < this.pairsPerIteration; pair++)
+        {
+            final long openingSeed = this.random.nextLong();
+            games.add(() -> playGame(randomOpening(new Random(openingSeed)), first, second, this.nodesPerMove));
+            games.add(() -> 1.0 - playGame(randomOpening(new Random(openingSeed)), second, first, this.nodesPerMove));
+        }
+        double points = 0.0;
+        for(final double score : runAll(this.executorService, games))
+        {
+            points += score;
+        }
+        return (2.0 * points - games.size()) / games.size();
+    }
+
+    /*
+    * One game from the given position, each side with its own engine and evaluator. Returns 1 when
+    * white wins, 0.5 for a draw and 0 when black wins.
+    * */
+    public static double playGame(final Board start,
+                                  final EvaluationParameters white,
+                                  final EvaluationParameters black,
+                                  final long nodesPerMove)
+    {
+        final MTDf whiteEngine = engine(white, nodesPerMove);
+        final MTDf blackEngine = engine(black, nodesPerMove);
+        Board board = start;
+        for(int ply = 0; ply < MAX_PLIES; ply++)
+        {
+            final boolean whiteToMove = board.currentPlayer().getAlliance().isWhite();
+            if(board.currentPlayer().isInCheckMate())
+            {
+                return whiteToMove ? BLACK_WINS : WHITE_WINS;
+            }
+            if(DrawRules.isDraw(board) || EndgameRegistry.get().isDrawn(board))
+            {
+                return DRAW;
+            }
+            final MTDf engine = whiteToMove ? whiteEngine : blackEngine;
+            final MoveTransition transition = board.currentPlayer().makeMove(engine.findBestMove(board));
+            if(!transition.getMoveStatus().isDone())
+            {
+                throw new IllegalStateException("The engine picked an illegal move");
+            }
+            board = transition.getToBoard();
+        }
+        return DRAW;
+    }
+
+    @Override
+    public void close()
+    {
+        this.executorService.shutdownNow();
+    }
+
+    private static MTDf engine(final EvaluationParameters parameters,
+                               final long nodesPerMove)
+    {
+        final MTDf engine = new MTDf(MAX_DEPTH, new TranspositionTable(TABLE_SIZE_MB),
+            new CachedEvaluator(new EndgameEvaluator(StandardBoardEvaluator.withParameters(parameters)), CACHE_SIZE));
+        engine.setNodeLimit(nodesPerMove);
+        return engine;
+    }
+
+    // a few random moves from the starting position, so the games of an iteration do not all repeat
+    private static Board randomOpening(final Random random)
+    {
+        Board board = Board.createStandardBoard();
+        for(int ply = 0; ply < OPENING_PLIES; ply++)
+        {
+            final List<Board> children = new ArrayList<>();
+            for(final Move move : board.currentPlayer().getLegalMoves())
+            {
+                final MoveTransition transition = board.currentPlayer().makeMove(move);
+                if(transition.getMoveStatus().isDone())
+                {
+                    children.add(transition.getToBoard());
+                }
+            }
+            if(children.isEmpty())
+            {
+                break;
+            }
+            board = children.get(random.nextInt(children.size()));
+        }
+        return board;
+    }
+
+    // the start parameters with the tuned values rounded in and kept above their minimum
+    private static EvaluationParameters toParameters(final EvaluationParameters start,
+                                                     final double[] theta)
+    {
+        final int[] values = start.toArray();
+        for(int i = 0; i < TUNED.length; i++)
+        {
+            values[TUNED[i].index] = Math.max(TUNED[i].minimum, (int) Math.round(theta[i]));
+        }
+        return new EvaluationParameters(values);
+    }
+
+    private static String describe(final EvaluationParameters parameters)
+    {
+        final StringBuilder builder = new StringBuilder();
+        for(final Tuned tuned : TUNED)
+        {
+            builder.append(builder.length() == 0 ? "" : ", ")
+                   .append(EvaluationParameters.groupName(tuned.index)).append(' ').append(parameters.get(tuned.index));
+        }
+        return builder.toString();
+    }
+
+    private static <T> List<T> runAll(final ExecutorService executorService,
+                                      final List<Callable<T>> tasks)
+    {
+        final List<T> results = new ArrayList<>();
+        try
+        {
+            for(final Future<T> future : executorService.invokeAll(tasks))
+            {
+                results.add(future.get());
+            }
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch(final ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+        return results;
+    }
+
+}
@@ -1,23 +1,141 @@
 package com.chess.engine.player.ai;
 
+import com.chess.engine.Alliance;
 import com.chess.engine.board.Board;
+import com.chess.engine.board.MaterialSignature;
 import com.chess.engine.pieces.Piece;
 import com.chess.engine.player.Player;
 
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+* The evaluation the engine plays with.
+*
+* Notes:
+*   + The terms come in two layers:
+*       ++ cheap      --> material, check, checkmate and castling. The board carries the material
+*                         total along and the rest is a flag or two.
+*       ++ positional --> pawn structure, king safety, rook placement and mobility. These need
+*                         bitboards and attack sets and are where the time goes.
+*   + Lazy evaluation: most leaves are decided by material alone. When the search hands us its window
+*     and the cheap layer is already more than the lazy margin below alpha (or above beta), the
+*     positional layer can not bring it back in and is skipped. We then return cheap + margin
+*     (or cheap - margin): still outside the window and still a true bound as long as the positional
+*     terms stay within the margin, so the transposition table can keep it as one.
+*   + get() never skips, it scores every position exactly. withLazyMargin() makes an evaluator that
+*     does, the smaller the margin the more gets skipped and the more often the bound is wrong.
+*   + withParameters() takes the piece values, the check and castle bonuses and the lazy margin from
+*     EvaluationParameters (a tuned file). Material is then counted from the material signature with
+*     those values instead of the running total the board keeps.
+*   + getLazyProbes / getLazySkips count the calls through the window API and how many of them got
+*     away with the cheap layer. Only an evaluator with a lazy margin counts, get() is shared by every
+*     search and would pay for a contended counter it never reports.
+*   + trace() breaks a score down by Term and side. With -Dchess.evaluation.profile=true every term is
+*     also timed, getProfile() has the totals (see EvaluationProfile).
+* */
 public class StandardBoardEvaluator implements BoardEvaluator
 {
     // Members:
-    private static final int CHECK_BONUS = 50;
-    private static final int CHECK_MATE_BONUS = 10000;
-    private static final int DEPTH_BONUS = 100;
-    private static final int CASTLE_BONUS = 60; // --> 6/10ths of a pawn
-    private static final StandardBoardEvaluator INSTANCE = new StandardBoardEvaluator();
+    static final int CHECK_BONUS = 50;
+    static final int CHECK_MATE_BONUS = 10000;
+    static final int DEPTH_BONUS = 100;
+    static final int CASTLE_BONUS = 60; // --> 6/10ths of a pawn
+    public static final int DEFAULT_LAZY_MARGIN = 300;
+    private static final int NO_LAZY_MARGIN = -1;
+    private static final Term[] TERMS = Term.values();
+    private static final Piece.PieceType[] PIECE_TYPES = Piece.PieceType.values();
+    private static final StandardBoardEvaluator INSTANCE =
+        new StandardBoardEvaluator(NO_LAZY_MARGIN, null, CHECK_BONUS, CASTLE_BONUS);
+
+    private final int lazyMargin;
+    // pawn .. queen, null --> the piece values the board's running total uses
+    private final int[] pieceValues;
+    private final int checkBonus;
+    private final int castleBonus;
+    private final LongAdder lazyProbes;
+    private final LongAdder lazySkips;
+    private final EvaluationProfile profile;
+
+    // the terms in the order they are added up, the cheap layer first
+    public enum Term
+    {
+        MATERIAL(true),
+        CHECK(true),
+        CHECKMATE(true),
+        CASTLED(true),
+        MOBILITY(false),
+        PAWN_STRUCTURE(false),
+        KING_SAFETY(false),
+        ROOK_STRUCTURE(false);
 
+        private final boolean cheap;
+
+        Term(final boolean cheap)
+        {
+            this.cheap = cheap;
+        }
+
+        public boolean isCheap()
+        {
+            return this.cheap;
+        }
+    }
+
+    // Constructor:
+    private StandardBoardEvaluator(final int lazyMargin,
+                                   final int[] pieceValues,
+                                   final int checkBonus,
+                                   final int castleBonus)
+    {
+        this.lazyMargin = lazyMargin;
+        this.pieceValues = pieceValues;
+        this.checkBonus = checkBonus;
+        this.castleBonus = castleBonus;
+        this.lazyProbes = new LongAdder();
+        this.lazySkips = new LongAdder();
+        final String[] termNames = new String[TERMS.length];
+        for(final Term term : TERMS)
+        {
+            termNames[term.ordinal()] = term.name();
+        }
+        this.profile = new EvaluationProfile(termNames);
+    }
+
+    // Methods:
     public static StandardBoardEvaluator get()
     {
         return INSTANCE;
     }
 
+    // a new evaluator that skips the positional layer when the cheap one is margin outside the window
+    public static StandardBoardEvaluator withLazyMargin(final int lazyMargin)
+    {
+        if(lazyMargin < 0)
+        {
+            throw new IllegalArgumentException("The lazy margin can not be negative");
+        }
+        return new StandardBoardEvaluator(lazyMargin, null, CHECK_BONUS, CASTLE_BONUS);
+    }
+
+    // a new evaluator with the scalar weights and the lazy margin of the parameters
+    public static StandardBoardEvaluator withParameters(final EvaluationParameters parameters)
+    {
+        final int lazyMargin = parameters.get(EvaluationParameters.LAZY_MARGIN);
+        if(lazyMargin < 0)
+        {
+            throw new IllegalArgumentException("The lazy margin can not be negative");
+        }
+        final int[] pieceValues = new int[Piece.PieceType.KING.ordinal()];
+        boolean standardValues = true;
+        for(int type = 0; type < pieceValues.length; type++)
+        {
+            pieceValues[type] = parameters.get(EvaluationParameters.pieceValueIndex(PIECE_TYPES[type]));
+            standardValues &= pieceValues[type] == PIECE_TYPES[type].getPieceValue();
+        }
+        return new StandardBoardEvaluator(lazyMargin, standardValues ? null : pieceValues,
+            parameters.get(EvaluationParameters.CHECK_BONUS), parameters.get(EvaluationParameters.CASTLE_BONUS));
+    }
+
     /*
     * When the evaluate function returns a value:
     *   + negative number means black has the advantage.
@@ -27,24 +145,175 @@ public class StandardBoardEvaluator implements BoardEvaluator
     public int evaluate(final Board board,
                         final int depth)
     {
-        return scorePlayer(board, board.whitePlayer(), depth) -
-               scorePlayer(board, board.blackPlayer(), depth);
+        return cheapScore(board, depth) + positionalScore(board);
     }
 
-    private int scorePlayer(final Board board,
-                            final Player player,
-                            final int depth)
+    @Override
+    public int evaluate(final Board board,
+                        final int depth,
+                        final int alpha,
+                        final int beta)
     {
-        return pieceValue(player) +
-               mobility(player) +
+        final int cheapScore = cheapScore(board, depth);
+        if(this.lazyMargin != NO_LAZY_MARGIN)
+        {
+            this.lazyProbes.increment();
+            if(cheapScore + this.lazyMargin <= alpha)
+            {
+                this.lazySkips.increment();
+                return cheapScore + this.lazyMargin;
+            }
+            if(cheapScore - this.lazyMargin >= beta)
+            {
+                this.lazySkips.increment();
+                return cheapScore - this.lazyMargin;
+            }
+        }
+        return cheapScore + positionalScore(board);
+    }
+
+    @Override
+    public boolean returnsBounds()
+    {
+        return this.lazyMargin != NO_LAZY_MARGIN;
+    }
+
+    @Override
+    public EvaluationTrace trace(final Board board,
+                                 final int depth)
+    {
+        final EvaluationTrace trace = new EvaluationTrace();
+        for(final Term term : TERMS)
+        {
+            trace.add(term.name(), termScore(term, board, board.whitePlayer(), depth),
+                                   termScore(term, board, board.blackPlayer(), depth));
+        }
+        return trace;
+    }
+
+    // nanoseconds per term, only filled in when EvaluationProfile.ENABLED
+    public EvaluationProfile getProfile()
+    {
+        return this.profile;
+    }
+
+    public int getLazyMargin()
+    {
+        return this.lazyMargin;
+    }
+
+    // calls through the window API, 0 without a lazy margin
+    public long getLazyProbes()
+    {
+        return this.lazyProbes.sum();
+    }
+
+    // calls through the window API that were answered by the cheap layer alone
+    public long getLazySkips()
+    {
+        return this.lazySkips.sum();
+    }
+
+    public double getLazySkipRate()
+    {
+        final long probes = getLazyProbes();
+        return probes == 0 ? 0.0 : getLazySkips() / (double) probes;
+    }
+
+    public void resetStats()
+    {
+        this.lazyProbes.reset();
+        this.lazySkips.reset();
+    }
+
+    public int cheapScore(final Board board,
+                          final int depth)
+    {
+        if(EvaluationProfile.ENABLED)
+        {
+            return profiledScore(board, depth, true);
+        }
+        return cheapScore(board, board.whitePlayer(), depth) -
+               cheapScore(board, board.blackPlayer(), depth);
+    }
+
+    public int positionalScore(final Board board)
+    {
+        if(EvaluationProfile.ENABLED)
+        {
+            return profiledScore(board, 0, false);
+        }
+        return positionalScore(board, board.whitePlayer()) -
+               positionalScore(board, board.blackPlayer());
+    }
+
+    // one layer term by term, with the clock running around each term
+    private int profiledScore(final Board board,
+                              final int depth,
+                              final boolean cheapLayer)
+    {
+        int score = 0;
+        for(final Term term : TERMS)
+        {
+            if(term.isCheap() == cheapLayer)
+            {
+                final long start = System.nanoTime();
+                score += termScore(term, board, board.whitePlayer(), depth) -
+                         termScore(term, board, board.blackPlayer(), depth);
+                this.profile.record(term.ordinal(), System.nanoTime() - start);
+            }
+        }
+        return score;
+    }
+
+    private int termScore(final Term term,
+                          final Board board,
+                          final Player player,
+                          final int depth)
+    {
+        switch(term)
+        {
+            case MATERIAL:
+                return pieceValue(board, player);
+            case CHECK:
+                return check(player);
+            case CHECKMATE:
+                return checkMate(player, depth);
+            case CASTLED:
+                return castled(player);
+            case MOBILITY:
+                return mobility(board, player);
+            case PAWN_STRUCTURE:
+                return pawnStructure(board, player);
+            case KING_SAFETY:
+                return kingSafety(board, player);
+            default:
+                return rookStructure(board, player);
+        }
+    }
+
+    private int cheapScore(final Board board,
+                           final Player player,
+                           final int depth)
+    {
+        return pieceValue(board, player) +
                check(player) +
                checkMate(player, depth) +
                castled(player);
     }
 
-    private static int castled(Player player)
+    private static int positionalScore(final Board board,
+                                       final Player player)
+    {
+        return mobility(board, player) +
+               pawnStructure(board, player) +
+               kingSafety(board, player) +
+               rookStructure(board, player);
+    }
+
+    private int castled(Player player)
     {
-        return player.isCastled() ? CASTLE_BONUS : 0;
+        return player.isCastled() ? this.castleBonus : 0;
     }
 
     private static int checkMate(Player player, int depth)
@@ -57,26 +326,55 @@ public class StandardBoardEvaluator implements BoardEvaluator
         return depth == 0 ? 1 : DEPTH_BONUS * depth;
     }
 
-    private static int check(Player player)
+    private int check(Player player)
     {
-        return player.getOpponent().isInCheck() ? CHECK_BONUS : 0;
+        return player.getOpponent().isInCheck() ? this.checkBonus : 0;
     }
 
-    // How many options does a player have?
-    private static int mobility(Player player)
+    // doubled, isolated and passed pawns, cached by pawn skeleton
+    private static int pawnStructure(final Board board,
+                                     final Player player)
     {
-        return player.getLegalMoves().size();
+        return PawnStructureAnalyzer.get().pawnStructureScore(board, player);
     }
 
-    private static int pieceValue(final Player player)
+    // attackers around the king and the pawns in front of it, cached by position
+    private static int kingSafety(final Board board,
+                                  final Player player)
     {
-        int pieceValueScore = 0;
-        for(final Piece piece : player.getActivePieces())
+        return KingSafetyAnalyzer.get().kingSafetyScore(board, player);
+    }
+
+    // rooks on open files, on the seventh and defending each other
+    private static int rookStructure(final Board board,
+                                     final Player player)
+    {
+        return RookStructureAnalyzer.get().rookStructureScore(board, player);
+    }
+
+    // How many options does a player have? Counted from attack sets, no move generation needed
+    private static int mobility(final Board board,
+                                final Player player)
+    {
+        return MobilityAnalyzer.get().mobilityScore(board, player);
+    }
+
+    // the board keeps a running material total, tuned piece values go by the counts in the signature
+    private int pieceValue(final Board board,
+                           final Player player)
+    {
+        final Alliance alliance = player.getAlliance();
+        if(this.pieceValues == null)
         {
-            pieceValueScore += piece.getPieceValue();
+            return board.getEvaluationState().getMaterial(alliance);
         }
-
-        return pieceValueScore;
+        final long signature = board.getEvaluationState().getMaterialSignature();
+        int material = Piece.PieceType.KING.getPieceValue();
+        for(int type = 0; type < this.pieceValues.length; type++)
+        {
+            material += MaterialSignature.count(signature, PIECE_TYPES[type], alliance) * this.pieceValues[type];
+        }
+        return material;
     }
 
 }
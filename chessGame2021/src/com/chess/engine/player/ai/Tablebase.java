@@ -0,0 +1,318 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.MaterialSignature;
+import com.chess.engine.pieces.Piece;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+* Endgame tablebases for every ending with up to 4 pieces, kings included: win, draw or loss and the
+* distance to mate of each position. TablebaseGenerator writes the files, this class reads them.
+*
+* Notes:
+*   + One file per ending, named after its material with the stronger side as white: "KQK.ctb",
+*     "KRKB.ctb". A position with the colours the other way round ("KKQ") is looked up in the mirror
+*     image, the colours swapped and the board turned around, and the side to move with them.
+*   + The files are memory mapped (FileChannel.map) and never copied onto the heap. A probe is one
+*     read of one byte out of the page cache, several search threads can probe at the same time.
+*   + probe(board) scores from the side to moves point of view, like the search: WIN_SCORE - plies to
+*     mate for a win, the negative for a loss, DRAW, or NOT_FOUND when there is no table. Shorter mates
+*     score higher, so the search walks straight into the mate. WIN_SCORE is below the checkmate score
+*     of the evaluators and above their KNOWN_WIN, see EndgameRegistry.
+*   + What the tables do not know about: castling (no castling rights in these endings in practice),
+*     en passant (a position where it might be possible is not probed) and the 50 move rule. Pawns
+*     always promote to a queen, the only promotion the engine plays.
+*   + File format, big endian: int magic 'CHTB', int version, long material signature, int number of
+*     entries, then one byte per position, see TablebaseIndex for the index and the byte values.
+*   + getDefault() opens the directory named by -Dchess.tablebase.dir, null when that is not set.
+* */
+public final class Tablebase
+{
+    // Members:
+    public static final int MAGIC = 0x43485442; // "CHTB"
+    public static final int VERSION = 1;
+    public static final String FILE_EXTENSION = ".ctb";
+    public static final int MAX_PIECES = 4;
+    public static final int WIN_SCORE = 9000;
+    public static final int DRAW = 0;
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+    static final int NO_TABLE = -1;
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int TABLE_BITS = 7;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final long EMPTY = -1L;
+    private static final int RANK_MIRROR = BoardUtils.NUM_TILES - BoardUtils.NUM_TILES_PER_ROW;
+
+    private final long[] signatures;
+    private final Table[] tables;
+    private final List<String> names;
+
+    private static final class Table
+    {
+        private final TablebaseIndex index;
+        private final MappedByteBuffer entries;
+
+        private Table(final TablebaseIndex index,
+                      final MappedByteBuffer entries)
+        {
+            this.index = index;
+            this.entries = entries;
+        }
+    }
+
+    private static final class DefaultHolder
+    {
+        private static final Tablebase INSTANCE = openDefault();
+    }
+
+    // Constructor:
+    Tablebase()
+    {
+        this.signatures = new long[TABLE_SIZE];
+        this.tables = new Table[TABLE_SIZE];
+        this.names = new ArrayList<>();
+        Arrays.fill(this.signatures, EMPTY);
+    }
+
+    // Methods:
+    // maps every table file in the directory
+    public static Tablebase open(final Path directory) throws IOException
+    {
+        final Tablebase tablebase = new Tablebase();
+        try(final DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION))
+        {
+            for(final Path file : files)
+            {
+                tablebase.load(file);
+            }
+        }
+        return tablebase;
+    }
+
+    // the tables in -Dchess.tablebase.dir, null when there are none
+    public static Tablebase getDefault()
+    {
+        return DefaultHolder.INSTANCE;
+    }
+
+    // "KQKR": the file name of the ending, the stronger side as white
+    public static String canonicalName(final long signature)
+    {
+        return MaterialSignature.toString(Math.min(signature, MaterialSignature.mirror(signature)));
+    }
+
+    public static Path fileOf(final Path directory,
+                              final String name)
+    {
+        return directory.resolve(name + FILE_EXTENSION);
+    }
+
+    public int size()
+    {
+        return this.names.size();
+    }
+
+    public List<String> getNames()
+    {
+        return Collections.unmodifiableList(this.names);
+    }
+
+    public boolean contains(final long signature)
+    {
+        return find(signature) != null || find(MaterialSignature.mirror(signature)) != null;
+    }
+
+    /*
+    * The score of the position from the side to moves point of view, NOT_FOUND when there is no table
+    * for it.
+    * */
+    public int probe(final Board board)
+    {
+        if(board.getWhitePieces().size() + board.getBlackPieces().size() > MAX_PIECES)
+        {
+            return NOT_FOUND;
+        }
+        final long signature = board.getEvaluationState().getMaterialSignature();
+        final Alliance toMove = board.currentPlayer().getAlliance();
+        // the tables know nothing about en passant captures
+        if(board.getEnPassantPawn() != null && MaterialSignature.count(signature, Piece.PieceType.PAWN, toMove) > 0)
+        {
+            return NOT_FOUND;
+        }
+        final Piece.PieceType[] types = new Piece.PieceType[MAX_PIECES];
+        final Alliance[] alliances = new Alliance[MAX_PIECES];
+        final int[] squares = new int[MAX_PIECES];
+        int numPieces = 0;
+        for(final Piece piece : board.getAllPieces())
+        {
+            types[numPieces] = piece.getPieceType();
+            alliances[numPieces] = piece.getPieceAllegiance();
+            squares[numPieces] = piece.getPiecePosition();
+            numPieces++;
+        }
+        final int code = probeCode(signature, types, alliances, squares, numPieces, toMove.isWhite());
+        return code == NO_TABLE ? NOT_FOUND : score(code);
+    }
+
+    // the search score of a table entry
+    static int score(final int code)
+    {
+        if(code == TablebaseIndex.DRAW)
+        {
+            return DRAW;
+        }
+        final int distance = code - 1;
+        return distance % 2 == 1 ? WIN_SCORE - distance : -(WIN_SCORE - distance);
+    }
+
+    /*
+    * The raw table entry of a position given as loose pieces, NO_TABLE when there is no table for it.
+    * The lone kings are a draw without a table. The arrays are changed.
+    * */
+    int probeCode(final long signature,
+                  final Piece.PieceType[] types,
+                  final Alliance[] alliances,
+                  final int[] squares,
+                  final int numPieces,
+                  final boolean whiteToMove)
+    {
+        if(signature == 0L)
+        {
+            return TablebaseIndex.DRAW;
+        }
+        boolean toMove = whiteToMove;
+        Table table = find(signature);
+        if(table == null)
+        {
+            table = find(MaterialSignature.mirror(signature));
+            if(table == null)
+            {
+                return NO_TABLE;
+            }
+            for(int i = 0; i < numPieces; i++)
+            {
+                alliances[i] = alliances[i].getOpposite();
+                squares[i] ^= RANK_MIRROR;
+            }
+            toMove = !toMove;
+        }
+        final int[] slotSquares = new int[numPieces];
+        if(!table.index.assignSlots(types, alliances, squares, numPieces, slotSquares))
+        {
+            return NO_TABLE;
+        }
+        return table.entries.get(HEADER_SIZE + table.index.index(slotSquares, toMove)) & 0xFF;
+    }
+
+    // maps one table file, TablebaseGenerator adds each table here as soon as it is written
+    void load(final Path file) throws IOException
+    {
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            {
+                throw new IOException("Not a tablebase file: " + file);
+            }
+            final int version = buffer.getInt(Integer.BYTES);
+            if(version != VERSION)
+            {
+                throw new IOException("Unsupported tablebase version " + version + ": " + file);
+            }
+            final long signature = buffer.getLong(2 * Integer.BYTES);
+            final TablebaseIndex index = new TablebaseIndex(canonicalName(signature));
+            if(index.getSignature() != signature || index.getNumSlots() > MAX_PIECES ||
+               buffer.getInt(2 * Integer.BYTES + Long.BYTES) != index.getSize() ||
+               buffer.capacity() != HEADER_SIZE + index.getSize())
+            {
+                throw new IOException("Corrupt tablebase file: " + file);
+            }
+            if(find(signature) == null)
+            {
+                if(this.names.size() >= TABLE_SIZE / 2)
+                {
+                    throw new IOException("Too many tablebase files");
+                }
+                int slot = slot(signature);
+                while(this.signatures[slot] != EMPTY)
+                {
+                    slot = (slot + 1) & (TABLE_SIZE - 1);
+                }
+                this.signatures[slot] = signature;
+                this.tables[slot] = new Table(index, buffer);
+                this.names.add(index.getName());
+            }
+        }
+    }
+
+    static void write(final Path file,
+                      final TablebaseIndex index,
+                      final byte[] entries) throws IOException
+    {
+        try(final OutputStream outputStream = Files.newOutputStream(file))
+        {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(index.getSignature());
+            out.writeInt(entries.length);
+            out.write(entries);
+            out.flush();
+        }
+    }
+
+    private Table find(final long signature)
+    {
+        for(int slot = slot(signature); this.signatures[slot] != EMPTY; slot = (slot + 1) & (TABLE_SIZE - 1))
+        {
+            if(this.signatures[slot] == signature)
+            {
+                return this.tables[slot];
+            }
+        }
+        return null;
+    }
+
+    private static int slot(final long signature)
+    {
+        return (int) ((signature * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - TABLE_BITS));
+    }
+
+    private static Tablebase openDefault()
+    {
+        final String directory = System.getProperty("chess.tablebase.dir");
+        if(directory == null)
+        {
+            return null;
+        }
+        try
+        {
+            final Tablebase tablebase = open(Paths.get(directory));
+            return tablebase.size() > 0 ? tablebase : null;
+        }
+        catch(final IOException e)
+        {
+            System.err.println("Could not open the tablebases in " + directory + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,736 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.AttackInfo;
+import com.chess.engine.board.Bitboards;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.MaterialSignature;
+import com.chess.engine.pieces.Piece;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+* Builds the endgame tablebases Tablebase reads by retrograde analysis, right here on this machine.
+*
+* Notes:
+*   + Usage: TablebaseGenerator <directory> [KQK KRKB ...], without names every ending with 3 or 4
+*     pieces (35 tables). The endings a table falls into after a capture or a promotion are built
+*     first, asking for "KQKR" also builds KQK and KRK.
+*   + Retrograde analysis, one table at a time:
+*       ++ every position gets its legal moves generated once. Moves staying in the table are counted,
+*          captures and promotions leave it and are looked up in the tables built before (memory mapped,
+*          see Tablebase). Those exits already tell whether the side to move can win, draw or lose.
+*       ++ then level by level, level p = mate in p plies: a position wins at p when one of its moves
+*          reaches a position lost at p - 1, and loses at p when every move reaches a won position and
+*          the longest of those wins is p - 1. Positions newly decided at p are walked backwards
+*          (un-moves) to update the move counters of their predecessors.
+*       ++ whatever is not decided when the levels run dry is a draw.
+*   + Each position keeps its counter, its best win level, its worst loss level and whether it has a
+*     drawing exit packed in one int of an AtomicIntegerArray, so the un-move step can run on all threads.
+*   + All three passes (moves, scan, un-moves) are split over index ranges on a ForkJoinPool.
+*   + Memory: the largest tables (one pawn, 4 pieces) have 16.8M positions --> 84MB while they are built.
+* */
+public final class TablebaseGenerator implements AutoCloseable
+{
+    // Members:
+    private static final int NO_LEVEL = 0xFF;
+    private static final int COUNT_MASK = 0xFF;
+    private static final int WIN_SHIFT = 8;
+    private static final int LOSS_SHIFT = 16;
+    private static final int DRAW_EXIT = 1 << 24;
+    private static final int SPLIT_SIZE = 1 << 14;
+    private static final int NUM_TILES = BoardUtils.NUM_TILES;
+    private static final int ROW = BoardUtils.NUM_TILES_PER_ROW;
+
+    private final Path directory;
+    private final ForkJoinPool pool;
+    private final Tablebase tablebase;
+    private final Map<String, Integer> longestMates;
+
+    @FunctionalInterface
+    private interface RangeBody
+    {
+        void run(int from,
+                 int to);
+    }
+
+    // splits [from, to) in halves until the pieces are small enough to run
+    private static final class RangeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final RangeBody body;
+
+        private RangeTask(final int from,
+                          final int to,
+                          final RangeBody body)
+        {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(this.to - this.from <= SPLIT_SIZE)
+            {
+                this.body.run(this.from, this.to);
+                return;
+            }
+            final int middle = (this.from + this.to) >>> 1;
+            invokeAll(new RangeTask(this.from, middle, this.body), new RangeTask(middle, this.to, this.body));
+        }
+    }
+
+    // Constructor:
+    public TablebaseGenerator(final Path directory,
+                              final int numThreads)
+    {
+        this.directory = directory;
+        this.pool = new ForkJoinPool(numThreads, pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("tablebase-generator-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        this.tablebase = new Tablebase();
+        this.longestMates = new LinkedHashMap<>();
+    }
+
+    // Methods:
+    public static void main(final String[] args) throws IOException
+    {
+        if(args.length == 0)
+        {
+            System.err.println("Usage: TablebaseGenerator <directory> [KQK KRKB ...]");
+            return;
+        }
+        final List<String> names = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : allNames();
+        try(final TablebaseGenerator generator = new TablebaseGenerator(Paths.get(args[0]),
+            Runtime.getRuntime().availableProcessors()))
+        {
+            generator.generate(names);
+        }
+    }
+
+    // every ending with 3 or 4 pieces, in the order they have to be built
+    public static List<String> allNames()
+    {
+        final TreeSet<Long> signatures = new TreeSet<>();
+        final List<Long> units = new ArrayList<>();
+        for(final Alliance alliance : Alliance.values())
+        {
+            for(final Piece.PieceType pieceType : Piece.PieceType.values())
+            {
+                if(!pieceType.isKing())
+                {
+                    units.add(MaterialSignature.unit(pieceType, alliance));
+                }
+            }
+        }
+        for(int first = 0; first < units.size(); first++)
+        {
+            signatures.add(canonical(units.get(first)));
+            for(int second = first; second < units.size(); second++)
+            {
+                signatures.add(canonical(units.get(first) + units.get(second)));
+            }
+        }
+        return sortedNames(signatures);
+    }
+
+    /*
+    * Builds the tables, and the ones they depend on, into the directory. Returns them all mapped and
+    * ready to probe.
+    * */
+    public Tablebase generate(final Collection<String> names) throws IOException
+    {
+        Files.createDirectories(this.directory);
+        final TreeSet<Long> needed = new TreeSet<>();
+        final Deque<Long> open = new ArrayDeque<>();
+        for(final String name : names)
+        {
+            final long signature = MaterialSignature.of(name);
+            final int numPieces = 2 + countPieces(signature);
+            if(signature == 0L || numPieces > Tablebase.MAX_PIECES)
+            {
+                throw new IllegalArgumentException("No tablebase for " + name);
+            }
+            open.push(canonical(signature));
+        }
+        while(!open.isEmpty())
+        {
+            final long signature = open.pop();
+            if(signature != 0L && needed.add(signature))
+            {
+                open.addAll(successorEndings(signature));
+            }
+        }
+        for(final String name : sortedNames(needed))
+        {
+            if(!this.tablebase.contains(MaterialSignature.of(name)))
+            {
+                generateTable(new TablebaseIndex(name));
+            }
+        }
+        return this.tablebase;
+    }
+
+    // the longest win in plies of a table built by this generator, -1 for tables it did not build
+    public int getLongestMate(final String name)
+    {
+        return this.longestMates.getOrDefault(name, -1);
+    }
+
+    @Override
+    public void close()
+    {
+        this.pool.shutdown();
+    }
+
+    private void generateTable(final TablebaseIndex index) throws IOException
+    {
+        final long startTime = System.currentTimeMillis();
+        final Generation generation = new Generation(index);
+        this.pool.invoke(new RangeTask(0, index.getSize(), generation::initialize));
+        int level = 0;
+        // the longest win for the side to move, the longest losses are one ply longer
+        int longestMate = -1;
+        while(true)
+        {
+            if(level > TablebaseIndex.MAX_DISTANCE)
+            {
+                throw new IllegalStateException(index + ": mates longer than " + TablebaseIndex.MAX_DISTANCE + " plies");
+            }
+            generation.resolved.reset();
+            final int scanLevel = level;
+            this.pool.invoke(new RangeTask(0, index.getSize(), (from, to) -> generation.scan(from, to, scanLevel)));
+            if(generation.resolved.sum() == 0 && level > generation.maxSeed.get())
+            {
+                break;
+            }
+            if(generation.resolved.sum() > 0 && level % 2 == 1)
+            {
+                longestMate = level;
+            }
+            this.pool.invoke(new RangeTask(0, index.getSize(), (from, to) -> generation.propagate(from, to, scanLevel)));
+            level++;
+        }
+        this.pool.invoke(new RangeTask(0, index.getSize(), generation::finish));
+
+        final Path file = Tablebase.fileOf(this.directory, index.getName());
+        Tablebase.write(file, index, generation.results);
+        this.tablebase.load(file);
+        this.longestMates.put(index.getName(), longestMate);
+        System.out.println(index + ": " + index.getSize() + " positions, longest mate " + longestMate +
+            " plies, " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /*
+    * The working state of the table being built.
+    * */
+    private final class Generation
+    {
+        private final TablebaseIndex index;
+        private final int numSlots;
+        private final byte[] results;
+        private final AtomicIntegerArray states;
+        // the highest level a capture or promotion exit decides, the levels must not stop before that
+        private final LongAccumulator maxSeed;
+        private final LongAdder resolved;
+
+        private Generation(final TablebaseIndex index)
+        {
+            this.index = index;
+            this.numSlots = index.getNumSlots();
+            this.results = new byte[index.getSize()];
+            this.states = new AtomicIntegerArray(index.getSize());
+            this.maxSeed = new LongAccumulator(Math::max, 0L);
+            this.resolved = new LongAdder();
+        }
+
+        // validity, move counters and exits of every position
+        private void initialize(final int from,
+                                final int to)
+        {
+            final int[] squares = new int[this.numSlots];
+            final int[] moved = new int[this.numSlots];
+            final Piece.PieceType[] exitTypes = new Piece.PieceType[this.numSlots];
+            final Alliance[] exitAlliances = new Alliance[this.numSlots];
+            final int[] exitSquares = new int[this.numSlots];
+            for(int position = from; position < to; position++)
+            {
+                final boolean whiteToMove = this.index.decode(position, squares);
+                if(!isValid(squares, whiteToMove))
+                {
+                    this.results[position] = (byte) TablebaseIndex.ILLEGAL;
+                    continue;
+                }
+                final Alliance toMove = whiteToMove ? Alliance.WHITE : Alliance.BLACK;
+                final long occupied = occupied(squares);
+                int quietMoves = 0;
+                int winLevel = NO_LEVEL;
+                int lossLevel = 0;
+                boolean drawExit = false;
+                boolean anyMove = false;
+                for(int slot = 0; slot < this.numSlots; slot++)
+                {
+                    if(this.index.getAlliance(slot) != toMove)
+                    {
+                        continue;
+                    }
+                    final Piece.PieceType pieceType = this.index.getType(slot);
+                    long targets = targets(pieceType, toMove, squares[slot], squares, occupied);
+                    while(targets != 0L)
+                    {
+                        final int target = Long.numberOfTrailingZeros(targets);
+                        targets &= targets - 1;
+                        System.arraycopy(squares, 0, moved, 0, this.numSlots);
+                        moved[slot] = target;
+                        final int captured = slotOn(squares, target, slot);
+                        if(captured >= 0)
+                        {
+                            moved[captured] = -1;
+                        }
+                        if(isAttacked(moved, kingSlot(toMove), toMove.getOpposite()))
+                        {
+                            continue;
+                        }
+                        anyMove = true;
+                        final boolean promotion = pieceType == Piece.PieceType.PAWN && isPromotionSquare(target);
+                        if(captured < 0 && !promotion)
+                        {
+                            quietMoves++;
+                            continue;
+                        }
+                        final int code = probeExit(moved, slot, captured, promotion, !whiteToMove,
+                            exitTypes, exitAlliances, exitSquares);
+                        if(code == TablebaseIndex.DRAW)
+                        {
+                            drawExit = true;
+                            continue;
+                        }
+                        final int level = code;
+                        this.maxSeed.accumulate(level);
+                        if((code - 1) % 2 == 0)
+                        {
+                            winLevel = Math.min(winLevel, level);
+                        }
+                        else
+                        {
+                            lossLevel = Math.max(lossLevel, level);
+                        }
+                    }
+                }
+                if(!anyMove && !isAttacked(squares, kingSlot(toMove), toMove.getOpposite()))
+                {
+                    // stalemate
+                    this.results[position] = (byte) TablebaseIndex.DRAW;
+                    continue;
+                }
+                this.results[position] = (byte) TablebaseIndex.UNKNOWN;
+                this.states.set(position, quietMoves | winLevel << WIN_SHIFT | lossLevel << LOSS_SHIFT |
+                    (drawExit ? DRAW_EXIT : 0));
+            }
+        }
+
+        // decides the positions won or lost at exactly this level
+        private void scan(final int from,
+                          final int to,
+                          final int level)
+        {
+            int resolved = 0;
+            for(int position = from; position < to; position++)
+            {
+                if((this.results[position] & 0xFF) != TablebaseIndex.UNKNOWN)
+                {
+                    continue;
+                }
+                final int state = this.states.get(position);
+                final int winLevel = state >>> WIN_SHIFT & 0xFF;
+                final boolean lost = winLevel == NO_LEVEL && (state & DRAW_EXIT) == 0 &&
+                                     (state & COUNT_MASK) == 0 && (state >>> LOSS_SHIFT & 0xFF) == level;
+                if(winLevel == level || lost)
+                {
+                    this.results[position] = (byte) (level + 1);
+                    resolved++;
+                }
+            }
+            this.resolved.add(resolved);
+        }
+
+        // tells the predecessors of the positions decided at this level about them
+        private void propagate(final int from,
+                               final int to,
+                               final int level)
+        {
+            final int[] squares = new int[this.numSlots];
+            final int[] previous = new int[this.numSlots];
+            final boolean lost = level % 2 == 0;
+            for(int position = from; position < to; position++)
+            {
+                if((this.results[position] & 0xFF) != level + 1)
+                {
+                    continue;
+                }
+                final boolean whiteToMove = this.index.decode(position, squares);
+                // the side that is not to move made the last move
+                final Alliance mover = whiteToMove ? Alliance.BLACK : Alliance.WHITE;
+                final long occupied = occupied(squares);
+                for(int slot = 0; slot < this.numSlots; slot++)
+                {
+                    if(this.index.getAlliance(slot) != mover)
+                    {
+                        continue;
+                    }
+                    long origins = origins(this.index.getType(slot), mover, squares[slot], occupied);
+                    while(origins != 0L)
+                    {
+                        final int origin = Long.numberOfTrailingZeros(origins);
+                        origins &= origins - 1;
+                        System.arraycopy(squares, 0, previous, 0, this.numSlots);
+                        previous[slot] = origin;
+                        final int predecessor = this.index.index(previous, !whiteToMove);
+                        if((this.results[predecessor] & 0xFF) != TablebaseIndex.UNKNOWN)
+                        {
+                            continue;
+                        }
+                        if(lost)
+                        {
+                            lowerWinLevel(predecessor, level + 1);
+                        }
+                        else
+                        {
+                            countWin(predecessor, level + 1);
+                        }
+                    }
+                }
+            }
+        }
+
+        // nothing left to decide --> a draw
+        private void finish(final int from,
+                            final int to)
+        {
+            for(int position = from; position < to; position++)
+            {
+                if((this.results[position] & 0xFF) == TablebaseIndex.UNKNOWN)
+                {
+                    this.results[position] = (byte) TablebaseIndex.DRAW;
+                }
+            }
+        }
+
+        private void lowerWinLevel(final int position,
+                                   final int level)
+        {
+            while(true)
+            {
+                final int state = this.states.get(position);
+                if((state >>> WIN_SHIFT & 0xFF) <= level)
+                {
+                    return;
+                }
+                final int updated = state & ~(0xFF << WIN_SHIFT) | level << WIN_SHIFT;
+                if(this.states.compareAndSet(position, state, updated))
+                {
+                    return;
+                }
+            }
+        }
+
+        private void countWin(final int position,
+                              final int level)
+        {
+            while(true)
+            {
+                final int state = this.states.get(position);
+                final int lossLevel = Math.max(state >>> LOSS_SHIFT & 0xFF, level);
+                final int updated = (state & ~(0xFF << LOSS_SHIFT) | lossLevel << LOSS_SHIFT) - 1;
+                if(this.states.compareAndSet(position, state, updated))
+                {
+                    return;
+                }
+            }
+        }
+
+        /*
+        * The table entry a capture or promotion leads to, from the point of view of the side to move
+        * after it.
+        * */
+        private int probeExit(final int[] moved,
+                              final int movedSlot,
+                              final int captured,
+                              final boolean promotion,
+                              final boolean whiteToMove,
+                              final Piece.PieceType[] types,
+                              final Alliance[] alliances,
+                              final int[] squares)
+        {
+            long signature = this.index.getSignature();
+            if(captured >= 0)
+            {
+                signature -= MaterialSignature.unit(this.index.getType(captured), this.index.getAlliance(captured));
+            }
+            int numPieces = 0;
+            for(int slot = 0; slot < this.numSlots; slot++)
+            {
+                if(moved[slot] < 0)
+                {
+                    continue;
+                }
+                types[numPieces] = this.index.getType(slot);
+                alliances[numPieces] = this.index.getAlliance(slot);
+                squares[numPieces] = moved[slot];
+                if(promotion && slot == movedSlot)
+                {
+                    types[numPieces] = Piece.PieceType.QUEEN;
+                    signature += MaterialSignature.unit(Piece.PieceType.QUEEN, alliances[numPieces]) -
+                                 MaterialSignature.unit(Piece.PieceType.PAWN, alliances[numPieces]);
+                }
+                numPieces++;
+            }
+            final int code = TablebaseGenerator.this.tablebase.probeCode(signature, types, alliances, squares,
+                numPieces, whiteToMove);
+            if(code == Tablebase.NO_TABLE)
+            {
+                throw new IllegalStateException(this.index + " needs " + Tablebase.canonicalName(signature));
+            }
+            return code;
+        }
+
+        // both kings on the board, no pawn on the first or last row, the side not to move not in check
+        private boolean isValid(final int[] squares,
+                                final boolean whiteToMove)
+        {
+            if(!this.index.isCanonical(squares))
+            {
+                return false;
+            }
+            for(int slot = 0; slot < this.numSlots; slot++)
+            {
+                if(this.index.getType(slot) == Piece.PieceType.PAWN && isPromotionSquare(squares[slot]))
+                {
+                    return false;
+                }
+                for(int other = slot + 1; other < this.numSlots; other++)
+                {
+                    if(squares[slot] == squares[other])
+                    {
+                        return false;
+                    }
+                }
+            }
+            final Alliance notToMove = whiteToMove ? Alliance.BLACK : Alliance.WHITE;
+            return !isAttacked(squares, kingSlot(notToMove), notToMove.getOpposite());
+        }
+
+        // where the piece can go: empty squares and enemy pieces other than the king
+        private long targets(final Piece.PieceType pieceType,
+                             final Alliance alliance,
+                             final int square,
+                             final int[] squares,
+                             final long occupied)
+        {
+            long own = 0L;
+            long enemyKing = 0L;
+            for(int slot = 0; slot < this.numSlots; slot++)
+            {
+                if(this.index.getAlliance(slot) == alliance)
+                {
+                    own |= Bitboards.squareMask(squares[slot]);
+                }
+                else if(this.index.getType(slot).isKing())
+                {
+                    enemyKing = Bitboards.squareMask(squares[slot]);
+                }
+            }
+            final long enemies = occupied & ~own & ~enemyKing;
+            if(pieceType != Piece.PieceType.PAWN)
+            {
+                return AttackInfo.attacksFrom(pieceType, alliance, square, occupied) & ~own & ~enemyKing;
+            }
+            final int direction = alliance.getDirection() * ROW;
+            long targets = Bitboards.pawnAttacks(alliance, square) & enemies;
+            final int single = square + direction;
+            if((occupied & Bitboards.squareMask(single)) == 0L)
+            {
+                targets |= Bitboards.squareMask(single);
+                final int row = Bitboards.rowOf(square);
+                final int startRow = alliance.isWhite() ? ROW - 2 : 1;
+                if(row == startRow && (occupied & Bitboards.squareMask(single + direction)) == 0L)
+                {
+                    targets |= Bitboards.squareMask(single + direction);
+                }
+            }
+            return targets;
+        }
+
+        // where the piece can have come from without capturing anything
+        private long origins(final Piece.PieceType pieceType,
+                             final Alliance alliance,
+                             final int square,
+                             final long occupied)
+        {
+            if(pieceType != Piece.PieceType.PAWN)
+            {
+                return AttackInfo.attacksFrom(pieceType, alliance, square, occupied) & ~occupied;
+            }
+            final int direction = alliance.getDirection() * ROW;
+            final int single = square - direction;
+            if(single < 0 || single >= NUM_TILES || isPromotionSquare(single) ||
+               (occupied & Bitboards.squareMask(single)) != 0L)
+            {
+                return 0L;
+            }
+            long origins = Bitboards.squareMask(single);
+            final int startRow = alliance.isWhite() ? ROW - 2 : 1;
+            final int doubleOrigin = single - direction;
+            if(Bitboards.rowOf(square) == startRow + 2 * alliance.getDirection() &&
+               (occupied & Bitboards.squareMask(doubleOrigin)) == 0L)
+            {
+                origins |= Bitboards.squareMask(doubleOrigin);
+            }
+            return origins;
+        }
+
+        // is the king in the slot attacked by the pieces of the alliance, removed pieces are on -1
+        private boolean isAttacked(final int[] squares,
+                                   final int kingSlot,
+                                   final Alliance attacker)
+        {
+            final long occupied = occupied(squares);
+            final long king = Bitboards.squareMask(squares[kingSlot]);
+            for(int slot = 0; slot < this.numSlots; slot++)
+            {
+                if(squares[slot] >= 0 && this.index.getAlliance(slot) == attacker &&
+                   (AttackInfo.attacksFrom(this.index.getType(slot), attacker, squares[slot], occupied) & king) != 0L)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int slotOn(final int[] squares,
+                           final int square,
+                           final int except)
+        {
+            for(int slot = 0; slot < this.numSlots; slot++)
+            {
+                if(slot != except && squares[slot] == square)
+                {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private long occupied(final int[] squares)
+        {
+            long occupied = 0L;
+            for(int slot = 0; slot < this.numSlots; slot++)
+            {
+                if(squares[slot] >= 0)
+                {
+                    occupied |= Bitboards.squareMask(squares[slot]);
+                }
+            }
+            return occupied;
+        }
+    }
+
+    private static int kingSlot(final Alliance alliance)
+    {
+        return alliance.isWhite() ? 0 : 1;
+    }
+
+    private static boolean isPromotionSquare(final int square)
+    {
+        final int row = Bitboards.rowOf(square);
+        return row == 0 || row == ROW - 1;
+    }
+
+    private static long canonical(final long signature)
+    {
+        return Math.min(signature, MaterialSignature.mirror(signature));
+    }
+
+    private static int countPieces(final long signature)
+    {
+        int count = 0;
+        for(final Alliance alliance : Alliance.values())
+        {
+            for(final Piece.PieceType pieceType : Piece.PieceType.values())
+            {
+                if(!pieceType.isKing())
+                {
+                    count += MaterialSignature.count(signature, pieceType, alliance);
+                }
+            }
+        }
+        return count;
+    }
+
+    // the endings a capture or a promotion leads to
+    private static List<Long> successorEndings(final long signature)
+    {
+        final List<Long> endings = new ArrayList<>();
+        for(final Alliance alliance : Alliance.values())
+        {
+            for(final Piece.PieceType pieceType : Piece.PieceType.values())
+            {
+                if(pieceType.isKing() || MaterialSignature.count(signature, pieceType, alliance) == 0)
+                {
+                    continue;
+                }
+                endings.add(canonical(signature - MaterialSignature.unit(pieceType, alliance)));
+                if(pieceType == Piece.PieceType.PAWN)
+                {
+                    endings.add(canonical(signature - MaterialSignature.unit(pieceType, alliance) +
+                        MaterialSignature.unit(Piece.PieceType.QUEEN, alliance)));
+                }
+            }
+        }
+        return endings;
+    }
+
+    // fewer pieces first, then fewer pawns: every table only depends on tables earlier in the list
+    private static List<String> sortedNames(final Collection<Long> signatures)
+    {
+        final List<Long> sorted = new ArrayList<>(signatures);
+        sorted.sort(Comparator.<Long>comparingInt(TablebaseGenerator::countPieces)
+            .thenComparingInt(signature -> MaterialSignature.count(signature, Piece.PieceType.PAWN, Alliance.WHITE) +
+                                           MaterialSignature.count(signature, Piece.PieceType.PAWN, Alliance.BLACK))
+            .thenComparing(MaterialSignature::toString));
+        final List<String> names = new ArrayList<>();
+        for(final long signature : sorted)
+        {
+            names.add(MaterialSignature.toString(signature));
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,210 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.MaterialSignature;
+import com.chess.engine.pieces.Piece;
+
+/*
+* How the positions of one endgame table ("KQKR") are numbered, shared by TablebaseGenerator and
+* Tablebase.
+*
+* Notes:
+*   + Every piece has a slot: 0 the white king, 1 the black king, then the other white pieces in the
+*     order of the name, then the black ones. The index is
+*         ((king region square * 64 + black king) * 64 + slot 2) * 64 ... * 2 + side to move
+*   + Symmetry: the board is mirrored so that the white king stands on files a-d, and without pawns
+*     also on rows 0-3. Those mirrorings never map a square onto itself, so no position is its own
+*     mirror image and every position has exactly one index (TablebaseGenerator counts moves and relies
+*     on that). Pawns only move one way, tables with pawns only mirror the files.
+*   + Two pieces of the same kind and colour are kept in square order, the other order is never used.
+*   + Entries are one byte: DRAW, ILLEGAL or distance to mate in plies + 1. An odd distance means the
+*     side to move mates, an even one that it gets mated (0 --> it is checkmated right now).
+* */
+final class TablebaseIndex
+{
+    // Members:
+    static final int DRAW = 0;
+    static final int UNKNOWN = 254;
+    static final int ILLEGAL = 255;
+    static final int MAX_DISTANCE = UNKNOWN - 2;
+
+    private static final int FILE_MIRROR = BoardUtils.NUM_TILES_PER_ROW - 1;
+    private static final int RANK_MIRROR = BoardUtils.NUM_TILES - BoardUtils.NUM_TILES_PER_ROW;
+    private static final int REGION_FILES = BoardUtils.NUM_TILES_PER_ROW / 2;
+    private static final String PIECE_LETTERS = "PNBRQ";
+
+    private final String name;
+    private final long signature;
+    private final Piece.PieceType[] types;
+    private final Alliance[] alliances;
+    private final boolean pawns;
+    private final boolean twins;
+    private final int size;
+
+    // Constructor:
+    TablebaseIndex(final String name)
+    {
+        final int blackKing = name.indexOf('K', 1);
+        final int numSlots = name.length();
+        this.name = name;
+        this.signature = MaterialSignature.of(name);
+        this.types = new Piece.PieceType[numSlots];
+        this.alliances = new Alliance[numSlots];
+        this.types[0] = Piece.PieceType.KING;
+        this.alliances[0] = Alliance.WHITE;
+        this.types[1] = Piece.PieceType.KING;
+        this.alliances[1] = Alliance.BLACK;
+        int slot = 2;
+        boolean pawns = false;
+        for(int i = 1; i < name.length(); i++)
+        {
+            if(i != blackKing)
+            {
+                this.types[slot] = Piece.PieceType.values()[PIECE_LETTERS.indexOf(name.charAt(i))];
+                this.alliances[slot] = i < blackKing ? Alliance.WHITE : Alliance.BLACK;
+                pawns |= this.types[slot] == Piece.PieceType.PAWN;
+                slot++;
+            }
+        }
+        this.pawns = pawns;
+        this.twins = numSlots == 4 && this.types[2] == this.types[3] && this.alliances[2] == this.alliances[3];
+        int size = 2 * (pawns ? REGION_FILES * BoardUtils.NUM_TILES_PER_ROW : REGION_FILES * REGION_FILES);
+        for(int i = 1; i < numSlots; i++)
+        {
+            size *= BoardUtils.NUM_TILES;
+        }
+        this.size = size;
+    }
+
+    // Methods:
+    String getName()
+    {
+        return this.name;
+    }
+
+    long getSignature()
+    {
+        return this.signature;
+    }
+
+    int getSize()
+    {
+        return this.size;
+    }
+
+    int getNumSlots()
+    {
+        return this.types.length;
+    }
+
+    Piece.PieceType getType(final int slot)
+    {
+        return this.types[slot];
+    }
+
+    Alliance getAlliance(final int slot)
+    {
+        return this.alliances[slot];
+    }
+
+    /*
+    * The index of the position with the pieces on these squares, in slot order. The squares are
+    * mirrored and sorted in place.
+    * */
+    int index(final int[] squares,
+              final boolean whiteToMove)
+    {
+        int mirror = 0;
+        if(squares[0] % BoardUtils.NUM_TILES_PER_ROW >= REGION_FILES)
+        {
+            mirror |= FILE_MIRROR;
+        }
+        if(!this.pawns && squares[0] / BoardUtils.NUM_TILES_PER_ROW >= REGION_FILES)
+        {
+            mirror |= RANK_MIRROR;
+        }
+        for(int slot = 0; slot < this.types.length; slot++)
+        {
+            squares[slot] ^= mirror;
+        }
+        if(this.twins && squares[2] > squares[3])
+        {
+            final int swap = squares[2];
+            squares[2] = squares[3];
+            squares[3] = swap;
+        }
+        int index = squares[0] / BoardUtils.NUM_TILES_PER_ROW * REGION_FILES + squares[0] % BoardUtils.NUM_TILES_PER_ROW;
+        for(int slot = 1; slot < this.types.length; slot++)
+        {
+            index = index * BoardUtils.NUM_TILES + squares[slot];
+        }
+        return index * 2 + (whiteToMove ? 0 : 1);
+    }
+
+    /*
+    * The squares of the position behind an index, returns whether white is to move. Only indices whose
+    * squares come back in their mirrored and sorted form are ever used, see isCanonical.
+    * */
+    boolean decode(final int index,
+                   final int[] squares)
+    {
+        int rest = index >>> 1;
+        for(int slot = this.types.length - 1; slot > 0; slot--)
+        {
+            squares[slot] = rest % BoardUtils.NUM_TILES;
+            rest /= BoardUtils.NUM_TILES;
+        }
+        squares[0] = rest / REGION_FILES * BoardUtils.NUM_TILES_PER_ROW + rest % REGION_FILES;
+        return (index & 1) == 0;
+    }
+
+    // false for the unused indices: the second of two twins on the lower square
+    boolean isCanonical(final int[] squares)
+    {
+        return !this.twins || squares[2] < squares[3];
+    }
+
+    /*
+    * Puts loose pieces into slot order: slotSquares[slot] gets the square of the piece that belongs in
+    * that slot. Returns false when the pieces do not match this table.
+    * */
+    boolean assignSlots(final Piece.PieceType[] pieceTypes,
+                        final Alliance[] pieceAlliances,
+                        final int[] pieceSquares,
+                        final int numPieces,
+                        final int[] slotSquares)
+    {
+        if(numPieces != this.types.length)
+        {
+            return false;
+        }
+        int used = 0;
+        for(int slot = 0; slot < this.types.length; slot++)
+        {
+            int found = -1;
+            for(int piece = 0; piece < numPieces && found < 0; piece++)
+            {
+                if((used & (1 << piece)) == 0 && pieceTypes[piece] == this.types[slot] &&
+                   pieceAlliances[piece] == this.alliances[slot])
+                {
+                    found = piece;
+                }
+            }
+            if(found < 0)
+            {
+                return false;
+            }
+            used |= 1 << found;
+            slotSquares[slot] = pieceSquares[found];
+        }
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.name;
+    }
+
+}
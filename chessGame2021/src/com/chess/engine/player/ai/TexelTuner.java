@@ -0,0 +1,525 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.AttackInfo;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.EvaluationState;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.PieceSquareTables;
+import com.chess.engine.pieces.Piece;
+import com.chess.pgn.PGNGame;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.ParsePGNException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+* Tunes the evaluation weights (see EvaluationParameters) on positions taken from real games, the way
+* Peter Osterlund tuned Texel: https://www.chessprogramming.org/Texel%27s_Tuning_Method
+*
+* Notes:
+*   + Every position of a game is labelled with how the game ended for white: 1, 0.5 or 0. The
+*     evaluation is squashed into an expected score with a sigmoid, 1 / (1 + 10^(-K * eval / 400)),
+*     and the tuner looks for the weights that make the mean squared difference to the labels as
+*     small as possible.
+*   + K is fitted first (with the starting weights) so the sigmoid fits the way our scores are scaled.
+*   + Only quiet positions are used, a static evaluation in the middle of an exchange is meaningless:
+*       ++ the first OPENING_PLIES are skipped, they are the same in every game
+*       ++ the move the game went on with is not a capture or a promotion
+*       ++ the side to move can not win material with a capture: nothing of theirs hangs, and none of
+*          their pieces is attacked by a cheaper piece of ours
+*     Positions where the side to move is in check are kept, otherwise CHECK_BONUS could not be
+*     learned at all.
+*   + The tuned weights only enter the evaluation linearly (material, the two bonuses and the tapered
+*     piece square tables), so every position is boiled down once to a short list of features and a
+*     fixed part. The fixed part is whatever StandardBoardEvaluator adds on top (pawn structure, king
+*     safety, rook placement, mobility), it is worked out once with the real evaluator. After that
+*     an evaluation is a few dozen multiply adds over flat arrays, no Board needed.
+*   + StandardBoardEvaluator itself has no piece square tables (PieceSquareTableEvaluator does). With
+*     tunePieceSquareTables the tables are added to the model and tuned along, without they stay out
+*     of the evaluation, get no gradient and are written back unchanged. The tuned tables are played
+*     with by PieceSquareTableEvaluator.withParameters(), the scalars by StandardBoardEvaluator's.
+*   + Minimising: gradient descent with Adam step sizes, the gradient has a closed form for this model.
+*     Error and gradient are summed over chunks of positions on all cores and then added up.
+*   + Run it with:  java com.chess.engine.player.ai.TexelTuner <games.pgn> <output file> [iterations] [--pst]
+*     The output is an EvaluationParameters file.
+* */
+public final class TexelTuner implements Closeable
+{
+    // Members:
+    private static final int OPENING_PLIES = 8;
+    private static final int DEFAULT_ITERATIONS = 500;
+    private static final double LEARNING_RATE = 1.0;
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+    private static final double LN10_OVER_400 = Math.log(10.0) / 400.0;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Positions positions;
+    private final boolean tunePieceSquareTables;
+    private final int numThreads;
+    private final ExecutorService executorService;
+
+    // Constructor:
+    private TexelTuner(final Positions positions,
+                       final boolean tunePieceSquareTables,
+                       final int numThreads,
+                       final ExecutorService executorService)
+    {
+        this.positions = positions;
+        this.tunePieceSquareTables = tunePieceSquareTables;
+        this.numThreads = numThreads;
+        this.executorService = executorService;
+    }
+
+    // Methods:
+    public static void main(final String[] args) throws IOException
+    {
+        if(args.length < 2)
+        {
+            System.out.println("usage: TexelTuner <games.pgn> <output file> [iterations] [--pst]");
+            return;
+        }
+        final int iterations = args.length > 2 && !args[2].startsWith("--") ? Integer.parseInt(args[2]) : DEFAULT_ITERATIONS;
+        final boolean tunePieceSquareTables = args[args.length - 1].equals("--pst");
+        final long start = System.currentTimeMillis();
+        try(final TexelTuner tuner = fromPgn(Paths.get(args[0]), tunePieceSquareTables,
+            Runtime.getRuntime().availableProcessors()))
+        {
+            System.out.println(tuner.getPositionCount() + " quiet positions in " +
+                (System.currentTimeMillis() - start) + " ms");
+            final EvaluationParameters initial = EvaluationParameters.defaults();
+            final double k = tuner.fitScalingConstant(initial);
+            final double initialError = tuner.error(initial, k);
+            System.out.println("K = " + k + ", error " + initialError);
+            final EvaluationParameters tuned = tuner.tune(initial, k, iterations);
+            final double tunedError = tuner.error(tuned, k);
+            System.out.println("error after " + iterations + " iterations " + tunedError);
+            tuned.write(Paths.get(args[1]), "Texel tuned on " + args[0] + ", " + tuner.getPositionCount() +
+                " positions, K = " + k + "\nerror " + initialError + " --> " + tunedError);
+        }
+    }
+
+    public static TexelTuner fromPgn(final Path pgnFile,
+                                     final boolean tunePieceSquareTables,
+                                     final int numThreads) throws IOException
+    {
+        return fromGames(PGNUtilities.readGames(pgnFile), tunePieceSquareTables, numThreads);
+    }
+
+    // replays the games on all threads and keeps their quiet positions
+    public static TexelTuner fromGames(final List<PGNGame> games,
+                                       final boolean tunePieceSquareTables,
+                                       final int numThreads)
+    {
+        final ExecutorService executorService = Executors.newFixedThreadPool(numThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "texel-tuner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final int chunkSize = Math.max(1, games.size() / (numThreads * CHUNKS_PER_THREAD) + 1);
+        final List<Callable<Positions.Builder>> tasks = new ArrayList<>();
+        for(int from = 0; from < games.size(); from += chunkSize)
+        {
+            final List<PGNGame> chunk = games.subList(from, Math.min(games.size(), from + chunkSize));
+            tasks.add(() -> {
+                final Positions.Builder builder = new Positions.Builder();
+                for(final PGNGame game : chunk)
+                {
+                    extractPositions(game, builder);
+                }
+                return builder;
+            });
+        }
+        final Positions.Builder all = new Positions.Builder();
+        for(final Positions.Builder part : runAll(executorService, tasks))
+        {
+            all.addAll(part);
+        }
+        return new TexelTuner(all.build(), tunePieceSquareTables, numThreads, executorService);
+    }
+
+    public int getPositionCount()
+    {
+        return this.positions.count;
+    }
+
+    // the K that makes the starting weights fit the results best, a golden section search on 0 .. 3
+    public double fitScalingConstant(final EvaluationParameters parameters)
+    {
+        final double ratio = (Math.sqrt(5.0) - 1.0) / 2.0;
+        double low = 0.0;
+        double high = 3.0;
+        double left = high - ratio * (high - low);
+        double right = low + ratio * (high - low);
+        double leftError = error(parameters, left);
+        double rightError = error(parameters, right);
+        while(high - low > 1e-3)
+        {
+            if(leftError < rightError)
+            {
+                high = right;
+                right = left;
+                rightError = leftError;
+                left = high - ratio * (high - low);
+                leftError = error(parameters, left);
+            }
+            else
+            {
+                low = left;
+                left = right;
+                leftError = rightError;
+                right = low + ratio * (high - low);
+                rightError = error(parameters, right);
+            }
+        }
+        return (low + high) / 2.0;
+    }
+
+    // mean squared difference between the game results and the expected scores
+    public double error(final EvaluationParameters parameters,
+                        final double k)
+    {
+        return errorAndGradient(toDoubles(parameters.toArray()), k, false)[0];
+    }
+
+    public EvaluationParameters tune(final EvaluationParameters start,
+                                     final double k,
+                                     final int iterations)
+    {
+        final double[] weights = toDoubles(start.toArray());
+        final double[] firstMoment = new double[weights.length];
+        final double[] secondMoment = new double[weights.length];
+        for(int iteration = 1; iteration <= iterations; iteration++)
+        {
+            final double[] errorAndGradient = errorAndGradient(weights, k, true);
+            for(int i = 0; i < weights.length; i++)
+            {
+                final double gradient = errorAndGradient[i + 1];
+                firstMoment[i] = BETA1 * firstMoment[i] + (1 - BETA1) * gradient;
+                secondMoment[i] = BETA2 * secondMoment[i] + (1 - BETA2) * gradient * gradient;
+                final double correctedFirst = firstMoment[i] / (1 - Math.pow(BETA1, iteration));
+                final double correctedSecond = secondMoment[i] / (1 - Math.pow(BETA2, iteration));
+                weights[i] -= LEARNING_RATE * correctedFirst / (Math.sqrt(correctedSecond) + EPSILON);
+            }
+        }
+        final int[] rounded = new int[weights.length];
+        for(int i = 0; i < weights.length; i++)
+        {
+            rounded[i] = (int) Math.round(weights[i]);
+        }
+        return new EvaluationParameters(rounded);
+    }
+
+    @Override
+    public void close()
+    {
+        this.executorService.shutdownNow();
+    }
+
+    /*
+    * Element 0 is the error, with the gradient the next SIZE elements are d error / d weight.
+    * */
+    private double[] errorAndGradient(final double[] weights,
+                                      final double k,
+                                      final boolean withGradient)
+    {
+        final int count = this.positions.count;
+        final int chunkSize = Math.max(1, count / (this.numThreads * CHUNKS_PER_THREAD) + 1);
+        final List<Callable<double[]>> tasks = new ArrayList<>();
+        for(int from = 0; from < count; from += chunkSize)
+        {
+            final int chunkStart = from;
+            final int chunkEnd = Math.min(count, from + chunkSize);
+            tasks.add(() -> errorAndGradient(weights, k, withGradient, chunkStart, chunkEnd));
+        }
+        final double[] total = new double[withGradient ? weights.length + 1 : 1];
+        for(final double[] part : runAll(this.executorService, tasks))
+        {
+            for(int i = 0; i < total.length; i++)
+            {
+                total[i] += part[i];
+            }
+        }
+        for(int i = 0; i < total.length; i++)
+        {
+            total[i] /= Math.max(1, count);
+        }
+        return total;
+    }
+
+    private double[] errorAndGradient(final double[] weights,
+                                      final double k,
+                                      final boolean withGradient,
+                                      final int from,
+                                      final int to)
+    {
+        final Positions positions = this.positions;
+        final double[] result = new double[withGradient ? weights.length + 1 : 1];
+        for(int position = from; position < to; position++)
+        {
+            final double middleGame = positions.phases[position] / (double) EvaluationState.TOTAL_PHASE;
+            final double endGame = 1.0 - middleGame;
+            double score = positions.fixedScores[position] +
+                positions.checks[position] * weights[EvaluationParameters.CHECK_BONUS] +
+                positions.castles[position] * weights[EvaluationParameters.CASTLE_BONUS];
+            for(int f = positions.featureStarts[position]; f < positions.featureStarts[position + 1]; f++)
+            {
+                final int feature = positions.features[f];
+                final int sign = feature > 0 ? 1 : -1;
+                final int index = feature * sign - 1;
+                final int pieceType = index / Positions.SQUARES;
+                if(pieceType != Piece.PieceType.KING.ordinal())
+                {
+                    score += sign * weights[pieceType];
+                }
+                if(this.tunePieceSquareTables)
+                {
+                    score += sign * (middleGame * weights[EvaluationParameters.MIDDLE_GAME_TABLES + index] +
+                                     endGame * weights[EvaluationParameters.END_GAME_TABLES + index]);
+                }
+            }
+
+            final double expected = 1.0 / (1.0 + Math.exp(-k * LN10_OVER_400 * score));
+            final double difference = positions.results[position] - expected;
+            result[0] += difference * difference;
+            if(!withGradient)
+            {
+                continue;
+            }
+
+            // d error / d score, every weight's share is its coefficient in the score
+            final double slope = -2.0 * difference * expected * (1.0 - expected) * k * LN10_OVER_400;
+            result[1 + EvaluationParameters.CHECK_BONUS] += slope * positions.checks[position];
+            result[1 + EvaluationParameters.CASTLE_BONUS] += slope * positions.castles[position];
+            for(int f = positions.featureStarts[position]; f < positions.featureStarts[position + 1]; f++)
+            {
+                final int feature = positions.features[f];
+                final int sign = feature > 0 ? 1 : -1;
+                final int index = feature * sign - 1;
+                final int pieceType = index / Positions.SQUARES;
+                if(pieceType != Piece.PieceType.KING.ordinal())
+                {
+                    result[1 + pieceType] += slope * sign;
+                }
+                if(this.tunePieceSquareTables)
+                {
+                    result[1 + EvaluationParameters.MIDDLE_GAME_TABLES + index] += slope * sign * middleGame;
+                    result[1 + EvaluationParameters.END_GAME_TABLES + index] += slope * sign * endGame;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void extractPositions(final PGNGame game,
+                                         final Positions.Builder builder)
+    {
+        final double result = game.getWhiteScore();
+        if(result < 0)
+        {
+            return;
+        }
+        Board board = Board.createStandardBoard();
+        final List<String> moves = game.getMoves();
+        for(int ply = 0; ply < moves.size(); ply++)
+        {
+            final Move move;
+            try
+            {
+                move = PGNUtilities.createMove(board, moves.get(ply));
+            }
+            catch(final ParsePGNException e)
+            {
+                // the positions up to here are fine, what follows we can not replay
+                return;
+            }
+            if(ply >= OPENING_PLIES && isQuiet(board, move))
+            {
+                builder.add(board, result);
+            }
+            board = board.currentPlayer().makeMove(move).getToBoard();
+        }
+    }
+
+    private static boolean isQuiet(final Board board,
+                                   final Move nextMove)
+    {
+        if(nextMove.isAttack() || nextMove instanceof Move.PawnPromotion)
+        {
+            return false;
+        }
+        final AttackInfo attackInfo = board.getAttackInfo();
+        final Alliance us = board.currentPlayer().getAlliance();
+        final Alliance them = board.currentPlayer().getOpponent().getAlliance();
+        final long theirPieces = attackInfo.getPieces(them) & ~attackInfo.getPieces(them, Piece.PieceType.KING);
+        // something of theirs we attack and they do not defend
+        if((attackInfo.getAttacks(us) & theirPieces & ~attackInfo.getAttacks(them)) != 0L)
+        {
+            return false;
+        }
+        // something of theirs we attack with a cheaper piece
+        final long theirMinors = attackInfo.getPieces(them, Piece.PieceType.KNIGHT) |
+                                 attackInfo.getPieces(them, Piece.PieceType.BISHOP);
+        final long theirRooks = attackInfo.getPieces(them, Piece.PieceType.ROOK);
+        final long theirQueens = attackInfo.getPieces(them, Piece.PieceType.QUEEN);
+        final long ourMinorAttacks = attackInfo.getAttacks(us, Piece.PieceType.KNIGHT) |
+                                     attackInfo.getAttacks(us, Piece.PieceType.BISHOP);
+        return (attackInfo.getAttacks(us, Piece.PieceType.PAWN) & (theirMinors | theirRooks | theirQueens)) == 0L &&
+               (ourMinorAttacks & (theirRooks | theirQueens)) == 0L &&
+               (attackInfo.getAttacks(us, Piece.PieceType.ROOK) & theirQueens) == 0L;
+    }
+
+    private static double[] toDoubles(final int[] values)
+    {
+        final double[] doubles = new double[values.length];
+        for(int i = 0; i < values.length; i++)
+        {
+            doubles[i] = values[i];
+        }
+        return doubles;
+    }
+
+    private static <T> List<T> runAll(final ExecutorService executorService,
+                                      final List<Callable<T>> tasks)
+    {
+        final List<T> results = new ArrayList<>();
+        try
+        {
+            for(final Future<T> future : executorService.invokeAll(tasks))
+            {
+                results.add(future.get());
+            }
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch(final ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+        return results;
+    }
+
+    /*
+    * The positions boiled down to what the tuned weights act on, in flat arrays (one entry per
+    * position, the features of position i are features[featureStarts[i] .. featureStarts[i + 1])).
+    * A feature is one piece: (piece type * 64 + table index) + 1, negated for black pieces.
+    * */
+    private static final class Positions
+    {
+        private static final int SQUARES = 64;
+
+        private final int count;
+        private final double[] results;
+        private final int[] fixedScores;
+        private final byte[] phases;
+        private final byte[] checks;
+        private final byte[] castles;
+        private final int[] featureStarts;
+        private final short[] features;
+
+        private Positions(final Builder builder)
+        {
+            this.count = builder.results.size();
+            this.results = new double[this.count];
+            this.fixedScores = new int[this.count];
+            this.phases = new byte[this.count];
+            this.checks = new byte[this.count];
+            this.castles = new byte[this.count];
+            this.featureStarts = new int[this.count + 1];
+            for(int i = 0; i < this.count; i++)
+            {
+                this.results[i] = builder.results.get(i);
+                this.fixedScores[i] = builder.fixedScores.get(i);
+                this.phases[i] = builder.phases.get(i);
+                this.checks[i] = builder.checks.get(i);
+                this.castles[i] = builder.castles.get(i);
+                this.featureStarts[i + 1] = this.featureStarts[i] + builder.features.get(i).length;
+            }
+            this.features = new short[this.featureStarts[this.count]];
+            for(int i = 0; i < this.count; i++)
+            {
+                final short[] positionFeatures = builder.features.get(i);
+                System.arraycopy(positionFeatures, 0, this.features, this.featureStarts[i], positionFeatures.length);
+            }
+        }
+
+        private static final class Builder
+        {
+            private final List<Double> results = new ArrayList<>();
+            private final List<Integer> fixedScores = new ArrayList<>();
+            private final List<Byte> phases = new ArrayList<>();
+            private final List<Byte> checks = new ArrayList<>();
+            private final List<Byte> castles = new ArrayList<>();
+            private final List<short[]> features = new ArrayList<>();
+
+            private void add(final Board board,
+                             final double result)
+            {
+                final short[] pieces = new short[board.getWhitePieces().size() + board.getBlackPieces().size()];
+                int count = 0;
+                int material = 0;
+                for(final Piece piece : board.getWhitePieces())
+                {
+                    pieces[count++] = (short) (feature(piece) + 1);
+                    material += piece.getPieceType().isKing() ? 0 : piece.getPieceValue();
+                }
+                for(final Piece piece : board.getBlackPieces())
+                {
+                    pieces[count++] = (short) -(feature(piece) + 1);
+                    material -= piece.getPieceType().isKing() ? 0 : piece.getPieceValue();
+                }
+                // StandardBoardEvaluator gives the bonus to the side checking, only the side to move can be in check
+                final byte check = (byte) (!board.currentPlayer().isInCheck() ? 0 :
+                    board.currentPlayer().getAlliance().isWhite() ? -1 : 1);
+                final byte castle = (byte) ((board.whitePlayer().isCastled() ? 1 : 0) -
+                                            (board.blackPlayer().isCastled() ? 1 : 0));
+                final int tunedPart = material + check * StandardBoardEvaluator.CHECK_BONUS +
+                                      castle * StandardBoardEvaluator.CASTLE_BONUS;
+
+                this.results.add(result);
+                this.fixedScores.add(StandardBoardEvaluator.get().evaluate(board, 0) - tunedPart);
+                this.phases.add((byte) Math.min(board.getEvaluationState().getPhase(), EvaluationState.TOTAL_PHASE));
+                this.checks.add(check);
+                this.castles.add(castle);
+                this.features.add(pieces);
+            }
+
+            private void addAll(final Builder other)
+            {
+                this.results.addAll(other.results);
+                this.fixedScores.addAll(other.fixedScores);
+                this.phases.addAll(other.phases);
+                this.checks.addAll(other.checks);
+                this.castles.addAll(other.castles);
+                this.features.addAll(other.features);
+            }
+
+            private Positions build()
+            {
+                return new Positions(this);
+            }
+
+            private static int feature(final Piece piece)
+            {
+                return piece.getPieceType().ordinal() * SQUARES +
+                       PieceSquareTables.tableIndex(piece.getPieceAllegiance(), piece.getPiecePosition());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.MoveUtils;
+
+import java.util.Arrays;
+
+/*
+* A transposition table remembers what the search already found out about a position (keyed by the
+* boards zobrist hash) so that the same position reached through a different move order does not have
+* to be searched again.
+*
+* Notes:
+*   + The table is 'direct mapped' --> the low bits of the hash pick the slot, a newer entry simply
+*     overwrites an older one when two positions land on the same slot.
+*   + Each slot remembers a lower bound and an upper bound on the score. A full window search stores
+*     lower == upper (an exact score), a zero window search (like MTD(f) uses) only ever proves one side.
+*   + Everything lives in primitive arrays so a table with millions of slots does not create millions
+*     of objects for the garbage collector to chase.
+*   + The table lives as long as the game does. Instead of clearing it before every move, each search
+*     gets a new 'generation' number. Entries from older generations can still be probed (they are often
+*     still right) but they are the first to go when a slot is needed for something new.
+* */
+public final class TranspositionTable
+{
+    // Members:
+    private static final int BYTES_PER_ENTRY = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final long[] keys;
+    private final long[] bounds;   // lower bound in the high 32 bits, upper bound in the low 32 bits
+    private final int[] metadata;  // search depth in the low 8 bits, best move in the next 12, generation in the next 8
+    private final int mask;
+
+    private int generation;
+
+    private long probes;
+    private long hits;
+
+    // Constructor:
+    public TranspositionTable(final int sizeInMegabytes)
+    {
+        final long maxEntries = Math.max(1L, (sizeInMegabytes * 1024L * 1024L) / BYTES_PER_ENTRY);
+        // round down to a power of two so the slot can be picked with a mask instead of a modulo
+        final int numEntries = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30));
+        this.keys = new long[numEntries];
+        this.bounds = new long[numEntries];
+        this.metadata = new int[numEntries];
+        this.mask = numEntries - 1;
+    }
+
+    // Methods:
+    /*
+    * Returns the slot holding this position or -1 when the table knows nothing about it.
+    * */
+    public int probe(final long zobristHash)
+    {
+        this.probes++;
+        final int index = (int) zobristHash & this.mask;
+        if(this.keys[index] == zobristHash && this.metadata[index] != 0)
+        {
+            this.hits++;
+            return index;
+        }
+        return -1;
+    }
+
+    public int getLowerBound(final int index)
+    {
+        return (int) (this.bounds[index] >> 32);
+    }
+
+    public int getUpperBound(final int index)
+    {
+        return (int) this.bounds[index];
+    }
+
+    public int getDepth(final int index)
+    {
+        return (this.metadata[index] & 0xFF) - 1;
+    }
+
+    public int getBestMove(final int index)
+    {
+        return (this.metadata[index] >>> 8) & 0xFFF;
+    }
+
+    // how many searches ago this slot was written, 0 means it belongs to the current search
+    public int getAge(final int index)
+    {
+        return (this.generation - getGeneration(index)) & 0xFF;
+    }
+
+    /*
+    * Called at the start of every search (i.e. once per move played). Everything already in the table
+    * becomes one generation older.
+    * */
+    public void newSearch()
+    {
+        this.generation = (this.generation + 1) & 0xFF;
+    }
+
+    /*
+    * Replacement scheme: a slot is overwritten when it is empty, holds the same position, was written
+    * by an older search or was searched less deeply than the new entry. Otherwise the deeper result
+    * from the current search is worth more and we keep it.
+    * */
+    public void store(final long zobristHash,
+                      final int depth,
+                      final int lowerBound,
+                      final int upperBound,
+                      final int bestMove)
+    {
+        final int index = (int) zobristHash & this.mask;
+        final boolean samePosition = this.keys[index] == zobristHash;
+        if(this.metadata[index] != 0 && !samePosition && getGeneration(index) == this.generation &&
+           getDepth(index) > depth)
+        {
+            return;
+        }
+        // keep the old best move around when the new search did not come up with one
+        final int moveToStore = bestMove == MoveUtils.NO_MOVE && samePosition ? getBestMove(index) : bestMove;
+        this.keys[index] = zobristHash;
+        this.bounds[index] = ((long) lowerBound << 32) | (upperBound & 0xFFFFFFFFL);
+        // depth is stored plus one so that an empty slot (all zeros) never looks like a depth 0 entry
+        this.metadata[index] = (Math.min(depth + 1, 0xFF)) | (moveToStore << 8) | (this.generation << 20);
+    }
+
+    public void clear()
+    {
+        Arrays.fill(this.keys, 0L);
+        Arrays.fill(this.bounds, 0L);
+        Arrays.fill(this.metadata, 0);
+        this.probes = 0;
+        this.hits = 0;
+        this.generation = 0;
+    }
+
+    public int size()
+    {
+        return this.keys.length;
+    }
+
+    public long getProbes()
+    {
+        return this.probes;
+    }
+
+    public long getHits()
+    {
+        return this.hits;
+    }
+
+    private int getGeneration(final int index)
+    {
+        return (this.metadata[index] >>> 20) & 0xFF;
+    }
+
+}
@@ -2,6 +2,15 @@ package com.chess.gui;
 
 import com.chess.engine.Alliance;
 import com.chess.engine.player.Player;
+import com.chess.engine.player.ai.CachedEvaluator;
+import com.chess.engine.player.ai.EndgameEvaluator;
+import com.chess.engine.player.ai.EvaluationParameters;
+import com.chess.engine.player.ai.MTDf;
+import com.chess.engine.player.ai.MiniMax;
+import com.chess.engine.player.ai.MonteCarloTreeSearch;
+import com.chess.engine.player.ai.MoveStrategy;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.engine.player.ai.Tablebase;
 import com.chess.gui.Table.PlayerType;
 
 import javax.swing.*;
@@ -14,6 +23,7 @@ class GameSetup extends JDialog {
     private PlayerType whitePlayerType;
     private PlayerType blackPlayerType;
     private JSpinner searchDepthSpinner;
+    private JComboBox<SearchStrategy> searchStrategyComboBox;
 
     private static final String HUMAN_TEXT = "Human";
     private static final String COMPUTER_TEXT = "Computer";
@@ -46,7 +56,8 @@ class GameSetup extends JDialog {
         myPanel.add(blackComputerButton);
 
         myPanel.add(new JLabel("Search"));
-        this.searchDepthSpinner = addLabeledSpinner(myPanel, "Search Depth", new SpinnerNumberModel(6, 0, Integer.MAX_VALUE, 1));
+        this.searchDepthSpinner = addLabeledSpinner(myPanel, "Search Depth", new SpinnerNumberModel(4, 1, Integer.MAX_VALUE, 1));
+        this.searchStrategyComboBox = addLabeledComboBox(myPanel, "Search Strategy", SearchStrategy.values());
 
         final JButton cancelButton = new JButton("Cancel");
         final JButton okButton = new JButton("OK");
@@ -105,7 +116,67 @@ class GameSetup extends JDialog {
         return spinner;
     }
 
+    private static <T> JComboBox<T> addLabeledComboBox(final Container c,
+                                                       final String label,
+                                                       final T[] items) {
+        final JLabel l = new JLabel(label);
+        c.add(l);
+        final JComboBox<T> comboBox = new JComboBox<>(items);
+        l.setLabelFor(comboBox);
+        c.add(comboBox);
+        return comboBox;
+    }
+
     int getSearchDepth() {
         return (Integer)this.searchDepthSpinner.getValue();
     }
+
+    SearchStrategy getSearchStrategy() {
+        return (SearchStrategy)this.searchStrategyComboBox.getSelectedItem();
+    }
+
+    // the move strategies the computer player can be set up with
+    enum SearchStrategy {
+        MINIMAX("MiniMax") {
+            @Override
+            MoveStrategy create(final int searchDepth) {
+                return new MiniMax(searchDepth);
+            }
+        },
+        MTDF("MTD(f)") {
+            @Override
+            MoveStrategy create(final int searchDepth) {
+                // lazy evaluation: leaves far outside the window are scored on material alone,
+                // leaves already scored exactly come out of the cache and known endgames get their own scorer.
+                // The weights and the margin are tuned ones when -Dchess.evaluation.parameters names a file
+                final MTDf search = new MTDf(searchDepth, new CachedEvaluator(new EndgameEvaluator(
+                    StandardBoardEvaluator.withParameters(EvaluationParameters.getDefault()))));
+                // endgame tablebases, when -Dchess.tablebase.dir points at some (see TablebaseGenerator)
+                search.setTablebase(Tablebase.getDefault());
+                return search;
+            }
+        },
+        MCTS("MCTS") {
+            @Override
+            MoveStrategy create(final int searchDepth) {
+                // no fixed depth here, the spinner scales the number of playouts instead
+                return new MonteCarloTreeSearch(searchDepth * PLAYOUTS_PER_LEVEL);
+            }
+        };
+
+        private static final int PLAYOUTS_PER_LEVEL = 500;
+
+        private final String displayName;
+
+        SearchStrategy(final String displayName) {
+            this.displayName = displayName;
+        }
+
+        abstract MoveStrategy create(int searchDepth);
+
+        @Override
+        public String toString() {
+            return this.displayName;
+        }
+    }
 }
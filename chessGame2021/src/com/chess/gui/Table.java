@@ -3,12 +3,14 @@ package com.chess.gui;
 
 import com.chess.engine.board.Board;
 import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.DrawRules;
 import com.chess.engine.board.Move;
 import com.chess.engine.board.Tile;
 import com.chess.engine.pieces.Piece;
 import com.chess.engine.board.MoveTransition;
-import com.chess.engine.player.ai.MiniMax;
+import com.chess.engine.player.ai.MonteCarloTreeSearch;
 import com.chess.engine.player.ai.MoveStrategy;
+import com.chess.engine.player.ai.OpeningBook;
 import com.google.common.collect.Lists;
 
 import javax.imageio.ImageIO;
@@ -24,6 +26,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static javax.swing.SwingUtilities.isLeftMouseButton;
 import static javax.swing.SwingUtilities.isRightMouseButton;
@@ -67,7 +70,12 @@ public class Table extends Observable
     private BoardDirection boardDirection;
     private Move computerMove;
 
+    private MoveStrategy moveStrategy;
+    private GameSetup.SearchStrategy engineSearchStrategy;
+    private int engineSearchDepth;
+
     private boolean highlightLegalMoves;
+    private boolean useBook;
 
     private final static Dimension OUTER_FRAME_DIMENSION = new Dimension(600,
         600);
@@ -105,7 +113,7 @@ public class Table extends Observable
         this.chessBoard = Board.createStandardBoard();
         this.boardDirection = BoardDirection.NORMAL;
         this.highlightLegalMoves = false;
-//        this.useBook = false;
+        this.useBook = OpeningBook.getDefault() != null;
 //        this.pieceIconPath = "art/holywarriors/";
         this.gameHistoryPanel = new GameHistoryPanel();
 //        this.debugPanel = new DebugPanel();
@@ -151,6 +159,38 @@ public class Table extends Observable
         return this.chessBoard;
     }
 
+    /*
+    * One engine per game: it is only rebuilt when the strategy or depth in the GameSetup dialog changes,
+    * so its transposition table, history table or search tree survive from one move to the next.
+    * */
+    private synchronized MoveStrategy getMoveStrategy()
+    {
+        final GameSetup.SearchStrategy searchStrategy = this.gameSetup.getSearchStrategy();
+        final int searchDepth = this.gameSetup.getSearchDepth();
+        if(this.moveStrategy == null || this.engineSearchStrategy != searchStrategy || this.engineSearchDepth != searchDepth)
+        {
+            if(this.moveStrategy instanceof MonteCarloTreeSearch)
+            {
+                ((MonteCarloTreeSearch) this.moveStrategy).shutdown();
+            }
+            this.moveStrategy = searchStrategy.create(searchDepth);
+            this.engineSearchStrategy = searchStrategy;
+            this.engineSearchDepth = searchDepth;
+        }
+        return this.moveStrategy;
+    }
+
+    // the opening book's move for the board, null when the book is off or has none
+    private Move getBookMove(final Board board)
+    {
+        final OpeningBook book = OpeningBook.getDefault();
+        if(!this.useBook || book == null)
+        {
+            return null;
+        }
+        return book.pickMove(board, ThreadLocalRandom.current());
+    }
+
     /*
     * Any additional Menus or menu items will be added to this createTableMenuBar().
     * When this method is called in the constructor all the menu features are created or
@@ -235,6 +275,20 @@ public class Table extends Observable
         });
 
         preferenceMenu.add(legalMoveHighlighterCheckbox);
+        // only offered with a book to play from, see OpeningBook.getDefault
+        final JCheckBoxMenuItem useBookCheckbox = new JCheckBoxMenuItem("Use Book Moves",
+            OpeningBook.getDefault() != null);
+        useBookCheckbox.setEnabled(OpeningBook.getDefault() != null);
+        useBookCheckbox.addActionListener(new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                useBook = useBookCheckbox.isSelected();
+            }
+        });
+
+        preferenceMenu.add(useBookCheckbox);
         return preferenceMenu;
     }
 
@@ -316,10 +370,18 @@ public class Table extends Observable
         @Override
         protected Move doInBackground() throws Exception
         {
-            // This is the point where we tie back into the MiniMax() search algorithm.
+            // This is the point where we tie back into the search strategy picked in the GameSetup dialog.
+            // The engine is kept for the whole game so it can reuse what it learned on earlier moves.
+            // A book move, when there is one, is played without searching at all.
             // Members:
-            final MoveStrategy miniMax = new MiniMax(4); // to go further then 4 you need alphabeta
-            final Move bestMove = miniMax.execute(Table.get().getGameBoard());
+            final Board board = Table.get().getGameBoard();
+            final Move bookMove = Table.get().getBookMove(board);
+            if(bookMove != null)
+            {
+                return bookMove;
+            }
+            final MoveStrategy moveStrategy = Table.get().getMoveStrategy();
+            final Move bestMove = moveStrategy.execute(board);
             return bestMove;
         }
 
@@ -357,8 +419,7 @@ public class Table extends Observable
         {
             // if the currentPlayer is an AI then we want to make the AI move
             if(Table.get().getGameSetup().isAIPlayer(Table.get().getGameBoard().currentPlayer()) &&
-              !Table.get().getGameBoard().currentPlayer().isInCheckMate() &&
-              !Table.get().getGameBoard().currentPlayer().isInStaleMate())
+              !BoardUtils.isEndGame(Table.get().getGameBoard()))
             {
                 //create an AI thread
                 //execute ai work
@@ -378,6 +439,11 @@ public class Table extends Observable
                 System.out.println("Game Over, " + Table.get().getGameBoard().currentPlayer() + " is in stalemate!");
 
             }
+            // game is over --> drawn by repetition, the fifty move rule or material
+            else if(DrawRules.isDraw(Table.get().getGameBoard()))
+            {
+                System.out.println("Game Over, the game is drawn!");
+            }
         }
     }
 
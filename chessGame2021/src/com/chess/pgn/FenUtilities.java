@@ -5,10 +5,42 @@ import com.chess.engine.board.Board;
 import com.chess.engine.board.BoardUtils;
 import com.chess.engine.pieces.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 import static com.chess.engine.board.Board.Builder;
 
+/*
+* Reading and writing positions in FEN (Forsyth-Edwards notation):
+* "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1".
+*
+* Notes:
+*   + Both directions are a single pass over the characters, no regular expressions, no split and no
+*     string per square. The parser hands out shared piece objects (one per kind and square, like
+*     PieceUtils does for moved pieces) instead of a new Rook per square, only the kings are new,
+*     they carry the castling rights.
+*   + All six fields are read: placement, side to move, castling, en passant square, half move clock
+*     and full move number. The en passant square must be behind a pawn of the side that just moved.
+*   + The move counters are optional. EPD lines (the four first fields and then operations like
+*     bm Nf3; id "test 1";) parse as well, everything after the en passant square that is not a
+*     number is left alone.
+*   + A broken FEN throws a RuntimeException. forEachPosition streams a file of FENs or EPD lines one
+*     line at a time and skips the broken ones, a bad line should not cost us the rest of the file.
+* */
 public class FenUtilities {
 
+    private static final String PIECE_LETTERS = "PNBRQK";
+    private static final Piece.PieceType[] PIECE_TYPES = Piece.PieceType.values();
+    // the pieces a FEN can put on a square (not moved yet), by alliance, piece type and square
+    private static final Piece[] UNMOVED_PIECES = createUnmovedPieces();
+
     private FenUtilities() {
         throw new RuntimeException("Not Instantiable!");
     }
@@ -18,175 +50,321 @@ public class FenUtilities {
     }
 
     public static String createFENFromGame(final Board board) {
-        return calculateBoardText(board) + " " +
-            calculateCurrentPlayerText(board) + " " +
-            calculateCastleText(board) + " " +
-            calculateEnPassantSquare(board) + " " +
-            "0 1";
+        final StringBuilder builder = new StringBuilder(90);
+        appendBoardText(board, builder);
+        builder.append(' ').append(board.currentPlayer().getAlliance().isWhite() ? 'w' : 'b').append(' ');
+        appendCastleText(board, builder);
+        builder.append(' ');
+        appendEnPassantSquare(board, builder);
+        builder.append(' ').append(board.getHalfMoveClock())
+               .append(' ').append(board.getFullMoveNumber());
+        return builder.toString();
+    }
+
+    public static List<Board> readPositions(final Path fenFile) throws IOException {
+        final List<Board> boards = new ArrayList<>();
+        try (final BufferedReader reader = Files.newBufferedReader(fenFile, StandardCharsets.ISO_8859_1)) {
+            forEachPosition(reader, boards::add);
+        }
+        return boards;
     }
 
-    private static Board parseFEN(final String fenString) {
-        final String[] fenPartitions = fenString.trim().split(" ");
+    /*
+    * Hands the position of every FEN or EPD line in the reader to the consumer. Blank lines and lines
+    * starting with # are skipped, so is a line that does not parse.
+    * */
+    public static void forEachPosition(final Reader reader,
+                                       final Consumer<Board> consumer) throws IOException {
+        final BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            final int start = skipSpaces(line, 0);
+            if (start == line.length() || line.charAt(start) == '#') {
+                continue;
+            }
+            final Board board;
+            try {
+                board = parseFEN(line);
+            } catch (final RuntimeException e) {
+                continue;
+            }
+            consumer.accept(board);
+        }
+    }
+
+    private static Board parseFEN(final String fen) {
         final Builder builder = new Builder();
-        final boolean whiteKingSideCastle = whiteKingSideCastle(fenPartitions[2]);
-        final boolean whiteQueenSideCastle = whiteQueenSideCastle(fenPartitions[2]);
-        final boolean blackKingSideCastle = blackKingSideCastle(fenPartitions[2]);
-        final boolean blackQueenSideCastle = blackQueenSideCastle(fenPartitions[2]);
-        final String gameConfiguration = fenPartitions[0];
-        final char[] boardTiles = gameConfiguration.replaceAll("/", "")
-            .replaceAll("8", "--------")
-            .replaceAll("7", "-------")
-            .replaceAll("6", "------")
-            .replaceAll("5", "-----")
-            .replaceAll("4", "----")
-            .replaceAll("3", "---")
-            .replaceAll("2", "--")
-            .replaceAll("1", "-")
-            .toCharArray();
-        int i = 0;
-        while (i < boardTiles.length) {
-            switch (boardTiles[i]) {
-                case 'r':
-                    builder.setPiece(new Rook(Alliance.BLACK, i));
-                    i++;
-                    break;
-                case 'n':
-                    builder.setPiece(new Knight(Alliance.BLACK, i));
-                    i++;
-                    break;
-                case 'b':
-                    builder.setPiece(new Bishop(Alliance.BLACK, i));
-                    i++;
-                    break;
-                case 'q':
-                    builder.setPiece(new Queen(Alliance.BLACK, i));
-                    i++;
-                    break;
-                case 'k':
-                    final boolean isCastled = !blackKingSideCastle && !blackQueenSideCastle;
-                    builder.setPiece(new King(Alliance.BLACK, i, blackKingSideCastle, blackQueenSideCastle));
-                    i++;
-                    break;
-                case 'p':
-                    builder.setPiece(new Pawn(Alliance.BLACK, i));
-                    i++;
-                    break;
-                case 'R':
-                    builder.setPiece(new Rook(Alliance.WHITE, i));
-                    i++;
-                    break;
-                case 'N':
-                    builder.setPiece(new Knight(Alliance.WHITE, i));
-                    i++;
-                    break;
-                case 'B':
-                    builder.setPiece(new Bishop(Alliance.WHITE, i));
-                    i++;
+
+        // piece placement, rank 8 first, the kings wait for the castling rights
+        int i = skipSpaces(fen, 0);
+        int square = 0;
+        int separators = 0;
+        int whiteKing = -1;
+        int blackKing = -1;
+        long whitePawns = 0L;
+        long blackPawns = 0L;
+        for (; i < fen.length() && !Character.isWhitespace(fen.charAt(i)); i++) {
+            final char c = fen.charAt(i);
+            if (c == '/') {
+                // exactly one '/' at the end of every rank but the last
+                if (separators == BoardUtils.NUM_TILES_PER_ROW - 1 ||
+                    square != (separators + 1) * BoardUtils.NUM_TILES_PER_ROW) {
+                    throw invalid(fen);
+                }
+                separators++;
+            } else if (c >= '1' && c <= '8') {
+                square += c - '0';
+            } else if (square < BoardUtils.NUM_TILES && c == 'K') {
+                whiteKing = square++;
+            } else if (square < BoardUtils.NUM_TILES && c == 'k') {
+                blackKing = square++;
+            } else if (square < BoardUtils.NUM_TILES && PIECE_LETTERS.indexOf(Character.toUpperCase(c)) >= 0) {
+                if (c == 'P') {
+                    whitePawns |= 1L << square;
+                } else if (c == 'p') {
+                    blackPawns |= 1L << square;
+                }
+                builder.setPiece(unmovedPiece(c, square++));
+            } else {
+                throw invalid(fen);
+            }
+            // a rank may not spill over into the next one
+            if (square > (separators + 1) * BoardUtils.NUM_TILES_PER_ROW) {
+                throw invalid(fen);
+            }
+        }
+        if (separators != BoardUtils.NUM_TILES_PER_ROW - 1 || square != BoardUtils.NUM_TILES) {
+            throw invalid(fen);
+        }
+
+        // side to move
+        i = skipSpaces(fen, i);
+        if (i == fen.length() || (i + 1 < fen.length() && !Character.isWhitespace(fen.charAt(i + 1)))) {
+            throw invalid(fen);
+        }
+        final Alliance moveMaker;
+        if (fen.charAt(i) == 'w') {
+            moveMaker = Alliance.WHITE;
+        } else if (fen.charAt(i) == 'b') {
+            moveMaker = Alliance.BLACK;
+        } else {
+            throw invalid(fen);
+        }
+        builder.setMoveMaker(moveMaker);
+
+        // castling rights
+        i = skipSpaces(fen, i + 1);
+        boolean whiteKingSide = false;
+        boolean whiteQueenSide = false;
+        boolean blackKingSide = false;
+        boolean blackQueenSide = false;
+        for (; i < fen.length() && !Character.isWhitespace(fen.charAt(i)); i++) {
+            switch (fen.charAt(i)) {
+                case 'K':
+                    whiteKingSide = true;
                     break;
                 case 'Q':
-                    builder.setPiece(new Queen(Alliance.WHITE, i));
-                    i++;
+                    whiteQueenSide = true;
                     break;
-                case 'K':
-                    builder.setPiece(new King(Alliance.WHITE, i, whiteKingSideCastle, whiteQueenSideCastle));
-                    i++;
+                case 'k':
+                    blackKingSide = true;
                     break;
-                case 'P':
-                    builder.setPiece(new Pawn(Alliance.WHITE, i));
-                    i++;
+                case 'q':
+                    blackQueenSide = true;
                     break;
                 case '-':
-                    i++;
                     break;
                 default:
-                    throw new RuntimeException("Invalid FEN String " +gameConfiguration);
+                    throw invalid(fen);
+            }
+        }
+        if (whiteKing >= 0) {
+            builder.setPiece(new King(Alliance.WHITE, whiteKing, whiteKingSide, whiteQueenSide));
+        }
+        if (blackKing >= 0) {
+            builder.setPiece(new King(Alliance.BLACK, blackKing, blackKingSide, blackQueenSide));
+        }
+
+        // en passant square, behind the pawn that just jumped
+        i = skipSpaces(fen, i);
+        if (i < fen.length() && fen.charAt(i) != '-') {
+            builder.setEnPassantPawn(enPassantPawn(fen, i, moveMaker, moveMaker.isBlack() ? whitePawns : blackPawns));
+            i += 2;
+        } else if (i < fen.length()) {
+            i++;
+        }
+        if (i < fen.length() && !Character.isWhitespace(fen.charAt(i))) {
+            throw invalid(fen);
+        }
+
+        // the move counters, if there are any. Anything else is an EPD operation
+        i = skipSpaces(fen, i);
+        int halfMoveClock = 0;
+        int fullMoveNumber = 1;
+        if (isCounter(fen, i)) {
+            halfMoveClock = moveCounter(fen, i, 0);
+            i = skipSpaces(fen, skipCounter(fen, i));
+            if (isCounter(fen, i)) {
+                fullMoveNumber = moveCounter(fen, i, 1);
             }
         }
-        builder.setMoveMaker(moveMaker(fenPartitions[1]));
+        builder.setHalfMoveClock(halfMoveClock);
+        builder.setFullMoveNumber(fullMoveNumber);
         return builder.build();
     }
 
-    private static Alliance moveMaker(final String moveMakerString) {
-        if(moveMakerString.equals("w")) {
-            return Alliance.WHITE;
-        } else if(moveMakerString.equals("b")) {
-            return Alliance.BLACK;
+    private static Pawn enPassantPawn(final String fen,
+                                      final int i,
+                                      final Alliance moveMaker,
+                                      final long jumpedPawns) {
+        if (i + 1 >= fen.length()) {
+            throw invalid(fen);
+        }
+        final char file = fen.charAt(i);
+        final char rank = fen.charAt(i + 1);
+        // white jumped to the fourth rank when black is to move, black to the fifth
+        if (file < 'a' || file > 'h' || rank != (moveMaker.isBlack() ? '3' : '6')) {
+            throw invalid(fen);
+        }
+        final int pawnRow = moveMaker.isBlack() ? 4 : 3;
+        final int pawnSquare = pawnRow * BoardUtils.NUM_TILES_PER_ROW + (file - 'a');
+        if ((jumpedPawns & 1L << pawnSquare) == 0L) {
+            throw invalid(fen);
+        }
+        return (Pawn) UNMOVED_PIECES[pieceIndex(moveMaker.isBlack() ? Alliance.WHITE : Alliance.BLACK,
+            Piece.PieceType.PAWN, pawnSquare)];
+    }
+
+    // a half move clock or move number starts here: a digit, or a minus sign for a broken one
+    private static boolean isCounter(final String fen,
+                                     final int i) {
+        return i < fen.length() && (Character.isDigit(fen.charAt(i)) || fen.charAt(i) == '-');
+    }
+
+    // puzzle collections often write a move number of 0, that reads as the first move
+    private static int moveCounter(final String fen,
+                                   final int start,
+                                   final int minimum) {
+        int counter = 0;
+        int i = start;
+        for (; i < fen.length() && !Character.isWhitespace(fen.charAt(i)); i++) {
+            final char c = fen.charAt(i);
+            if (c < '0' || c > '9' || counter > (Integer.MAX_VALUE - 9) / 10) {
+                throw invalid(fen);
+            }
+            counter = counter * 10 + (c - '0');
+        }
+        return Math.max(minimum, counter);
+    }
+
+    private static int skipCounter(final String fen,
+                                   final int start) {
+        int i = start;
+        while (i < fen.length() && !Character.isWhitespace(fen.charAt(i))) {
+            i++;
         }
-        throw new RuntimeException("Invalid FEN String " +moveMakerString);
+        return i;
     }
 
-    private static boolean whiteKingSideCastle(final String fenCastleString) {
-        return fenCastleString.contains("K");
+    private static int skipSpaces(final String text,
+                                  final int start) {
+        int i = start;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
     }
 
-    private static boolean whiteQueenSideCastle(final String fenCastleString) {
-        return fenCastleString.contains("Q");
+    private static RuntimeException invalid(final String fen) {
+        return new RuntimeException("Invalid FEN String " + fen);
     }
 
-    private static boolean blackKingSideCastle(final String fenCastleString) {
-        return fenCastleString.contains("k");
+    private static Piece unmovedPiece(final char letter,
+                                      final int square) {
+        final Alliance alliance = Character.isUpperCase(letter) ? Alliance.WHITE : Alliance.BLACK;
+        final Piece.PieceType pieceType = PIECE_TYPES[PIECE_LETTERS.indexOf(Character.toUpperCase(letter))];
+        return UNMOVED_PIECES[pieceIndex(alliance, pieceType, square)];
     }
 
-    private static boolean blackQueenSideCastle(final String fenCastleString) {
-        return fenCastleString.contains("q");
+    private static int pieceIndex(final Alliance alliance,
+                                  final Piece.PieceType pieceType,
+                                  final int square) {
+        return ((alliance.isWhite() ? 0 : PIECE_LETTERS.length()) + pieceType.ordinal()) * BoardUtils.NUM_TILES + square;
     }
 
-    private static String calculateCastleText(final Board board) {
-        final StringBuilder builder = new StringBuilder();
+    // everything but kings, those carry castling rights
+    private static Piece[] createUnmovedPieces() {
+        final Piece[] pieces = new Piece[2 * PIECE_LETTERS.length() * BoardUtils.NUM_TILES];
+        for (final Alliance alliance : Alliance.values()) {
+            for (int square = 0; square < BoardUtils.NUM_TILES; square++) {
+                pieces[pieceIndex(alliance, Piece.PieceType.PAWN, square)] = new Pawn(alliance, square);
+                pieces[pieceIndex(alliance, Piece.PieceType.KNIGHT, square)] = new Knight(alliance, square);
+                pieces[pieceIndex(alliance, Piece.PieceType.BISHOP, square)] = new Bishop(alliance, square);
+                pieces[pieceIndex(alliance, Piece.PieceType.ROOK, square)] = new Rook(alliance, square);
+                pieces[pieceIndex(alliance, Piece.PieceType.QUEEN, square)] = new Queen(alliance, square);
+            }
+        }
+        return pieces;
+    }
+
+    private static void appendCastleText(final Board board,
+                                         final StringBuilder builder) {
+        final int length = builder.length();
         if(board.whitePlayer().isKingSideCastleCapable()) {
-            builder.append("K");
+            builder.append('K');
         }
         if(board.whitePlayer().isQueenSideCastleCapable()) {
-            builder.append("Q");
+            builder.append('Q');
         }
         if(board.blackPlayer().isKingSideCastleCapable()) {
-            builder.append("k");
+            builder.append('k');
         }
         if(board.blackPlayer().isQueenSideCastleCapable()) {
-            builder.append("q");
+            builder.append('q');
+        }
+        if(builder.length() == length) {
+            builder.append('-');
         }
-        final String result = builder.toString();
-
-        return result.isEmpty() ? "-" : result;
     }
 
-    private static String calculateEnPassantSquare(final Board board) {
+    // the square the pawn that just jumped passed over
+    private static void appendEnPassantSquare(final Board board,
+                                              final StringBuilder builder) {
         final Pawn enPassantPawn = board.getEnPassantPawn();
-        if(enPassantPawn != null) {
-            return BoardUtils.INSTANCE.getPositionAtCoordinate(enPassantPawn.getPiecePosition() +
-                (8) * enPassantPawn.getPieceAllegiance().getOppositeDirection());
-        }
-        return "-";
-    }
-
-    private static String calculateBoardText(final Board board) {
-        final StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < BoardUtils.NUM_TILES; i++) {
-            final String tileText = board.getPiece(i) == null ? "-" :
-                board.getPiece(i).getPieceAllegiance().isWhite() ? board.getPiece(i).toString() :
-                    board.getPiece(i).toString().toLowerCase();
-            builder.append(tileText);
-        }
-        builder.insert(8, "/");
-        builder.insert(17, "/");
-        builder.insert(26, "/");
-        builder.insert(35, "/");
-        builder.insert(44, "/");
-        builder.insert(53, "/");
-        builder.insert(62, "/");
-        return builder.toString()
-            .replaceAll("--------", "8")
-            .replaceAll("-------", "7")
-            .replaceAll("------", "6")
-            .replaceAll("-----", "5")
-            .replaceAll("----", "4")
-            .replaceAll("---", "3")
-            .replaceAll("--", "2")
-            .replaceAll("-", "1");
-    }
-
-    private static String calculateCurrentPlayerText(final Board board) {
-        return board.currentPlayer().toString().substring(0, 1).toLowerCase();
-    }
-
-}
\ No newline at end of file
+        if(enPassantPawn == null) {
+            builder.append('-');
+            return;
+        }
+        final int square = enPassantPawn.getPiecePosition() +
+            BoardUtils.NUM_TILES_PER_ROW * enPassantPawn.getPieceAllegiance().getOppositeDirection();
+        builder.append((char) ('a' + square % BoardUtils.NUM_TILES_PER_ROW))
+               .append((char) ('8' - square / BoardUtils.NUM_TILES_PER_ROW));
+    }
+
+    private static void appendBoardText(final Board board,
+                                        final StringBuilder builder) {
+        for (int row = 0; row < BoardUtils.NUM_TILES_PER_ROW; row++) {
+            if (row > 0) {
+                builder.append('/');
+            }
+            int empty = 0;
+            for (int file = 0; file < BoardUtils.NUM_TILES_PER_ROW; file++) {
+                final Piece piece = board.getPiece(row * BoardUtils.NUM_TILES_PER_ROW + file);
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    builder.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                final char letter = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+                builder.append(piece.getPieceAllegiance().isWhite() ? letter : Character.toLowerCase(letter));
+            }
+            if (empty > 0) {
+                builder.append((char) ('0' + empty));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.chess.pgn;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/*
+* One game out of a PGN file: the tag pairs, the moves in standard algebraic notation (SAN) and the
+* result. The moves are kept as text, PGNUtilities.createMove turns them into Moves on a board.
+* */
+public final class PGNGame {
+
+    private final Map<String, String> tags;
+    private final List<String> moves;
+    private final String result;
+
+    public PGNGame(final Map<String, String> tags,
+                   final List<String> moves,
+                   final String result) {
+        this.tags = Collections.unmodifiableMap(tags);
+        this.moves = Collections.unmodifiableList(moves);
+        this.result = result;
+    }
+
+    public Map<String, String> getTags() {
+        return this.tags;
+    }
+
+    public String getTag(final String name) {
+        return this.tags.get(name);
+    }
+
+    public List<String> getMoves() {
+        return this.moves;
+    }
+
+    // "1-0", "0-1", "1/2-1/2" or "*" when the game did not finish
+    public String getResult() {
+        return this.result;
+    }
+
+    // 1 for a white win, 0 for a black win, 0.5 for a draw and -1 when there is no result
+    public double getWhiteScore() {
+        switch (this.result) {
+            case "1-0":
+                return 1.0;
+            case "0-1":
+                return 0.0;
+            case "1/2-1/2":
+                return 0.5;
+            default:
+                return -1.0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.tags.getOrDefault("White", "?") + " - " + this.tags.getOrDefault("Black", "?") + " " +
+            this.result + " (" + this.moves.size() + " moves)";
+    }
+
+}
@@ -0,0 +1,297 @@
+package com.chess.pgn;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.pieces.Piece;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/*
+* Reading games out of PGN (portable game notation) files.
+*
+* Notes:
+*   + A PGN file is a list of games, every game is a block of tag pairs ([White "Morphy"]) followed by
+*     the move text: "1.e4 e5 2.Nf3 {a comment} Nc6 (2...d6 a variation) 3.Bb5 $1 1-0".
+*   + The reader streams, one game at a time, so big files never have to fit in memory.
+*   + From the move text we only keep the main line: comments, variations, NAGs ($1) and move
+*     numbers are thrown away. What is left are the moves in SAN (standard algebraic notation).
+*   + createMove finds the legal move a SAN string stands for on a given board. Our pawns always
+*     promote to a queen (see Pawn.getPromotionPiece) so an under promotion can not be replayed,
+*     that is reported as a ParsePGNException instead of silently making a different move.
+* */
+public class PGNUtilities {
+
+    private static final String[] RESULTS = {"1-0", "0-1", "1/2-1/2", "*"};
+
+    private PGNUtilities() {
+        throw new RuntimeException("Not Instantiable!");
+    }
+
+    public static List<PGNGame> readGames(final Path pgnFile) throws IOException {
+        final List<PGNGame> games = new ArrayList<>();
+        try (final BufferedReader reader = Files.newBufferedReader(pgnFile, StandardCharsets.ISO_8859_1)) {
+            forEachGame(reader, games::add);
+        }
+        return games;
+    }
+
+    /*
+    * Hands every game in the reader to the consumer. A game with broken move text (unbalanced
+    * comments or variations) is skipped, one bad game should not cost us the rest of the file.
+    * */
+    public static void forEachGame(final Reader reader,
+                                   final Consumer<PGNGame> consumer) throws IOException {
+        final BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        Map<String, String> tags = new LinkedHashMap<>();
+        final StringBuilder moveText = new StringBuilder();
+        String line;
+        while ((line = lines.readLine()) != null) {
+            final String trimmed = line.trim();
+            if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+                if (moveText.length() > 0) {
+                    finishGame(tags, moveText, consumer);
+                    tags = new LinkedHashMap<>();
+                }
+                parseTag(trimmed, tags);
+            } else if (!trimmed.isEmpty() && !trimmed.startsWith("%")) {
+                moveText.append(line).append('\n');
+            }
+        }
+        if (moveText.length() > 0 || !tags.isEmpty()) {
+            finishGame(tags, moveText, consumer);
+        }
+    }
+
+    /*
+    * The main line moves of a move text, in SAN, without move numbers, comments, variations, NAGs
+    * and the result.
+    * */
+    public static List<String> processMoveText(final String moveText) throws ParsePGNException {
+        final List<String> moves = new ArrayList<>();
+        final StringBuilder token = new StringBuilder();
+        int variationDepth = 0;
+        int i = 0;
+        while (i < moveText.length()) {
+            final char c = moveText.charAt(i);
+            if (c == '{') {
+                final int end = moveText.indexOf('}', i);
+                if (end < 0) {
+                    throw new ParsePGNException("Unterminated comment in " + moveText);
+                }
+                addToken(token, moves, variationDepth);
+                i = end + 1;
+                continue;
+            }
+            if (c == ';') {
+                final int end = moveText.indexOf('\n', i);
+                addToken(token, moves, variationDepth);
+                i = end < 0 ? moveText.length() : end + 1;
+                continue;
+            }
+            if (c == '(') {
+                addToken(token, moves, variationDepth);
+                variationDepth++;
+            } else if (c == ')') {
+                if (variationDepth == 0) {
+                    throw new ParsePGNException("Unbalanced variation in " + moveText);
+                }
+                addToken(token, moves, variationDepth);
+                variationDepth--;
+            } else if (Character.isWhitespace(c)) {
+                addToken(token, moves, variationDepth);
+            } else {
+                token.append(c);
+            }
+            i++;
+        }
+        if (variationDepth != 0) {
+            throw new ParsePGNException("Unbalanced variation in " + moveText);
+        }
+        addToken(token, moves, variationDepth);
+        return moves;
+    }
+
+    /*
+    * The legal move on the board that the SAN string (e4, Nbd7, exd6, R1a3, O-O, e8=Q, Qh4+ ...) stands
+    * for.
+    * */
+    public static Move createMove(final Board board,
+                                  final String san) throws ParsePGNException {
+        final String move = stripAnnotations(san);
+        if (move.equals("O-O") || move.equals("0-0")) {
+            return findCastle(board, san, Move.KingSideCastleMove.class);
+        }
+        if (move.equals("O-O-O") || move.equals("0-0-0")) {
+            return findCastle(board, san, Move.QueenSideCastleMove.class);
+        }
+
+        String body = move;
+        final int promotionIndex = body.indexOf('=');
+        if (promotionIndex >= 0 || (body.length() > 2 && "QRBN".indexOf(body.charAt(body.length() - 1)) >= 0 &&
+            Character.isDigit(body.charAt(body.length() - 2)))) {
+            final char promotion = promotionIndex >= 0 ? body.charAt(promotionIndex + 1) : body.charAt(body.length() - 1);
+            if (promotion != 'Q') {
+                throw new ParsePGNException("Under promotion is not supported: " + san);
+            }
+            body = promotionIndex >= 0 ? body.substring(0, promotionIndex) : body.substring(0, body.length() - 1);
+        }
+        if (body.length() < 2) {
+            throw new ParsePGNException("Not a move: " + san);
+        }
+
+        final Piece.PieceType pieceType = pieceType(body.charAt(0));
+        final String destination = body.substring(body.length() - 2);
+        if (!BoardUtils.POSITION_TO_COORDINATE.containsKey(destination)) {
+            throw new ParsePGNException("Not a move: " + san);
+        }
+        final int destinationCoordinate = BoardUtils.getCoordinateAtPosition(destination);
+        // whatever sits between the piece letter and the destination: a file, a rank or both
+        final String origin = body.substring(pieceType == Piece.PieceType.PAWN ? 0 : 1, body.length() - 2)
+            .replace("x", "");
+
+        for (final Move candidate : board.currentPlayer().getLegalMoves()) {
+            if (candidate.getDestinationCoordinate() != destinationCoordinate ||
+                candidate.isCastlingMove() ||
+                candidate.getMovedPiece().getPieceType() != pieceType ||
+                !matchesOrigin(candidate.getCurrentCoordinate(), origin)) {
+                continue;
+            }
+            final MoveTransition transition = board.currentPlayer().makeMove(candidate);
+            if (transition.getMoveStatus().isDone()) {
+                return candidate;
+            }
+        }
+        throw new ParsePGNException("Illegal move " + san + " in " + FenUtilities.createFENFromGame(board));
+    }
+
+    private static void finishGame(final Map<String, String> tags,
+                                   final StringBuilder moveText,
+                                   final Consumer<PGNGame> consumer) {
+        final String text = moveText.toString();
+        moveText.setLength(0);
+        final List<String> moves;
+        try {
+            moves = processMoveText(text);
+        } catch (final ParsePGNException e) {
+            return;
+        }
+        String result = tags.getOrDefault("Result", "*");
+        for (final String candidate : RESULTS) {
+            if (text.trim().endsWith(candidate)) {
+                result = candidate;
+                break;
+            }
+        }
+        consumer.accept(new PGNGame(tags, moves, result));
+    }
+
+    private static void parseTag(final String line,
+                                 final Map<String, String> tags) {
+        final int space = line.indexOf(' ');
+        final int open = line.indexOf('"');
+        final int close = line.lastIndexOf('"');
+        if (space < 0 || open < 0 || close <= open) {
+            return;
+        }
+        tags.put(line.substring(1, space), line.substring(open + 1, close).replace("\\\"", "\""));
+    }
+
+    private static void addToken(final StringBuilder token,
+                                 final List<String> moves,
+                                 final int variationDepth) {
+        if (token.length() == 0) {
+            return;
+        }
+        final String text = token.toString();
+        token.setLength(0);
+        if (variationDepth > 0 || text.startsWith("$") || isResult(text)) {
+            return;
+        }
+        // "12." "12..." or glued to the move like "12.e4", castling written with zeros has no dot
+        int start = 0;
+        while (start < text.length() && Character.isDigit(text.charAt(start))) {
+            start++;
+        }
+        if (start < text.length() && text.charAt(start) == '.') {
+            while (start < text.length() && text.charAt(start) == '.') {
+                start++;
+            }
+        } else {
+            start = 0;
+        }
+        final String move = text.substring(start);
+        if (!move.isEmpty() && "abcdefghNBRQKO0".indexOf(move.charAt(0)) >= 0) {
+            moves.add(move);
+        }
+    }
+
+    private static boolean isResult(final String text) {
+        for (final String result : RESULTS) {
+            if (result.equals(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripAnnotations(final String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return san.substring(0, end);
+    }
+
+    private static Piece.PieceType pieceType(final char letter) {
+        switch (letter) {
+            case 'N':
+                return Piece.PieceType.KNIGHT;
+            case 'B':
+                return Piece.PieceType.BISHOP;
+            case 'R':
+                return Piece.PieceType.ROOK;
+            case 'Q':
+                return Piece.PieceType.QUEEN;
+            case 'K':
+                return Piece.PieceType.KING;
+            default:
+                return Piece.PieceType.PAWN;
+        }
+    }
+
+    // the origin hint is empty, a file ("b"), a rank ("1") or a full square ("b1")
+    private static boolean matchesOrigin(final int coordinate,
+                                         final String origin) {
+        final String square = BoardUtils.getPositionAtCoordinate(coordinate);
+        for (final char c : origin.toCharArray()) {
+            if (square.indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Move findCastle(final Board board,
+                                   final String san,
+                                   final Class<? extends Move> castleType) throws ParsePGNException {
+        for (final Move candidate : board.currentPlayer().getLegalMoves()) {
+            if (castleType.isInstance(candidate) && board.currentPlayer().makeMove(candidate).getMoveStatus().isDone()) {
+                return candidate;
+            }
+        }
+        throw new ParsePGNException("Illegal move " + san + " in " + FenUtilities.createFENFromGame(board));
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.chess.pgn;
+
+public class ParsePGNException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public ParsePGNException(final String message) {
+        super(message);
+    }
+
+}
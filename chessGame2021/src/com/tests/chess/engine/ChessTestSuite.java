@@ -12,9 +12,32 @@ import org.junit.runners.Suite;
     TestMiniMax.class,
 //    TestAlphaBeta.class,
     TestCastling.class,
-//    TestPawnStructure.class,
     TestFENParser.class,
-    TestEngine.class
+    TestEngine.class,
+    TestMTDf.class,
+    TestProofNumberSearch.class,
+    TestMonteCarloTreeSearch.class,
+    TestDistributedSearch.class,
+    TestEvaluationState.class,
+    TestPieceSquareTableEvaluator.class,
+    TestPawnStructure.class,
+    TestKingSafety.class,
+    TestRookStructure.class,
+    TestMobility.class,
+    TestNnueEvaluator.class,
+    TestPGNUtilities.class,
+    TestTexelTuner.class,
+    TestLazyEvaluation.class,
+    TestEvaluationTrace.class,
+    TestCachedEvaluator.class,
+    TestEvaluatorSymmetry.class,
+    TestEndgames.class,
+    TestTablebase.class,
+    TestBatchEvaluator.class,
+    TestSpsaTuner.class,
+    TestDrawRules.class,
+    TestOpeningBook.class,
+    TestOpeningBookBuilder.class
     /*TestPGNParser.class*/})
 public class ChessTestSuite {
 }
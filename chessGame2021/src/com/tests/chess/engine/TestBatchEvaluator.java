@@ -0,0 +1,163 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.BatchEvaluator;
+import com.chess.engine.player.ai.PositionBatch;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestBatchEvaluator {
+
+    private static final String[] POSITIONS = {
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "r2qkb1r/3p1pp1/p1n1p2p/1p1bP3/P2p4/1PP5/5PPP/RNBQNRK1 w kq - 0 13",
+        "1k1r4/pp1b1R2/3q2pp/4p3/2B5/4Q3/PPP2B2/2K5 b - - 0 1",
+        "3r1k2/4npp1/1ppr3p/p6P/P2PPPP1/1NR5/5K2/2R5 w - - 0 1",
+        // fools mate, white is checkmated
+        "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 0 1",
+        "6k1/1P3ppp/8/2p5/8/8/P4PPP/6K1 w - - 0 1"
+    };
+    private static final int BENCHMARK_POSITIONS = 2000;
+
+    @Test
+    public void testMatchesStandardEvaluator() {
+        final List<Board> boards = positions(new Random(45), 40);
+        for (final int depth : new int[] {0, 3}) {
+            final int[] scores = BatchEvaluator.get().evaluate(boards, depth);
+            for (int i = 0; i < boards.size(); i++) {
+                assertEquals(FenUtilities.createFENFromGame(boards.get(i)),
+                    StandardBoardEvaluator.get().evaluate(boards.get(i), depth), scores[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchIsReused() {
+        final List<Board> boards = positions(new Random(7), 4);
+        final PositionBatch batch = new PositionBatch(boards.size());
+        for (final Board board : boards) {
+            batch.add(board);
+        }
+        assertTrue(batch.isFull());
+        final int[] first = new int[boards.size()];
+        BatchEvaluator.get().evaluate(batch, 0, first);
+
+        // the same positions the other way round, nothing of the first lot may stick
+        batch.clear();
+        assertFalse(batch.isFull());
+        for (int i = boards.size() - 1; i >= 0; i--) {
+            batch.add(boards.get(i));
+        }
+        final int[] second = new int[boards.size()];
+        BatchEvaluator.get().evaluate(batch, 0, second);
+        for (int i = 0; i < boards.size(); i++) {
+            assertEquals(first[i], second[boards.size() - 1 - i]);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFullBatch() {
+        final PositionBatch batch = new PositionBatch(1);
+        batch.add(Board.createStandardBoard());
+        batch.add(Board.createStandardBoard());
+    }
+
+    /*
+    * Not a pass/fail test, prints positions per second for the one board at a time evaluator and the
+    * batch one over the same positions. Each side sees the boards fresh, so neither gets the attack
+    * sets the other worked out. Both are run over other boards first, so neither is timed while the
+    * JIT is still compiling it.
+    * */
+    @Test
+    public void benchmarkPositionsPerSecond() {
+        final List<Board> warmUpBoards = positions(new Random(2), 30);
+        final PositionBatch warmUpBatch = new PositionBatch(warmUpBoards.size());
+        for (final Board board : warmUpBoards) {
+            StandardBoardEvaluator.get().evaluate(FenUtilities.createGameFromFEN(FenUtilities.createFENFromGame(board)), 0);
+            warmUpBatch.add(FenUtilities.createGameFromFEN(FenUtilities.createFENFromGame(board)));
+        }
+        BatchEvaluator.get().evaluate(warmUpBatch, 0, new int[warmUpBatch.size()]);
+
+        final Random random = new Random(1);
+        final List<Board> standardBoards = new ArrayList<>();
+        final List<Board> batchBoards = new ArrayList<>();
+        while (standardBoards.size() < BENCHMARK_POSITIONS) {
+            for (final Board board : positions(random, 30)) {
+                standardBoards.add(FenUtilities.createGameFromFEN(FenUtilities.createFENFromGame(board)));
+                batchBoards.add(FenUtilities.createGameFromFEN(FenUtilities.createFENFromGame(board)));
+            }
+        }
+
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (final Board board : standardBoards) {
+            checksum += StandardBoardEvaluator.get().evaluate(board, 0);
+        }
+        final long standardNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        final PositionBatch batch = new PositionBatch(batchBoards.size());
+        for (final Board board : batchBoards) {
+            batch.add(board);
+        }
+        final long packNanos = System.nanoTime() - start;
+        final int[] scores = new int[batch.size()];
+        start = System.nanoTime();
+        BatchEvaluator.get().evaluate(batch, 0, scores);
+        final long batchNanos = System.nanoTime() - start;
+        for (final int score : scores) {
+            checksum -= score;
+        }
+
+        System.out.println(String.format("%-30s %14s", "evaluator", "positions/sec"));
+        System.out.println(String.format("%-30s %14.0f", "StandardBoardEvaluator", perSecond(standardBoards.size(), standardNanos)));
+        System.out.println(String.format("%-30s %14.0f", "BatchEvaluator", perSecond(scores.length, batchNanos)));
+        System.out.println(String.format("%-30s %14.0f", "BatchEvaluator incl. packing", perSecond(scores.length, packNanos + batchNanos)));
+        assertEquals(0, checksum);
+    }
+
+    private static double perSecond(final int positions,
+                                    final long nanos) {
+        return positions * 1e9 / Math.max(1, nanos);
+    }
+
+    // the positions above and every board along a random game from each of them
+    private static List<Board> positions(final Random random,
+                                         final int plies) {
+        final List<Board> boards = new ArrayList<>();
+        for (final String fen : POSITIONS) {
+            Board board = FenUtilities.createGameFromFEN(fen);
+            boards.add(board);
+            for (int ply = 0; ply < plies; ply++) {
+                final List<Board> children = new ArrayList<>();
+                for (final Move move : board.currentPlayer().getLegalMoves()) {
+                    final MoveTransition transition = board.currentPlayer().makeMove(move);
+                    if (transition.getMoveStatus().isDone()) {
+                        children.add(transition.getToBoard());
+                    }
+                }
+                if (children.isEmpty()) {
+                    break;
+                }
+                board = children.get(random.nextInt(children.size()));
+                boards.add(board);
+            }
+        }
+        boards.add(Board.createStandardBoard());
+        return boards;
+    }
+
+}
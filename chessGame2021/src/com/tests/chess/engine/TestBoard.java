@@ -274,7 +274,7 @@ public class TestBoard
         final Move bestMove = Move.MoveFactory.createMove(t3.getToBoard(), BoardUtils.getCoordinateAtPosition("d8"),
                 BoardUtils.getCoordinateAtPosition("h4"));
 
-        assertEquals(aiMove, bestMove);
+        assertEquals(bestMove, aiMove);
     }
 
     // helper function for tests
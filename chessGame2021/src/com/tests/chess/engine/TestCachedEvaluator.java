@@ -0,0 +1,152 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.BoardEvaluator;
+import com.chess.engine.player.ai.CachedEvaluator;
+import com.chess.engine.player.ai.MTDf;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestCachedEvaluator {
+
+    private static final String ITALIAN = "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 1";
+
+    @Test
+    public void testSecondLookupHits() {
+        final CountingEvaluator counting = new CountingEvaluator();
+        final CachedEvaluator cache = new CachedEvaluator(counting, 1 << 10);
+        final Board board = FenUtilities.createGameFromFEN(ITALIAN);
+        final int score = cache.evaluate(board, 0);
+        assertEquals(score, cache.evaluate(board, 3));
+        assertEquals(1, counting.calls.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        cache.clear();
+        assertEquals(score, cache.evaluate(board, 0));
+        assertEquals(2, counting.calls.get());
+    }
+
+    @Test
+    public void testNegativeScoresSurvivePacking() {
+        final BoardEvaluator constant = (board, depth) -> -123456;
+        final CachedEvaluator cache = new CachedEvaluator(constant, 1 << 4);
+        final Board board = Board.createStandardBoard();
+        assertEquals(-123456, cache.evaluate(board, 0));
+        assertEquals(-123456, cache.evaluate(board, 0));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testBoundsOnlyAnswerWindowsTheyDecide() {
+        final CachedEvaluator cache = new CachedEvaluator(StandardBoardEvaluator.withLazyMargin(100), 1 << 10);
+        final Board queenUp = FenUtilities.createGameFromFEN("rnb1kbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        final int bound = cache.evaluate(queenUp, 0, -10, 10);
+        final int exact = StandardBoardEvaluator.get().evaluate(queenUp, 0);
+        assertTrue(bound >= 10 && bound != exact);
+        // the lower bound settles another window below it
+        assertEquals(bound, cache.evaluate(queenUp, 0, 100, 101));
+        assertEquals(1, cache.getHits());
+        // but it must never come back as if it were the real score
+        assertEquals(exact, cache.evaluate(queenUp, 0));
+        assertEquals(1, cache.getHits());
+        assertEquals(exact, cache.evaluate(queenUp, 0, -10, 10));
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testExactEvaluatorsCacheEveryWindow() {
+        final CachedEvaluator cache = new CachedEvaluator(StandardBoardEvaluator.get(), 1 << 10);
+        final Board board = FenUtilities.createGameFromFEN(ITALIAN);
+        final int exact = cache.evaluate(board, 0, 5000, 5001);
+        assertEquals(StandardBoardEvaluator.get().evaluate(board, 0), exact);
+        assertEquals(exact, cache.evaluate(board, 0));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMustBeAPowerOfTwo() {
+        new CachedEvaluator(StandardBoardEvaluator.get(), 1000);
+    }
+
+    @Test
+    public void testSearchScoresUnchanged() {
+        final Board board = FenUtilities.createGameFromFEN(ITALIAN);
+        final CachedEvaluator cache = new CachedEvaluator(StandardBoardEvaluator.get());
+        final MTDf search = new MTDf(3, cache);
+        final int score = search.iterativeDeepening(board, 3);
+        assertEquals(new MTDf(3).iterativeDeepening(board, 3), score);
+        // search again without the transposition table, nearly every leaf is in the cache by now
+        search.getTranspositionTable().clear();
+        final long hits = cache.getHits();
+        final long misses = cache.getMisses();
+        assertEquals(score, search.iterativeDeepening(board, 3));
+        assertTrue(cache.getHits() - hits > 10 * (cache.getMisses() - misses));
+    }
+
+    /*
+    * Threads evaluating overlapping positions through a tiny cache, so slots get overwritten all the time.
+    * Every answer still has to be the evaluator's own.
+    * */
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final Board root = FenUtilities.createGameFromFEN(ITALIAN);
+        final List<Board> boards = new ArrayList<>();
+        for (final Move move : root.currentPlayer().getLegalMoves()) {
+            final MoveTransition transition = root.currentPlayer().makeMove(move);
+            if (transition.getMoveStatus().isDone()) {
+                boards.add(transition.getToBoard());
+            }
+        }
+        final int[] expected = new int[boards.size()];
+        for (int i = 0; i < boards.size(); i++) {
+            expected[i] = StandardBoardEvaluator.get().evaluate(boards.get(i), 0);
+        }
+        final CachedEvaluator cache = new CachedEvaluator(StandardBoardEvaluator.get(), 1 << 2);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                final int offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 20; round++) {
+                        for (int i = 0; i < boards.size(); i++) {
+                            final int index = (i + offset) % boards.size();
+                            assertEquals(expected[index], cache.evaluate(boards.get(index), 0));
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class CountingEvaluator implements BoardEvaluator {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public int evaluate(final Board board, final int depth) {
+            this.calls.incrementAndGet();
+            return StandardBoardEvaluator.get().evaluate(board, depth);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.DistributedSearch;
+import com.chess.engine.player.ai.MTDf;
+import com.chess.engine.player.ai.SearchWorker;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestDistributedSearch {
+
+    // no castling moves at the root, FEN does not remember whether a king has already castled
+    private static final String POSITION = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final int DEPTH = 3;
+    // black is the exchange up, white's knight and black's rook go out and back before the search
+    private static final String SHUFFLE_POSITION = "6k1/5pp1/7p/8/8/8/r4PPP/1N4K1 w - - 0 1";
+
+    @Test
+    public void testWorkerProcessesMatchLocalSearch() throws Exception {
+        final List<Process> processes = new ArrayList<>();
+        try {
+            final List<InetSocketAddress> addresses = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                final Process process = startWorkerProcess();
+                processes.add(process);
+                addresses.add(new InetSocketAddress("127.0.0.1", readPort(process)));
+            }
+            final Board board = FenUtilities.createGameFromFEN(POSITION);
+            final DistributedSearch search = new DistributedSearch(DEPTH, addresses);
+            search.execute(board);
+            assertEquals(0, search.getDeadWorkers());
+            assertEquals(0, search.getUnitsSearchedLocally());
+            assertEquals(localScore(board), search.getBestScore());
+        } finally {
+            for (final Process process : processes) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    @Test
+    public void testDeadWorkerIsDropped() throws Exception {
+        try (final SearchWorker worker = SearchWorker.start(0, InetAddress.getLoopbackAddress())) {
+            final List<InetSocketAddress> addresses = Arrays.asList(
+                new InetSocketAddress("127.0.0.1", worker.getPort()),
+                new InetSocketAddress("127.0.0.1", unusedPort()));
+            final Board board = FenUtilities.createGameFromFEN(POSITION);
+            final DistributedSearch search = new DistributedSearch(DEPTH, addresses, 5_000);
+            search.execute(board);
+            assertEquals(1, search.getDeadWorkers());
+            assertEquals(localScore(board), search.getBestScore());
+        }
+    }
+
+    @Test
+    public void testFallsBackToLocalSearchWhenEveryWorkerIsGone() throws Exception {
+        final List<InetSocketAddress> addresses = Arrays.asList(new InetSocketAddress("127.0.0.1", unusedPort()));
+        final Board board = FenUtilities.createGameFromFEN(POSITION);
+        final DistributedSearch search = new DistributedSearch(DEPTH, addresses, 5_000);
+        search.execute(board);
+        assertEquals(1, search.getDeadWorkers());
+        assertTrue(search.getUnitsSearchedLocally() > 0);
+        assertEquals(localScore(board), search.getBestScore());
+    }
+
+    /*
+    * A worker that reads its first unit and hangs up. Its unit is searched here instead, and that has
+    * to give what a worker would have given, even though the board here remembers the game.
+    * */
+    @Test
+    public void testWorkerDyingMidSearchOnAGameWithHistory() throws Exception {
+        final Board board = play(FenUtilities.createGameFromFEN(SHUFFLE_POSITION), "b1", "a3", "a2", "b2", "a3", "b1", "b2", "a2");
+        final int workerScore;
+        try (final SearchWorker worker = SearchWorker.start(0, InetAddress.getLoopbackAddress())) {
+            final DistributedSearch search = new DistributedSearch(DEPTH,
+                Arrays.asList(new InetSocketAddress("127.0.0.1", worker.getPort())));
+            search.execute(board);
+            assertEquals(0, search.getUnitsSearchedLocally());
+            workerScore = search.getBestScore();
+        }
+        try (final ServerSocket dyingWorker = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            final Thread thread = new Thread(() -> {
+                try (final Socket connection = dyingWorker.accept()) {
+                    new BufferedReader(new InputStreamReader(connection.getInputStream())).readLine();
+                } catch (final IOException e) {
+                    // gone either way
+                }
+            });
+            thread.start();
+            final DistributedSearch search = new DistributedSearch(DEPTH,
+                Arrays.asList(new InetSocketAddress("127.0.0.1", dyingWorker.getLocalPort())), 5_000);
+            search.execute(board);
+            thread.join();
+            assertEquals(1, search.getDeadWorkers());
+            assertTrue(search.getUnitsSearchedLocally() > 0);
+            assertEquals(workerScore, search.getBestScore());
+        }
+    }
+
+    private static int localScore(final Board board) {
+        return new MTDf(DEPTH).iterativeDeepening(board, DEPTH);
+    }
+
+    // the squares come in pairs, from and to
+    private static Board play(final Board board,
+                              final String... squares) {
+        Board played = board;
+        for (int i = 0; i < squares.length; i += 2) {
+            final MoveTransition transition = played.currentPlayer().makeMove(Move.MoveFactory.createMove(played,
+                BoardUtils.getCoordinateAtPosition(squares[i]), BoardUtils.getCoordinateAtPosition(squares[i + 1])));
+            assertTrue(transition.getMoveStatus().isDone());
+            played = transition.getToBoard();
+        }
+        return played;
+    }
+
+    private static Process startWorkerProcess() throws IOException {
+        final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            SearchWorker.class.getName(), "0", "127.0.0.1").redirectErrorStream(true).start();
+    }
+
+    private static int readPort(final Process process) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        final String line = reader.readLine();
+        assertTrue(line, line != null && line.startsWith("SearchWorker listening on "));
+        return Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1));
+    }
+
+    // a port that was free a moment ago, nothing is listening on it
+    private static int unusedPort() throws IOException {
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.DrawRules;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.BoardEvaluator;
+import com.chess.engine.player.ai.MTDf;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestDrawRules {
+
+    // both knights out and home again, from and to squares
+    private static final String[] KNIGHT_SHUFFLE = {"g1", "f3", "g8", "f6", "f3", "g1", "f6", "g8"};
+
+    @Test
+    public void testMoveCounters() {
+        Board board = Board.createStandardBoard();
+        board = play(board, "g1", "f3");
+        assertEquals(1, board.getHalfMoveClock());
+        assertEquals(1, board.getFullMoveNumber());
+        board = play(board, "g8", "f6");
+        assertEquals(2, board.getHalfMoveClock());
+        assertEquals(2, board.getFullMoveNumber());
+        board = play(board, "e2", "e4");
+        assertEquals(0, board.getHalfMoveClock());
+        board = play(board, "f6", "e4");
+        assertEquals(0, board.getHalfMoveClock());
+        assertEquals(3, board.getFullMoveNumber());
+        assertTrue(FenUtilities.createFENFromGame(board).endsWith(" 0 3"));
+    }
+
+    @Test
+    public void testFenMoveCounters() {
+        final String fen = "8/8/8/4k3/8/8/8/4K2R w K - 37 52";
+        final Board board = FenUtilities.createGameFromFEN(fen);
+        assertEquals(37, board.getHalfMoveClock());
+        assertEquals(52, board.getFullMoveNumber());
+        assertEquals(fen, FenUtilities.createFENFromGame(board));
+        // EPD style, no counters
+        assertEquals(1, FenUtilities.createGameFromFEN("8/8/8/4k3/8/8/8/4K2R w K -").getFullMoveNumber());
+    }
+
+    @Test
+    public void testThreefoldRepetition() {
+        Board board = Board.createStandardBoard();
+        for (int i = 0; i < KNIGHT_SHUFFLE.length; i += 2) {
+            board = play(board, KNIGHT_SHUFFLE[i], KNIGHT_SHUFFLE[i + 1]);
+        }
+        assertEquals(2, DrawRules.repetitionCount(board));
+        assertFalse(DrawRules.isDraw(board));
+        for (int i = 0; i < KNIGHT_SHUFFLE.length; i += 2) {
+            board = play(board, KNIGHT_SHUFFLE[i], KNIGHT_SHUFFLE[i + 1]);
+        }
+        assertEquals(3, DrawRules.repetitionCount(board));
+        assertTrue(DrawRules.isThreefoldRepetition(board));
+        assertTrue(DrawRules.isDraw(board));
+        // a pawn move and nothing before it can come round again
+        board = play(board, "e2", "e4");
+        assertEquals(1, DrawRules.repetitionCount(board));
+    }
+
+    @Test
+    public void testFiftyMoves() {
+        final Board board = FenUtilities.createGameFromFEN("k7/8/8/8/7r/8/8/4K2R w - - 99 80");
+        assertFalse(DrawRules.isFiftyMoveDraw(board));
+        assertTrue(DrawRules.isFiftyMoveDraw(play(board, "h1", "h2")));
+        assertFalse(DrawRules.isFiftyMoveDraw(play(board, "h1", "h4")));
+    }
+
+    @Test
+    public void testInsufficientMaterial() {
+        assertTrue(insufficient("8/8/4k3/8/8/8/8/4K3 w - - 0 1"));
+        assertTrue(insufficient("8/8/4k3/8/8/8/8/2B1K3 w - - 0 1"));
+        assertTrue(insufficient("8/8/4k3/8/8/8/8/1N2K3 b - - 0 1"));
+        // bishops on light squares only
+        assertTrue(insufficient("2b5/8/4k3/8/8/8/8/4KB2 w - - 0 1"));
+        assertFalse(insufficient("1b6/8/4k3/8/8/8/8/4KB2 w - - 0 1"));
+        assertFalse(insufficient("8/8/4k3/8/8/8/8/1N2K1N1 w - - 0 1"));
+        assertFalse(insufficient("8/8/4k3/8/8/8/4P3/4K3 w - - 0 1"));
+        assertFalse(insufficient("8/8/4k3/8/8/8/8/R3K3 w - - 0 1"));
+    }
+
+    /*
+    * Every position scores well for white, only a repetition can save black. With the game behind it
+    * the search finds Ng8, back to the starting position, set up from scratch it can not.
+    * */
+    @Test
+    public void testSearchScoresRepetitionsAsDraws() {
+        Board board = Board.createStandardBoard();
+        for (int i = 0; i < 6; i += 2) {
+            board = play(board, KNIGHT_SHUFFLE[i], KNIGHT_SHUFFLE[i + 1]);
+        }
+        final BoardEvaluator whiteIsBetter = (position, depth) -> 500;
+        final MTDf search = new MTDf(1, whiteIsBetter);
+        assertEquals(0, search.iterativeDeepening(board, 1));
+        assertEquals(BoardUtils.INSTANCE.getCoordinateAtPosition("g8"),
+            search.findBestMove(board).getDestinationCoordinate());
+
+        final Board setUp = FenUtilities.createGameFromFEN(FenUtilities.createFENFromGame(board));
+        assertEquals(-500, new MTDf(1, whiteIsBetter).iterativeDeepening(setUp, 1));
+    }
+
+    @Test
+    public void testSearchScoresFiftyMovesAsDraws() {
+        // black is a queen down, but any move is the hundredth without progress
+        final String fen = "k7/8/8/8/8/8/8/6QK b - - %d 80";
+        final MTDf search = new MTDf(2, StandardBoardEvaluator.get());
+        assertEquals(0, search.iterativeDeepening(FenUtilities.createGameFromFEN(String.format(fen, 99)), 2));
+        assertTrue(search.iterativeDeepening(FenUtilities.createGameFromFEN(String.format(fen, 0)), 2) < -500);
+    }
+
+    private static boolean insufficient(final String fen) {
+        return DrawRules.isInsufficientMaterial(FenUtilities.createGameFromFEN(fen));
+    }
+
+    private static Board play(final Board board,
+                              final String from,
+                              final String to) {
+        final Move move = Move.MoveFactory.createMove(board, BoardUtils.INSTANCE.getCoordinateAtPosition(from),
+            BoardUtils.INSTANCE.getCoordinateAtPosition(to));
+        final MoveTransition transition = board.currentPlayer().makeMove(move);
+        assertTrue(from + to, transition.getMoveStatus().isDone());
+        return transition.getToBoard();
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardMirror;
+import com.chess.engine.board.MaterialSignature;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.ai.EndgameEvaluator;
+import com.chess.engine.player.ai.EndgameRegistry;
+import com.chess.engine.player.ai.MTDf;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestEndgames {
+
+    private static final EndgameEvaluator EVALUATOR = new EndgameEvaluator(StandardBoardEvaluator.get());
+
+    @Test
+    public void testMaterialSignature() {
+        final Board board = FenUtilities.createGameFromFEN("8/8/3k4/3b4/8/8/2PR4/4K3 w - - 0 1");
+        final long signature = board.getEvaluationState().getMaterialSignature();
+        assertEquals(MaterialSignature.of("KRPKB"), signature);
+        assertEquals("KRPKB", MaterialSignature.toString(signature));
+        assertEquals(1, MaterialSignature.count(signature, Piece.PieceType.ROOK, Alliance.WHITE));
+        assertEquals(0, MaterialSignature.count(signature, Piece.PieceType.ROOK, Alliance.BLACK));
+        assertEquals(MaterialSignature.of("KBKRP"), MaterialSignature.mirror(signature));
+        assertEquals(Board.createStandardBoard().getEvaluationState().getMaterialSignature(),
+            MaterialSignature.of("KQRRBBNNPPPPPPPPKQRRBBNNPPPPPPPP"));
+        assertTrue(MaterialSignature.isBareKing(MaterialSignature.of("KRK"), Alliance.BLACK));
+        assertFalse(MaterialSignature.isBareKing(MaterialSignature.of("KRK"), Alliance.WHITE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadSignature() {
+        MaterialSignature.of("KXK");
+    }
+
+    @Test
+    public void testLookupBySignature() {
+        final EndgameRegistry.Endgame whiteRook = EndgameRegistry.get().probe(FenUtilities.createGameFromFEN("8/8/4k3/8/8/8/8/R3K3 w - - 0 1"));
+        assertEquals("KRK", whiteRook.getName());
+        assertEquals(Alliance.WHITE, whiteRook.getStrongSide());
+        final EndgameRegistry.Endgame blackRook = EndgameRegistry.get().probe(FenUtilities.createGameFromFEN("r3k3/8/8/8/8/3K4/8/8 w - - 0 1"));
+        assertEquals("KKR", blackRook.getName());
+        assertEquals(Alliance.BLACK, blackRook.getStrongSide());
+        assertEquals("KBPPKB", EndgameRegistry.get().probe(MaterialSignature.of("KBPPKB")).getName());
+        assertNull(EndgameRegistry.get().probe(Board.createStandardBoard()));
+        assertNull(EndgameRegistry.get().probe(MaterialSignature.of("KRKB")));
+    }
+
+    @Test
+    public void testInsufficientMaterialIsADraw() {
+        for (final String fen : new String[] {"8/8/4k3/8/8/8/8/4K3 w - - 0 1",
+                                              "8/8/4k3/8/8/8/8/2N1K3 w - - 0 1",
+                                              "8/8/2b1k3/8/8/8/8/4K3 b - - 0 1",
+                                              "8/8/4k3/8/8/8/8/1NN1K3 w - - 0 1"}) {
+            final Board board = FenUtilities.createGameFromFEN(fen);
+            assertTrue(fen, EndgameRegistry.get().isDrawn(board));
+            assertEquals(fen, EndgameRegistry.DRAW, EVALUATOR.evaluate(board, 0));
+        }
+        assertFalse(EndgameRegistry.get().isDrawn(FenUtilities.createGameFromFEN("8/8/4k3/8/8/8/8/R3K3 w - - 0 1")));
+    }
+
+    @Test
+    public void testLoneKingIsDrivenToTheEdge() {
+        final int centre = EVALUATOR.evaluate(FenUtilities.createGameFromFEN("8/8/8/3k4/8/8/8/R3K3 w - - 0 1"), 0);
+        final int edge = EVALUATOR.evaluate(FenUtilities.createGameFromFEN("3k4/8/8/8/8/8/8/R3K3 w - - 0 1"), 0);
+        final int edgeAndClose = EVALUATOR.evaluate(FenUtilities.createGameFromFEN("3k4/8/3K4/8/8/8/8/R7 w - - 0 1"), 0);
+        assertTrue(centre > EndgameRegistry.KNOWN_WIN);
+        assertTrue(edge > centre);
+        assertTrue(edgeAndClose > edge);
+    }
+
+    @Test
+    public void testBishopAndKnightMateInTheBishopsCorner() {
+        // light squared bishop: a8 and h1 are the mating corners
+        final int rightCorner = EVALUATOR.evaluate(FenUtilities.createGameFromFEN("k7/8/2K5/8/8/8/8/3BN3 w - - 0 1"), 0);
+        final int wrongCorner = EVALUATOR.evaluate(FenUtilities.createGameFromFEN("7k/8/5K2/8/8/8/8/3BN3 w - - 0 1"), 0);
+        assertTrue(rightCorner > wrongCorner);
+    }
+
+    @Test
+    public void testKingAndPawn() {
+        // the black king is far outside the square of the pawn
+        final int runaway = EVALUATOR.evaluate(FenUtilities.createGameFromFEN("8/k7/8/8/7P/8/8/4K3 w - - 0 1"), 0);
+        assertTrue(runaway > EndgameRegistry.KNOWN_WIN);
+        // the black king in the corner in front of a rook pawn
+        assertEquals(EndgameRegistry.DRAW,
+            EVALUATOR.evaluate(FenUtilities.createGameFromFEN("7k/8/8/8/7P/8/8/4K3 w - - 0 1"), 0));
+        // with black to move the king gets one step closer in time
+        final int inSquare = EVALUATOR.evaluate(FenUtilities.createGameFromFEN("8/8/8/3k4/8/8/P7/4K3 b - - 0 1"), 0);
+        assertTrue(inSquare < EndgameRegistry.KNOWN_WIN);
+        assertTrue(inSquare > 0);
+    }
+
+    @Test
+    public void testOppositeBishopsAreHalved() {
+        final Board opposite = FenUtilities.createGameFromFEN("8/4k3/8/2b5/3P4/2P5/1P2B3/4K3 w - - 0 1");
+        assertEquals(StandardBoardEvaluator.get().evaluate(opposite, 0) / 2, EVALUATOR.evaluate(opposite, 0));
+        final Board same = FenUtilities.createGameFromFEN("8/4k3/2b5/8/3P4/2P5/1P2B3/4K3 w - - 0 1");
+        assertEquals(StandardBoardEvaluator.get().evaluate(same, 0), EVALUATOR.evaluate(same, 0));
+    }
+
+    @Test
+    public void testEndgameScoresAreSymmetric() {
+        for (final String fen : new String[] {"8/8/8/3k4/8/8/8/R3K3 w - - 0 1",
+                                              "k7/8/2K5/8/8/8/8/3BN3 b - - 0 1",
+                                              "8/8/8/3k4/8/8/P7/4K3 b - - 0 1",
+                                              "8/4k3/2b5/8/3P4/2P5/1P2B3/4K3 w - - 0 1"}) {
+            final Board board = FenUtilities.createGameFromFEN(fen);
+            assertEquals(fen, EVALUATOR.evaluate(board, 0), -EVALUATOR.evaluate(BoardMirror.mirror(board), 0));
+        }
+    }
+
+    @Test
+    public void testSearchStopsAtKnownDraws() {
+        // every move leaves king and knight against a bare king, none of them is searched any further
+        final Board board = FenUtilities.createGameFromFEN("8/8/4k3/8/8/8/8/2N1K3 w - - 0 1");
+        final MTDf search = new MTDf(4, EVALUATOR);
+        assertEquals(EndgameRegistry.DRAW, search.iterativeDeepening(board, 4));
+        assertTrue(search.getNumNodesSearched() < 10 * board.currentPlayer().getLegalMoves().size());
+        // taking the rook is the way out of a lost position
+        final Board rookUp = FenUtilities.createGameFromFEN("8/8/8/8/8/4Nk2/6r1/7K w - - 0 1");
+        assertEquals(EndgameRegistry.DRAW, new MTDf(4, EVALUATOR).iterativeDeepening(rookUp, 4));
+    }
+
+    @Test
+    public void testQueenMatesTheLoneKing() {
+        final MTDf search = new MTDf(3, EVALUATOR);
+        Board board = FenUtilities.createGameFromFEN("8/8/8/4k3/8/8/8/3QK3 w - - 0 1");
+        for (int ply = 0; ply < 40 && !board.currentPlayer().isInCheckMate(); ply++) {
+            final Move move = search.execute(board);
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            assertTrue(transition.getMoveStatus().isDone());
+            board = transition.getToBoard();
+            assertFalse(board.currentPlayer().isInStaleMate());
+        }
+        assertTrue(board.currentPlayer().isInCheckMate());
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.EvaluationState;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestEvaluationState {
+
+    @Test
+    public void testStandardBoardTotals() {
+        final EvaluationState state = Board.createStandardBoard().getEvaluationState();
+        assertEquals(13900, state.getMaterial(Alliance.WHITE));
+        assertEquals(13900, state.getMaterial(Alliance.BLACK));
+        assertEquals(0, state.getMiddleGameScore());
+        assertEquals(0, state.getEndGameScore());
+        assertEquals(EvaluationState.TOTAL_PHASE, state.getPhase());
+    }
+
+    @Test
+    public void testCaptureUpdatesMaterialAndPhase() {
+        // white knight on e5 can take the black knight on d7
+        final Board board = FenUtilities.createGameFromFEN("4k3/3n4/8/4N3/8/8/8/4K3 w - - 0 1");
+        final Board after = playMove(board, 28, 11);
+        assertEquals(board.getEvaluationState().getMaterial(Alliance.BLACK) - 300,
+            after.getEvaluationState().getMaterial(Alliance.BLACK));
+        assertEquals(1, after.getEvaluationState().getPhase());
+        assertEquals(EvaluationState.calculate(after.getAllPieces()), after.getEvaluationState());
+    }
+
+    @Test
+    public void testPromotionUpdatesMaterial() {
+        final Board board = FenUtilities.createGameFromFEN("7k/P7/8/8/8/8/8/K7 w - - 0 1");
+        final Board after = playMove(board, 8, 0);
+        assertEquals(EvaluationState.calculate(after.getAllPieces()), after.getEvaluationState());
+        assertEquals(board.getEvaluationState().getMaterial(Alliance.WHITE) + 800,
+            after.getEvaluationState().getMaterial(Alliance.WHITE));
+    }
+
+    /*
+    * Random games from a few busy positions (castling, captures, promotions): after every single move the
+    * incrementally updated totals have to match the totals added up from scratch.
+    * */
+    @Test
+    public void testIncrementalUpdatesMatchFullRecalculation() {
+        final String[] positions = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1"
+        };
+        final Random random = new Random(2021);
+        for (final String fen : positions) {
+            for (int game = 0; game < 10; game++) {
+                Board board = FenUtilities.createGameFromFEN(fen);
+                for (int ply = 0; ply < 40; ply++) {
+                    final List<Board> children = new ArrayList<>();
+                    for (final Move move : board.currentPlayer().getLegalMoves()) {
+                        final MoveTransition transition = board.currentPlayer().makeMove(move);
+                        if (transition.getMoveStatus().isDone()) {
+                            children.add(transition.getToBoard());
+                            assertEquals(move.toString(), EvaluationState.calculate(transition.getToBoard().getAllPieces()),
+                                transition.getToBoard().getEvaluationState());
+                        }
+                    }
+                    if (children.isEmpty()) {
+                        break;
+                    }
+                    board = children.get(random.nextInt(children.size()));
+                }
+            }
+        }
+    }
+
+    private static Board playMove(final Board board,
+                                  final int from,
+                                  final int to) {
+        final MoveTransition transition = board.currentPlayer().makeMove(Move.MoveFactory.createMove(board, from, to));
+        assertEquals(true, transition.getMoveStatus().isDone());
+        return transition.getToBoard();
+    }
+
+}
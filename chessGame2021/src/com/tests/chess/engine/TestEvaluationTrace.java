@@ -0,0 +1,85 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.ai.EvaluationProfile;
+import com.chess.engine.player.ai.EvaluationTrace;
+import com.chess.engine.player.ai.MTDf;
+import com.chess.engine.player.ai.PieceSquareTableEvaluator;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestEvaluationTrace {
+
+    private static final String[] POSITIONS = {
+        "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+        "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 1",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "4k3/8/8/8/8/8/4q3/4K3 w - - 0 1"
+    };
+
+    @Test
+    public void testTraceAddsUpToTheScore() {
+        for (final String fen : POSITIONS) {
+            final Board board = FenUtilities.createGameFromFEN(fen);
+            final EvaluationTrace trace = StandardBoardEvaluator.get().trace(board, 0);
+            assertEquals(fen, StandardBoardEvaluator.get().evaluate(board, 0), trace.getTotal());
+            assertEquals(StandardBoardEvaluator.Term.values().length, trace.getTerms().size());
+        }
+    }
+
+    @Test
+    public void testTermsBySide() {
+        // black's queen gives check and white has only the king left
+        final Board board = FenUtilities.createGameFromFEN("4k3/8/8/8/8/8/4q3/4K3 w - - 0 1");
+        final EvaluationTrace trace = StandardBoardEvaluator.get().trace(board, 0);
+        assertEquals(10000, trace.getWhiteScore("MATERIAL"));
+        assertEquals(10900, trace.getBlackScore("MATERIAL"));
+        assertEquals(0, trace.getWhiteScore("CHECK"));
+        assertEquals(50, trace.getBlackScore("CHECK"));
+        assertTrue(trace.toString().contains("KING_SAFETY"));
+    }
+
+    @Test
+    public void testSingleTermEvaluators() {
+        final Board board = FenUtilities.createGameFromFEN(POSITIONS[1]);
+        final EvaluationTrace trace = PieceSquareTableEvaluator.get().trace(board, 0);
+        assertEquals(PieceSquareTableEvaluator.get().evaluate(board, 0), trace.getTotal());
+    }
+
+    @Test
+    public void testProfileCounts() {
+        final EvaluationProfile profile = new EvaluationProfile("a", "b");
+        profile.record(0, 100);
+        profile.record(0, 50);
+        profile.record(1, 10);
+        assertEquals(150, profile.getNanos(0));
+        assertEquals(2, profile.getCalls(0));
+        assertEquals(160, profile.getTotalNanos());
+        profile.reset();
+        assertEquals(0, profile.getTotalNanos());
+    }
+
+    /*
+    * Without -Dchess.evaluation.profile=true the search must not touch the profile at all, with it every
+    * term has to have been timed.
+    * */
+    @Test
+    public void testProfilingDuringSearch() {
+        final StandardBoardEvaluator evaluator = StandardBoardEvaluator.withLazyMargin(StandardBoardEvaluator.DEFAULT_LAZY_MARGIN);
+        new MTDf(2, evaluator).iterativeDeepening(FenUtilities.createGameFromFEN(POSITIONS[1]), 2);
+        final EvaluationProfile profile = evaluator.getProfile();
+        for (int term = 0; term < profile.getNumTerms(); term++) {
+            if (EvaluationProfile.ENABLED) {
+                assertTrue(profile.getTerm(term), profile.getCalls(term) > 0);
+            } else {
+                assertEquals(0, profile.getCalls(term));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardMirror;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.board.ZobristHashing;
+import com.chess.engine.player.ai.BoardEvaluator;
+import com.chess.engine.player.ai.CachedEvaluator;
+import com.chess.engine.player.ai.EvaluationTrace;
+import com.chess.engine.player.ai.NnueEvaluator;
+import com.chess.engine.player.ai.PieceSquareTableEvaluator;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+* A position and its colour reversed mirror (BoardMirror) are the same game with the chairs swapped, so
+* every evaluator has to give the mirror the negated score. The caches keyed by the canonical hash rely
+* on that. The harness runs each evaluator over lopsided hand picked positions plus random games.
+* */
+public class TestEvaluatorSymmetry {
+
+    private static final String[] POSITIONS = {
+        "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 1",
+        "r3k2r/pp3ppp/2n1b3/2bpP3/3N4/2P1B3/PP3PPP/R2QK2R b KQkq - 0 1",
+        "6k1/5ppp/8/8/8/8/1P3PPP/3R2K1 w - - 0 1",
+        "2kr3r/ppp2ppp/8/3q4/8/2N5/PP3PPP/R2Q1RK1 w - - 0 1",
+        "8/2P5/8/8/4k3/8/5K2/8 b - - 0 1",
+        "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 0 1"
+    };
+
+    @Test
+    public void testMirrorOfMirrorIsTheSamePosition() {
+        for (final Board board : positions()) {
+            final Board mirror = BoardMirror.mirror(board);
+            assertNotEquals(board.getZobristHash(), mirror.getZobristHash());
+            assertEquals(board.getZobristHash(), BoardMirror.mirror(mirror).getZobristHash());
+            assertEquals(board.toString(), BoardMirror.mirror(mirror).toString());
+        }
+    }
+
+    @Test
+    public void testMirrorsShareTheCanonicalHash() {
+        for (final Board board : positions()) {
+            final Board mirror = BoardMirror.mirror(board);
+            assertEquals(mirror.getZobristHash(), ZobristHashing.INSTANCE.hashMirroredBoard(board));
+            assertEquals(mirror.getZobristHash(), board.getMirroredZobristHash());
+            assertEquals(board.getZobristHash(), mirror.getMirroredZobristHash());
+            assertEquals(ZobristHashing.INSTANCE.canonicalHash(board), ZobristHashing.INSTANCE.canonicalHash(mirror));
+            assertTrue(ZobristHashing.INSTANCE.isCanonical(board) != ZobristHashing.INSTANCE.isCanonical(mirror));
+        }
+        // the side to move still tells positions apart
+        final Board whiteToMove = FenUtilities.createGameFromFEN("6k1/5ppp/8/8/8/8/1P3PPP/3R2K1 w - - 0 1");
+        final Board blackToMove = FenUtilities.createGameFromFEN("6k1/5ppp/8/8/8/8/1P3PPP/3R2K1 b - - 0 1");
+        assertNotEquals(ZobristHashing.INSTANCE.canonicalHash(whiteToMove), ZobristHashing.INSTANCE.canonicalHash(blackToMove));
+    }
+
+    @Test
+    public void testMirrorKeepsTheLegalMoves() {
+        for (final Board board : positions()) {
+            final Board mirror = BoardMirror.mirror(board);
+            assertEquals(board.currentPlayer().getAlliance().getOpposite(), mirror.currentPlayer().getAlliance());
+            assertEquals(board.currentPlayer().getLegalMoves().size(), mirror.currentPlayer().getLegalMoves().size());
+            assertEquals(board.currentPlayer().isInCheck(), mirror.currentPlayer().isInCheck());
+            assertEquals(board.whitePlayer().isKingSideCastleCapable(), mirror.blackPlayer().isKingSideCastleCapable());
+            assertEquals(board.whitePlayer().isQueenSideCastleCapable(), mirror.blackPlayer().isQueenSideCastleCapable());
+        }
+    }
+
+    @Test
+    public void testStandardEvaluatorIsSymmetric() {
+        assertSymmetric(StandardBoardEvaluator.get());
+    }
+
+    @Test
+    public void testStandardEvaluatorTermsAreSymmetric() {
+        for (final Board board : positions()) {
+            final EvaluationTrace trace = StandardBoardEvaluator.get().trace(board, 0);
+            final EvaluationTrace mirrored = StandardBoardEvaluator.get().trace(BoardMirror.mirror(board), 0);
+            for (final String term : trace.getTerms()) {
+                assertEquals(term, trace.getWhiteScore(term), mirrored.getBlackScore(term));
+                assertEquals(term, trace.getBlackScore(term), mirrored.getWhiteScore(term));
+            }
+        }
+    }
+
+    @Test
+    public void testPieceSquareTableEvaluatorIsSymmetric() {
+        assertSymmetric(PieceSquareTableEvaluator.get());
+    }
+
+    @Test
+    public void testNnueEvaluatorIsSymmetric() {
+        assertSymmetric(new NnueEvaluator(TestNnueEvaluator.createTinyNetwork()));
+    }
+
+    @Test
+    public void testCachedEvaluatorSharesAnEntryWithTheMirror() {
+        final CachedEvaluator cache = new CachedEvaluator(StandardBoardEvaluator.get(), 1 << 10);
+        for (final Board board : positions()) {
+            if (board.currentPlayer().isInCheck()) {
+                continue;
+            }
+            final long hits = cache.getHits();
+            final int score = cache.evaluate(board, 0);
+            assertEquals(-score, cache.evaluate(BoardMirror.mirror(board), 0));
+            assertEquals(hits + 1, cache.getHits());
+        }
+        assertSymmetric(new CachedEvaluator(StandardBoardEvaluator.get(), 1 << 10));
+    }
+
+    @Test
+    public void testCachedBoundsFlipWithTheMirror() {
+        final CachedEvaluator cache = new CachedEvaluator(StandardBoardEvaluator.withLazyMargin(100), 1 << 10);
+        final Board queenUp = FenUtilities.createGameFromFEN("rnb1kbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        final Board mirror = BoardMirror.mirror(queenUp);
+        final int bound = cache.evaluate(queenUp, 0, -10, 10);
+        assertTrue(bound >= 10);
+        // white's lower bound is black's upper bound, it settles a window above it in the mirror
+        assertEquals(-bound, cache.evaluate(mirror, 0, -bound + 1, -bound + 2));
+        assertEquals(1, cache.getHits());
+        // but not a window below it
+        cache.evaluate(mirror, 0, -bound - 2, -bound - 1);
+        assertEquals(1, cache.getHits());
+    }
+
+    /*
+    * The harness: the evaluator on every position and on its mirror, at a couple of depths and through
+    * the window API with mirrored windows.
+    * */
+    private static void assertSymmetric(final BoardEvaluator evaluator) {
+        for (final Board board : positions()) {
+            final Board mirror = BoardMirror.mirror(board);
+            final String fen = FenUtilities.createFENFromGame(board);
+            for (int depth = 0; depth <= 2; depth++) {
+                assertEquals(fen, evaluator.evaluate(board, depth), -evaluator.evaluate(mirror, depth));
+            }
+            final int score = evaluator.evaluate(board, 0);
+            assertEquals(fen, score, -evaluator.evaluate(mirror, 0, -score - 1, -score + 1));
+        }
+    }
+
+    // the hand picked positions and every board along a few random games from them
+    private static List<Board> positions() {
+        final Random random = new Random(42);
+        final List<Board> boards = new ArrayList<>();
+        for (final String fen : POSITIONS) {
+            Board board = FenUtilities.createGameFromFEN(fen);
+            boards.add(board);
+            for (int ply = 0; ply < 12; ply++) {
+                final List<Board> children = new ArrayList<>();
+                for (final Move move : board.currentPlayer().getLegalMoves()) {
+                    final MoveTransition transition = board.currentPlayer().makeMove(move);
+                    if (transition.getMoveStatus().isDone()) {
+                        children.add(transition.getToBoard());
+                    }
+                }
+                if (children.isEmpty()) {
+                    break;
+                }
+                board = children.get(random.nextInt(children.size()));
+                boards.add(board);
+            }
+        }
+        return boards;
+    }
+
+}
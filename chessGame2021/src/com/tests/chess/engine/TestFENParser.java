@@ -8,9 +8,15 @@ import com.chess.engine.board.MoveTransition;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 
 public class TestFENParser {
@@ -36,8 +42,110 @@ public class TestFENParser {
                 BoardUtils.INSTANCE.getCoordinateAtPosition("c5")));
         assertTrue(t2.getMoveStatus().isDone());
         final String fenString2 = FenUtilities.createFENFromGame(t2.getToBoard());
-        assertEquals(fenString2, "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq c6 0 1");
+        assertEquals(fenString2, "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq c6 0 2");
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testRoundTrip() {
+        final Random random = new Random(50);
+        for (int game = 0; game < 10; game++) {
+            Board board = Board.createStandardBoard();
+            for (int ply = 0; ply < 60; ply++) {
+                final String fen = FenUtilities.createFENFromGame(board);
+                final Board parsed = FenUtilities.createGameFromFEN(fen);
+                assertEquals(fen, FenUtilities.createFENFromGame(parsed));
+                assertEquals(fen, board.getZobristHash(), parsed.getZobristHash());
+                final List<Board> children = new ArrayList<>();
+                for (final Move move : board.currentPlayer().getLegalMoves()) {
+                    final MoveTransition transition = board.currentPlayer().makeMove(move);
+                    if (transition.getMoveStatus().isDone()) {
+                        children.add(transition.getToBoard());
+                    }
+                }
+                if (children.isEmpty()) {
+                    break;
+                }
+                board = children.get(random.nextInt(children.size()));
+            }
+        }
+    }
+
+    @Test
+    public void testEnPassantSquare() {
+        final Board board = FenUtilities.createGameFromFEN("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3");
+        assertEquals(BoardUtils.INSTANCE.getCoordinateAtPosition("f5"), board.getEnPassantPawn().getPiecePosition());
+        final MoveTransition capture = board.currentPlayer().makeMove(Move.MoveFactory.createMove(board,
+            BoardUtils.INSTANCE.getCoordinateAtPosition("e5"), BoardUtils.INSTANCE.getCoordinateAtPosition("f6")));
+        assertTrue(capture.getMoveStatus().isDone());
+        assertNull(capture.getToBoard().getPiece(BoardUtils.INSTANCE.getCoordinateAtPosition("f5")));
+        assertNull(FenUtilities.createGameFromFEN("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq - 0 3")
+            .getEnPassantPawn());
+    }
+
+    @Test
+    public void testEpdLine() {
+        final Board board = FenUtilities.createGameFromFEN(
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - bm Bb5; id \"ruy lopez\";");
+        assertEquals("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 0 1",
+            FenUtilities.createFENFromGame(board));
+    }
+
+    // a line read with its line break, or fields split by tabs, is still the same position
+    @Test
+    public void testAnyWhitespaceEndsAField() {
+        assertEquals("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            FenUtilities.createFENFromGame(FenUtilities.createGameFromFEN("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -\n")));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+            FenUtilities.createFENFromGame(FenUtilities.createGameFromFEN(
+                "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR\tb\tKQkq\te3\t0\t1\r\n")));
+    }
+
+    @Test
+    public void testInvalidFens() {
+        final String[] invalid = {
+            "",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR/8 w KQkq - 0 1",
+            "rnbqkbnr/ppppppppp/7/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQxq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR b KQkq e3 0 1",
+            "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e6 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - -1 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1x",
+            // 64 squares, but not eight ranks of eight
+            "rnbqkbnr/pppppppp/88/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8//8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR/ w KQkq - 0 1",
+            "/rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnrp/ppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+        };
+        for (final String fen : invalid) {
+            try {
+                FenUtilities.createGameFromFEN(fen);
+                fail(fen);
+            } catch (final RuntimeException expected) {
+                assertTrue(expected.getMessage().startsWith("Invalid FEN String"));
+            }
+        }
+    }
+
+    @Test
+    public void testForEachPosition() throws IOException {
+        final String epd =
+            "# a comment\n" +
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1\n" +
+            "\n" +
+            "not a position\n" +
+            "  8/8/4k3/8/8/8/8/4K2R w K - bm Rh6;\n" +
+            "8/8/4k3/8/8/8/8/4K2R b K - 12 40";
+        final List<String> fens = new ArrayList<>();
+        FenUtilities.forEachPosition(new StringReader(epd), board -> fens.add(FenUtilities.createFENFromGame(board)));
+        assertEquals(3, fens.size());
+        assertEquals("8/8/4k3/8/8/8/8/4K2R w K - 0 1", fens.get(1));
+        assertEquals("8/8/4k3/8/8/8/8/4K2R b K - 12 40", fens.get(2));
+    }
+
+}
@@ -7,6 +7,11 @@ import com.chess.engine.board.Board;
 import com.chess.engine.board.Board.Builder;
 import com.chess.engine.pieces.King;
 import com.chess.engine.pieces.Pawn;
+import com.chess.engine.player.ai.KingSafetyAnalyzer;
+import com.chess.pgn.FenUtilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TestKingSafety {
 
@@ -26,4 +31,51 @@ public class TestKingSafety {
         //assertEquals(KingSafetyAnalyzer.get().calculateKingTropism(board.whitePlayer()).tropismScore(), 40);
     }
 
+    @Test
+    public void testStandardBoardKingsAreEquallySafe() {
+        final Board board = Board.createStandardBoard();
+        assertEquals(0, KingSafetyAnalyzer.get().attackUnits(board, board.whitePlayer()));
+        assertEquals(0, KingSafetyAnalyzer.get().attackUnits(board, board.blackPlayer()));
+        assertEquals(KingSafetyAnalyzer.get().kingSafetyScore(board, board.whitePlayer()),
+            KingSafetyAnalyzer.get().kingSafetyScore(board, board.blackPlayer()));
+    }
+
+    @Test
+    public void testPawnShieldAndOpenFiles() {
+        // white castled behind f2 g2 h2, black castled with the g and h pawns gone
+        final Board board = FenUtilities.createGameFromFEN("r4rk1/ppp2p2/8/8/8/8/PPP2PPP/R4RK1 w - - 0 1");
+        assertEquals(30, KingSafetyAnalyzer.get().pawnShelter(board, board.whitePlayer()));
+        assertEquals(10 + KingSafetyAnalyzer.SEMI_OPEN_FILE_PENALTY * 2,
+            KingSafetyAnalyzer.get().pawnShelter(board, board.blackPlayer()));
+        assertTrue(KingSafetyAnalyzer.get().kingSafetyScore(board, board.whitePlayer()) >
+            KingSafetyAnalyzer.get().kingSafetyScore(board, board.blackPlayer()));
+    }
+
+    @Test
+    public void testAttackersAroundTheKing() {
+        // queen and knight swarming the black king
+        final Board attacked = FenUtilities.createGameFromFEN("6k1/5ppp/7Q/6N1/8/8/5PPP/6K1 b - - 0 1");
+        final int units = KingSafetyAnalyzer.get().attackUnits(attacked, attacked.blackPlayer());
+        assertTrue(units > 10);
+        // a lone queen is not counted
+        final Board lonely = FenUtilities.createGameFromFEN("6k1/5ppp/7Q/8/8/8/5PPP/6K1 b - - 0 1");
+        assertEquals(0, KingSafetyAnalyzer.get().attackUnits(lonely, lonely.blackPlayer()));
+        assertTrue(KingSafetyAnalyzer.get().kingSafetyScore(attacked, attacked.blackPlayer()) <
+            KingSafetyAnalyzer.get().kingSafetyScore(lonely, lonely.blackPlayer()));
+    }
+
+    @Test
+    public void testScoresAreCachedByPosition() {
+        final KingSafetyAnalyzer analyzer = KingSafetyAnalyzer.get();
+        analyzer.clear();
+        final Board board = FenUtilities.createGameFromFEN("r4rk1/ppp2p2/8/8/8/8/PPP2PPP/R4RK1 w - - 0 1");
+        final int white = analyzer.kingSafetyScore(board, board.whitePlayer());
+        final int black = analyzer.kingSafetyScore(board, board.blackPlayer());
+        assertEquals(1, analyzer.getMisses());
+        assertEquals(1, analyzer.getHits());
+        assertEquals(white, analyzer.kingSafetyScore(board, board.whitePlayer()));
+        assertEquals(black, analyzer.kingSafetyScore(board, board.blackPlayer()));
+        assertEquals(1, analyzer.getMisses());
+    }
+
 }
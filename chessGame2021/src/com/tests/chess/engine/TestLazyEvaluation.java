@@ -0,0 +1,130 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.ai.MTDf;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+import com.chess.pgn.PGNGame;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.ParsePGNException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestLazyEvaluation {
+
+    private static final String QUEEN_UP = "rnb1kbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String ITALIAN = "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 1";
+
+    @Test
+    public void testLayersAddUp() {
+        final Board board = FenUtilities.createGameFromFEN(ITALIAN);
+        final StandardBoardEvaluator evaluator = StandardBoardEvaluator.get();
+        assertEquals(evaluator.evaluate(board, 0), evaluator.cheapScore(board, 0) + evaluator.positionalScore(board));
+    }
+
+    @Test
+    public void testDefaultEvaluatorNeverSkips() {
+        final Board board = FenUtilities.createGameFromFEN(QUEEN_UP);
+        final StandardBoardEvaluator evaluator = StandardBoardEvaluator.get();
+        assertEquals(evaluator.evaluate(board, 0), evaluator.evaluate(board, 0, -10, 10));
+    }
+
+    @Test
+    public void testSkipsFarOutsideTheWindow() {
+        final Board board = FenUtilities.createGameFromFEN(QUEEN_UP);
+        final StandardBoardEvaluator lazy = StandardBoardEvaluator.withLazyMargin(200);
+        final int exact = lazy.evaluate(board, 0);
+
+        // a queen up and the window is around equality --> fail high on material alone
+        final int failHigh = lazy.evaluate(board, 0, -10, 10);
+        assertEquals(lazy.cheapScore(board, 0) - 200, failHigh);
+        assertTrue(failHigh >= 10 && failHigh <= exact);
+
+        // seen from the other side of the window it fails low
+        final int failLow = lazy.evaluate(board, 0, 2000, 2010);
+        assertEquals(lazy.cheapScore(board, 0) + 200, failLow);
+        assertTrue(failLow <= 2000 && failLow >= exact);
+
+        // a window the score can land in gets the full evaluation
+        assertEquals(exact, lazy.evaluate(board, 0, exact - 50, exact + 50));
+
+        assertEquals(3, lazy.getLazyProbes());
+        assertEquals(2, lazy.getLazySkips());
+        lazy.resetStats();
+        assertEquals(0, lazy.getLazyProbes());
+    }
+
+    @Test
+    public void testSearchWithLazyEvaluation() {
+        final Board board = FenUtilities.createGameFromFEN(QUEEN_UP);
+        final StandardBoardEvaluator lazy = StandardBoardEvaluator.withLazyMargin(StandardBoardEvaluator.DEFAULT_LAZY_MARGIN);
+        final MTDf lazySearch = new MTDf(3, lazy);
+        final MTDf exactSearch = new MTDf(3);
+        final int lazyScore = lazySearch.iterativeDeepening(board, 3);
+        final int exactScore = exactSearch.iterativeDeepening(board, 3);
+        System.out.println(String.format("lazy evaluation: %d of %d leaves skipped (%.1f%%), %d nodes against %d exact",
+            lazy.getLazySkips(), lazy.getLazyProbes(), 100.0 * lazy.getLazySkipRate(),
+            lazySearch.getNumNodesSearched(), exactSearch.getNumNodesSearched()));
+        assertTrue(lazy.getLazySkipRate() > 0.0);
+        // the positional terms of this position stay well within the margin, so nothing changes
+        assertEquals(exactScore, lazyScore);
+    }
+
+    /*
+    * Not a pass/fail test, prints how far the positional layer strays from 0 over the positions of
+    * real games, the lazy margin has to cover nearly all of them.
+    * */
+    @Test
+    public void benchmarkPositionalLayerSpread() throws IOException {
+        final List<Integer> spreads = new ArrayList<>();
+        for (final PGNGame game : readGames("smallerTest.pgn").subList(0, 500)) {
+            Board board = Board.createStandardBoard();
+            for (final String san : game.getMoves()) {
+                spreads.add(Math.abs(StandardBoardEvaluator.get().positionalScore(board)));
+                try {
+                    final Move move = PGNUtilities.createMove(board, san);
+                    board = board.currentPlayer().makeMove(move).getToBoard();
+                } catch (final ParsePGNException e) {
+                    break;
+                }
+            }
+        }
+        Collections.sort(spreads);
+        final int withinMargin = (int) spreads.stream()
+            .filter(spread -> spread <= StandardBoardEvaluator.DEFAULT_LAZY_MARGIN).count();
+        System.out.println(String.format("positional layer over %d positions: 99%% within %d, 99.9%% within %d, " +
+            "at most %d, %.2f%% within the %d margin", spreads.size(), percentile(spreads, 0.99),
+            percentile(spreads, 0.999), spreads.get(spreads.size() - 1), 100.0 * withinMargin / spreads.size(),
+            StandardBoardEvaluator.DEFAULT_LAZY_MARGIN));
+        assertTrue(withinMargin > 0);
+    }
+
+    private static int percentile(final List<Integer> sorted,
+                                  final double fraction) {
+        return sorted.get((int) Math.ceil(fraction * sorted.size()) - 1);
+    }
+
+    private static List<PGNGame> readGames(final String name) throws IOException {
+        final List<PGNGame> games = new ArrayList<>();
+        try (final InputStream in = TestLazyEvaluation.class.getResourceAsStream("/com/tests/chess/engine/pgn/" + name)) {
+            if (in == null) {
+                throw new IOException("missing " + name);
+            }
+            PGNUtilities.forEachGame(new InputStreamReader(in, StandardCharsets.ISO_8859_1), games::add);
+        }
+        return games;
+    }
+
+}
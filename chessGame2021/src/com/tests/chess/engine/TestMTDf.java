@@ -0,0 +1,149 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveUtils;
+import com.chess.engine.player.ai.MTDf;
+import com.chess.engine.player.ai.MiniMax;
+import com.chess.engine.player.ai.MoveStrategy;
+import com.chess.engine.player.ai.TranspositionTable;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestMTDf {
+
+    // positions taken from TestMiniMax and TestAlphaBeta
+    private static final String[] BENCHMARK_POSITIONS = {
+        "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "rnbk1bnr/1pN2ppp/p7/3P2q1/3Pp3/8/PPP1QPPP/RN2KB1R w KQ - 18 10",
+        "r2qkb1r/3p1pp1/p1n1p2p/1p1bP3/P2p4/1PP5/5PPP/RNBQNRK1 w kq - 0 13",
+        "1k1r4/pp1b1R2/3q2pp/4p3/2B5/4Q3/PPP2B2/2K5 b - - 0 1",
+        "3r1k2/4npp1/1ppr3p/p6P/P2PPPP1/1NR5/5K2/2R5 w - - 0 1"
+    };
+
+    private static final int BENCHMARK_DEPTH = 3;
+
+    @Test
+    public void testMTDfAgreesWithMiniMax() {
+        for (final String fen : BENCHMARK_POSITIONS) {
+            final Board board = FenUtilities.createGameFromFEN(fen);
+            final MiniMax miniMax = new MiniMax(2);
+            final int miniMaxScore = board.currentPlayer().getAlliance().isWhite() ?
+                miniMax.max(board, 2) : -miniMax.min(board, 2);
+            final MTDf mtdf = new MTDf(2);
+            assertEquals(fen, miniMaxScore, mtdf.mtdf(board, 0, 2));
+        }
+    }
+
+    /*
+    * Bounds from a deeper search are used in a shallower one, so after iterative deepening the two drivers
+    * may see different deeper results and need not agree. They must agree when the last search starts on
+    * a cleared table.
+    * */
+    @Test
+    public void testMTDfAgreesWithFullWindowSearch() {
+        for (final String fen : BENCHMARK_POSITIONS) {
+            final Board board = FenUtilities.createGameFromFEN(fen);
+            assertEquals(fen, fullWindowScore(board), mtdfScore(board));
+        }
+    }
+
+    @Test
+    public void testMTDfReturnsLegalMove() {
+        final Board board = Board.createStandardBoard();
+        final MoveStrategy mtdf = new MTDf(3);
+        final Move bestMove = mtdf.execute(board);
+        assertTrue(board.currentPlayer().makeMove(bestMove).getMoveStatus().isDone());
+        assertTrue(mtdf.getNumBoardsEvaluated() > 0);
+    }
+
+    /*
+    * The same engine plays on after a move and a reply, what it remembers from the first search has to
+    * make the second one cheaper than starting from scratch.
+    * */
+    @Test
+    public void testEngineReuseSpeedsUpNextSearch() {
+        final Board board = FenUtilities.createGameFromFEN(BENCHMARK_POSITIONS[1]);
+        final MTDf engine = new MTDf(BENCHMARK_DEPTH + 1);
+        final Board afterMove = board.currentPlayer().makeMove(engine.execute(board)).getToBoard();
+        final Board afterReply = afterMove.currentPlayer().makeMove(engine.execute(afterMove)).getToBoard();
+        engine.execute(afterReply);
+        final MTDf freshEngine = new MTDf(BENCHMARK_DEPTH + 1);
+        freshEngine.execute(afterReply);
+        System.out.println(String.format("third search: %d nodes with the reused engine, %d with a fresh one",
+            engine.getNumNodesSearched(), freshEngine.getNumNodesSearched()));
+        assertTrue(engine.getNumNodesSearched() < freshEngine.getNumNodesSearched());
+    }
+
+    @Test
+    public void testTranspositionTableAging() {
+        final TranspositionTable table = new TranspositionTable(1);
+        final long key = 12345L;
+        final long collidingKey = key + table.size();
+        table.store(key, 5, 10, 10, MoveUtils.NO_MOVE);
+        // a shallower entry from the same search does not push out the deeper one
+        table.store(collidingKey, 2, 20, 20, MoveUtils.NO_MOVE);
+        assertTrue(table.probe(key) >= 0);
+        assertEquals(-1, table.probe(collidingKey));
+        // after the next search starts the old entry is still there but it is fair game
+        table.newSearch();
+        assertEquals(1, table.getAge(table.probe(key)));
+        table.store(collidingKey, 2, 20, 20, MoveUtils.NO_MOVE);
+        assertEquals(-1, table.probe(key));
+        assertEquals(0, table.getAge(table.probe(collidingKey)));
+    }
+
+    /*
+    * Not a pass/fail test, prints how many nodes each driver needed over the same positions and the
+    * same move ordering so the two can be compared on our own workload.
+    * */
+    @Test
+    public void benchmarkNodeCounts() {
+        long totalFullWindowNodes = 0;
+        long totalMTDfNodes = 0;
+        System.out.println(String.format("%-70s %12s %12s", "position", "full window", "MTD(f)"));
+        for (final String fen : BENCHMARK_POSITIONS) {
+            final Board board = FenUtilities.createGameFromFEN(fen);
+            final MTDf fullWindow = new MTDf(BENCHMARK_DEPTH);
+            for (int depth = 1; depth <= BENCHMARK_DEPTH; depth++) {
+                fullWindow.fullWindowSearch(board, depth);
+            }
+            final MTDf mtdf = new MTDf(BENCHMARK_DEPTH);
+            int guess = 0;
+            for (int depth = 1; depth <= BENCHMARK_DEPTH; depth++) {
+                guess = mtdf.mtdf(board, guess, depth);
+            }
+            System.out.println(String.format("%-70s %12d %12d", fen,
+                fullWindow.getNumNodesSearched(), mtdf.getNumNodesSearched()));
+            totalFullWindowNodes += fullWindow.getNumNodesSearched();
+            totalMTDfNodes += mtdf.getNumNodesSearched();
+        }
+        System.out.println(String.format("%-70s %12d %12d", "total", totalFullWindowNodes, totalMTDfNodes));
+        assertTrue(totalFullWindowNodes > 0 && totalMTDfNodes > 0);
+    }
+
+    private static int fullWindowScore(final Board board) {
+        final MTDf search = new MTDf(BENCHMARK_DEPTH);
+        for (int depth = 1; depth < BENCHMARK_DEPTH; depth++) {
+            search.fullWindowSearch(board, depth);
+        }
+        search.getTranspositionTable().clear();
+        return search.fullWindowSearch(board, BENCHMARK_DEPTH);
+    }
+
+    private static int mtdfScore(final Board board) {
+        final MTDf search = new MTDf(BENCHMARK_DEPTH);
+        int guess = 0;
+        for (int depth = 1; depth < BENCHMARK_DEPTH; depth++) {
+            guess = search.mtdf(board, guess, depth);
+        }
+        search.getTranspositionTable().clear();
+        return search.mtdf(board, guess, BENCHMARK_DEPTH);
+    }
+
+}
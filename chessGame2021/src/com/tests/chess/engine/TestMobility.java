@@ -0,0 +1,43 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.ai.MobilityAnalyzer;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestMobility {
+
+    @Test
+    public void testStandardBoard() {
+        final Board board = Board.createStandardBoard();
+        // only the knights can get out: b1 --> a3, c3 and g1 --> f3, h3
+        assertEquals(4 * 4, MobilityAnalyzer.get().mobilityScore(board, board.whitePlayer()));
+        assertEquals(4 * 4, MobilityAnalyzer.get().mobilityScore(board, board.blackPlayer()));
+    }
+
+    @Test
+    public void testSquaresAttackedByEnemyPawnsDoNotCount() {
+        final Board free = FenUtilities.createGameFromFEN("4k3/8/8/8/3N4/8/8/4K3 w - - 0 1");
+        assertEquals(4 * 8, MobilityAnalyzer.get().mobilityScore(free, free.whitePlayer()));
+        // the pawn on d7 covers c6 and e6
+        final Board covered = FenUtilities.createGameFromFEN("4k3/3p4/8/8/3N4/8/8/4K3 w - - 0 1");
+        assertEquals(4 * 6, MobilityAnalyzer.get().mobilityScore(covered, covered.whitePlayer()));
+    }
+
+    @Test
+    public void testSlidersStopAtBlockers() {
+        // rook a1 boxed in by its own pawn on a2 and knight on b1, only the knight can move (a3, c3, d2)
+        final Board boxed = FenUtilities.createGameFromFEN("4k3/8/8/8/8/8/P7/RN2K3 w - - 0 1");
+        final Board open = FenUtilities.createGameFromFEN("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        assertEquals(4 * 3, MobilityAnalyzer.get().mobilityScore(boxed, boxed.whitePlayer()));
+        // a2 - a8 plus b1, c1, d1
+        assertEquals(2 * 10, MobilityAnalyzer.get().mobilityScore(open, open.whitePlayer()));
+        assertTrue(MobilityAnalyzer.get().mobilityScore(open, open.whitePlayer()) >
+            MobilityAnalyzer.get().mobilityScore(boxed, boxed.whitePlayer()));
+    }
+
+}
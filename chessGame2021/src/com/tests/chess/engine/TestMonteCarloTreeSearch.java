@@ -0,0 +1,66 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.MonteCarloTreeSearch;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestMonteCarloTreeSearch {
+
+    @Test
+    public void testReturnsLegalMove() {
+        final Board board = Board.createStandardBoard();
+        final MonteCarloTreeSearch mcts = new MonteCarloTreeSearch(200, 2, 2, 10_000);
+        final Move bestMove = mcts.execute(board);
+        assertTrue(board.currentPlayer().makeMove(bestMove).getMoveStatus().isDone());
+        assertEquals(200, mcts.getNumBoardsEvaluated());
+        mcts.shutdown();
+    }
+
+    @Test
+    public void testFindsBackRankMate() {
+        final Board board = FenUtilities.createGameFromFEN("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1");
+        final MonteCarloTreeSearch mcts = new MonteCarloTreeSearch(600, 4, 0, 50_000);
+        final Move bestMove = mcts.execute(board);
+        assertEquals(Move.MoveFactory.createMove(board, BoardUtils.INSTANCE.getCoordinateAtPosition("a1"),
+            BoardUtils.INSTANCE.getCoordinateAtPosition("a8")), bestMove);
+        mcts.shutdown();
+    }
+
+    @Test
+    public void testNodeBudgetBoundsTree() {
+        final Board board = Board.createStandardBoard();
+        final MonteCarloTreeSearch mcts = new MonteCarloTreeSearch(500, 1, 0, 100);
+        mcts.execute(board);
+        // the last expansion may add a full set of children on top of the budget
+        assertTrue(mcts.getTreeSize() <= 100 + 40);
+    }
+
+    @Test
+    public void testTreeIsReusedAfterMoveAndReply() {
+        final Board board = Board.createStandardBoard();
+        final MonteCarloTreeSearch mcts = new MonteCarloTreeSearch(1000, 2, 0, 50_000);
+        final Move firstMove = mcts.execute(board);
+        final MoveTransition t1 = board.currentPlayer().makeMove(firstMove);
+        final Board afterFirstMove = t1.getToBoard();
+        // the opponent answers with the first legal reply, it is in the tree as long as it was expanded
+        Board afterReply = null;
+        for (final Move reply : afterFirstMove.currentPlayer().getLegalMoves()) {
+            final MoveTransition t2 = afterFirstMove.currentPlayer().makeMove(reply);
+            if (t2.getMoveStatus().isDone()) {
+                afterReply = t2.getToBoard();
+                break;
+            }
+        }
+        mcts.execute(afterReply);
+        assertTrue(mcts.getReusedNodes() > 0);
+        mcts.shutdown();
+    }
+
+}
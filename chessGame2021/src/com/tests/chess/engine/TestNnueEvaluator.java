@@ -0,0 +1,166 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.NnueEvaluator;
+import com.chess.engine.player.ai.NnueNetwork;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestNnueEvaluator {
+
+    private static final String TINY_NETWORK = "/com/tests/chess/engine/nnue/tiny.nnue";
+
+    @Test
+    public void testBundledNetworkLoads() throws IOException {
+        final NnueNetwork network = loadTinyNetwork();
+        assertEquals(4, network.getNumBuckets());
+        assertEquals(8, network.getHiddenSize());
+        assertEquals(4, network.getL1Size());
+        assertEquals(createTinyNetwork(), network);
+    }
+
+    @Test
+    public void testWriteAndLoadRoundTrip() throws IOException {
+        final NnueNetwork network = createTinyNetwork();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        network.write(out);
+        assertEquals(network, NnueNetwork.load(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    public void testRejectsGarbage() {
+        try {
+            NnueNetwork.load(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+            fail("loaded a network from garbage");
+        } catch (final IOException expected) {
+            // good
+        }
+    }
+
+    @Test
+    public void testMaterialAdvantage() throws IOException {
+        final NnueEvaluator evaluator = new NnueEvaluator(loadTinyNetwork());
+        final Board even = FenUtilities.createGameFromFEN("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        final Board queenUp = FenUtilities.createGameFromFEN("rnb1kbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertTrue(evaluator.evaluate(queenUp, 0) > evaluator.evaluate(even, 0) + 700);
+    }
+
+    @Test
+    public void testMirroredPositionsScoreOpposite() throws IOException {
+        final NnueEvaluator evaluator = new NnueEvaluator(loadTinyNetwork());
+        final Board board = FenUtilities.createGameFromFEN("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 1");
+        final Board mirrored = FenUtilities.createGameFromFEN("rnbqk2r/pppp1ppp/5n2/2b1p3/4P3/2N2N2/PPPP1PPP/R1BQKB1R b KQkq - 0 1");
+        assertEquals(evaluator.evaluate(board, 0), -evaluator.evaluate(mirrored, 0));
+    }
+
+    /*
+    * Random games through castling, captures, en passant and promotions: the incrementally updated
+    * accumulators have to give exactly the score of accumulators built from scratch.
+    * */
+    @Test
+    public void testIncrementalUpdatesMatchRefresh() throws IOException {
+        final NnueEvaluator evaluator = new NnueEvaluator(loadTinyNetwork());
+        final String[] positions = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1"
+        };
+        final Random random = new Random(2021);
+        for (final String fen : positions) {
+            for (int game = 0; game < 5; game++) {
+                Board board = FenUtilities.createGameFromFEN(fen);
+                for (int ply = 0; ply < 40; ply++) {
+                    final List<Board> children = new ArrayList<>();
+                    for (final Move move : board.currentPlayer().getLegalMoves()) {
+                        final MoveTransition transition = board.currentPlayer().makeMove(move);
+                        if (transition.getMoveStatus().isDone()) {
+                            final Board child = transition.getToBoard();
+                            children.add(child);
+                            if (!child.currentPlayer().isInCheck()) {
+                                assertEquals(move.toString(), evaluator.evaluateFromScratch(child), evaluator.evaluate(child, 0));
+                            }
+                        }
+                    }
+                    if (children.isEmpty()) {
+                        break;
+                    }
+                    board = children.get(random.nextInt(children.size()));
+                }
+            }
+        }
+        assertTrue(evaluator.getIncrementalUpdates() > evaluator.getRefreshes());
+    }
+
+    private static NnueNetwork loadTinyNetwork() throws IOException {
+        try (final InputStream in = TestNnueEvaluator.class.getResourceAsStream(TINY_NETWORK)) {
+            if (in == null) {
+                throw new IOException("missing " + TINY_NETWORK);
+            }
+            return NnueNetwork.load(in);
+        }
+    }
+
+    /*
+    * The bundled tiny.nnue is exactly this network (written with NnueNetwork.write). It is hand set, not
+    * trained: hidden neurons 0 and 1 add up own and enemy material (pawn 1 ... queen 9), layer 1 neuron 0
+    * takes the difference and the output turns it into centipawns. The other neurons carry small random
+    * weights so every feature, bucket and square matters for the incremental update test.
+    * */
+    static NnueNetwork createTinyNetwork() {
+        final int hidden = 8;
+        final int l1 = 4;
+        final int[] material = {1, 3, 3, 5, 9};
+        final Random random = new Random(2021);
+
+        // own half of the board (rows 4 - 7 seen from the side) or not, queen side or king side
+        final byte[] kingBuckets = new byte[64];
+        for (int square = 0; square < 64; square++) {
+            kingBuckets[square] = (byte) ((square / 8 >= 4 ? 0 : 2) + (square % 8 >= 4 ? 1 : 0));
+        }
+        final short[] featureBiases = new short[hidden];
+        Arrays.fill(featureBiases, (short) 64);
+        final short[] featureWeights = new short[4 * NnueNetwork.FEATURES_PER_BUCKET * hidden];
+        for (int feature = 0; feature < 4 * NnueNetwork.FEATURES_PER_BUCKET; feature++) {
+            final int kind = (feature % NnueNetwork.FEATURES_PER_BUCKET) / 64;
+            final boolean own = kind % 2 == 0;
+            featureWeights[feature * hidden] = (short) (own ? material[kind / 2] : 0);
+            featureWeights[feature * hidden + 1] = (short) (own ? 0 : material[kind / 2]);
+            for (int i = 2; i < hidden; i++) {
+                featureWeights[feature * hidden + i] = (short) (random.nextInt(5) - 2);
+            }
+        }
+        final byte[] l1Weights = new byte[l1 * 2 * hidden];
+        final int[] l1Biases = new int[l1];
+        l1Weights[0] = 64;
+        l1Weights[1] = -64;
+        l1Biases[0] = 64 * 64;
+        for (int neuron = 1; neuron < l1; neuron++) {
+            for (int i = 2; i < hidden; i++) {
+                l1Weights[neuron * 2 * hidden + i] = (byte) (random.nextInt(5) - 2);
+                l1Weights[neuron * 2 * hidden + hidden + i] = (byte) (random.nextInt(5) - 2);
+            }
+            l1Biases[neuron] = 64 * 64;
+        }
+        final byte[] outputWeights = {100, 1, -1, 1};
+        final int outputBias = -64 * (100 + 1 - 1 + 1);
+        return new NnueNetwork(kingBuckets, hidden, l1, 1, featureBiases, featureWeights,
+            l1Weights, l1Biases, outputWeights, outputBias);
+    }
+
+}
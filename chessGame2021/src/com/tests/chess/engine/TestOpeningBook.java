@@ -0,0 +1,252 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.board.ZobristHashing;
+import com.chess.engine.player.ai.OpeningBook;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestOpeningBook {
+
+    private static final String TINY_BOOK = "/com/tests/chess/engine/book/tiny.bin";
+
+    /*
+    * The bundled tiny.bin is exactly this book (written with OpeningBook.write): the moves played to
+    * reach a position, then a book move from it and its weight.
+    * */
+    private static final String[][] TINY_LINES = {
+        {"", "e2e4", "30"},
+        {"", "d2d4", "20"},
+        {"", "g1f3", "10"},
+        {"e2e4", "e7e5", "20"},
+        {"e2e4", "c7c5", "10"},
+        {"e2e4 e7e5", "g1f3", "1"},
+        {"d2d4", "d7d5", "1"},
+        {"d2d4", "g8f6", "1"},
+    };
+
+    @Test
+    public void testBundledBookLoads() throws IOException {
+        final Path bundled = copyTinyBook();
+        final Path regenerated = Files.createTempFile("book", ".bin");
+        try {
+            OpeningBook.write(regenerated, createTinyBook());
+            assertArrayEquals(Files.readAllBytes(regenerated), Files.readAllBytes(bundled));
+            assertEquals(TINY_LINES.length, OpeningBook.open(bundled).size());
+        } finally {
+            Files.delete(bundled);
+            Files.delete(regenerated);
+        }
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        final OpeningBook book = openTinyBook();
+        final List<String> moves = new ArrayList<>();
+        for (final OpeningBook.Entry entry : book.lookup(Board.createStandardBoard())) {
+            moves.add(OpeningBook.moveText(entry.getMove()) + " " + entry.getWeight());
+        }
+        // heaviest first
+        assertEquals(Arrays.asList("e2e4 30", "d2d4 20", "g1f3 10"), moves);
+        assertEquals(2, book.lookup(play(Board.createStandardBoard(), "d2d4")).size());
+        assertEquals(1, book.lookup(play(Board.createStandardBoard(), "e2e4 e7e5")).size());
+    }
+
+    @Test
+    public void testMovesArePickedByWeight() throws IOException {
+        final OpeningBook book = openTinyBook();
+        final Board board = Board.createStandardBoard();
+        final Random random = new Random(48);
+        final Map<String, Integer> picks = new HashMap<>();
+        final int draws = 6000;
+        for (int i = 0; i < draws; i++) {
+            picks.merge(OpeningBook.moveText(OpeningBook.encodeMove(book.pickMove(board, random))), 1, Integer::sum);
+        }
+        assertEquals(3, picks.size());
+        // 1/2, 1/3 and 1/6 of the draws
+        assertEquals(3000, picks.get("e2e4"), 200);
+        assertEquals(2000, picks.get("d2d4"), 200);
+        assertEquals(1000, picks.get("g1f3"), 200);
+    }
+
+    @Test
+    public void testOutOfBook() throws IOException {
+        final OpeningBook book = openTinyBook();
+        final Board board = play(Board.createStandardBoard(), "a2a3");
+        assertTrue(book.lookup(board).isEmpty());
+        assertNull(book.pickMove(board, new Random(48)));
+        // black to move after 1.e4 e5 2.Nf3 is not in the book, white after 1.e4 e5 is
+        assertNull(book.pickMove(play(board, "e7e5 g1f3"), new Random(48)));
+        assertNotNull(book.pickMove(play(Board.createStandardBoard(), "e2e4 e7e5"), new Random(48)));
+    }
+
+    @Test
+    public void testEnPassantOnlyCountsWhenItCanBeTaken() {
+        // after 1.e4 no black pawn can take on e3, the key is that of the same position without the jump
+        final Board jumped = play(Board.createStandardBoard(), "e2e4");
+        final Board setUp = FenUtilities.createGameFromFEN("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+        assertEquals(ZobristHashing.INSTANCE.bookKey(setUp), ZobristHashing.INSTANCE.bookKey(jumped));
+        // after 1.e4 d5 2.e5 f5 the pawn on e5 can take on f6
+        final Board takeable = play(Board.createStandardBoard(), "e2e4 d7d5 e4e5 f7f5");
+        assertEquals(takeable.getZobristHash(), ZobristHashing.INSTANCE.bookKey(takeable));
+    }
+
+    // the keys from the Polyglot book format description, they only match with Polyglot's Random64 numbers
+    @Test
+    public void testPolyglotKeys() {
+        assertEquals(0x463b96181691fc9cL, ZobristHashing.INSTANCE.bookKey(Board.createStandardBoard()));
+        final String[][] positions = {
+            {"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", "823c9b50fd114196"},
+            {"rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2", "0756b94461c50fb0"},
+            {"rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2", "662fafb965db29d4"},
+            {"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3", "22a48b5a8e47ff78"},
+            {"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3", "652a607ca3f242c1"},
+            {"rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4", "00fdd303c946bdd9"},
+            {"rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3", "3c8123ea7b067637"},
+            {"rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4", "5c3f9b829b279560"},
+        };
+        for (final String[] position : positions) {
+            assertEquals(position[0], Long.parseUnsignedLong(position[1], 16),
+                ZobristHashing.INSTANCE.bookKey(FenUtilities.createGameFromFEN(position[0])));
+        }
+        // and the same keys when the positions are reached by playing the moves
+        assertEquals(0x823c9b50fd114196L, ZobristHashing.INSTANCE.bookKey(play(Board.createStandardBoard(), "e2e4")));
+        assertEquals(0x22a48b5a8e47ff78L,
+            ZobristHashing.INSTANCE.bookKey(play(Board.createStandardBoard(), "e2e4 d7d5 e4e5 f7f5")));
+        assertEquals(0x3c8123ea7b067637L,
+            ZobristHashing.INSTANCE.bookKey(play(Board.createStandardBoard(), "a2a4 b7b5 h2h4 b5b4 c2c4")));
+    }
+
+    @Test
+    public void testMoveEncoding() {
+        final Board board = FenUtilities.createGameFromFEN("4k2r/P7/8/8/8/8/8/R3K2R w KQk - 0 1");
+        final List<String> texts = new ArrayList<>();
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            final int bookMove = OpeningBook.encodeMove(move);
+            assertEquals(move, OpeningBook.decodeMove(board, bookMove));
+            texts.add(OpeningBook.moveText(bookMove));
+        }
+        // castling is the king taking its own rook, promotions carry the piece
+        assertTrue(texts.containsAll(Arrays.asList("e1h1", "e1a1", "a7a8q", "a1a6", "e1d2")));
+        // e1g1 is a king move to g1, there is none
+        assertNull(OpeningBook.decodeMove(board, bookMove("e1g1")));
+        // the engine only promotes to a queen
+        assertNull(OpeningBook.decodeMove(board, bookMove("a7a8q") & ~(7 << 12) | 1 << 12));
+
+        final Board black = FenUtilities.createGameFromFEN("r3k3/8/8/8/8/8/8/4K3 b q - 0 1");
+        assertEquals("e8a8", OpeningBook.moveText(OpeningBook.encodeMove(findMove(black, "e8a8"))));
+        assertTrue(findMove(black, "e8a8").isCastlingMove());
+    }
+
+    @Test
+    public void testIllegalEntriesAreSkipped() throws IOException {
+        final long key = ZobristHashing.INSTANCE.bookKey(Board.createStandardBoard());
+        final Path file = Files.createTempFile("book", ".bin");
+        try {
+            OpeningBook.write(file, Arrays.asList(new OpeningBook.Entry(key, bookMove("e2e5"), 1000, 0),
+                                                  new OpeningBook.Entry(key, bookMove("e2e4"), 1, 0),
+                                                  new OpeningBook.Entry(key, bookMove("d2d4"), 0, 0)));
+            final OpeningBook book = OpeningBook.open(file);
+            assertEquals(3, book.size());
+            final Random random = new Random(48);
+            for (int i = 0; i < 20; i++) {
+                assertEquals("e2e4", OpeningBook.moveText(OpeningBook.encodeMove(
+                    book.pickMove(Board.createStandardBoard(), random))));
+            }
+            Files.write(file, new byte[OpeningBook.ENTRY_SIZE + 1]);
+            try {
+                OpeningBook.open(file);
+                fail("a file of broken entries opened");
+            } catch (final IOException expected) {
+                // not a book
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    static List<OpeningBook.Entry> createTinyBook() {
+        final List<OpeningBook.Entry> entries = new ArrayList<>();
+        for (final String[] line : TINY_LINES) {
+            final Board board = play(Board.createStandardBoard(), line[0]);
+            entries.add(new OpeningBook.Entry(ZobristHashing.INSTANCE.bookKey(board),
+                OpeningBook.encodeMove(findMove(board, line[1])), Integer.parseInt(line[2]), 0));
+        }
+        return entries;
+    }
+
+    // the book encoding of a move, whether it is legal anywhere or not
+    private static int bookMove(final String text) {
+        return square(text.substring(2, 4)) | square(text.substring(0, 2)) << 6 |
+            (text.length() > 4 ? "nbrq".indexOf(text.charAt(4)) + 1 : 0) << 12;
+    }
+
+    private static int square(final String name) {
+        return (name.charAt(1) - '1') * 8 + name.charAt(0) - 'a';
+    }
+
+    private static Move findMove(final Board board,
+                                 final String text) {
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            if (OpeningBook.moveText(OpeningBook.encodeMove(move)).equals(text)) {
+                return move;
+            }
+        }
+        throw new AssertionError("no move " + text);
+    }
+
+    private static Board play(final Board board,
+                              final String moves) {
+        Board played = board;
+        for (final String text : moves.split(" ")) {
+            if (text.isEmpty()) {
+                continue;
+            }
+            final MoveTransition transition = played.currentPlayer().makeMove(findMove(played, text));
+            assertTrue(text, transition.getMoveStatus().isDone());
+            played = transition.getToBoard();
+        }
+        return played;
+    }
+
+    private static OpeningBook openTinyBook() throws IOException {
+        final Path file = copyTinyBook();
+        file.toFile().deleteOnExit();
+        return OpeningBook.open(file);
+    }
+
+    // a memory mapped book needs a file, not a class path resource
+    private static Path copyTinyBook() throws IOException {
+        try (final InputStream in = TestOpeningBook.class.getResourceAsStream(TINY_BOOK)) {
+            if (in == null) {
+                throw new IOException("missing " + TINY_BOOK);
+            }
+            final Path file = Files.createTempFile("tiny", ".bin");
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.ai.OpeningBook;
+import com.chess.engine.player.ai.OpeningBookBuilder;
+import com.chess.pgn.PGNGame;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.ParsePGNException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestOpeningBookBuilder {
+
+    private static final String GAMES =
+        "[Result \"1-0\"]\n\n1.e4 e5 2.Nf3 1-0\n\n" +
+        "[Result \"0-1\"]\n\n1.e4 c5 2.Nf3 0-1\n\n" +
+        "[Result \"1-0\"]\n\n1.e4 c5 2.Nc3 1-0\n\n" +
+        "[Result \"1/2-1/2\"]\n\n1.d4 d5 1/2-1/2\n\n" +
+        "[Result \"*\"]\n\n1.c4 *\n";
+
+    @Test
+    public void testCountsAndScores() throws IOException {
+        final OpeningBook book = build(GAMES, 4, 1, OpeningBookBuilder.DEFAULT_MAX_ENTRIES, 1);
+        final Board start = Board.createStandardBoard();
+        // e4 won twice and lost once, d4 drew, c4 has no result
+        assertEquals(Arrays.asList("e2e4 4", "d2d4 1"), moves(book, start));
+        // e5 lost, only moves that scored something are kept
+        assertEquals(Arrays.asList("c7c5 2"), moves(book, play(start, "e4")));
+        assertEquals(Arrays.asList("b1c3 2"), moves(book, play(start, "e4 c5")));
+        assertEquals(Arrays.asList("d7d5 1"), moves(book, play(start, "d4")));
+    }
+
+    @Test
+    public void testMinimumCountAndPlies() throws IOException {
+        final Board start = Board.createStandardBoard();
+        final OpeningBook frequent = build(GAMES, 4, 2, OpeningBookBuilder.DEFAULT_MAX_ENTRIES, 1);
+        assertEquals(Arrays.asList("e2e4 4"), moves(frequent, start));
+        assertEquals(Arrays.asList("c7c5 2"), moves(frequent, play(start, "e4")));
+        assertTrue(moves(frequent, play(start, "e4 c5")).isEmpty());
+
+        final OpeningBook shallow = build(GAMES, 1, 1, OpeningBookBuilder.DEFAULT_MAX_ENTRIES, 1);
+        assertEquals(2, shallow.size());
+        assertTrue(moves(shallow, play(start, "e4")).isEmpty());
+    }
+
+    /*
+    * Spilling to disk and splitting the games over threads changes nothing: the book from a table that
+    * holds 200 pairs is the same, byte for byte, as the one from a table that holds all of them.
+    * */
+    @Test
+    public void testSpilledBookIsTheSame() throws IOException {
+        final List<PGNGame> games = readGames("smallerTest.pgn").subList(0, 600);
+        final Path inMemory = Files.createTempFile("book", ".bin");
+        final Path spilled = Files.createTempFile("book", ".bin");
+        try {
+            try (final OpeningBookBuilder builder = new OpeningBookBuilder(12, 2, OpeningBookBuilder.DEFAULT_MAX_ENTRIES, 1)) {
+                games.forEach(builder::addGame);
+                final int entries = builder.write(inMemory);
+                assertEquals(0, builder.getSpillCount());
+                assertTrue(entries > 10);
+            }
+            try (final OpeningBookBuilder builder = new OpeningBookBuilder(12, 2, 200, 3)) {
+                games.forEach(builder::addGame);
+                builder.write(spilled);
+                assertEquals(600, builder.getGameCount());
+                assertTrue(builder.getSpillCount() > 1);
+            }
+            assertArrayEquals(Files.readAllBytes(inMemory), Files.readAllBytes(spilled));
+            // the moves are sorted heaviest first and every one of them can be played
+            final OpeningBook book = OpeningBook.open(spilled);
+            final List<OpeningBook.Entry> startEntries = book.lookup(Board.createStandardBoard());
+            assertTrue(startEntries.size() > 1);
+            for (int i = 1; i < startEntries.size(); i++) {
+                assertTrue(startEntries.get(i - 1).getWeight() >= startEntries.get(i).getWeight());
+            }
+            for (final OpeningBook.Entry entry : startEntries) {
+                assertTrue(OpeningBook.decodeMove(Board.createStandardBoard(), entry.getMove()) != null);
+            }
+        } finally {
+            Files.delete(inMemory);
+            Files.delete(spilled);
+        }
+    }
+
+    private static OpeningBook build(final String pgn,
+                                     final int maxPlies,
+                                     final int minCount,
+                                     final int maxEntries,
+                                     final int numThreads) throws IOException {
+        final Path file = Files.createTempFile("book", ".bin");
+        file.toFile().deleteOnExit();
+        try (final OpeningBookBuilder builder = new OpeningBookBuilder(maxPlies, minCount, maxEntries, numThreads)) {
+            builder.addGames(new StringReader(pgn));
+            builder.write(file);
+        }
+        return OpeningBook.open(file);
+    }
+
+    private static List<String> moves(final OpeningBook book,
+                                      final Board board) {
+        final List<String> moves = new ArrayList<>();
+        for (final OpeningBook.Entry entry : book.lookup(board)) {
+            moves.add(OpeningBook.moveText(entry.getMove()) + " " + entry.getWeight());
+        }
+        return moves;
+    }
+
+    private static Board play(final Board board,
+                              final String moves) {
+        Board played = board;
+        for (final String san : moves.split(" ")) {
+            try {
+                final Move move = PGNUtilities.createMove(played, san);
+                played = played.currentPlayer().makeMove(move).getToBoard();
+            } catch (final ParsePGNException e) {
+                throw new AssertionError(e);
+            }
+        }
+        return played;
+    }
+
+    private static List<PGNGame> readGames(final String name) throws IOException {
+        final List<PGNGame> games = new ArrayList<>();
+        try (final InputStream in = TestOpeningBookBuilder.class.getResourceAsStream("/com/tests/chess/engine/pgn/" + name)) {
+            if (in == null) {
+                throw new IOException("missing " + name);
+            }
+            PGNUtilities.forEachGame(new InputStreamReader(in, StandardCharsets.ISO_8859_1), games::add);
+        }
+        return games;
+    }
+
+}
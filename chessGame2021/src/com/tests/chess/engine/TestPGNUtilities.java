@@ -0,0 +1,103 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.pgn.FenUtilities;
+import com.chess.pgn.PGNGame;
+import com.chess.pgn.PGNUtilities;
+import com.chess.pgn.ParsePGNException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestPGNUtilities {
+
+    @Test
+    public void testParens() throws ParsePGNException {
+        final List<String> moves = PGNUtilities.processMoveText("(+)-(-) (+)-(-) 1. e4 e6");
+        assertEquals(Arrays.asList("e4", "e6"), moves);
+    }
+
+    @Test
+    public void testCommentsVariationsAndNags() throws ParsePGNException {
+        final String moveText = "1.e4 {best by test} e5 2.Nf3 $1 Nc6 (2...d6 3.d4 (3.Bc4) exd4) 3.Bb5 ; the Spanish\n" +
+            "a6 4.O-O 1/2-1/2";
+        assertEquals(Arrays.asList("e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "O-O"), PGNUtilities.processMoveText(moveText));
+    }
+
+    @Test(expected = ParsePGNException.class)
+    public void testUnbalancedVariation() throws ParsePGNException {
+        PGNUtilities.processMoveText("1.e4 (1.d4 e5");
+    }
+
+    @Test
+    public void testReadGame() throws IOException {
+        final List<PGNGame> games = readResource("t1.pgn");
+        assertEquals(1, games.size());
+        final PGNGame game = games.get(0);
+        assertEquals("GM Evgenij Miroshnichenko", game.getTag("White"));
+        assertEquals("1-0", game.getResult());
+        assertEquals(1.0, game.getWhiteScore(), 0.0);
+        assertEquals(63, game.getMoves().size());
+        assertEquals("Be8+", game.getMoves().get(62));
+    }
+
+    @Test
+    public void testDisambiguation() throws ParsePGNException {
+        // both rooks can go to a3
+        final Board board = FenUtilities.createGameFromFEN("4k3/8/8/R7/8/8/8/R3K2R w K - 0 1");
+        assertEquals("a1", BoardUtils.getPositionAtCoordinate(PGNUtilities.createMove(board, "R1a3").getCurrentCoordinate()));
+        assertEquals("a5", BoardUtils.getPositionAtCoordinate(PGNUtilities.createMove(board, "R5a3").getCurrentCoordinate()));
+        final Move castle = PGNUtilities.createMove(board, "O-O");
+        assertTrue(castle.isCastlingMove());
+        try {
+            PGNUtilities.createMove(board, "Qd4");
+            fail("found a queen that is not there");
+        } catch (final ParsePGNException expected) {
+            // good
+        }
+    }
+
+    /*
+    * Every move of every game has to be found and played, castling, en passant and promotions included.
+    * */
+    @Test
+    public void testReplayGames() throws IOException, ParsePGNException {
+        final List<PGNGame> games = new ArrayList<>();
+        for (final String file : new String[] {"t1.pgn", "t2.pgn", "t3.pgn", "queenPromotion.pgn"}) {
+            games.addAll(readResource(file));
+        }
+        games.addAll(readResource("smallerTest.pgn").subList(0, 50));
+        for (final PGNGame game : games) {
+            Board board = Board.createStandardBoard();
+            for (final String san : game.getMoves()) {
+                final Move move = PGNUtilities.createMove(board, san);
+                board = board.currentPlayer().makeMove(move).getToBoard();
+            }
+        }
+    }
+
+    private static List<PGNGame> readResource(final String name) throws IOException {
+        final List<PGNGame> games = new ArrayList<>();
+        try (final InputStream in = TestPGNUtilities.class.getResourceAsStream("/com/tests/chess/engine/pgn/" + name)) {
+            if (in == null) {
+                throw new IOException("missing " + name);
+            }
+            PGNUtilities.forEachGame(new InputStreamReader(in, StandardCharsets.ISO_8859_1), games::add);
+        }
+        return games;
+    }
+
+}
@@ -1,122 +1,171 @@
-//package com.tests.chess.engine;
-//
-//import com.chess.engine.Alliance;
-//import com.chess.engine.board.Board;
-//import com.chess.engine.board.Board.Builder;
-//import com.chess.engine.pieces.King;
-//import com.chess.engine.pieces.Pawn;
-//import com.chess.engine.player.ai.PawnStructureAnalyzer;
-//import com.chess.engine.player.ai.StandardBoardEvaluator;
-//import com.chess.pgn.FenUtilities;
-//
-//import org.junit.Test;
-//import static junit.framework.Assert.assertEquals;
-//
-//public class TestPawnStructure {
-//
-//    @Test
-//    public void testIsolatedPawnsOnStandardBoard() {
-//        final Board board = Board.createStandardBoard();
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), 0);
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), 0);
-//    }
-//
-//    @Test
-//    public void testIsolatedPawnByExample1() {
-//        final Board board = FenUtilities.createGameFromFEN("r1bq1rk1/pp2bppp/1np2n2/6B1/3P4/1BNQ4/PP2NPPP/R3R1K1 b - - 0 13");
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), 0);
-//    }
-//
-//    @Test
-//    public void testIsolatedPawnByExample2() {
-//        final Board board = FenUtilities.createGameFromFEN("r1bq1rk1/p3bppp/1np2n2/6B1/3P4/1BNQ4/PP2NPPP/R3R1K1 b - - 0 1");
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
-//    }
-//
-//    @Test
-//    public void testIsolatedPawnByExample3() {
-//        final Builder builder = new Builder();
-//        // Black Layout
-//        builder.setPiece(new King(Alliance.BLACK, 4, false, false));
-//        builder.setPiece(new Pawn(Alliance.BLACK, 12));
-//        builder.setPiece(new Pawn(Alliance.BLACK, 20));
-//        builder.setPiece(new Pawn(Alliance.BLACK, 28));
-//        builder.setPiece(new Pawn(Alliance.BLACK, 8));
-//        builder.setPiece(new Pawn(Alliance.BLACK, 16));
-//        // White Layout
-//        builder.setPiece(new Pawn(Alliance.WHITE, 52));
-//        builder.setPiece(new King(Alliance.WHITE, 60, false, false));
-//        builder.setMoveMaker(Alliance.WHITE);
-//        // Set the current player
-//        final Board board = builder.build();
-//        System.out.println(FenUtilities.createFENFromGame(board));
-//
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 5);
-//    }
-//
-//    @Test
-//    public void testIsolatedPawnByExample4() {
-//        final Board board = FenUtilities.createGameFromFEN("4k3/2p1p1p1/8/8/8/8/2P1P1P1/4K3 w KQkq -");
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
-//        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
-//        assertEquals(boardEvaluator.evaluate(board, 1), 0);
-//    }
-//
-//    @Test
-//    public void testIsolatedPawnByExample5() {
-//        final Board board = FenUtilities.createGameFromFEN("6k1/p6p/8/8/8/8/P6P/6K1 b - - 0 1");
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
-//        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
-//        assertEquals(boardEvaluator.evaluate(board, 1), 0);
-//    }
-//
-//    @Test
-//    public void testIsolatedPawnByExample6() {
-//        final Board board = FenUtilities.createGameFromFEN("6k1/4p3/4p3/8/8/4P3/4P3/6K1 b - - 0 1");
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
-//        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
-//        assertEquals(boardEvaluator.evaluate(board, 1), 0);
-//    }
-//
-//    @Test
-//    public void testDoubledPawnByExample1() {
-//        final Board board = Board.createStandardBoard();
-//        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), 0);
-//        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), 0);
-//        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
-//        assertEquals(boardEvaluator.evaluate(board, 1), 0);
-//    }
-//
-//    @Test
-//    public void testDoubledPawnByExample2() {
-//        final Board board = FenUtilities.createGameFromFEN("6k1/4p3/4p3/8/8/4P3/4P3/6K1 b - - 0 1");
-//        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 2);
-//        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 2);
-//        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
-//        assertEquals(boardEvaluator.evaluate(board, 1), 0);
-//    }
-//
-//    @Test
-//    public void testDoubledPawnByExample3() {
-//        final Board board = FenUtilities.createGameFromFEN("6k1/8/8/P7/P7/P7/8/6K1 b - - 0 1");
-//        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
-//        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), 0);
-//    }
-//
-//    @Test
-//    public void testDoubledPawnByExample4() {
-//        final Board board = FenUtilities.createGameFromFEN("6k1/8/8/P6p/P6p/P6p/8/6K1 b - - 0 1");
-//        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
-//        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
-//        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
-//    }
-//
-//
-//}
+package com.tests.chess.engine;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Board.Builder;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.pieces.King;
+import com.chess.engine.pieces.Pawn;
+import com.chess.engine.player.ai.PawnStructureAnalyzer;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+
+public class TestPawnStructure {
+
+    @Test
+    public void testIsolatedPawnsOnStandardBoard() {
+        final Board board = Board.createStandardBoard();
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), 0);
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), 0);
+    }
+
+    @Test
+    public void testIsolatedPawnByExample1() {
+        final Board board = FenUtilities.createGameFromFEN("r1bq1rk1/pp2bppp/1np2n2/6B1/3P4/1BNQ4/PP2NPPP/R3R1K1 b - - 0 13");
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), 0);
+    }
+
+    @Test
+    public void testIsolatedPawnByExample2() {
+        final Board board = FenUtilities.createGameFromFEN("r1bq1rk1/p3bppp/1np2n2/6B1/3P4/1BNQ4/PP2NPPP/R3R1K1 b - - 0 1");
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
+    }
+
+    @Test
+    public void testIsolatedPawnByExample3() {
+        final Builder builder = new Builder();
+        // Black Layout
+        builder.setPiece(new King(Alliance.BLACK, 4, false, false));
+        builder.setPiece(new Pawn(Alliance.BLACK, 12));
+        builder.setPiece(new Pawn(Alliance.BLACK, 20));
+        builder.setPiece(new Pawn(Alliance.BLACK, 28));
+        builder.setPiece(new Pawn(Alliance.BLACK, 8));
+        builder.setPiece(new Pawn(Alliance.BLACK, 16));
+        // White Layout
+        builder.setPiece(new Pawn(Alliance.WHITE, 52));
+        builder.setPiece(new King(Alliance.WHITE, 60, false, false));
+        builder.setMoveMaker(Alliance.WHITE);
+        // Set the current player
+        final Board board = builder.build();
+
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 5);
+    }
+
+    @Test
+    public void testIsolatedPawnByExample4() {
+        final Board board = FenUtilities.createGameFromFEN("4k3/2p1p1p1/8/8/8/8/2P1P1P1/4K3 w KQkq -");
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
+        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
+        assertEquals(boardEvaluator.evaluate(board, 1), 0);
+    }
+
+    @Test
+    public void testIsolatedPawnByExample5() {
+        final Board board = FenUtilities.createGameFromFEN("6k1/p6p/8/8/8/8/P6P/6K1 b - - 0 1");
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
+        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
+        assertEquals(boardEvaluator.evaluate(board, 1), 0);
+    }
+
+    @Test
+    public void testIsolatedPawnByExample6() {
+        final Board board = FenUtilities.createGameFromFEN("6k1/4p3/4p3/8/8/4P3/4P3/6K1 b - - 0 1");
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 2);
+        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
+        assertEquals(boardEvaluator.evaluate(board, 1), 0);
+    }
+
+    @Test
+    public void testDoubledPawnByExample1() {
+        final Board board = Board.createStandardBoard();
+        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), 0);
+        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), 0);
+        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
+        assertEquals(boardEvaluator.evaluate(board, 1), 0);
+    }
+
+    @Test
+    public void testDoubledPawnByExample2() {
+        final Board board = FenUtilities.createGameFromFEN("6k1/4p3/4p3/8/8/4P3/4P3/6K1 b - - 0 1");
+        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 2);
+        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 2);
+        final StandardBoardEvaluator boardEvaluator = StandardBoardEvaluator.get();
+        assertEquals(boardEvaluator.evaluate(board, 1), 0);
+    }
+
+    @Test
+    public void testDoubledPawnByExample3() {
+        final Board board = FenUtilities.createGameFromFEN("6k1/8/8/P7/P7/P7/8/6K1 b - - 0 1");
+        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
+        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), 0);
+    }
+
+    @Test
+    public void testDoubledPawnByExample4() {
+        final Board board = FenUtilities.createGameFromFEN("6k1/8/8/P6p/P6p/P6p/8/6K1 b - - 0 1");
+        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
+        assertEquals(PawnStructureAnalyzer.get().doubledPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.DOUBLED_PAWN_PENALTY * 3);
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.whitePlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
+        assertEquals(PawnStructureAnalyzer.get().isolatedPawnPenalty(board.blackPlayer()), PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY * 3);
+    }
+
+    @Test
+    public void testPassedPawns() {
+        // the white a pawn is passed and one step from promoting, the g and h pawns keep each other in check
+        final Board board = FenUtilities.createGameFromFEN("6k1/P6p/8/8/8/8/6P1/6K1 w - - 0 1");
+        assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(board, board.whitePlayer()), 100);
+        assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(board, board.blackPlayer()), 0);
+        assertEquals(PawnStructureAnalyzer.get().passedPawnBonus(Board.createStandardBoard(), Board.createStandardBoard().whitePlayer()), 0);
+    }
+
+    @Test
+    public void testPawnHashTableHits() {
+        final PawnStructureAnalyzer analyzer = PawnStructureAnalyzer.get();
+        analyzer.clear();
+        final Board board = FenUtilities.createGameFromFEN("r1bq1rk1/pp2bppp/1np2n2/6B1/3P4/1BNQ4/PP2NPPP/R3R1K1 b - - 0 13");
+        final int score = analyzer.pawnStructureScore(board, board.whitePlayer());
+        assertEquals(analyzer.getMisses(), 1);
+        // a knight move leaves the pawns where they are
+        final Board afterKnightMove = FenUtilities.createGameFromFEN("r1bq1rk1/pp2bppp/1np5/3n2B1/3P4/1BNQ4/PP2NPPP/R3R1K1 w - - 1 14");
+        assertEquals(analyzer.pawnStructureScore(afterKnightMove, afterKnightMove.whitePlayer()), score);
+        assertEquals(analyzer.pawnStructureScore(afterKnightMove, afterKnightMove.blackPlayer()),
+            analyzer.pawnStructureScore(board, board.blackPlayer()));
+        assertEquals(analyzer.getMisses(), 1);
+        assertEquals(analyzer.getHits(), 3);
+        assertEquals(score, PawnStructureAnalyzer.ISOLATED_PAWN_PENALTY);
+    }
+
+    // the pawn key is kept up to date move by move, piece moves leave it alone
+    @Test
+    public void testPawnKeyFollowsPawnMoves() {
+        final Board board = Board.createStandardBoard();
+        final Board afterKnightMove = play(board, "g1", "f3");
+        assertEquals(board.getEvaluationState().getPawnKey(), afterKnightMove.getEvaluationState().getPawnKey());
+        final Board afterPawnMove = play(afterKnightMove, "d7", "d5");
+        assertFalse(afterKnightMove.getEvaluationState().getPawnKey() == afterPawnMove.getEvaluationState().getPawnKey());
+        // 2.e4 dxe4, the capture takes a pawn off and moves one
+        final Board afterCapture = play(play(afterPawnMove, "e2", "e4"), "d5", "e4");
+        final Board setUp = FenUtilities.createGameFromFEN("rnbqkbnr/ppp1pppp/8/8/4p3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 0 3");
+        assertEquals(setUp.getEvaluationState().getPawnKey(), afterCapture.getEvaluationState().getPawnKey());
+    }
+
+    private static Board play(final Board board,
+                              final String from,
+                              final String to) {
+        final Move move = Move.MoveFactory.createMove(board, BoardUtils.INSTANCE.getCoordinateAtPosition(from),
+            BoardUtils.INSTANCE.getCoordinateAtPosition(to));
+        return board.currentPlayer().makeMove(move).getToBoard();
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.ai.PieceSquareTableEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestPieceSquareTableEvaluator {
+
+    @Test
+    public void testStandardBoardIsEven() {
+        assertEquals(0, PieceSquareTableEvaluator.get().evaluate(Board.createStandardBoard(), 0));
+    }
+
+    @Test
+    public void testMirroredPositionsScoreOpposite() {
+        final Board board = FenUtilities.createGameFromFEN("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 1");
+        final Board mirrored = FenUtilities.createGameFromFEN("rnbqk2r/pppp1ppp/5n2/2b1p3/4P3/2N2N2/PPPP1PPP/R1BQKB1R b KQkq - 0 1");
+        assertEquals(PieceSquareTableEvaluator.get().evaluate(board, 0),
+            -PieceSquareTableEvaluator.get().evaluate(mirrored, 0));
+    }
+
+    @Test
+    public void testCentralKnightBeatsKnightOnTheRim() {
+        final Board centre = FenUtilities.createGameFromFEN("4k3/8/8/8/3N4/8/8/4K3 w - - 0 1");
+        final Board rim = FenUtilities.createGameFromFEN("4k3/8/8/8/N7/8/8/4K3 w - - 0 1");
+        assertTrue(PieceSquareTableEvaluator.get().evaluate(centre, 0) >
+            PieceSquareTableEvaluator.get().evaluate(rim, 0));
+    }
+
+    /*
+    * With only kings and pawns left the end game tables take over: the king belongs in the centre,
+    * not tucked away on g1 where the middle game tables want it.
+    * */
+    @Test
+    public void testKingCentralisesInTheEndGame() {
+        final Board central = FenUtilities.createGameFromFEN("4k3/pppp4/8/8/4K3/8/PPPP4/8 w - - 0 1");
+        final Board castled = FenUtilities.createGameFromFEN("4k3/pppp4/8/8/8/8/PPPP4/6K1 w - - 0 1");
+        assertTrue(PieceSquareTableEvaluator.get().evaluate(central, 0) >
+            PieceSquareTableEvaluator.get().evaluate(castled, 0));
+
+        final Board middleGameCentral = FenUtilities.createGameFromFEN("rnbqkbnr/pppppppp/8/8/4K3/8/PPPPPPPP/RNBQ1BNR w kq - 0 1");
+        final Board middleGameCastled = FenUtilities.createGameFromFEN("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQNBKR w kq - 0 1");
+        assertTrue(PieceSquareTableEvaluator.get().evaluate(middleGameCastled, 0) >
+            PieceSquareTableEvaluator.get().evaluate(middleGameCentral, 0));
+    }
+
+    @Test
+    public void testCheckMateScoresForTheWinner() {
+        // fools mate, white is mated
+        final Board board = FenUtilities.createGameFromFEN("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 0 1");
+        assertTrue(PieceSquareTableEvaluator.get().evaluate(board, 0) < -5000);
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.ProofNumberSearch;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestProofNumberSearch {
+
+    // mate in 2 positions from TestCheckmate
+    @Test
+    public void testMateInTwoQueenToE6() {
+        assertMate("6k1/1b4pp/1B1Q4/4p1P1/p3q3/2P3r1/P1P2PP1/R5K1 w - - 1 0", 2, "d6", "e6");
+    }
+
+    // the smothered mate from TestAlphaBeta
+    @Test
+    public void testSmotheredMateInThree() {
+        assertMate("5rk1/5Npp/8/3Q4/8/8/8/7K w - - 0 1", 3, "f7", "h6");
+    }
+
+    @Test
+    public void testMateInTwoQueenSacrifice() {
+        assertMate("rn3rk1/1R3ppp/2p5/8/PQ2P3/1P5P/2P1qPP1/3R2K1 w - - 1 0", 2, "b4", "f8");
+    }
+
+    // the mate in 4 from TestCheckmate, far too deep for our fixed depth MiniMax
+    @Test
+    public void testMateInFourRookSacrifice() {
+        assertMate("7k/4r2B/1pb5/2P5/4p2Q/2q5/2P2R2/1K6 w - - 1 0", 4, "f2", "f8");
+    }
+
+    @Test
+    public void testNoMateInStartingPosition() {
+        final ProofNumberSearch search = new ProofNumberSearch(2);
+        assertEquals(Move.MoveFactory.getNullMove(), search.execute(Board.createStandardBoard()));
+        assertTrue(search.getMatingLine().isEmpty());
+        assertEquals(0, search.getMateInMoves());
+        assertEquals(0, search.getProofSize());
+    }
+
+    // a node table with only a handful of slots has to evict constantly but must still find the mate
+    @Test
+    public void testTinyNodeTableStillProvesMate() {
+        final Board board = FenUtilities.createGameFromFEN("6k1/1b4pp/1B1Q4/4p1P1/p3q3/2P3r1/P1P2PP1/R5K1 w - - 1 0");
+        final ProofNumberSearch search = new ProofNumberSearch(2, 64, 5_000_000L);
+        search.execute(board);
+        assertEquals(2, search.getMateInMoves());
+        assertMatingLineEndsInMate(board, search);
+    }
+
+    @Test
+    public void testNodeBudgetAbortsSearch() {
+        final Board board = FenUtilities.createGameFromFEN("7k/4r2B/1pb5/2P5/4p2Q/2q5/2P2R2/1K6 w - - 1 0");
+        final ProofNumberSearch search = new ProofNumberSearch(4, 1 << 16, 100L);
+        search.execute(board);
+        assertTrue(search.isBudgetExhausted());
+        assertTrue(search.getMatingLine().isEmpty());
+    }
+
+    /*
+    * A budget that only just covers the proof must not lose the mate that was already proven. Walking the
+    * line has a budget of its own, with a big table that is plenty. With a tiny one the proof has to be
+    * redone on the way and the line may be cut short, but what there is of it must be playable.
+    * */
+    @Test
+    public void testBudgetJustAboveProofCost() {
+        final Board board = FenUtilities.createGameFromFEN("6k1/1b4pp/1B1Q4/4p1P1/p3q3/2P3r1/P1P2PP1/R5K1 w - - 1 0");
+        final ProofNumberSearch measure = new ProofNumberSearch(2, 64, 5_000_000L);
+        assertFalse(measure.prove(board, 1));
+        assertTrue(measure.prove(board, 3));
+        final long proofCost = measure.getNumBoardsEvaluated();
+
+        final ProofNumberSearch tinyTable = new ProofNumberSearch(2, 64, proofCost + 1);
+        final Move bestMove = tinyTable.execute(board);
+        assertEquals(2, tinyTable.getMateInMoves());
+        assertTrue(tinyTable.getMatingLine().size() <= 3);
+        if (!tinyTable.getMatingLine().isEmpty()) {
+            assertEquals(tinyTable.getMatingLine().get(0), bestMove);
+        }
+        Board current = board;
+        for (final Move move : tinyTable.getMatingLine()) {
+            final MoveTransition transition = current.currentPlayer().makeMove(move);
+            assertTrue(transition.getMoveStatus().isDone());
+            current = transition.getToBoard();
+        }
+
+        final ProofNumberSearch bigTable = new ProofNumberSearch(2, 1 << 16, proofCost + 1);
+        bigTable.execute(board);
+        assertEquals(2, bigTable.getMateInMoves());
+        assertFalse(bigTable.isBudgetExhausted());
+        assertMatingLineEndsInMate(board, bigTable);
+    }
+
+    private static void assertMate(final String fen,
+                                   final int mateInMoves,
+                                   final String from,
+                                   final String to) {
+        final Board board = FenUtilities.createGameFromFEN(fen);
+        final ProofNumberSearch search = new ProofNumberSearch(mateInMoves);
+        final Move bestMove = search.execute(board);
+        assertEquals(mateInMoves, search.getMateInMoves());
+        assertEquals(Move.MoveFactory.createMove(board, BoardUtils.INSTANCE.getCoordinateAtPosition(from),
+            BoardUtils.INSTANCE.getCoordinateAtPosition(to)), bestMove);
+        assertEquals(2 * mateInMoves - 1, search.getMatingLine().size());
+        assertTrue(search.getProofSize() >= search.getMatingLine().size() + 1);
+        assertMatingLineEndsInMate(board, search);
+    }
+
+    private static void assertMatingLineEndsInMate(final Board board,
+                                                   final ProofNumberSearch search) {
+        Board current = board;
+        for (final Move move : search.getMatingLine()) {
+            final MoveTransition transition = current.currentPlayer().makeMove(move);
+            assertTrue(transition.getMoveStatus().isDone());
+            current = transition.getToBoard();
+        }
+        assertTrue(current.currentPlayer().isInCheckMate());
+        assertFalse(current.currentPlayer().isInStaleMate());
+    }
+
+}
@@ -1,40 +1,54 @@
-//package com.tests.chess.engine;
-
-//import static junit.framework.Assert.assertEquals;
-//
-//import com.chess.engine.classic.pieces.Rook;
-//import com.chess.engine.classic.player.ai.RookStructureAnalyzer;
-//import org.junit.Test;
-//
-//import com.chess.engine.classic.Alliance;
-//import com.chess.engine.classic.board.Board;
-//import com.chess.engine.classic.board.Board.Builder;
-//import com.chess.engine.classic.pieces.King;
-//
-//public class TestRookStructure {
-//
-//    @Test
-//    public void test1() {
-//        final Board board = Board.createStandardBoard();
-//        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), 0);
-//        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), 0);
-//    }
-//
-//    @Test
-//    public void test2() {
-//        final Builder builder = new Builder();
-//        // Black Layout
-//        builder.setPiece(new Rook(Alliance.BLACK, 0));
-//        builder.setPiece(new King(Alliance.BLACK, 4, false, false));
-//        // White Layout
-//        builder.setPiece(new Rook(Alliance.WHITE, 63));
-//        builder.setPiece(new King(Alliance.WHITE, 60, false, false));
-//        builder.setMoveMaker(Alliance.WHITE);
-//        // Set the current player
-//        final Board board = builder.build();
-//        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), 25);
-//        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), 25);
-//    }
-//
-//
-//}
+package com.tests.chess.engine;
+
+import static junit.framework.Assert.assertEquals;
+
+import com.chess.engine.pieces.Rook;
+import com.chess.engine.player.ai.RookStructureAnalyzer;
+import com.chess.pgn.FenUtilities;
+import org.junit.Test;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Board.Builder;
+import com.chess.engine.pieces.King;
+
+public class TestRookStructure {
+
+    @Test
+    public void test1() {
+        final Board board = Board.createStandardBoard();
+        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), 0);
+        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.blackPlayer()), 0);
+    }
+
+    @Test
+    public void test2() {
+        final Builder builder = new Builder();
+        // Black Layout
+        builder.setPiece(new Rook(Alliance.BLACK, 0));
+        builder.setPiece(new King(Alliance.BLACK, 4, false, false));
+        // White Layout
+        builder.setPiece(new Rook(Alliance.WHITE, 63));
+        builder.setPiece(new King(Alliance.WHITE, 60, false, false));
+        builder.setMoveMaker(Alliance.WHITE);
+        // Set the current player
+        final Board board = builder.build();
+        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()), 25);
+        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.blackPlayer()), 25);
+    }
+
+    @Test
+    public void testSemiOpenFileSeventhRankAndConnectedRooks() {
+        // white rooks doubled on the c file (black pawn on c6), black rooks on the second rank blocked by the king
+        final Board board = FenUtilities.createGameFromFEN("6k1/2R5/2p5/8/8/8/1r2K2r/2R5 w - - 0 1");
+        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.whitePlayer()),
+            RookStructureAnalyzer.SEMI_OPEN_FILE_BONUS * 2 + RookStructureAnalyzer.SEVENTH_RANK_BONUS);
+        assertEquals(RookStructureAnalyzer.get().rookStructureScore(board, board.blackPlayer()),
+            RookStructureAnalyzer.OPEN_FILE_BONUS * 2 + RookStructureAnalyzer.SEVENTH_RANK_BONUS * 2);
+
+        final Board connected = FenUtilities.createGameFromFEN("6k1/8/8/8/8/8/8/R4RK1 w - - 0 1");
+        assertEquals(RookStructureAnalyzer.get().rookStructureScore(connected, connected.whitePlayer()),
+            RookStructureAnalyzer.OPEN_FILE_BONUS * 2 + RookStructureAnalyzer.CONNECTED_ROOKS_BONUS);
+    }
+
+}
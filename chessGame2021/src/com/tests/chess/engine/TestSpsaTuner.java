@@ -0,0 +1,107 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.ai.EvaluationParameters;
+import com.chess.engine.player.ai.MTDf;
+import com.chess.engine.player.ai.SpsaTuner;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestSpsaTuner {
+
+    @Test
+    public void testDefaultParametersPlayLikeTheEngine() {
+        final StandardBoardEvaluator engine = StandardBoardEvaluator.withLazyMargin(StandardBoardEvaluator.DEFAULT_LAZY_MARGIN);
+        final StandardBoardEvaluator fromParameters = StandardBoardEvaluator.withParameters(EvaluationParameters.defaults());
+        assertEquals(StandardBoardEvaluator.DEFAULT_LAZY_MARGIN, fromParameters.getLazyMargin());
+        for (final Board board : randomGame(new Random(46), 60)) {
+            assertEquals(engine.evaluate(board, 0), fromParameters.evaluate(board, 0));
+            assertEquals(engine.evaluate(board, 2, -50, 50), fromParameters.evaluate(board, 2, -50, 50));
+        }
+    }
+
+    @Test
+    public void testTunedPieceValues() {
+        final int[] values = EvaluationParameters.defaults().toArray();
+        values[EvaluationParameters.pieceValueIndex(Piece.PieceType.KNIGHT)] += 40;
+        values[EvaluationParameters.CHECK_BONUS] = 0;
+        final StandardBoardEvaluator tuned = StandardBoardEvaluator.withParameters(new EvaluationParameters(values));
+        // white has two knights, black one
+        final Board board = FenUtilities.createGameFromFEN("4k3/8/8/8/8/8/8/1N2K1N1 w - - 0 1");
+        final Board fewer = FenUtilities.createGameFromFEN("4k1n1/8/8/8/8/8/8/1N2K1N1 w - - 0 1");
+        assertEquals(StandardBoardEvaluator.get().cheapScore(board, 0) + 80, tuned.cheapScore(board, 0));
+        assertEquals(StandardBoardEvaluator.get().cheapScore(fewer, 0) + 40, tuned.cheapScore(fewer, 0));
+    }
+
+    @Test
+    public void testNodeLimit() {
+        final MTDf search = new MTDf(30, StandardBoardEvaluator.get());
+        search.setNodeLimit(500);
+        final Board board = Board.createStandardBoard();
+        final Move move = search.findBestMove(board);
+        assertTrue(board.currentPlayer().makeMove(move).getMoveStatus().isDone());
+        assertTrue(search.getNumNodesSearched() <= 501);
+    }
+
+    @Test
+    public void testGameResults() {
+        final EvaluationParameters defaults = EvaluationParameters.defaults();
+        // mate in one on the back rank
+        assertEquals(1.0, SpsaTuner.playGame(FenUtilities.createGameFromFEN("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"),
+            defaults, defaults, 300), 0.0);
+        // fools mate, white is already checkmated
+        assertEquals(0.0, SpsaTuner.playGame(FenUtilities.createGameFromFEN(
+            "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 0 1"), defaults, defaults, 300), 0.0);
+        assertEquals(0.5, SpsaTuner.playGame(FenUtilities.createGameFromFEN("8/8/4k3/8/8/8/8/2B1K3 w - - 0 1"),
+            defaults, defaults, 300), 0.0);
+    }
+
+    @Test
+    public void testTuningOnlyMovesTheTunedValues() {
+        final EvaluationParameters defaults = EvaluationParameters.defaults();
+        final EvaluationParameters tuned;
+        try (final SpsaTuner tuner = new SpsaTuner(2, 1, 100, 46)) {
+            tuned = tuner.tune(defaults, 1);
+        }
+        assertEquals(100, tuned.get(EvaluationParameters.pieceValueIndex(Piece.PieceType.PAWN)));
+        for (int i = EvaluationParameters.MIDDLE_GAME_TABLES; i < EvaluationParameters.SIZE; i++) {
+            assertEquals(defaults.get(i), tuned.get(i));
+        }
+        assertTrue(tuned.get(EvaluationParameters.LAZY_MARGIN) > 0);
+    }
+
+    private static List<Board> randomGame(final Random random,
+                                          final int plies) {
+        final List<Board> boards = new ArrayList<>();
+        Board board = Board.createStandardBoard();
+        boards.add(board);
+        for (int ply = 0; ply < plies; ply++) {
+            final List<Board> children = new ArrayList<>();
+            for (final Move move : board.currentPlayer().getLegalMoves()) {
+                final MoveTransition transition = board.currentPlayer().makeMove(move);
+                if (transition.getMoveStatus().isDone()) {
+                    children.add(transition.getToBoard());
+                }
+            }
+            if (children.isEmpty()) {
+                break;
+            }
+            board = children.get(random.nextInt(children.size()));
+            boards.add(board);
+        }
+        return boards;
+    }
+
+}
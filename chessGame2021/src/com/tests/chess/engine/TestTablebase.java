@@ -0,0 +1,183 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.AttackInfo;
+import com.chess.engine.board.Bitboards;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardMirror;
+import com.chess.engine.board.Move;
+import com.chess.engine.board.MoveTransition;
+import com.chess.engine.player.ai.MTDf;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.engine.player.ai.Tablebase;
+import com.chess.engine.player.ai.TablebaseGenerator;
+import com.chess.pgn.FenUtilities;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestTablebase {
+
+    private static TablebaseGenerator generator;
+    private static Tablebase tablebase;
+    private static Path directory;
+
+    @BeforeClass
+    public static void generateTables() throws IOException {
+        directory = Files.createTempDirectory("tablebase");
+        generator = new TablebaseGenerator(directory, 2);
+        tablebase = generator.generate(Arrays.asList("KQK", "KRK", "KBK", "KNK", "KPK"));
+    }
+
+    @Test
+    public void testLongestMates() {
+        // the well known longest wins: mate in 10, 16 and 28 moves
+        assertEquals(19, generator.getLongestMate("KQK"));
+        assertEquals(31, generator.getLongestMate("KRK"));
+        assertEquals(55, generator.getLongestMate("KPK"));
+        assertEquals(-1, generator.getLongestMate("KBK"));
+        assertEquals(-1, generator.getLongestMate("KNK"));
+    }
+
+    @Test
+    public void testReopenFromDisk() throws IOException {
+        final Tablebase reopened = Tablebase.open(directory);
+        assertEquals(5, reopened.size());
+        assertTrue(Files.exists(Tablebase.fileOf(directory, "KPK")));
+        final Board board = FenUtilities.createGameFromFEN("8/8/8/4k3/8/8/8/3QK3 w - - 0 1");
+        assertEquals(tablebase.probe(board), reopened.probe(board));
+    }
+
+    @Test
+    public void testKingAndPawnOpposition() {
+        // the opposition: whoever has to move gives way, a draw with white to move and a win with black to move
+        final int whiteToMove = tablebase.probe(FenUtilities.createGameFromFEN("8/8/4k3/8/4K3/4P3/8/8 w - - 0 1"));
+        final int blackToMove = tablebase.probe(FenUtilities.createGameFromFEN("8/8/4k3/8/4K3/4P3/8/8 b - - 0 1"));
+        assertEquals(Tablebase.DRAW, whiteToMove);
+        assertTrue(blackToMove < -Tablebase.WIN_SCORE / 2);
+    }
+
+    @Test
+    public void testCheckmateAndLoneKings() {
+        // mated right now: no distance left
+        assertEquals(-Tablebase.WIN_SCORE, tablebase.probe(FenUtilities.createGameFromFEN("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1")));
+        assertEquals(Tablebase.DRAW, tablebase.probe(FenUtilities.createGameFromFEN("8/8/4k3/8/8/8/8/2B1K3 w - - 0 1")));
+        assertEquals(Tablebase.NOT_FOUND, tablebase.probe(Board.createStandardBoard()));
+        assertEquals(Tablebase.NOT_FOUND, tablebase.probe(FenUtilities.createGameFromFEN("8/8/4k3/8/8/8/8/R2QK3 w - - 0 1")));
+    }
+
+    @Test
+    public void testColoursReversed() {
+        for (final String fen : new String[] {"8/8/8/4k3/8/8/8/3QK3 w - - 0 1",
+                                              "8/8/8/2k5/8/8/8/R3K3 b - - 0 1",
+                                              "8/8/8/3k4/8/8/P7/4K3 b - - 0 1"}) {
+            final Board board = FenUtilities.createGameFromFEN(fen);
+            assertEquals(fen, tablebase.probe(board), tablebase.probe(BoardMirror.mirror(board)));
+        }
+    }
+
+    // every entry agrees with the best of the entries one move further on, moves by the engine itself
+    @Test
+    public void testAgreesWithTheMoveGenerator() {
+        final Random random = new Random(44);
+        final String[] endings = {"Q", "R", "P", "q", "r", "p"};
+        int checked = 0;
+        while (checked < 300) {
+            final Board board = randomPosition(random, endings[random.nextInt(endings.length)]);
+            if (board == null) {
+                continue;
+            }
+            int expected = Integer.MIN_VALUE;
+            for (final Move move : board.currentPlayer().getLegalMoves()) {
+                final MoveTransition transition = board.currentPlayer().makeMove(move);
+                if (transition.getMoveStatus().isDone()) {
+                    final int child = tablebase.probe(transition.getToBoard());
+                    expected = Math.max(expected, child > 0 ? -child + 1 : child < 0 ? -child - 1 : 0);
+                }
+            }
+            if (expected == Integer.MIN_VALUE) {
+                expected = board.currentPlayer().isInCheck() ? -Tablebase.WIN_SCORE : Tablebase.DRAW;
+            }
+            assertEquals(FenUtilities.createFENFromGame(board), expected, tablebase.probe(board));
+            checked++;
+        }
+    }
+
+    @Test
+    public void testSearchPlaysTheShortestMate() {
+        final Board start = FenUtilities.createGameFromFEN("8/8/8/3k4/8/8/8/R3K3 w - - 0 1");
+        final int distance = Tablebase.WIN_SCORE - tablebase.probe(start);
+        final MTDf search = new MTDf(1, StandardBoardEvaluator.get());
+        search.setTablebase(tablebase);
+        Board board = start;
+        int plies = 0;
+        while (!board.currentPlayer().isInCheckMate()) {
+            final MoveTransition transition = board.currentPlayer().makeMove(search.execute(board));
+            assertTrue(transition.getMoveStatus().isDone());
+            board = transition.getToBoard();
+            plies++;
+            assertTrue(plies <= distance);
+        }
+        assertEquals(distance, plies);
+    }
+
+    // a legal position of two kings and the piece, upper case for a white piece
+    private static Board randomPosition(final Random random,
+                                        final String piece) {
+        final char[] squares = new char[64];
+        Arrays.fill(squares, '.');
+        final int[] placed = new int[3];
+        final char[] letters = {'K', 'k', piece.charAt(0)};
+        for (int i = 0; i < letters.length; i++) {
+            do {
+                placed[i] = random.nextInt(64);
+            } while (squares[placed[i]] != '.');
+            squares[placed[i]] = letters[i];
+        }
+        final int pawnRow = Bitboards.rowOf(placed[2]);
+        if (Character.toLowerCase(letters[2]) == 'p' && (pawnRow == 0 || pawnRow == 7)) {
+            return null;
+        }
+        final boolean whiteToMove = random.nextBoolean();
+        final Board board = FenUtilities.createGameFromFEN(toFen(squares, whiteToMove));
+        final Alliance toMove = whiteToMove ? Alliance.WHITE : Alliance.BLACK;
+        final AttackInfo attackInfo = AttackInfo.calculate(board);
+        final long otherKing = Bitboards.squareMask(attackInfo.getKingSquare(toMove.getOpposite()));
+        return (attackInfo.getAttacks(toMove) & otherKing) == 0L ? board : null;
+    }
+
+    private static String toFen(final char[] squares,
+                                final boolean whiteToMove) {
+        final StringBuilder builder = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                final char square = squares[row * 8 + file];
+                if (square == '.') {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    builder.append(empty);
+                    empty = 0;
+                }
+                builder.append(square);
+            }
+            if (empty > 0) {
+                builder.append(empty);
+            }
+            builder.append(row < 7 ? "/" : "");
+        }
+        return builder.append(whiteToMove ? " w" : " b").append(" - - 0 1").toString();
+    }
+
+}
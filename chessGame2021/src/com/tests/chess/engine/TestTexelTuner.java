@@ -0,0 +1,123 @@
+package com.tests.chess.engine;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.ai.EvaluationParameters;
+import com.chess.engine.player.ai.PieceSquareTableEvaluator;
+import com.chess.engine.player.ai.TexelTuner;
+import com.chess.pgn.FenUtilities;
+import com.chess.pgn.PGNGame;
+import com.chess.pgn.PGNUtilities;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestTexelTuner {
+
+    @Test
+    public void testDefaultsAreTheEngineConstants() {
+        final EvaluationParameters defaults = EvaluationParameters.defaults();
+        assertEquals(100, defaults.get(EvaluationParameters.pieceValueIndex(Piece.PieceType.PAWN)));
+        assertEquals(900, defaults.get(EvaluationParameters.pieceValueIndex(Piece.PieceType.QUEEN)));
+        assertEquals(50, defaults.get(EvaluationParameters.CHECK_BONUS));
+        assertEquals(60, defaults.get(EvaluationParameters.CASTLE_BONUS));
+        // knight in the corner (a8) and pawn on the seventh rank (a7) in the middle game tables
+        assertEquals(-50, defaults.get(EvaluationParameters.middleGameIndex(Piece.PieceType.KNIGHT, 0)));
+        assertEquals(50, defaults.get(EvaluationParameters.middleGameIndex(Piece.PieceType.PAWN, 8)));
+        assertEquals(80, defaults.get(EvaluationParameters.endGameIndex(Piece.PieceType.PAWN, 8)));
+    }
+
+    @Test
+    public void testParameterFileRoundTrip() throws IOException {
+        final int[] values = EvaluationParameters.defaults().toArray();
+        values[EvaluationParameters.CHECK_BONUS] = 33;
+        values[EvaluationParameters.endGameIndex(Piece.PieceType.KING, 63)] = -77;
+        final EvaluationParameters parameters = new EvaluationParameters(values);
+        final Path file = Files.createTempFile("texel", ".txt");
+        try {
+            parameters.write(file, "round trip");
+            assertEquals(parameters, EvaluationParameters.read(file));
+            // a file with only a few values keeps the defaults for the rest
+            Files.write(file, "# partial\nCASTLE_BONUS 12\n".getBytes(StandardCharsets.UTF_8));
+            final EvaluationParameters partial = EvaluationParameters.read(file);
+            assertEquals(12, partial.get(EvaluationParameters.CASTLE_BONUS));
+            assertEquals(50, partial.get(EvaluationParameters.CHECK_BONUS));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testTuningLowersTheError() throws IOException {
+        final List<PGNGame> games = readGames("smallerTest.pgn").subList(0, 300);
+        try (final TexelTuner tuner = TexelTuner.fromGames(games, true, 2)) {
+            assertTrue(tuner.getPositionCount() > 1000);
+            final EvaluationParameters initial = EvaluationParameters.defaults();
+            final double k = tuner.fitScalingConstant(initial);
+            assertTrue(k > 0.0 && k < 3.0);
+            final double initialError = tuner.error(initial, k);
+            final EvaluationParameters tuned = tuner.tune(initial, k, 50);
+            assertTrue(tuner.error(tuned, k) < initialError);
+        }
+    }
+
+    @Test
+    public void testWithoutTablesOnlyScalarsMove() throws IOException {
+        final List<PGNGame> games = readGames("smallerTest.pgn").subList(0, 100);
+        try (final TexelTuner tuner = TexelTuner.fromGames(games, false, 1)) {
+            final EvaluationParameters initial = EvaluationParameters.defaults();
+            final EvaluationParameters tuned = tuner.tune(initial, 1.0, 10);
+            for (int i = EvaluationParameters.MIDDLE_GAME_TABLES; i < EvaluationParameters.SIZE; i++) {
+                assertEquals(initial.get(i), tuned.get(i));
+            }
+        }
+    }
+
+    // what --pst writes is what PieceSquareTableEvaluator plays with
+    @Test
+    public void testTunedTablesAreLoadable() throws IOException {
+        assertSame(PieceSquareTableEvaluator.get(), PieceSquareTableEvaluator.withParameters(EvaluationParameters.defaults()));
+        final Board board = FenUtilities.createGameFromFEN("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 1");
+        final int[] values = EvaluationParameters.defaults().toArray();
+        // the knights on f3 and f6 both read table index 45 and cancel, black's on c6 reads white's c3 (42)
+        values[EvaluationParameters.middleGameIndex(Piece.PieceType.KNIGHT, 45)] += 48;
+        values[EvaluationParameters.endGameIndex(Piece.PieceType.KNIGHT, 45)] += 48;
+        values[EvaluationParameters.middleGameIndex(Piece.PieceType.KNIGHT, 42)] -= 24;
+        values[EvaluationParameters.endGameIndex(Piece.PieceType.KNIGHT, 42)] -= 24;
+        values[EvaluationParameters.pieceValueIndex(Piece.PieceType.BISHOP)] += 5;
+        final Path file = Files.createTempFile("texel", ".txt");
+        try {
+            new EvaluationParameters(values).write(file, "tuned tables");
+            final PieceSquareTableEvaluator tuned = PieceSquareTableEvaluator.withParameters(EvaluationParameters.read(file));
+            assertEquals(PieceSquareTableEvaluator.get().evaluate(board, 0) + 24, tuned.evaluate(board, 0));
+            // the same pieces on both sides still cancel out
+            assertEquals(0, tuned.evaluate(Board.createStandardBoard(), 0));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<PGNGame> readGames(final String name) throws IOException {
+        final List<PGNGame> games = new ArrayList<>();
+        try (final InputStream in = TestTexelTuner.class.getResourceAsStream("/com/tests/chess/engine/pgn/" + name)) {
+            if (in == null) {
+                throw new IOException("missing " + name);
+            }
+            PGNUtilities.forEachGame(new InputStreamReader(in, StandardCharsets.ISO_8859_1), games::add);
+        }
+        return games;
+    }
+
+}